@@ -0,0 +1,125 @@
+#!/bin/bash
+
+# Enterprise Data Sharing - BRIN vs B-tree Benchmark
+# Compares index size, build time and range-scan speed of B-tree and BRIN
+# indexes on my_data.date and my_data.created_at. Runs against a scratch
+# copy of my_data so the live table and its indexes are not touched:
+#
+#   ./mvnw spring-boot:run -Dspring-boot.run.profiles=datagen      # optional, load data first
+#   ./brin-benchmark.sh
+#   ORDER_BY=date ./brin-benchmark.sh date-order
+#
+# The copy is written in ORDER_BY order (default: current physical order);
+# BRIN only helps when the column correlates with it, so compare runs with
+# ORDER_BY unset, created_at and date.
+#
+# Requires: psql, jq
+
+set -e
+
+# Configuration
+export PGHOST="${PGHOST:-localhost}"
+export PGPORT="${PGPORT:-5432}"
+export PGDATABASE="${PGDATABASE:-datasharing}"
+export PGUSER="${PGUSER:-datasharing}"
+export PGPASSWORD="${PGPASSWORD:-datasharing_secret}"
+ORDER_BY="${ORDER_BY:-}"
+RANGE_DAYS="${RANGE_DAYS:-1 30 365 1095}"
+PAGES_PER_RANGE="${PAGES_PER_RANGE:-32}"
+REPEAT="${REPEAT:-3}"
+LABEL="${1:-run}"
+RESULTS_FILE="brin-benchmark-${LABEL}.csv"
+TABLE="brin_bench"
+
+# Colors for output
+GREEN='\033[0;32m'
+BLUE='\033[0;34m'
+NC='\033[0m' # No Color
+
+sql() {
+    psql -X -q -t -A -v ON_ERROR_STOP=1 -c "$1"
+}
+
+now_ms() {
+    echo $(( $(date +%s%N) / 1000000 ))
+}
+
+# Best of REPEAT runs of a range query; forces index scans so each index is measured
+run_range() {
+    local column=$1
+    local type=$2
+    local index=$3
+    local index_bytes=$4
+    local build_ms=$5
+    local days bound rows best buffers plan time
+
+    for days in ${RANGE_DAYS}; do
+        bound=$(sql "SELECT (max(${column}) - interval '${days} days')::${type} FROM ${TABLE}")
+        local query="SELECT count(*), sum(length(name)) FROM ${TABLE} WHERE ${column} >= '${bound}'"
+        rows=$(sql "SELECT count(*) FROM ${TABLE} WHERE ${column} >= '${bound}'")
+
+        best=""
+        for _ in $(seq "${REPEAT}"); do
+            plan=$(psql -X -q -t -A -v ON_ERROR_STOP=1 \
+                -c "SET enable_seqscan = $([ "${index}" = "none" ] && echo on || echo off)" \
+                -c "EXPLAIN (ANALYZE, BUFFERS, FORMAT JSON) ${query}")
+            time=$(echo "${plan}" | jq '.[0]["Execution Time"]')
+            if [ -z "${best}" ] || awk "BEGIN { exit !(${time} < ${best}) }"; then
+                best=${time}
+                buffers=$(echo "${plan}" | jq '.[0].Plan["Shared Hit Blocks"] + .[0].Plan["Shared Read Blocks"]')
+            fi
+        done
+
+        echo "${LABEL},${column},${index},${index_bytes},${build_ms},${days},${rows},${best},${buffers}" >> "${RESULTS_FILE}"
+        echo -e "${GREEN}  ${days}d: ${rows} rows, ${best} ms, ${buffers} buffers${NC}"
+    done
+}
+
+# Build one index on the scratch copy, measure it, then drop it
+bench_index() {
+    local column=$1
+    local type=$2
+    local method=$3
+    local start build_ms index_bytes
+
+    echo -e "${BLUE}=== ${column}: ${method} ===${NC}"
+    if [ "${method}" = "none" ]; then
+        run_range "${column}" "${type}" none 0 0
+        return
+    fi
+
+    local with=""
+    [ "${method}" = "brin" ] && with="WITH (pages_per_range = ${PAGES_PER_RANGE})"
+
+    start=$(now_ms)
+    sql "CREATE INDEX ${TABLE}_idx ON ${TABLE} USING ${method} (${column}) ${with}"
+    build_ms=$(( $(now_ms) - start ))
+    index_bytes=$(sql "SELECT pg_relation_size('${TABLE}_idx')")
+    echo "  index size $(sql "SELECT pg_size_pretty(pg_relation_size('${TABLE}_idx'))"), built in ${build_ms} ms"
+
+    run_range "${column}" "${type}" "${method}" "${index_bytes}" "${build_ms}"
+    sql "DROP INDEX ${TABLE}_idx"
+}
+
+trap 'sql "DROP TABLE IF EXISTS ${TABLE}" || true' EXIT
+
+echo -e "${BLUE}Copying my_data${ORDER_BY:+ ordered by ${ORDER_BY}}...${NC}"
+sql "DROP TABLE IF EXISTS ${TABLE}"
+sql "CREATE TABLE ${TABLE} AS SELECT * FROM my_data ${ORDER_BY:+ORDER BY ${ORDER_BY}}"
+sql "ANALYZE ${TABLE}"
+echo "  $(sql "SELECT count(*) FROM ${TABLE}") rows, $(sql "SELECT pg_size_pretty(pg_relation_size('${TABLE}'))")"
+sql "SELECT '  correlation of ' || attname || ' with row order: ' || round(correlation::numeric, 3)
+     FROM pg_stats WHERE tablename = '${TABLE}' AND attname IN ('date', 'created_at')"
+
+echo "label,column,index,index_bytes,build_ms,range_days,rows,execution_ms,buffers" > "${RESULTS_FILE}"
+
+for spec in "date:date" "created_at:timestamptz"; do
+    column=${spec%%:*}
+    type=${spec##*:}
+    for method in none btree brin; do
+        bench_index "${column}" "${type}" "${method}"
+    done
+done
+
+echo ""
+echo "Results written to ${RESULTS_FILE}"
@@ -0,0 +1,5 @@
+#!/bin/sh
+# Runs once on the primary when its data directory is initialized.
+# Allows the streaming replica (docker-compose profile "replica") to connect.
+set -e
+echo "host replication all all scram-sha-256" >> "$PGDATA/pg_hba.conf"
@@ -0,0 +1,18 @@
+#!/bin/sh
+# Streaming replica of the "postgres" service for local read-replica testing.
+# Clones the primary with pg_basebackup on first start, then runs as a hot standby.
+set -e
+
+PGDATA=/var/lib/postgresql/data
+
+if [ ! -s "$PGDATA/PG_VERSION" ]; then
+    echo "Cloning primary into $PGDATA..."
+    until pg_basebackup -h postgres -p 5432 -U "$PGUSER" -D "$PGDATA" -Fp -Xs -R -P; do
+        echo "Waiting for primary..."
+        sleep 2
+    done
+fi
+
+chown -R postgres:postgres "$PGDATA"
+chmod 0700 "$PGDATA"
+exec su-exec postgres postgres -c hot_standby=on
@@ -0,0 +1,76 @@
+#!/bin/bash
+
+# Enterprise Data Sharing - Load Test
+# Measures throughput and p99 latency of the read endpoints at increasing
+# client concurrency. Run once per execution mode and compare the results:
+#
+#   ./mvnw spring-boot:run                                          # platform threads
+#   ./load-test.sh platform
+#
+#   ./mvnw spring-boot:run -Dspring-boot.run.profiles=virtual-threads
+#   ./load-test.sh virtual-threads
+#
+# Requires: hey (https://github.com/rakyll/hey), jq
+
+set -e
+
+# Configuration
+KEYCLOAK_URL="${KEYCLOAK_URL:-http://localhost:8180}"
+API_URL="${API_URL:-http://localhost:8080}"
+REALM="enterprise"
+CLIENT_ID="datasharing-web"
+USERNAME="${LOAD_TEST_USER:-sarah.engineering}"
+PASSWORD="${LOAD_TEST_PASSWORD:-dept123}"
+DURATION="${DURATION:-60s}"
+CONCURRENCY_LEVELS="${CONCURRENCY_LEVELS:-1000 2500 5000 10000}"
+LABEL="${1:-run}"
+RESULTS_FILE="load-test-${LABEL}.csv"
+
+# Colors for output
+GREEN='\033[0;32m'
+BLUE='\033[0;34m'
+NC='\033[0m' # No Color
+
+# Function to get token
+get_token() {
+    curl -s -X POST \
+        "${KEYCLOAK_URL}/realms/${REALM}/protocol/openid-connect/token" \
+        -H "Content-Type: application/x-www-form-urlencoded" \
+        -d "grant_type=password" \
+        -d "client_id=${CLIENT_ID}" \
+        -d "username=${USERNAME}" \
+        -d "password=${PASSWORD}" | jq -r '.access_token'
+}
+
+# Function to run one load level and append a CSV row
+run_level() {
+    local endpoint=$1
+    local concurrency=$2
+    local output
+
+    # Fresh token per level so long runs do not outlive the access token
+    TOKEN=$(get_token)
+    output=$(hey -z "${DURATION}" -c "${concurrency}" \
+        -H "Authorization: Bearer ${TOKEN}" \
+        "${API_URL}${endpoint}")
+
+    local rps p99 errors
+    rps=$(echo "${output}" | awk '/Requests\/sec/ {print $2}')
+    p99=$(echo "${output}" | awk '/ 99% in/ {print $3}')
+    errors=$(echo "${output}" | awk '/\[[0-9]+\]/ && !/\[200\]/ {sum += $2} END {print sum + 0}')
+
+    echo "${LABEL},${endpoint},${concurrency},${rps},${p99},${errors}" >> "${RESULTS_FILE}"
+    echo -e "${GREEN}  c=${concurrency}: ${rps} req/s, p99 ${p99}s, non-200 ${errors}${NC}"
+}
+
+echo "mode,endpoint,concurrency,requests_per_sec,p99_seconds,non_200" > "${RESULTS_FILE}"
+
+for endpoint in "/api/v1/data/1" "/api/v1/data?size=20"; do
+    echo -e "${BLUE}=== ${LABEL}: GET ${endpoint} ===${NC}"
+    for concurrency in ${CONCURRENCY_LEVELS}; do
+        run_level "${endpoint}" "${concurrency}"
+    done
+done
+
+echo ""
+echo "Results written to ${RESULTS_FILE}"
@@ -0,0 +1,66 @@
+package com.enterprise.datasharing.config;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Enables @Async execution (used for non-critical audit writes) and gives
+ * MVC async processing (streaming response bodies) its own executor.
+ *
+ * The @Async executor is Spring Boot's applicationTaskExecutor. With
+ * spring.threads.virtual.enabled=true (the "virtual-threads" profile) both
+ * Tomcat request handling and this executor run on virtual threads, and
+ * spring.task.execution.simple.concurrency-limit bounds concurrent audit
+ * writes so they cannot exhaust the connection pool.
+ *
+ * Streaming bodies must not share that executor: a body holds its thread
+ * for the whole export, so long streams would take every audit slot, and a
+ * body waiting to submit an audit write behind the limit could deadlock.
+ * Streams run on virtual threads in the virtual-threads mode, otherwise on
+ * a fixed pool of app.mvc.async.threads; ConcurrencyLimitFilter admits them.
+ */
+@Configuration
+@EnableAsync
+@Slf4j
+public class AsyncConfig implements WebMvcConfigurer {
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreadsEnabled;
+
+    @Value("${app.mvc.async.threads:32}")
+    private int mvcAsyncThreads;
+
+    private ExecutorService mvcAsyncExecutor;
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        mvcAsyncExecutor = virtualThreadsEnabled
+            ? Executors.newVirtualThreadPerTaskExecutor()
+            : Executors.newFixedThreadPool(mvcAsyncThreads);
+        configurer.setTaskExecutor(new TaskExecutorAdapter(mvcAsyncExecutor));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (mvcAsyncExecutor != null) {
+            mvcAsyncExecutor.shutdownNow();
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void logExecutionMode() {
+        log.info("Request and async execution mode: {}",
+            virtualThreadsEnabled ? "virtual threads" : "platform thread pools");
+    }
+}
@@ -0,0 +1,79 @@
+package com.enterprise.datasharing.config;
+
+import com.enterprise.datasharing.entity.DataAccessControl;
+import com.enterprise.datasharing.entity.MyData;
+import com.enterprise.datasharing.entity.UserAttribute;
+import com.enterprise.datasharing.repository.DataAccessControlRepository;
+import com.enterprise.datasharing.repository.UserAttributeRepository;
+import com.enterprise.datasharing.security.PolicyVersionTracker;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Cache;
+import org.hibernate.SessionFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Applies cache invalidations received from other nodes.
+ *
+ * Hibernate only invalidates the local second-level cache on local writes,
+ * so a change made through another node is evicted here by table and ids.
+ * Rule and attribute changes also bump the policy version, which makes
+ * in-process state derived from earlier access decisions (ETag grants) stale.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class CacheInvalidationHandler {
+
+    private final EntityManagerFactory entityManagerFactory;
+    private final PolicyVersionTracker policyVersionTracker;
+
+    /**
+     * Evict everything cached for the rows changed by one statement; null ids
+     * (too many rows for one notification) evict the whole table
+     */
+    public void evict(String table, List<Long> ids) {
+        Cache cache = cache();
+        switch (table) {
+            case "data_access_control" -> {
+                evictEntities(cache, DataAccessControl.class, ids);
+                cache.evictQueryRegion(DataAccessControlRepository.RULE_QUERY_REGION);
+                policyVersionTracker.bump("access rules " + describe(ids) + " changed on another node");
+            }
+            case "user_attribute" -> {
+                evictEntities(cache, UserAttribute.class, ids);
+                cache.evictQueryRegion(UserAttributeRepository.ATTRIBUTE_QUERY_REGION);
+                policyVersionTracker.bump("user attributes " + describe(ids) + " changed on another node");
+            }
+            case "my_data" -> evictEntities(cache, MyData.class, ids);
+            default -> log.debug("Ignoring invalidation for unknown table {}", table);
+        }
+    }
+
+    /**
+     * Drop all cached state, used when invalidations may have been missed
+     */
+    public void evictAll() {
+        cache().evictAllRegions();
+        policyVersionTracker.bump("cache resync");
+    }
+
+    private static void evictEntities(Cache cache, Class<?> entityClass, List<Long> ids) {
+        if (ids == null) {
+            cache.evictEntityData(entityClass);
+            return;
+        }
+        ids.forEach(id -> cache.evictEntityData(entityClass, id));
+    }
+
+    private static String describe(List<Long> ids) {
+        return ids == null ? "(all)" : ids.toString();
+    }
+
+    private Cache cache() {
+        return entityManagerFactory.unwrap(SessionFactory.class).getCache();
+    }
+}
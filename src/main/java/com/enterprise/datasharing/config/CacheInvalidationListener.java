@@ -0,0 +1,254 @@
+package com.enterprise.datasharing.config;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * Listens on the cache_invalidation channel and evicts locally cached state
+ * changed by any node.
+ *
+ * The statement-level triggers from changeset 018 publish one notification
+ * per statement changing data_access_control, user_attribute or my_data,
+ * numbered from a sequence. A dedicated connection to the primary (outside
+ * the pool, since LISTEN is bound to its session) receives them. Versions
+ * are tracked against a watermark. A version still missing after the grace
+ * period is skipped: it was drawn by a rolled-back transaction, or by one
+ * still open. If that transaction commits later, its notification arrives
+ * below the watermark. The rows are evicted as usual, but state keyed by the
+ * watermark (the financial aggregation cache) already counts the version as
+ * applied, so a late version triggers a full resync. A (re)connect, which
+ * loses the notifications sent while disconnected, and an unreadable payload
+ * do the same.
+ */
+@Component
+@ConditionalOnProperty(prefix = "app.cache.invalidation", name = "enabled", havingValue = "true")
+@Slf4j
+public class CacheInvalidationListener {
+
+    static final String CHANNEL = "cache_invalidation";
+
+    private static final String WATERMARK_QUERY =
+        "SELECT CASE WHEN is_called THEN last_value ELSE last_value - 1 END FROM cache_invalidation_seq";
+
+    private final CacheInvalidationHandler handler;
+    private final DataSourceProperties dataSourceProperties;
+    private final ObjectMapper objectMapper;
+    private final Duration pollTimeout;
+    private final Duration gapGracePeriod;
+    private final Duration reconnectDelay;
+
+    // Versions above the watermark received out of order; touched only by the listener thread
+    private final TreeSet<Long> pending = new TreeSet<>();
+    private long gapSinceNanos;
+
+    private volatile long watermark;
+    private volatile boolean connected;
+    private volatile boolean running;
+    private volatile Connection connection;
+    private Thread thread;
+
+    public CacheInvalidationListener(
+            CacheInvalidationHandler handler,
+            DataSourceProperties dataSourceProperties,
+            ObjectMapper objectMapper,
+            @Value("${app.cache.invalidation.poll-timeout:PT1S}") Duration pollTimeout,
+            @Value("${app.cache.invalidation.gap-grace-period:PT5S}") Duration gapGracePeriod,
+            @Value("${app.cache.invalidation.reconnect-delay:PT5S}") Duration reconnectDelay) {
+        this.handler = handler;
+        this.dataSourceProperties = dataSourceProperties;
+        this.objectMapper = objectMapper;
+        this.pollTimeout = pollTimeout;
+        this.gapGracePeriod = gapGracePeriod;
+        this.reconnectDelay = reconnectDelay;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        running = true;
+        thread = new Thread(this::run, "cache-invalidation-listener");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        if (thread != null) {
+            thread.interrupt();
+        }
+        closeConnection();
+    }
+
+    /**
+     * Highest version up to which all invalidations have been applied
+     */
+    public long getWatermark() {
+        return watermark;
+    }
+
+    /**
+     * Whether the listener connection is currently established
+     */
+    public boolean isConnected() {
+        return connected;
+    }
+
+    private void run() {
+        while (running) {
+            try {
+                connectAndResync();
+                listen();
+            } catch (SQLException e) {
+                if (running) {
+                    log.warn("Cache invalidation listener disconnected: {}", e.getMessage());
+                }
+            } finally {
+                connected = false;
+                closeConnection();
+            }
+            if (running) {
+                sleep(reconnectDelay);
+            }
+        }
+    }
+
+    private void connectAndResync() throws SQLException {
+        connection = DriverManager.getConnection(
+            dataSourceProperties.determineUrl(),
+            dataSourceProperties.determineUsername(),
+            dataSourceProperties.determinePassword());
+        connection.setAutoCommit(true);
+
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("LISTEN " + CHANNEL);
+            // Read the watermark after LISTEN so no later version can be missed
+            try (ResultSet rs = statement.executeQuery(WATERMARK_QUERY)) {
+                watermark = rs.next() ? rs.getLong(1) : 0;
+            }
+        }
+        pending.clear();
+        gapSinceNanos = 0;
+        handler.evictAll();
+        connected = true;
+        log.info("Listening for cache invalidations from version {}", watermark);
+    }
+
+    private void listen() throws SQLException {
+        PGConnection pgConnection = connection.unwrap(PGConnection.class);
+        while (running) {
+            PGNotification[] notifications = pgConnection.getNotifications((int) pollTimeout.toMillis());
+            if (notifications != null) {
+                for (PGNotification notification : notifications) {
+                    apply(notification.getParameter());
+                }
+            }
+            checkForGap();
+        }
+    }
+
+    private void apply(String payload) {
+        long version;
+        try {
+            JsonNode event = objectMapper.readTree(payload);
+            version = event.path("version").asLong();
+            handler.evict(event.path("table").asText(), ids(event.path("ids")));
+        } catch (Exception e) {
+            log.warn("Unreadable cache invalidation '{}', resyncing: {}", payload, e.getMessage());
+            resync();
+            return;
+        }
+
+        if (version <= watermark) {
+            log.info("Cache invalidation version {} committed after the watermark passed it, resyncing", version);
+            resync();
+            return;
+        }
+        pending.add(version);
+        long next = watermark;
+        while (pending.remove(next + 1)) {
+            next++;
+        }
+        watermark = next;
+        gapSinceNanos = pending.isEmpty() ? 0 : (gapSinceNanos != 0 ? gapSinceNanos : System.nanoTime());
+    }
+
+    /**
+     * Versions can arrive out of order when transactions commit in a different
+     * order than they drew from the sequence. A gap that outlives the grace
+     * period belongs to a rolled-back transaction, which notified nothing, or
+     * to a long one that has not committed yet, so the watermark moves past
+     * it. Nothing it changed is visible before it commits, and a late commit
+     * resyncs when its notification arrives.
+     */
+    private void checkForGap() {
+        if (gapSinceNanos != 0 && System.nanoTime() - gapSinceNanos > gapGracePeriod.toNanos()) {
+            log.debug("Skipping cache invalidation versions {} to {}, not committed within the grace period",
+                watermark + 1, pending.first() - 1);
+            watermark = pending.last();
+            pending.clear();
+            gapSinceNanos = 0;
+        }
+    }
+
+    private static List<Long> ids(JsonNode ids) {
+        if (ids.isNull()) {
+            return null;
+        }
+        if (!ids.isArray()) {
+            throw new IllegalArgumentException("ids is not an array");
+        }
+        List<Long> result = new ArrayList<>(ids.size());
+        ids.forEach(id -> result.add(id.asLong()));
+        return result;
+    }
+
+    private void resync() {
+        if (!pending.isEmpty()) {
+            watermark = Math.max(watermark, pending.last());
+        }
+        pending.clear();
+        gapSinceNanos = 0;
+        handler.evictAll();
+    }
+
+    private void closeConnection() {
+        Connection current = connection;
+        connection = null;
+        if (current != null) {
+            try {
+                current.close();
+            } catch (SQLException e) {
+                log.debug("Error closing cache invalidation connection: {}", e.getMessage());
+            }
+        }
+    }
+
+    private void sleep(Duration duration) {
+        try {
+            Thread.sleep(duration.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            running = false;
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package com.enterprise.datasharing.config;
+
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Bounds the number of API requests executing at once.
+ *
+ * With virtual threads Tomcat no longer caps concurrency through its worker
+ * pool, so thousands of requests can contend for the JDBC pool at the same
+ * time. Each request may hold two connections (its own transaction plus a
+ * REQUIRES_NEW audit insert), so unbounded admission can starve the pool.
+ * Requests that cannot get a permit within the wait time receive 503.
+ *
+ * An async request (a streaming NDJSON export) keeps its permit until the
+ * async processing completes, errors or times out rather than until the
+ * servlet returns, since it holds its connection for the whole stream.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 10)
+@ConditionalOnProperty(prefix = "app.http.concurrency-limit", name = "enabled", havingValue = "true")
+@Slf4j
+public class ConcurrencyLimitFilter extends OncePerRequestFilter {
+
+    private final Semaphore permits;
+    private final Duration maxWait;
+
+    public ConcurrencyLimitFilter(
+            @Value("${app.http.concurrency-limit.max-concurrent-requests:64}") int maxConcurrentRequests,
+            @Value("${app.http.concurrency-limit.max-wait:PT2S}") Duration maxWait) {
+        this.permits = new Semaphore(maxConcurrentRequests, true);
+        this.maxWait = maxWait;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !request.getRequestURI().startsWith("/api/");
+    }
+
+    @Override
+    protected boolean shouldNotFilterAsyncDispatch() {
+        // The permit taken by the initial dispatch covers the async dispatch
+        return true;
+    }
+
+    @Override
+    protected void doFilterInternal(
+            HttpServletRequest request,
+            HttpServletResponse response,
+            FilterChain filterChain) throws ServletException, IOException {
+
+        boolean acquired;
+        try {
+            acquired = permits.tryAcquire(maxWait.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        }
+
+        if (!acquired) {
+            log.warn("Rejecting {} {}: concurrency limit reached", request.getMethod(), request.getRequestURI());
+            response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+            response.setHeader("Retry-After", "1");
+            return;
+        }
+
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            if (request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(new PermitRelease());
+            } else {
+                permits.release();
+            }
+        }
+    }
+
+    /**
+     * Releases the permit of an async request once, whichever of complete,
+     * error or timeout is reported (an error or timeout is followed by complete)
+     */
+    private class PermitRelease implements AsyncListener {
+
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            release();
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            release();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            release();
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            // Restarted async processing is still the same request; keep listening
+            event.getAsyncContext().addListener(this);
+        }
+
+        private void release() {
+            if (released.compareAndSet(false, true)) {
+                permits.release();
+            }
+        }
+    }
+}
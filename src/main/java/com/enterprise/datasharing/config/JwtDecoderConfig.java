@@ -0,0 +1,121 @@
+package com.enterprise.datasharing.config;
+
+import com.enterprise.datasharing.security.CachingJwtDecoder;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.KeySourceException;
+import com.nimbusds.jose.jwk.JWKMatcher;
+import com.nimbusds.jose.jwk.JWKSelector;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.source.ImmutableJWKSet;
+import com.nimbusds.jose.jwk.source.JWKSource;
+import com.nimbusds.jose.jwk.source.JWKSourceBuilder;
+import com.nimbusds.jose.proc.JWSVerificationKeySelector;
+import com.nimbusds.jose.proc.SecurityContext;
+import com.nimbusds.jwt.proc.DefaultJWTProcessor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.event.EventListener;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtValidators;
+import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.text.ParseException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * JWT decoder built from a background-refreshed JWK set.
+ *
+ * Replaces the issuer-uri based decoder so startup never waits on Keycloak's
+ * discovery endpoint: the issuer is validated as a plain claim and keys come
+ * straight from jwk-set-uri. Keys are cached, refreshed ahead of expiry in
+ * the background, and served stale while Keycloak is unreachable. With
+ * app.security.jwt.jwk-set-file set, keys are read from a local file
+ * instead (offline startup, benchmarks). Verified tokens are cached by
+ * CachingJwtDecoder.
+ */
+@Configuration
+@Slf4j
+public class JwtDecoderConfig {
+
+    @Value("${spring.security.oauth2.resourceserver.jwt.jwk-set-uri}")
+    private String jwkSetUri;
+
+    @Value("${spring.security.oauth2.resourceserver.jwt.issuer-uri:}")
+    private String issuerUri;
+
+    @Value("${app.security.jwt.jwk-set-file:}")
+    private String jwkSetFile;
+
+    @Value("${app.security.jwt.algorithms:RS256}")
+    private List<String> algorithms;
+
+    @Value("${app.security.jwt.jwk-cache-ttl:PT15M}")
+    private Duration jwkCacheTtl;
+
+    @Value("${app.security.jwt.jwk-refresh-ahead:PT1M}")
+    private Duration jwkRefreshAhead;
+
+    @Value("${app.security.jwt.jwk-outage-tolerance:PT1H}")
+    private Duration jwkOutageTolerance;
+
+    @Value("${app.security.jwt.cache-size:50000}")
+    private long tokenCacheSize;
+
+    @Value("${app.security.jwt.cache-max-ttl:PT5M}")
+    private Duration tokenCacheMaxTtl;
+
+    @Bean
+    public JWKSource<SecurityContext> jwkSource() throws IOException, ParseException {
+        if (!jwkSetFile.isBlank()) {
+            log.info("Loading JWK set from local file {}", jwkSetFile);
+            return new ImmutableJWKSet<>(JWKSet.load(new File(jwkSetFile)));
+        }
+        return JWKSourceBuilder.<SecurityContext>create(URI.create(jwkSetUri).toURL())
+            .cache(jwkCacheTtl.toMillis(), JWKSourceBuilder.DEFAULT_CACHE_REFRESH_TIMEOUT)
+            .refreshAheadCache(jwkRefreshAhead.toMillis(), true)
+            .outageTolerant(jwkOutageTolerance.toMillis())
+            .rateLimited(true)
+            .build();
+    }
+
+    @Bean
+    public JwtDecoder jwtDecoder(JWKSource<SecurityContext> jwkSource) {
+        Set<JWSAlgorithm> jwsAlgorithms = algorithms.stream()
+            .map(JWSAlgorithm::parse)
+            .collect(Collectors.toSet());
+
+        DefaultJWTProcessor<SecurityContext> processor = new DefaultJWTProcessor<>();
+        processor.setJWSKeySelector(new JWSVerificationKeySelector<>(jwsAlgorithms, jwkSource));
+        // Claims are validated by Spring's validators below
+        processor.setJWTClaimsSetVerifier((claims, context) -> { });
+
+        NimbusJwtDecoder decoder = new NimbusJwtDecoder(processor);
+        decoder.setJwtValidator(issuerUri.isBlank()
+            ? JwtValidators.createDefault()
+            : JwtValidators.createDefaultWithIssuer(issuerUri));
+
+        return new CachingJwtDecoder(decoder, tokenCacheSize, tokenCacheMaxTtl);
+    }
+
+    /**
+     * Warm the JWK cache so the first request does not pay for the fetch
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void preloadJwkSet() {
+        try {
+            int keys = jwkSource().get(new JWKSelector(new JWKMatcher.Builder().build()), null).size();
+            log.info("Preloaded {} JWK(s)", keys);
+        } catch (KeySourceException | IOException | ParseException e) {
+            log.warn("JWK set preload failed, keys will be fetched on first use: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.enterprise.datasharing.config;
+
+import org.keycloak.OAuth2Constants;
+import org.keycloak.admin.client.Keycloak;
+import org.keycloak.admin.client.KeycloakBuilder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Keycloak admin API client used by the user attribute sync job.
+ *
+ * Authenticates with the client credentials grant; the client needs a
+ * service account with the realm-management view-users role. The server
+ * URL can point at a local stub of the admin API for testing.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "app.keycloak-sync", name = "enabled", havingValue = "true")
+public class KeycloakAdminConfig {
+
+    @Bean(destroyMethod = "close")
+    public Keycloak keycloakAdmin(
+            @Value("${app.keycloak-sync.server-url:${keycloak.auth-server-url}}") String serverUrl,
+            @Value("${keycloak.realm}") String realm,
+            @Value("${app.keycloak-sync.client-id:${keycloak.client-id}}") String clientId,
+            @Value("${app.keycloak-sync.client-secret:${keycloak.client-secret}}") String clientSecret) {
+        return KeycloakBuilder.builder()
+            .serverUrl(serverUrl)
+            .realm(realm)
+            .grantType(OAuth2Constants.CLIENT_CREDENTIALS)
+            .clientId(clientId)
+            .clientSecret(clientSecret)
+            .build();
+    }
+}
@@ -0,0 +1,98 @@
+package com.enterprise.datasharing.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Read-replica routing for @Transactional(readOnly = true) methods.
+ *
+ * The primary pool is built from spring.datasource as usual. Each URL in
+ * app.datasource.replicas.urls gets its own Hikari pool, and the exposed
+ * DataSource routes read-only transactions across healthy replicas.
+ * Writes, audit inserts (REQUIRES_NEW, not read-only) and Liquibase stay on
+ * the primary.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "app.datasource.replicas", name = "enabled", havingValue = "true")
+@Slf4j
+public class ReadReplicaDataSourceConfig {
+
+    @Value("${app.datasource.replicas.urls}")
+    private List<String> replicaUrls;
+
+    @Value("${app.datasource.replicas.username:${spring.datasource.username}}")
+    private String replicaUsername;
+
+    @Value("${app.datasource.replicas.password:${spring.datasource.password}}")
+    private String replicaPassword;
+
+    @Value("${app.datasource.replicas.maximum-pool-size:20}")
+    private int replicaPoolSize;
+
+    @Value("${app.datasource.replicas.max-lag:PT10S}")
+    private Duration maxLag;
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder()
+            .type(HikariDataSource.class)
+            .build();
+        dataSource.setPoolName("primary");
+        return dataSource;
+    }
+
+    @Bean
+    public ReplicaHealthMonitor replicaHealthMonitor(DataSourceProperties properties) {
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        for (int i = 0; i < replicaUrls.size(); i++) {
+            String key = "replica-" + (i + 1);
+            HikariDataSource replica = new HikariDataSource();
+            replica.setPoolName(key);
+            replica.setJdbcUrl(replicaUrls.get(i).trim());
+            replica.setUsername(replicaUsername);
+            replica.setPassword(replicaPassword);
+            replica.setDriverClassName(properties.getDriverClassName());
+            replica.setMaximumPoolSize(replicaPoolSize);
+            replica.setReadOnly(true);
+            // Do not fail startup if a replica is down; the health monitor skips it
+            replica.setInitializationFailTimeout(-1);
+            replicas.put(key, replica);
+        }
+        log.info("Read-replica routing enabled with {} replica(s)", replicas.size());
+        return new ReplicaHealthMonitor(replicas, maxLag);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(
+            HikariDataSource primaryDataSource,
+            ReplicaHealthMonitor replicaHealthMonitor,
+            ReadYourWritesTracker readYourWritesTracker) {
+
+        Map<Object, Object> targets = new HashMap<>(replicaHealthMonitor.getReplicas());
+        targets.put(ReplicaRoutingDataSource.PRIMARY, primaryDataSource);
+
+        ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource(replicaHealthMonitor, readYourWritesTracker);
+        routing.setTargetDataSources(targets);
+        routing.setDefaultTargetDataSource(primaryDataSource);
+        routing.afterPropertiesSet();
+
+        return new LazyConnectionDataSourceProxy(routing);
+    }
+}
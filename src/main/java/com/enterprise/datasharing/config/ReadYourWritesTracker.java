@@ -0,0 +1,45 @@
+package com.enterprise.datasharing.config;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Remembers users who recently wrote data so that their reads are served
+ * from the primary for a short window, hiding replica lag from the writer.
+ * A zero window disables the behaviour.
+ */
+@Component
+public class ReadYourWritesTracker {
+
+    private final Duration window;
+    private final Cache<String, Boolean> recentWriters;
+
+    public ReadYourWritesTracker(
+            @Value("${app.datasource.replicas.read-your-writes-window:PT5S}") Duration window) {
+        this.window = window;
+        this.recentWriters = CacheBuilder.newBuilder()
+            .maximumSize(100_000)
+            .expireAfterWrite(window.isZero() ? Duration.ofMillis(1) : window)
+            .build();
+    }
+
+    /**
+     * Record that a user has just written data
+     */
+    public void recordWrite(String userId) {
+        if (userId != null && !window.isZero()) {
+            recentWriters.put(userId, Boolean.TRUE);
+        }
+    }
+
+    /**
+     * Check whether a user's reads must still go to the primary
+     */
+    public boolean isWithinWindow(String userId) {
+        return userId != null && !window.isZero() && recentWriters.getIfPresent(userId) != null;
+    }
+}
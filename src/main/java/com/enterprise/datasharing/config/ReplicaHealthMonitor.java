@@ -0,0 +1,134 @@
+package com.enterprise.datasharing.config;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tracks replica health and balances reads across healthy replicas.
+ *
+ * A replica is healthy when it answers the probe query and its replay lag
+ * is within the configured limit. Unhealthy replicas are skipped until a
+ * later probe succeeds; with no healthy replica reads fall back to the primary.
+ * The monitor owns the replica pools and closes them on shutdown.
+ */
+@Slf4j
+public class ReplicaHealthMonitor {
+
+    // Zero when caught up; otherwise time since the last replayed transaction
+    private static final String LAG_QUERY =
+        "SELECT CASE WHEN NOT pg_is_in_recovery() THEN 0 "
+        + "WHEN pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0 "
+        + "ELSE COALESCE(EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()), 0) END";
+
+    private final Map<String, DataSource> replicas;
+    private final Duration maxLag;
+    private final Map<String, Boolean> healthy = new ConcurrentHashMap<>();
+    private final AtomicInteger cursor = new AtomicInteger();
+    private volatile List<String> healthyKeys = List.of();
+
+    public ReplicaHealthMonitor(Map<String, DataSource> replicas, Duration maxLag) {
+        this.replicas = new LinkedHashMap<>(replicas);
+        this.maxLag = maxLag;
+        replicas.keySet().forEach(key -> healthy.put(key, true));
+        refreshHealthyKeys();
+    }
+
+    /**
+     * Pick the next healthy replica (round robin)
+     */
+    public Optional<String> nextHealthyReplica() {
+        List<String> keys = healthyKeys;
+        if (keys.isEmpty()) {
+            return Optional.empty();
+        }
+        return Optional.of(keys.get(Math.floorMod(cursor.getAndIncrement(), keys.size())));
+    }
+
+    /**
+     * Probe every replica and update its health
+     */
+    @Scheduled(fixedDelayString = "${app.datasource.replicas.health-check-interval:PT5S}")
+    public void checkHealth() {
+        replicas.forEach((key, dataSource) -> {
+            boolean nowHealthy = probe(key, dataSource);
+            Boolean wasHealthy = healthy.put(key, nowHealthy);
+            if (wasHealthy != null && wasHealthy != nowHealthy) {
+                log.warn("Replica {} is now {}", key, nowHealthy ? "healthy" : "unhealthy");
+            }
+        });
+        refreshHealthyKeys();
+    }
+
+    /**
+     * Replica pools by key
+     */
+    public Map<String, DataSource> getReplicas() {
+        return Map.copyOf(replicas);
+    }
+
+    /**
+     * Current health per replica
+     */
+    public Map<String, Boolean> getHealth() {
+        return Map.copyOf(healthy);
+    }
+
+    /**
+     * Close the replica pools
+     */
+    @PreDestroy
+    public void close() {
+        replicas.forEach((key, dataSource) -> {
+            if (dataSource instanceof AutoCloseable closeable) {
+                try {
+                    closeable.close();
+                } catch (Exception e) {
+                    log.warn("Failed to close replica pool {}: {}", key, e.getMessage());
+                }
+            }
+        });
+    }
+
+    private boolean probe(String key, DataSource dataSource) {
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.setQueryTimeout(2);
+            try (ResultSet rs = statement.executeQuery(LAG_QUERY)) {
+                double lagSeconds = rs.next() ? rs.getDouble(1) : 0;
+                if (lagSeconds * 1000 > maxLag.toMillis()) {
+                    log.debug("Replica {} lag {}s exceeds {}", key, lagSeconds, maxLag);
+                    return false;
+                }
+                return true;
+            }
+        } catch (Exception e) {
+            log.debug("Replica {} health probe failed: {}", key, e.getMessage());
+            return false;
+        }
+    }
+
+    private void refreshHealthyKeys() {
+        List<String> keys = new ArrayList<>();
+        healthy.forEach((key, ok) -> {
+            if (ok) {
+                keys.add(key);
+            }
+        });
+        keys.sort(null);
+        healthyKeys = List.copyOf(keys);
+    }
+}
@@ -0,0 +1,45 @@
+package com.enterprise.datasharing.config;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Routes read-only transactions to a healthy replica and everything else
+ * (writes, audit inserts, migrations) to the primary.
+ *
+ * Must be wrapped in a LazyConnectionDataSourceProxy: the transaction's
+ * read-only flag is only set after the transaction manager asks for a
+ * connection, so the physical connection has to be fetched lazily.
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    public static final String PRIMARY = "primary";
+
+    private final ReplicaHealthMonitor healthMonitor;
+    private final ReadYourWritesTracker readYourWritesTracker;
+
+    public ReplicaRoutingDataSource(ReplicaHealthMonitor healthMonitor, ReadYourWritesTracker readYourWritesTracker) {
+        this.healthMonitor = healthMonitor;
+        this.readYourWritesTracker = readYourWritesTracker;
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return PRIMARY;
+        }
+
+        if (readYourWritesTracker.isWithinWindow(currentUserId())) {
+            return PRIMARY;
+        }
+
+        return healthMonitor.nextHealthyReplica().orElse(PRIMARY);
+    }
+
+    private String currentUserId() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return authentication != null ? authentication.getName() : null;
+    }
+}
@@ -1,27 +1,52 @@
 package com.enterprise.datasharing.controller;
 
+import com.enterprise.datasharing.dto.AuditLogDto;
+import com.enterprise.datasharing.dto.EntitlementDto;
+import com.enterprise.datasharing.dto.PolicySimulationDto;
+import com.enterprise.datasharing.dto.RecordCountDto;
 import com.enterprise.datasharing.entity.AuditLog;
 import com.enterprise.datasharing.entity.DataAccessControl;
 import com.enterprise.datasharing.entity.UserAttribute;
 import com.enterprise.datasharing.repository.AuditLogRepository;
 import com.enterprise.datasharing.repository.DataAccessControlRepository;
 import com.enterprise.datasharing.repository.UserAttributeRepository;
+import com.enterprise.datasharing.security.EntitlementReportService;
+import com.enterprise.datasharing.security.EntitlementService;
+import com.enterprise.datasharing.security.PolicySimulationService;
+import com.enterprise.datasharing.security.PolicyVersionTracker;
+import com.enterprise.datasharing.service.AuditArchiveService;
+import com.enterprise.datasharing.service.AuditQueryService;
+import com.enterprise.datasharing.service.KeycloakUserSyncService;
+import com.enterprise.datasharing.service.MyDataAclService;
+import com.enterprise.datasharing.service.MyDataCounterService;
+import com.enterprise.datasharing.service.MyDataPurgeService;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.web.PageableDefault;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.time.LocalDateTime;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
 
 
 /**
@@ -37,9 +62,22 @@ import java.util.Map;
 @PreAuthorize("hasRole('ADMIN')")
 public class AdminController {
 
+    private static final int MAX_AUDIT_PAGE_SIZE = 500;
+
     private final DataAccessControlRepository accessControlRepository;
     private final UserAttributeRepository userAttributeRepository;
     private final AuditLogRepository auditLogRepository;
+    private final PolicyVersionTracker policyVersionTracker;
+    private final ObjectProvider<KeycloakUserSyncService> keycloakUserSyncService;
+    private final MyDataAclService myDataAclService;
+    private final MyDataCounterService myDataCounterService;
+    private final MyDataPurgeService myDataPurgeService;
+    private final EntitlementService entitlementService;
+    private final EntitlementReportService entitlementReportService;
+    private final PolicySimulationService policySimulationService;
+    private final AuditQueryService auditQueryService;
+    private final AuditArchiveService auditArchiveService;
+    private final ObjectMapper objectMapper;
 
     // ==================== Access Control Management ====================
 
@@ -53,9 +91,30 @@ public class AdminController {
             @RequestBody DataAccessControl rule) {
         log.info("Creating access rule: {}", rule.getRuleName());
         DataAccessControl saved = accessControlRepository.save(rule);
+        policyVersionTracker.bump("access rule created: " + saved.getId());
         return ResponseEntity.status(HttpStatus.CREATED).body(saved);
     }
 
+    /**
+     * Dry run of a rule change
+     */
+    @PostMapping(value = "/access-rules/simulate", produces = "application/x-ndjson")
+    @Operation(summary = "Simulate an access rule change",
+        description = "Streams the grants and column visibility each affected user would gain or lose, then a summary line")
+    public ResponseEntity<StreamingResponseBody> simulateAccessRuleChange(
+            @Valid @RequestBody PolicySimulationDto.Request request) {
+        // Validate before streaming so a bad request is a 400/404
+        PolicySimulationService.Simulation simulation = policySimulationService.prepare(request);
+        log.info("Simulating {} of access rule for {} users", request.getAction(), simulation.users().size());
+        StreamingResponseBody body = (OutputStream out) -> {
+            PolicySimulationDto.Summary summary = policySimulationService.run(simulation, change -> writeLine(out, change));
+            writeLine(out, summary);
+        };
+        return ResponseEntity.ok()
+            .contentType(MediaType.parseMediaType("application/x-ndjson"))
+            .body(body);
+    }
+
     /**
      * Get all access control rules
      */
@@ -89,7 +148,9 @@ public class AdminController {
                 rule.setId(id);
                 rule.setCreatedAt(existing.getCreatedAt());
                 rule.setCreatedBy(existing.getCreatedBy());
-                return ResponseEntity.ok(accessControlRepository.save(rule));
+                DataAccessControl saved = accessControlRepository.save(rule);
+                policyVersionTracker.bump("access rule updated: " + id);
+                return ResponseEntity.ok(saved);
             })
             .orElse(ResponseEntity.notFound().build());
     }
@@ -102,6 +163,7 @@ public class AdminController {
     public ResponseEntity<Void> deleteAccessRule(@PathVariable Long id) {
         if (accessControlRepository.existsById(id)) {
             accessControlRepository.deleteById(id);
+            policyVersionTracker.bump("access rule deleted: " + id);
             return ResponseEntity.noContent().build();
         }
         return ResponseEntity.notFound().build();
@@ -126,6 +188,125 @@ public class AdminController {
         return ResponseEntity.ok(accessControlRepository.findRulesForDepartment(departmentId));
     }
 
+    /**
+     * Rebuild the materialized access-control list
+     */
+    @PostMapping("/acl/rebuild")
+    @Operation(summary = "Rebuild the materialized ACL",
+        description = "Recomputes my_data_acl for every record in parallel batches")
+    public ResponseEntity<MyDataAclService.RebuildResult> rebuildAcl() {
+        log.info("Rebuilding my_data_acl");
+        return ResponseEntity.ok(myDataAclService.rebuild());
+    }
+
+    // ==================== Record Counts ====================
+
+    /**
+     * Record counts for dashboards
+     */
+    @GetMapping("/statistics/records")
+    @Operation(summary = "Get record counts",
+        description = "Counts per organization level, department, team, sensitivity and deleted flag, "
+            + "read from the record counters, or counted on my_data when exact")
+    public ResponseEntity<RecordCountDto.Response> getRecordCounts(
+            @RequestParam(defaultValue = "false") boolean exact) {
+        return ResponseEntity.ok(myDataCounterService.counts(exact));
+    }
+
+    /**
+     * Recount the record counters
+     */
+    @PostMapping("/statistics/records/rebuild")
+    @Operation(summary = "Rebuild the record counters",
+        description = "Recounts my_data into my_data_counter; writes to my_data wait until it finishes")
+    public ResponseEntity<MyDataCounterService.RebuildResult> rebuildRecordCounters() {
+        log.info("Rebuilding my_data_counter");
+        return ResponseEntity.ok(myDataCounterService.rebuild());
+    }
+
+    /**
+     * Archive records soft-deleted longer than the retention period
+     */
+    @PostMapping("/data/purge")
+    @Operation(summary = "Purge soft-deleted records",
+        description = "Moves records soft-deleted longer than the retention period into my_data_archive "
+            + "in small batches. Returns 409 if a purge is already in progress.")
+    public ResponseEntity<MyDataPurgeService.PurgeResult> purgeDeletedData() {
+        return myDataPurgeService.purge()
+            .map(ResponseEntity::ok)
+            .orElseGet(() -> ResponseEntity.status(HttpStatus.CONFLICT).build());
+    }
+
+    // ==================== Entitlements ====================
+
+    /**
+     * List every user that can access a record
+     */
+    @GetMapping("/entitlements/records/{id}/users")
+    @Operation(summary = "Who can access a record",
+        description = "Lists every user with access to the record and the operations granted (CBAC not evaluated)")
+    public ResponseEntity<List<EntitlementDto.UserAccess>> getRecordEntitlements(@PathVariable Long id) {
+        return ResponseEntity.ok(entitlementService.whoCanAccess(id));
+    }
+
+    /**
+     * Stream every record a user can access
+     */
+    @GetMapping(value = "/entitlements/users/{userId}/records", produces = "application/x-ndjson")
+    @Operation(summary = "What a user can access",
+        description = "Streams every record the user can access with operations and column mask, one JSON object per line")
+    public ResponseEntity<StreamingResponseBody> getUserEntitlements(@PathVariable String userId) {
+        // Resolve the user before streaming so an unknown user is a 404
+        Stream<EntitlementDto.RecordAccess> records = entitlementService.accessibleRecords(userId);
+        StreamingResponseBody body = (OutputStream out) -> {
+            try (records) {
+                Iterator<EntitlementDto.RecordAccess> iterator = records.iterator();
+                while (iterator.hasNext()) {
+                    writeLine(out, iterator.next());
+                }
+            }
+        };
+        return ResponseEntity.ok()
+            .contentType(MediaType.parseMediaType("application/x-ndjson"))
+            .body(body);
+    }
+
+    /**
+     * Start a full entitlement report
+     */
+    @PostMapping("/entitlements/reports")
+    @Operation(summary = "Start an entitlement report",
+        description = "Writes every user's accessible records to a compressed NDJSON or CSV file on the server")
+    public ResponseEntity<EntitlementReportService.ReportStatus> startEntitlementReport(
+            @RequestParam(defaultValue = "NDJSON") EntitlementReportService.Format format) {
+        return entitlementReportService.start(format)
+            .map(status -> ResponseEntity.status(HttpStatus.ACCEPTED).body(status))
+            .orElse(ResponseEntity.status(HttpStatus.CONFLICT).build());
+    }
+
+    /**
+     * Resume an interrupted entitlement report
+     */
+    @PostMapping("/entitlements/reports/{reportId}/resume")
+    @Operation(summary = "Resume an entitlement report",
+        description = "Evaluates the parts of an interrupted report that were not checkpointed")
+    public ResponseEntity<EntitlementReportService.ReportStatus> resumeEntitlementReport(
+            @PathVariable String reportId) {
+        return entitlementReportService.resume(reportId)
+            .map(status -> ResponseEntity.status(HttpStatus.ACCEPTED).body(status))
+            .orElse(ResponseEntity.status(HttpStatus.CONFLICT).build());
+    }
+
+    /**
+     * Get entitlement report progress
+     */
+    @GetMapping("/entitlements/reports/{reportId}")
+    @Operation(summary = "Get entitlement report progress")
+    public ResponseEntity<EntitlementReportService.ReportStatus> getEntitlementReport(
+            @PathVariable String reportId) {
+        return ResponseEntity.ok(entitlementReportService.status(reportId));
+    }
+
     // ==================== User Attribute Management ====================
 
     /**
@@ -145,9 +326,26 @@ public class AdminController {
             });
 
         UserAttribute saved = userAttributeRepository.save(attribute);
+        policyVersionTracker.bump("user attributes saved: " + saved.getUserId());
         return ResponseEntity.ok(saved);
     }
 
+    /**
+     * Synchronize user attributes from Keycloak now
+     */
+    @PostMapping("/user-attributes/sync")
+    @Operation(summary = "Synchronize user attributes from Keycloak",
+        description = "Runs the Keycloak user sync immediately (requires app.keycloak-sync.enabled)")
+    public ResponseEntity<KeycloakUserSyncService.SyncResult> syncUserAttributes() {
+        KeycloakUserSyncService syncService = keycloakUserSyncService.getIfAvailable();
+        if (syncService == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return syncService.sync()
+            .map(ResponseEntity::ok)
+            .orElse(ResponseEntity.status(HttpStatus.CONFLICT).build());
+    }
+
     /**
      * Get all user attributes
      */
@@ -211,6 +409,65 @@ public class AdminController {
 
     // ==================== Audit Log Viewing ====================
 
+    /**
+     * Query audit logs with combined filters and keyset pagination
+     */
+    @GetMapping("/audit-logs/query")
+    @Operation(summary = "Query audit logs",
+        description = "Combines any of user, entity, action, decision, success and time range filters. "
+            + "Newest first; pass nextCursor from the previous page to continue. Pages continue into "
+            + "archived segments once audit_log is exhausted.")
+    public ResponseEntity<AuditLogDto.CursorPage> queryAuditLogs(
+            @RequestParam(required = false) String userId,
+            @RequestParam(required = false) String entityType,
+            @RequestParam(required = false) String entityId,
+            @RequestParam(required = false) Set<AuditLog.AuditAction> action,
+            @RequestParam(required = false) Set<AuditLog.AccessDecision> decision,
+            @RequestParam(required = false) Boolean success,
+            @RequestParam(required = false) LocalDateTime from,
+            @RequestParam(required = false) LocalDateTime to,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int size) {
+
+        if (size < 1 || size > MAX_AUDIT_PAGE_SIZE) {
+            throw new IllegalArgumentException("size must be between 1 and " + MAX_AUDIT_PAGE_SIZE);
+        }
+        AuditLogDto.Filter filter = AuditLogDto.Filter.builder()
+            .userId(userId)
+            .entityType(entityType)
+            .entityId(entityId)
+            .actions(action)
+            .decisions(decision)
+            .success(success)
+            .from(from)
+            .to(to)
+            .build();
+        AuditLogDto.Cursor after = cursor != null ? AuditLogDto.Cursor.decode(cursor) : null;
+        return ResponseEntity.ok(auditQueryService.query(filter, after, size));
+    }
+
+    /**
+     * Archive audit logs older than the hot window
+     */
+    @PostMapping("/audit-logs/archive")
+    @Operation(summary = "Archive old audit logs",
+        description = "Moves audit logs older than the hot window into compressed segment files. "
+            + "Returns 409 if an archive run is already in progress.")
+    public ResponseEntity<AuditArchiveService.ArchiveResult> archiveAuditLogs() {
+        return auditArchiveService.archive()
+            .map(ResponseEntity::ok)
+            .orElseGet(() -> ResponseEntity.status(HttpStatus.CONFLICT).build());
+    }
+
+    /**
+     * Size of the audit archive
+     */
+    @GetMapping("/audit-logs/archive")
+    @Operation(summary = "Get audit archive status")
+    public ResponseEntity<AuditArchiveService.ArchiveStatus> getAuditArchiveStatus() {
+        return ResponseEntity.ok(auditArchiveService.status());
+    }
+
     /**
      * Get all audit logs
      */
@@ -225,7 +482,8 @@ public class AdminController {
      * Get audit logs by user
      */
     @GetMapping("/audit-logs/by-user/{userId}")
-    @Operation(summary = "Get audit logs for a user")
+    @Operation(summary = "Get audit logs for a user", deprecated = true,
+        description = "Offset paged; use /audit-logs/query for deep browsing")
     public ResponseEntity<Page<AuditLog>> getAuditLogsByUser(
             @PathVariable String userId,
             @PageableDefault(size = 50) Pageable pageable) {
@@ -237,7 +495,8 @@ public class AdminController {
      * Get audit logs by entity
      */
     @GetMapping("/audit-logs/by-entity/{entityType}/{entityId}")
-    @Operation(summary = "Get audit logs for an entity")
+    @Operation(summary = "Get audit logs for an entity", deprecated = true,
+        description = "Offset paged; use /audit-logs/query for deep browsing")
     public ResponseEntity<Page<AuditLog>> getAuditLogsByEntity(
             @PathVariable String entityType,
             @PathVariable String entityId,
@@ -250,7 +509,8 @@ public class AdminController {
      * Get audit logs by action
      */
     @GetMapping("/audit-logs/by-action/{action}")
-    @Operation(summary = "Get audit logs by action type")
+    @Operation(summary = "Get audit logs by action type", deprecated = true,
+        description = "Offset paged; use /audit-logs/query for deep browsing")
     public ResponseEntity<Page<AuditLog>> getAuditLogsByAction(
             @PathVariable AuditLog.AuditAction action,
             @PageableDefault(size = 50) Pageable pageable) {
@@ -262,7 +522,8 @@ public class AdminController {
      * Get failed access attempts
      */
     @GetMapping("/audit-logs/failed")
-    @Operation(summary = "Get failed access attempts")
+    @Operation(summary = "Get failed access attempts", deprecated = true,
+        description = "Offset paged; use /audit-logs/query for deep browsing")
     public ResponseEntity<Page<AuditLog>> getFailedAttempts(
             @PageableDefault(size = 50) Pageable pageable) {
         return ResponseEntity.ok(auditLogRepository.findFailedAttempts(pageable));
@@ -272,7 +533,8 @@ public class AdminController {
      * Get access denied events
      */
     @GetMapping("/audit-logs/access-denied")
-    @Operation(summary = "Get access denied events")
+    @Operation(summary = "Get access denied events", deprecated = true,
+        description = "Offset paged; use /audit-logs/query for deep browsing")
     public ResponseEntity<Page<AuditLog>> getAccessDeniedEvents(
             @PageableDefault(size = 50) Pageable pageable) {
         return ResponseEntity.ok(auditLogRepository.findAccessDeniedEvents(pageable));
@@ -282,7 +544,8 @@ public class AdminController {
      * Get audit logs by time range
      */
     @GetMapping("/audit-logs/time-range")
-    @Operation(summary = "Get audit logs within time range")
+    @Operation(summary = "Get audit logs within time range", deprecated = true,
+        description = "Offset paged; use /audit-logs/query for deep browsing")
     public ResponseEntity<Page<AuditLog>> getAuditLogsByTimeRange(
             @RequestParam LocalDateTime startTime,
             @RequestParam LocalDateTime endTime,
@@ -336,4 +599,13 @@ public class AdminController {
         return ResponseEntity.ok(
             auditLogRepository.findByCorrelationIdOrderByTimestampAsc(correlationId));
     }
+
+    private void writeLine(OutputStream out, Object value) {
+        try {
+            out.write(objectMapper.writeValueAsBytes(value));
+            out.write('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
 }
@@ -1,8 +1,13 @@
 package com.enterprise.datasharing.controller;
 
+import com.enterprise.datasharing.dto.FinancialAggregateDto;
 import com.enterprise.datasharing.dto.MyDataDto;
+import com.enterprise.datasharing.security.EntityTagService;
 import com.enterprise.datasharing.security.SecurityContext;
+import com.enterprise.datasharing.service.FinancialAggregationService;
+import com.enterprise.datasharing.service.MyDataImportService;
 import com.enterprise.datasharing.service.MyDataService;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
@@ -15,11 +20,24 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
 import org.springframework.data.web.PageableDefault;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
 
 
 
@@ -36,7 +54,13 @@ import org.springframework.web.bind.annotation.*;
 @SecurityRequirement(name = "bearerAuth")
 public class MyDataController {
 
+    private static final int MAX_CURSOR_PAGE_SIZE = 500;
+
     private final MyDataService myDataService;
+    private final MyDataImportService myDataImportService;
+    private final FinancialAggregationService financialAggregationService;
+    private final EntityTagService entityTagService;
+    private final ObjectMapper objectMapper;
 
     /**
      * Create new data entry
@@ -65,20 +89,77 @@ public class MyDataController {
         return ResponseEntity.status(HttpStatus.CREATED).body(response);
     }
 
+    /**
+     * Bulk import data entries
+     */
+    @PostMapping(value = "/import", consumes = {"text/csv", "application/x-ndjson"})
+    @Operation(summary = "Bulk import data entries",
+        description = "Imports a CSV (with header row) or NDJSON upload of create requests. Each row is checked "
+            + "against the CREATE policy and clearance rules; rejected rows are listed in an error file.")
+    @ApiResponses({
+        @ApiResponse(responseCode = "200", description = "Import finished, see rowsRejected"),
+        @ApiResponse(responseCode = "400", description = "Invalid CSV header"),
+        @ApiResponse(responseCode = "415", description = "Unsupported content type")
+    })
+    @PreAuthorize("isAuthenticated()")
+    public ResponseEntity<MyDataDto.ImportResult> importData(HttpServletRequest httpRequest) throws IOException {
+
+        SecurityContext context = SecurityContext.fromCurrentContext();
+        if (context == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+
+        MyDataImportService.Format format = MediaType.parseMediaType(httpRequest.getContentType())
+            .isCompatibleWith(MediaType.parseMediaType("text/csv"))
+            ? MyDataImportService.Format.CSV : MyDataImportService.Format.NDJSON;
+        log.info("{} import request from user: {}", format, context.getUsername());
+
+        MyDataDto.ImportResult result = myDataImportService.importData(
+            context, format, httpRequest.getInputStream(), httpRequest);
+        return ResponseEntity.ok(result);
+    }
+
+    /**
+     * Rejected rows of an import
+     */
+    @GetMapping(value = "/import/{importId}/errors", produces = "application/x-ndjson")
+    @Operation(summary = "Get import errors",
+        description = "Streams the rejected rows of one of the caller's imports, one JSON object per line.")
+    @ApiResponses({
+        @ApiResponse(responseCode = "200", description = "Error file"),
+        @ApiResponse(responseCode = "404", description = "No error file for this import")
+    })
+    @PreAuthorize("isAuthenticated()")
+    public ResponseEntity<Resource> importErrors(
+            @Parameter(description = "Import ID") @PathVariable String importId) {
+
+        SecurityContext context = SecurityContext.fromCurrentContext();
+        if (context == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+
+        return ResponseEntity.ok()
+            .contentType(MediaType.parseMediaType("application/x-ndjson"))
+            .body(new FileSystemResource(myDataImportService.errorFile(context, importId)));
+    }
+
     /**
      * Get data entry by ID
      */
     @GetMapping("/{id}")
     @Operation(summary = "Get data entry by ID",
-        description = "Retrieves a data entry. Columns visible depend on user clearance level.")
+        description = "Retrieves a data entry. Columns visible depend on user clearance level. " +
+            "Supports conditional requests via ETag / If-None-Match.")
     @ApiResponses({
         @ApiResponse(responseCode = "200", description = "Data retrieved successfully"),
+        @ApiResponse(responseCode = "304", description = "Data not modified since the given ETag"),
         @ApiResponse(responseCode = "403", description = "Access denied"),
         @ApiResponse(responseCode = "404", description = "Data not found")
     })
     @PreAuthorize("isAuthenticated()")
     public ResponseEntity<MyDataDto.Response> findById(
             @Parameter(description = "Data entry ID") @PathVariable Long id,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
             HttpServletRequest httpRequest) {
 
         SecurityContext context = SecurityContext.fromCurrentContext();
@@ -88,8 +169,13 @@ public class MyDataController {
 
         log.debug("Read request for {} from user: {}", id, context.getUsername());
 
+        Optional<String> notModifiedTag = myDataService.notModifiedTag(id, ifNoneMatch, context, httpRequest);
+        if (notModifiedTag.isPresent()) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(notModifiedTag.get()).build();
+        }
+
         MyDataDto.Response response = myDataService.findById(id, context, httpRequest);
-        return ResponseEntity.ok(response);
+        return ResponseEntity.ok().eTag(entityTag(response)).body(response);
     }
 
     /**
@@ -102,12 +188,14 @@ public class MyDataController {
         @ApiResponse(responseCode = "200", description = "Data updated successfully"),
         @ApiResponse(responseCode = "400", description = "Invalid request data"),
         @ApiResponse(responseCode = "403", description = "Access denied"),
-        @ApiResponse(responseCode = "404", description = "Data not found")
+        @ApiResponse(responseCode = "404", description = "Data not found"),
+        @ApiResponse(responseCode = "412", description = "If-Match does not match the current ETag")
     })
     @PreAuthorize("isAuthenticated()")
     public ResponseEntity<MyDataDto.Response> update(
             @Parameter(description = "Data entry ID") @PathVariable Long id,
             @Valid @RequestBody MyDataDto.UpdateRequest request,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
             HttpServletRequest httpRequest) {
 
         SecurityContext context = SecurityContext.fromCurrentContext();
@@ -117,8 +205,8 @@ public class MyDataController {
 
         log.info("Update request for {} from user: {}", id, context.getUsername());
 
-        MyDataDto.Response response = myDataService.update(id, request, context, httpRequest);
-        return ResponseEntity.ok(response);
+        MyDataDto.Response response = myDataService.update(id, request, ifMatch, context, httpRequest);
+        return ResponseEntity.ok().eTag(entityTag(response)).body(response);
     }
 
     /**
@@ -131,12 +219,14 @@ public class MyDataController {
         @ApiResponse(responseCode = "200", description = "Data updated successfully"),
         @ApiResponse(responseCode = "400", description = "Invalid request data"),
         @ApiResponse(responseCode = "403", description = "Access denied"),
-        @ApiResponse(responseCode = "404", description = "Data not found")
+        @ApiResponse(responseCode = "404", description = "Data not found"),
+        @ApiResponse(responseCode = "412", description = "If-Match does not match the current ETag")
     })
     @PreAuthorize("isAuthenticated()")
     public ResponseEntity<MyDataDto.Response> partialUpdate(
             @Parameter(description = "Data entry ID") @PathVariable Long id,
-            @RequestBody MyDataDto.UpdateRequest request,
+            @Valid @RequestBody MyDataDto.UpdateRequest request,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
             HttpServletRequest httpRequest) {
 
         SecurityContext context = SecurityContext.fromCurrentContext();
@@ -146,8 +236,8 @@ public class MyDataController {
 
         log.info("Partial update request for {} from user: {}", id, context.getUsername());
 
-        MyDataDto.Response response = myDataService.update(id, request, context, httpRequest);
-        return ResponseEntity.ok(response);
+        MyDataDto.Response response = myDataService.update(id, request, ifMatch, context, httpRequest);
+        return ResponseEntity.ok().eTag(entityTag(response)).body(response);
     }
 
     /**
@@ -182,13 +272,23 @@ public class MyDataController {
      */
     @GetMapping
     @Operation(summary = "List all accessible data",
-        description = "Lists all data entries accessible to the current user based on organization hierarchy.")
+        description = "Lists all data entries accessible to the current user based on organization hierarchy. "
+            + "Optionally filtered on metadata by containment and key=value / key predicates.")
     @ApiResponses({
-        @ApiResponse(responseCode = "200", description = "Data retrieved successfully")
+        @ApiResponse(responseCode = "200", description = "Data retrieved successfully"),
+        @ApiResponse(responseCode = "400", description = "Invalid metadata filter or unsupported sort property"),
+        @ApiResponse(responseCode = "403", description = "Exact count requested by a non-admin")
     })
     @PreAuthorize("isAuthenticated()")
     public ResponseEntity<Page<MyDataDto.Summary>> findAll(
-            @PageableDefault(size = 20, sort = "createdAt") Pageable pageable) {
+            @PageableDefault(size = 20, sort = "createdAt") Pageable pageable,
+            @Parameter(description = "JSON object the metadata must contain")
+            @RequestParam(required = false) String metadataContains,
+            @Parameter(description = "Metadata predicate: path=value (value as JSON, else string) or path (exists)")
+            @RequestParam(required = false) List<String> metadata,
+            @Parameter(description = "Count the total exactly instead of from the record counters (admins only)")
+            @RequestParam(defaultValue = "false") boolean exactCount,
+            HttpServletRequest httpRequest) {
 
         SecurityContext context = SecurityContext.fromCurrentContext();
         if (context == null) {
@@ -197,7 +297,9 @@ public class MyDataController {
 
         log.debug("List request from user: {}", context.getUsername());
 
-        Page<MyDataDto.Summary> response = myDataService.findAllAccessible(context, pageable);
+        MyDataDto.MetadataFilter metadataFilter = MyDataDto.MetadataFilter.parse(metadataContains, metadata);
+        Page<MyDataDto.Summary> response = myDataService.findAllAccessible(
+            context, pageable, metadataFilter, exactCount, httpRequest);
         return ResponseEntity.ok(response);
     }
 
@@ -206,9 +308,12 @@ public class MyDataController {
      */
     @GetMapping("/my")
     @Operation(summary = "Get my data",
-        description = "Lists all data entries owned by the current user.")
+        description = "Lists the data entries owned by the current user, paged and sorted in the database. "
+            + "Sortable by id, name, date, sensitivityLevel, organizationLevel, ownerDepartment, ownerTeam "
+            + "and createdAt.")
     @ApiResponses({
-        @ApiResponse(responseCode = "200", description = "Data retrieved successfully")
+        @ApiResponse(responseCode = "200", description = "Data retrieved successfully"),
+        @ApiResponse(responseCode = "400", description = "Unsupported sort property")
     })
     @PreAuthorize("isAuthenticated()")
     public ResponseEntity<Page<MyDataDto.Summary>> findMyData(
@@ -226,6 +331,39 @@ public class MyDataController {
         return ResponseEntity.ok(response);
     }
 
+    /**
+     * Get my data by cursor
+     */
+    @GetMapping("/my/cursor")
+    @Operation(summary = "Get my data by cursor",
+        description = "Lists the data entries owned by the current user, newest first. Pass nextCursor from the "
+            + "previous page to continue; deep pages cost the same as the first and no total is counted.")
+    @ApiResponses({
+        @ApiResponse(responseCode = "200", description = "Data retrieved successfully"),
+        @ApiResponse(responseCode = "400", description = "Invalid cursor or size")
+    })
+    @PreAuthorize("isAuthenticated()")
+    public ResponseEntity<MyDataDto.CursorPage> findMyDataByCursor(
+            @Parameter(description = "nextCursor of the previous page")
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size) {
+
+        SecurityContext context = SecurityContext.fromCurrentContext();
+        if (context == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+
+        if (size < 1 || size > MAX_CURSOR_PAGE_SIZE) {
+            throw new IllegalArgumentException("size must be between 1 and " + MAX_CURSOR_PAGE_SIZE);
+        }
+
+        log.debug("My data cursor request from user: {}", context.getUsername());
+
+        MyDataDto.CursorPage response = myDataService.findByOwner(context.getUserId(), context,
+            cursor != null ? MyDataDto.Cursor.decode(cursor) : null, size);
+        return ResponseEntity.ok(response);
+    }
+
     /**
      * Search by name
      */
@@ -238,7 +376,8 @@ public class MyDataController {
     @PreAuthorize("isAuthenticated()")
     public ResponseEntity<Page<MyDataDto.Summary>> search(
             @Parameter(description = "Search query") @RequestParam String q,
-            @PageableDefault(size = 20) Pageable pageable) {
+            @PageableDefault(size = 20) Pageable pageable,
+            HttpServletRequest httpRequest) {
 
         SecurityContext context = SecurityContext.fromCurrentContext();
         if (context == null) {
@@ -247,7 +386,94 @@ public class MyDataController {
 
         log.debug("Search request for '{}' from user: {}", q, context.getUsername());
 
-        Page<MyDataDto.Summary> response = myDataService.searchByName(q, context, pageable);
+        Page<MyDataDto.Summary> response = myDataService.searchByName(q, context, pageable, httpRequest);
         return ResponseEntity.ok(response);
     }
+
+    /**
+     * Stream accessible data in a date range
+     */
+    @GetMapping(value = "/date-range", produces = "application/x-ndjson")
+    @Operation(summary = "Stream data by date range",
+        description = "Streams every accessible data entry dated within the inclusive range, ordered by date, "
+            + "one JSON object per line. Columns visible depend on user clearance level.")
+    @ApiResponses({
+        @ApiResponse(responseCode = "200", description = "Data streamed"),
+        @ApiResponse(responseCode = "400", description = "from is after to")
+    })
+    @PreAuthorize("isAuthenticated()")
+    public ResponseEntity<StreamingResponseBody> streamByDateRange(
+            @Parameter(description = "Earliest record date (inclusive)")
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @Parameter(description = "Latest record date (inclusive)")
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            HttpServletRequest httpRequest) {
+
+        SecurityContext context = SecurityContext.fromCurrentContext();
+        if (context == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+
+        log.debug("Date range {} to {} request from user: {}", from, to, context.getUsername());
+
+        // Check the range before streaming so a bad range is a 400. The query is opened inside
+        // the body, so a body that never runs (async timeout, rejection) holds no connection.
+        MyDataService.DateRangeStream prepared = myDataService.prepareDateRangeStream(context, from, to, httpRequest);
+        StreamingResponseBody body = (OutputStream out) ->
+            myDataService.streamByDateRange(prepared, record -> writeLine(out, record));
+        return ResponseEntity.ok()
+            .contentType(MediaType.parseMediaType("application/x-ndjson"))
+            .body(body);
+    }
+
+    /**
+     * Aggregate financial data
+     */
+    @GetMapping("/financial/aggregate")
+    @Operation(summary = "Aggregate financial data",
+        description = "Computes count, sum, avg, min, max and percentiles of a numeric financialData field over "
+            + "the accessible data, grouped by department, team, organization level or date bucket. "
+            + "Requires visibility of the financialData column (SECRET clearance).")
+    @ApiResponses({
+        @ApiResponse(responseCode = "200", description = "Aggregation computed"),
+        @ApiResponse(responseCode = "400", description = "Invalid field, percentile or date range"),
+        @ApiResponse(responseCode = "403", description = "financialData not visible to the user")
+    })
+    @PreAuthorize("isAuthenticated()")
+    public ResponseEntity<FinancialAggregateDto.Response> aggregateFinancialData(
+            @Parameter(description = "Top-level numeric financialData field, e.g. budget")
+            @RequestParam String field,
+            @Parameter(description = "Grouping dimension")
+            @RequestParam(defaultValue = "DEPARTMENT") FinancialAggregateDto.GroupBy groupBy,
+            @Parameter(description = "Percentiles between 0 and 1 (default 0.5, 0.9, 0.99)")
+            @RequestParam(required = false) List<Double> percentiles,
+            @Parameter(description = "Earliest record date (inclusive)")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @Parameter(description = "Latest record date (inclusive)")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            HttpServletRequest httpRequest) {
+
+        SecurityContext context = SecurityContext.fromCurrentContext();
+        if (context == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+
+        log.debug("Financial aggregate of {} by {} from user: {}", field, groupBy, context.getUsername());
+
+        FinancialAggregateDto.Query query = new FinancialAggregateDto.Query(field, groupBy, percentiles, from, to);
+        return ResponseEntity.ok(financialAggregationService.aggregate(context, query, httpRequest));
+    }
+
+    private void writeLine(OutputStream out, Object value) {
+        try {
+            out.write(objectMapper.writeValueAsBytes(value));
+            out.write('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private String entityTag(MyDataDto.Response response) {
+        return entityTagService.tagFor(response.getId(), response.getVersion(), response.getVisibleColumns());
+    }
 }
@@ -0,0 +1,81 @@
+package com.enterprise.datasharing.dto;
+
+import com.enterprise.datasharing.entity.AuditLog;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.*;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Data Transfer Objects for audit log queries
+ */
+public class AuditLogDto {
+
+    /**
+     * Audit query filters; every field is optional and they combine with AND
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class Filter {
+        private String userId;
+        private String entityType;
+        private String entityId;
+        private Set<AuditLog.AuditAction> actions;
+        private Set<AuditLog.AccessDecision> decisions;
+        private Boolean success;
+
+        // Inclusive time range
+        private LocalDateTime from;
+        private LocalDateTime to;
+    }
+
+    /**
+     * Position after the last row of a page, ordered by (timestamp, id) descending
+     */
+    public record Cursor(LocalDateTime timestamp, long id) {
+
+        public static Cursor after(AuditLog last) {
+            return new Cursor(last.getTimestamp(), last.getId());
+        }
+
+        /**
+         * Opaque form handed to clients
+         */
+        public String encode() {
+            return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((timestamp + "_" + id).getBytes(StandardCharsets.UTF_8));
+        }
+
+        public static Cursor decode(String value) {
+            try {
+                String text = new String(Base64.getUrlDecoder().decode(value), StandardCharsets.UTF_8);
+                int separator = text.lastIndexOf('_');
+                return new Cursor(LocalDateTime.parse(text.substring(0, separator)),
+                    Long.parseLong(text.substring(separator + 1)));
+            } catch (IllegalArgumentException | IndexOutOfBoundsException | DateTimeParseException e) {
+                throw new IllegalArgumentException("Invalid cursor: " + value);
+            }
+        }
+    }
+
+    /**
+     * One page of audit logs and the cursor for the next, absent on the last page
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public static class CursorPage {
+        private List<AuditLog> items;
+        private int size;
+        private String nextCursor;
+    }
+}
@@ -0,0 +1,61 @@
+package com.enterprise.datasharing.dto;
+
+import com.enterprise.datasharing.entity.MyData;
+import com.enterprise.datasharing.entity.UserAttribute;
+import com.enterprise.datasharing.security.AccessControlService;
+import lombok.*;
+
+import java.util.Set;
+
+/**
+ * Data Transfer Objects for reverse entitlement queries
+ */
+public class EntitlementDto {
+
+    /**
+     * A user that can access a record, with the operations granted
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class UserAccess {
+        private String userId;
+        private String username;
+        private String department;
+        private String team;
+        private UserAttribute.ClearanceLevel clearanceLevel;
+        private Set<AccessControlService.AccessOperation> operations;
+        private Set<String> visibleColumns;
+    }
+
+    /**
+     * A record a user can access, with the operations granted and the column mask
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class RecordAccess {
+        private Long dataId;
+        private MyData.OrganizationLevel organizationLevel;
+        private MyData.SensitivityLevel sensitivityLevel;
+        private String ownerId;
+        private Set<AccessControlService.AccessOperation> operations;
+        private Set<String> visibleColumns;
+    }
+
+    /**
+     * One line of the entitlement report
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class ReportEntry {
+        private String userId;
+        private Long dataId;
+        private Set<AccessControlService.AccessOperation> operations;
+        private Set<String> visibleColumns;
+    }
+}
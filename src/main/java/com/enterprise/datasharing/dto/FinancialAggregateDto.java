@@ -0,0 +1,105 @@
+package com.enterprise.datasharing.dto;
+
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Data Transfer Objects for financialData aggregation
+ */
+public class FinancialAggregateDto {
+
+    private static final Pattern FIELD_NAME = Pattern.compile("[A-Za-z0-9_]{1,64}");
+
+    private static final int MAX_PERCENTILES = 5;
+
+    private static final List<Double> DEFAULT_PERCENTILES = List.of(0.5, 0.9, 0.99);
+
+    /**
+     * Grouping dimension: an owner attribute or a bucket of the record date
+     */
+    public enum GroupBy {
+        DEPARTMENT,
+        TEAM,
+        ORGANIZATION_LEVEL,
+        DAY,
+        WEEK,
+        MONTH,
+        QUARTER,
+        YEAR
+    }
+
+    /**
+     * One aggregation over a top-level numeric field of financialData.
+     * Immutable, since it is part of the result cache key.
+     */
+    public record Query(String field, GroupBy groupBy, List<Double> percentiles, LocalDate from, LocalDate to) {
+
+        public Query {
+            if (field == null || !FIELD_NAME.matcher(field).matches()) {
+                throw new IllegalArgumentException("Field must be 1-64 letters, digits or underscores: " + field);
+            }
+            if (groupBy == null) {
+                throw new IllegalArgumentException("groupBy is required");
+            }
+            if (percentiles == null || percentiles.isEmpty()) {
+                percentiles = DEFAULT_PERCENTILES;
+            }
+            for (Double percentile : percentiles) {
+                if (percentile == null || !(percentile > 0 && percentile < 1)) {
+                    throw new IllegalArgumentException("Percentiles must be between 0 and 1: " + percentile);
+                }
+            }
+            percentiles = percentiles.stream().distinct().sorted().toList();
+            if (percentiles.size() > MAX_PERCENTILES) {
+                throw new IllegalArgumentException("At most " + MAX_PERCENTILES + " percentiles per query");
+            }
+            if (from != null && to != null && from.isAfter(to)) {
+                throw new IllegalArgumentException("from must not be after to");
+            }
+        }
+    }
+
+    /**
+     * Aggregates of one group; records without a numeric value for the field are not counted
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class Group {
+        private String key;
+        private long count;
+        private BigDecimal sum;
+        private BigDecimal avg;
+        private BigDecimal min;
+        private BigDecimal max;
+
+        // Continuous percentiles keyed like "p50", "p99.9"
+        private Map<String, BigDecimal> percentiles;
+    }
+
+    /**
+     * Aggregation result, with the policy version and data watermark it was computed at
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class Response {
+        private String field;
+        private GroupBy groupBy;
+        private LocalDate from;
+        private LocalDate to;
+        private List<Group> groups;
+        private long totalCount;
+        private long policyVersion;
+        private long dataWatermark;
+        private OffsetDateTime computedAt;
+    }
+}
@@ -1,14 +1,27 @@
 package com.enterprise.datasharing.dto;
 
 import com.enterprise.datasharing.entity.MyData;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.databind.node.TextNode;
+import jakarta.validation.constraints.AssertTrue;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Size;
 import lombok.*;
 
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.time.OffsetDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
 import java.util.Set;
 
 /**
@@ -16,6 +29,10 @@ import java.util.Set;
  */
 public class MyDataDto {
 
+    // Strict enough to reject what the jsonb input parser rejects
+    private static final ObjectMapper JSON = new ObjectMapper()
+        .enable(DeserializationFeature.FAIL_ON_TRAILING_TOKENS);
+
     /**
      * Request DTO for creating new data
      */
@@ -45,6 +62,18 @@ public class MyDataDto {
         private String financialData;
 
         private String metadata;
+
+        @JsonIgnore
+        @AssertTrue(message = "Metadata must be valid JSON")
+        public boolean isMetadataValidJson() {
+            return isValidJson(metadata);
+        }
+
+        @JsonIgnore
+        @AssertTrue(message = "Financial data must be valid JSON")
+        public boolean isFinancialDataValidJson() {
+            return isValidJson(financialData);
+        }
     }
 
     /**
@@ -72,6 +101,18 @@ public class MyDataDto {
         private String financialData;
 
         private String metadata;
+
+        @JsonIgnore
+        @AssertTrue(message = "Metadata must be valid JSON")
+        public boolean isMetadataValidJson() {
+            return isValidJson(metadata);
+        }
+
+        @JsonIgnore
+        @AssertTrue(message = "Financial data must be valid JSON")
+        public boolean isFinancialDataValidJson() {
+            return isValidJson(financialData);
+        }
     }
 
     /**
@@ -108,12 +149,17 @@ public class MyDataDto {
         private Set<String> visibleColumns;
         private boolean partialAccess;
 
+        // Entity version, exposed through the ETag header rather than the body
+        @JsonIgnore
+        private Long version;
+
         /**
          * Create response from entity with column filtering
          */
         public static Response fromEntity(MyData entity, Set<String> visibleColumns) {
             ResponseBuilder builder = Response.builder()
                 .id(entity.getId())
+                .version(entity.getVersion())
                 .visibleColumns(visibleColumns)
                 .partialAccess(visibleColumns != null && visibleColumns.size() < 15);
 
@@ -205,4 +251,203 @@ public class MyDataDto {
                 .build();
         }
     }
+
+    /**
+     * The columns an access check reads, with the version for optimistic concurrency
+     */
+    public record SecurityAttributes(Long id, MyData.OrganizationLevel organizationLevel, String ownerId,
+                                     String ownerDepartment, String ownerTeam,
+                                     MyData.SensitivityLevel sensitivityLevel, Long version) {
+
+        /**
+         * A detached entity carrying only these columns, for checkAccess
+         */
+        public MyData toEntity() {
+            return MyData.builder()
+                .id(id)
+                .organizationLevel(organizationLevel)
+                .ownerId(ownerId)
+                .ownerDepartment(ownerDepartment)
+                .ownerTeam(ownerTeam)
+                .sensitivityLevel(sensitivityLevel)
+                .version(version)
+                .build();
+        }
+    }
+
+    /**
+     * Position after the last row of a page, ordered by (createdAt, id) descending
+     */
+    public record Cursor(OffsetDateTime createdAt, long id) {
+
+        public static Cursor after(Summary last) {
+            return new Cursor(last.getCreatedAt(), last.getId());
+        }
+
+        /**
+         * Opaque form handed to clients
+         */
+        public String encode() {
+            return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((createdAt + "_" + id).getBytes(StandardCharsets.UTF_8));
+        }
+
+        public static Cursor decode(String value) {
+            try {
+                String text = new String(Base64.getUrlDecoder().decode(value), StandardCharsets.UTF_8);
+                int separator = text.lastIndexOf('_');
+                return new Cursor(OffsetDateTime.parse(text.substring(0, separator)),
+                    Long.parseLong(text.substring(separator + 1)));
+            } catch (IllegalArgumentException | IndexOutOfBoundsException | DateTimeParseException e) {
+                throw new IllegalArgumentException("Invalid cursor: " + value);
+            }
+        }
+    }
+
+    /**
+     * One page of summaries and the cursor for the next, absent on the last page
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public static class CursorPage {
+        private List<Summary> items;
+        private int size;
+        private String nextCursor;
+    }
+
+    /**
+     * Response DTO for a bulk import
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public static class ImportResult {
+        private String importId;
+        private long rowsRead;
+        private long rowsImported;
+        private long rowsRejected;
+        private long fieldsStripped;
+        private int chunks;
+        private long durationMs;
+        private long rowsPerSecond;
+
+        // Set when rows were rejected
+        private String errorsUri;
+    }
+
+    /**
+     * One rejected row of a bulk import
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class ImportError {
+        private long line;
+        private String error;
+    }
+
+    /**
+     * Server-side metadata filter: one containment document (jsonb @>) built
+     * from the containment parameter and every key=value predicate, plus
+     * JSON paths that must exist (jsonb @?)
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class MetadataFilter {
+        private ObjectNode contains;
+        private List<String> paths;
+
+        /**
+         * Parse a containment document and predicates of the form
+         * "key.sub=value" (value as JSON, else as a string) or "key.sub" (exists)
+         */
+        public static MetadataFilter parse(String containsJson, List<String> predicates) {
+            ObjectNode contains = JSON.createObjectNode();
+            if (containsJson != null && !containsJson.isBlank()) {
+                try {
+                    JsonNode document = JSON.readTree(containsJson);
+                    if (!document.isObject()) {
+                        throw new IllegalArgumentException("metadataContains must be a JSON object");
+                    }
+                    contains = (ObjectNode) document;
+                } catch (JsonProcessingException e) {
+                    throw new IllegalArgumentException("metadataContains is not valid JSON");
+                }
+            }
+
+            List<String> paths = new ArrayList<>();
+            for (String predicate : predicates != null ? predicates : List.<String>of()) {
+                int equals = predicate.indexOf('=');
+                String[] keys = (equals < 0 ? predicate : predicate.substring(0, equals)).split("\\.", -1);
+                for (String key : keys) {
+                    if (key.isBlank()) {
+                        throw new IllegalArgumentException("Invalid metadata predicate: " + predicate);
+                    }
+                }
+                if (equals < 0) {
+                    paths.add(jsonPath(keys));
+                    continue;
+                }
+
+                ObjectNode node = contains;
+                for (int i = 0; i < keys.length - 1; i++) {
+                    JsonNode child = node.get(keys[i]);
+                    node = child != null && child.isObject() ? (ObjectNode) child : node.putObject(keys[i]);
+                }
+                JsonNode value = parseValue(predicate.substring(equals + 1));
+                JsonNode existing = node.get(keys[keys.length - 1]);
+                if (existing != null && !existing.equals(value)) {
+                    throw new IllegalArgumentException("Conflicting metadata predicates for "
+                        + predicate.substring(0, equals));
+                }
+                node.set(keys[keys.length - 1], value);
+            }
+            return new MetadataFilter(contains, paths);
+        }
+
+        public boolean isEmpty() {
+            return (contains == null || contains.isEmpty()) && (paths == null || paths.isEmpty());
+        }
+
+        private static JsonNode parseValue(String text) {
+            if (text.isBlank()) {
+                return TextNode.valueOf(text);
+            }
+            try {
+                return JSON.readTree(text);
+            } catch (JsonProcessingException e) {
+                return TextNode.valueOf(text);
+            }
+        }
+
+        private static String jsonPath(String[] keys) {
+            StringBuilder path = new StringBuilder("$");
+            for (String key : keys) {
+                path.append(".\"").append(key.replace("\\", "\\\\").replace("\"", "\\\"")).append('"');
+            }
+            return path.toString();
+        }
+    }
+
+    static boolean isValidJson(String value) {
+        if (value == null) {
+            return true;
+        }
+        if (value.isBlank()) {
+            return false;
+        }
+        try {
+            JSON.readTree(value);
+            return true;
+        } catch (JsonProcessingException e) {
+            return false;
+        }
+    }
 }
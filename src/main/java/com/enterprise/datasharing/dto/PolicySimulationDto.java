@@ -0,0 +1,90 @@
+package com.enterprise.datasharing.dto;
+
+import com.enterprise.datasharing.entity.DataAccessControl;
+import com.enterprise.datasharing.security.AccessControlService;
+import jakarta.validation.constraints.NotNull;
+import lombok.*;
+
+import java.util.Set;
+
+/**
+ * Data Transfer Objects for access rule dry runs
+ */
+public class PolicySimulationDto {
+
+    /**
+     * Proposed change to the rule set
+     */
+    public enum Action {
+        CREATE, UPDATE, DELETE
+    }
+
+    /**
+     * Request DTO describing the proposed rule change
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class Request {
+        @NotNull(message = "Action is required")
+        private Action action;
+
+        // Existing rule for UPDATE and DELETE
+        private Long ruleId;
+
+        // Proposed rule for CREATE and UPDATE
+        private DataAccessControl rule;
+    }
+
+    /**
+     * Operations a user gains or loses on a record
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class AccessChange {
+        @Builder.Default
+        private String type = "access";
+        private String userId;
+        private Long dataId;
+        private Set<AccessControlService.AccessOperation> gained;
+        private Set<AccessControlService.AccessOperation> lost;
+    }
+
+    /**
+     * Columns a user gains or loses on every record they can read
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class ColumnChange {
+        @Builder.Default
+        private String type = "columns";
+        private String userId;
+        private Set<String> gained;
+        private Set<String> lost;
+    }
+
+    /**
+     * Totals, emitted after all changes
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class Summary {
+        @Builder.Default
+        private String type = "summary";
+        private Action action;
+        private int usersEvaluated;
+        private long pairsEvaluated;
+        private long recordsChanged;
+        private long grantsGained;
+        private long grantsLost;
+        private long columnChanges;
+        private long durationMs;
+    }
+}
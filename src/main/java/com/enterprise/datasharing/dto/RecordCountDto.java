@@ -0,0 +1,47 @@
+package com.enterprise.datasharing.dto;
+
+import com.enterprise.datasharing.entity.MyData;
+import lombok.*;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Data Transfer Objects for record count statistics
+ */
+public class RecordCountDto {
+
+    /**
+     * Number of records with one combination of the counted columns.
+     * Records without a department or team are counted under "".
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class Entry {
+        private MyData.OrganizationLevel organizationLevel;
+        private String department;
+        private String team;
+        private MyData.SensitivityLevel sensitivityLevel;
+        private boolean deleted;
+        private long count;
+    }
+
+    /**
+     * Record counts, from the counters or counted exactly on my_data
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class Response {
+        private boolean exact;
+        private List<Entry> entries;
+        private long total;
+        private long live;
+        private Map<MyData.OrganizationLevel, Long> liveByOrganizationLevel;
+        private OffsetDateTime computedAt;
+    }
+}
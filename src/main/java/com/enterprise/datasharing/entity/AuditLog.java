@@ -125,6 +125,7 @@ public class AuditLog {
         DELETE,
         
         // Bulk Operations
+        BULK_CREATE,
         BULK_READ,
         BULK_UPDATE,
         BULK_DELETE,
@@ -2,6 +2,7 @@ package com.enterprise.datasharing.entity;
 
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.springframework.data.annotation.CreatedBy;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.LastModifiedDate;
@@ -13,6 +14,8 @@ import java.time.OffsetDateTime;
  * Data Access Control entity that defines fine-grained access rules.
  * Controls who can access specific rows and columns in the data.
  * Supports RBAC, ABAC, and CBAC rules.
+ * Rarely changes and is read on every access check, so it is held in the
+ * second-level cache (read-write).
  */
 @Entity
 @Table(name = "data_access_control", indexes = {
@@ -21,6 +24,8 @@ import java.time.OffsetDateTime;
     @Index(name = "idx_dac_active", columnList = "active")
 })
 @EntityListeners(AuditingEntityListener.class)
+@Cacheable
+@org.hibernate.annotations.Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
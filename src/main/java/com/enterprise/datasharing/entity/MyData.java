@@ -2,6 +2,8 @@ package com.enterprise.datasharing.entity;
 
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
 import org.springframework.data.annotation.CreatedBy;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.LastModifiedBy;
@@ -14,15 +16,11 @@ import java.time.OffsetDateTime;
 /**
  * Main data entity that stores business data.
  * Subject to RBAC, ABAC, and CBAC access controls.
+ * The indexes are partial (live rows only) or BRIN, which @Index cannot
+ * express; they are defined in changesets 009, 014 and 017.
  */
 @Entity
-@Table(name = "my_data", indexes = {
-    @Index(name = "idx_my_data_owner", columnList = "owner_id"),
-    @Index(name = "idx_my_data_org_level", columnList = "organization_level"),
-    @Index(name = "idx_my_data_department", columnList = "owner_department"),
-    @Index(name = "idx_my_data_team", columnList = "owner_team"),
-    @Index(name = "idx_my_data_date", columnList = "date")
-})
+@Table(name = "my_data")
 @EntityListeners(AuditingEntityListener.class)
 @Data
 @NoArgsConstructor
@@ -68,12 +66,14 @@ public class MyData {
     @Column(name = "confidential_notes", columnDefinition = "TEXT")
     private String confidentialNotes;
 
-    // Financial data - restricted access (stored as JSON string)
-    @Column(name = "financial_data", columnDefinition = "TEXT")
+    // Financial data - restricted access (JSON string, stored as jsonb)
+    @JdbcTypeCode(SqlTypes.JSON)
+    @Column(name = "financial_data", columnDefinition = "jsonb")
     private String financialData;
 
-    // Metadata (stored as JSON string)
-    @Column(name = "metadata", columnDefinition = "TEXT")
+    // Metadata (JSON string, stored as jsonb)
+    @JdbcTypeCode(SqlTypes.JSON)
+    @Column(name = "metadata", columnDefinition = "jsonb")
     private String metadata;
 
     // Audit fields
@@ -2,6 +2,7 @@ package com.enterprise.datasharing.entity;
 
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.LastModifiedDate;
 import org.springframework.data.jpa.domain.support.AuditingEntityListener;
@@ -12,6 +13,8 @@ import java.time.OffsetDateTime;
  * User Attribute entity for ABAC (Attribute-Based Access Control).
  * Stores additional user attributes beyond what Keycloak provides.
  * These attributes are used to make access control decisions.
+ * Rarely changes and is read on every access check, so it is held in the
+ * second-level cache (read-write).
  */
 @Entity
 @Table(name = "user_attribute", indexes = {
@@ -21,6 +24,8 @@ import java.time.OffsetDateTime;
     @Index(name = "idx_user_attr_clearance", columnList = "clearance_level")
 })
 @EntityListeners(AuditingEntityListener.class)
+@Cacheable
+@org.hibernate.annotations.Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
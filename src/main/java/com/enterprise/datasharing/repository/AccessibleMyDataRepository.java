@@ -0,0 +1,114 @@
+package com.enterprise.datasharing.repository;
+
+import com.enterprise.datasharing.dto.FinancialAggregateDto;
+import com.enterprise.datasharing.dto.MyDataDto;
+import com.enterprise.datasharing.entity.MyData;
+import com.enterprise.datasharing.security.CompiledAccessPolicy;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Repository fragment for queries over accessible data.
+ * Implemented as UNION ALL branches, one per organization level, each served
+ * by a partial composite index on live rows ordered by the sort key.
+ */
+public interface AccessibleMyDataRepository {
+
+    /**
+     * Sort property the branch indexes are ordered by
+     */
+    String SORT_PROPERTY = "createdAt";
+
+    /**
+     * Properties the owner listing can be sorted by: the Summary columns.
+     * Masked columns are left out, since an order reveals their values.
+     */
+    Set<String> SUMMARY_SORT_PROPERTIES = Set.of("id", "name", "date", "sensitivityLevel", "organizationLevel",
+        "ownerDepartment", "ownerTeam", "createdAt");
+
+    /**
+     * Find records accessible under the compiled policy, ordered by creation time.
+     * The total is taken from the record counters unless exactCount is set.
+     */
+    Page<MyData> findAccessibleByUser(CompiledAccessPolicy policy, Pageable pageable, boolean exactCount);
+
+    /**
+     * Find records readable under the compiled policy by joining the
+     * materialized my_data_acl on the caller's principals, ordered by creation time
+     */
+    Page<MyData> findReadableViaAcl(CompiledAccessPolicy policy, Pageable pageable);
+
+    /**
+     * Summaries of an owner's live records, paged and sorted in SQL.
+     * Ties are broken by id so pages are stable. Sort properties must be in
+     * SUMMARY_SORT_PROPERTIES.
+     */
+    Page<MyDataDto.Summary> findOwnerSummaries(String ownerId, Pageable pageable);
+
+    /**
+     * Up to limit summaries of an owner's live records after the cursor (from
+     * the newest when null), ordered by (createdAt, id) descending
+     */
+    List<MyDataDto.Summary> findOwnerSummariesAfter(String ownerId, MyDataDto.Cursor after, int limit);
+
+    /**
+     * The access-check columns and version of a live record
+     */
+    Optional<MyDataDto.SecurityAttributes> findSecurityAttributes(Long id);
+
+    /**
+     * Set the given properties of a live record at the expected version in one
+     * UPDATE ... RETURNING statement. Empty when the record is gone or at
+     * another version. The version and updatedAt only move when a value
+     * actually changes.
+     */
+    Optional<UpdateResult> updateReturning(Long id, Long expectedVersion, Map<String, Object> changes);
+
+    /**
+     * Stream records readable under the compiled policy with a date in the
+     * inclusive range, ordered by (date, id). Rows are read through a
+     * stateless session in fetch-size batches; the stream holds a connection
+     * and must be closed.
+     */
+    Stream<MyData> streamAccessibleByDateRange(CompiledAccessPolicy policy, LocalDate from, LocalDate to,
+                                               int fetchSize);
+
+    /**
+     * Aggregate a numeric financialData field over the records readable under
+     * the compiled policy, one group per key in key order
+     */
+    List<FinancialAggregateDto.Group> aggregateFinancialData(CompiledAccessPolicy policy,
+                                                             FinancialAggregateDto.Query query);
+
+    /**
+     * The record after an update, with the previous and current values of the
+     * properties that were set, keyed by property name
+     */
+    record UpdateResult(MyData updated, Map<String, Object> previous, Map<String, Object> current) {
+    }
+
+    /**
+     * Check whether a sort can be served by the index-ordered branches
+     */
+    static boolean supportsSort(Sort sort) {
+        if (sort.isUnsorted()) {
+            return true;
+        }
+        return sort.stream().count() == 1 && sort.getOrderFor(SORT_PROPERTY) != null;
+    }
+
+    /**
+     * Check whether a list of summaries can be sorted this way
+     */
+    static boolean supportsSummarySort(Sort sort) {
+        return sort.stream().allMatch(order -> SUMMARY_SORT_PROPERTIES.contains(order.getProperty()));
+    }
+}
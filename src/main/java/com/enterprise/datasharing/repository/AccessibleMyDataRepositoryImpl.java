@@ -0,0 +1,697 @@
+package com.enterprise.datasharing.repository;
+
+import com.enterprise.datasharing.dto.FinancialAggregateDto;
+import com.enterprise.datasharing.dto.MyDataDto;
+import com.enterprise.datasharing.entity.MyData;
+import com.enterprise.datasharing.security.CompiledAccessPolicy;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.PersistenceUnit;
+import jakarta.persistence.Query;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.CompoundSelection;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Order;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * UNION ALL implementation of the accessible-data list query.
+ *
+ * Each branch covers exactly one organization level (INDIVIDUAL is split into
+ * owned and managed records), so branches are disjoint and need no dedup.
+ * Every branch reads only (id, created_at) from a partial index on live rows
+ * (changeset 009) in sort order and stops after offset + size rows; the
+ * branches are then merged top-N and only the final page is joined back to
+ * my_data.
+ *
+ * findReadableViaAcl instead joins the materialized my_data_acl
+ * (changeset 010) on the caller's principals.
+ *
+ * aggregateFinancialData runs the same branches as one grouped aggregate,
+ * so only one row per group leaves the database.
+ *
+ * The owner summary queries select only the Summary columns and are served
+ * by the live-row idx_my_data_live_owner_listing (changeset 017) in
+ * (created_at, id) order.
+ *
+ * updateReturning writes only the requested columns and reads the previous
+ * values from a locking read of the same statement, so an update is one
+ * round trip and no entity is loaded.
+ *
+ * Page totals of findAccessibleByUser are summed from my_data_counter
+ * (changeset 016) unless an exact count is requested; only the owned and
+ * managed branches and the denied records are counted on my_data.
+ *
+ * streamAccessibleByDateRange uses the criteria form of the policy instead:
+ * a date range is served by one (BRIN or B-tree) range scan on my_data.date
+ * with the access predicate as a filter, rather than one scan per branch.
+ */
+public class AccessibleMyDataRepositoryImpl implements AccessibleMyDataRepository {
+
+    // my_data_acl permission bit for READ
+    private static final int ACL_READ = 1;
+
+    // Properties updateReturning can set, with their column and SQL type
+    private static final Map<String, UpdatableColumn> UPDATABLE_COLUMNS = Map.of(
+        "name", new UpdatableColumn("name", "varchar", ResultSet::getString),
+        "date", new UpdatableColumn("date", "date", (rs, column) -> rs.getObject(column, LocalDate.class)),
+        "data", new UpdatableColumn("data", "text", ResultSet::getString),
+        "organizationLevel", new UpdatableColumn("organization_level", "varchar",
+            (rs, column) -> MyData.OrganizationLevel.valueOf(rs.getString(column))),
+        "sensitivityLevel", new UpdatableColumn("sensitivity_level", "varchar",
+            (rs, column) -> MyData.SensitivityLevel.valueOf(rs.getString(column))),
+        "confidentialNotes", new UpdatableColumn("confidential_notes", "text", ResultSet::getString),
+        "financialData", new UpdatableColumn("financial_data", "jsonb", ResultSet::getString),
+        "metadata", new UpdatableColumn("metadata", "jsonb", ResultSet::getString));
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @PersistenceUnit
+    private EntityManagerFactory entityManagerFactory;
+
+    @Value("${app.counters.page-totals:true}")
+    private boolean counterPageTotals;
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Page<MyData> findAccessibleByUser(CompiledAccessPolicy policy, Pageable pageable, boolean exactCount) {
+        if (policy.matchesNothing()) {
+            return new PageImpl<>(List.of(), pageable, 0);
+        }
+
+        Map<String, Object> params = new HashMap<>();
+        List<Scope> scopes = buildScopes(policy, params);
+        String common = buildCommonFilter(policy, params);
+        List<String> branches = scopes.stream()
+            .map(scope -> scope.condition() + common)
+            .toList();
+        String direction = resolveDirection(pageable.getSort());
+        String orderBy = " ORDER BY created_at " + direction + ", id " + direction;
+
+        StringBuilder candidates = new StringBuilder();
+        for (String branch : branches) {
+            if (!candidates.isEmpty()) {
+                candidates.append(" UNION ALL ");
+            }
+            candidates.append("(SELECT id, created_at FROM my_data WHERE ")
+                .append(branch)
+                .append(orderBy);
+            if (pageable.isPaged()) {
+                candidates.append(" LIMIT :branchLimit");
+            }
+            candidates.append(')');
+        }
+
+        StringBuilder sql = new StringBuilder()
+            .append("SELECT d.* FROM my_data d JOIN (SELECT id, created_at FROM (")
+            .append(candidates)
+            .append(") candidates")
+            .append(orderBy);
+        if (pageable.isPaged()) {
+            sql.append(" LIMIT :pageSize OFFSET :pageOffset");
+            params.put("branchLimit", pageable.getOffset() + pageable.getPageSize());
+            params.put("pageSize", pageable.getPageSize());
+            params.put("pageOffset", pageable.getOffset());
+        }
+        sql.append(") page ON page.id = d.id ORDER BY page.created_at ")
+            .append(direction).append(", page.id ").append(direction);
+
+        Query query = entityManager.createNativeQuery(sql.toString(), MyData.class);
+        params.forEach(query::setParameter);
+        List<MyData> content = query.getResultList();
+
+        // Owner-only policies are not keyed by the counters
+        boolean fromCounters = counterPageTotals && !exactCount && !policy.isOwnerOnly();
+        return PageableExecutionUtils.getPage(content, pageable, () -> fromCounters
+            ? countFromCounters(policy, scopes, common, params)
+            : count(branches, params));
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Page<MyData> findReadableViaAcl(CompiledAccessPolicy policy, Pageable pageable) {
+        if (policy.matchesNothing()) {
+            return new PageImpl<>(List.of(), pageable, 0);
+        }
+
+        Map<String, Object> params = new HashMap<>();
+        String readable = buildAclFilter(policy, params);
+        String direction = resolveDirection(pageable.getSort());
+
+        StringBuilder sql = new StringBuilder()
+            .append("SELECT d.* FROM my_data d JOIN (")
+            .append(readable)
+            .append(") acl ON acl.data_id = d.id WHERE d.deleted = false")
+            .append(" ORDER BY d.created_at ").append(direction)
+            .append(", d.id ").append(direction);
+        if (pageable.isPaged()) {
+            sql.append(" LIMIT :pageSize OFFSET :pageOffset");
+        }
+
+        Query query = entityManager.createNativeQuery(sql.toString(), MyData.class);
+        params.forEach(query::setParameter);
+        if (pageable.isPaged()) {
+            query.setParameter("pageSize", pageable.getPageSize());
+            query.setParameter("pageOffset", pageable.getOffset());
+        }
+        List<MyData> content = query.getResultList();
+
+        return PageableExecutionUtils.getPage(content, pageable, () -> {
+            Query countQuery = entityManager.createNativeQuery("SELECT COUNT(*) FROM (" + readable + ") acl");
+            params.forEach(countQuery::setParameter);
+            return ((Number) countQuery.getSingleResult()).longValue();
+        });
+    }
+
+    @Override
+    public Page<MyDataDto.Summary> findOwnerSummaries(String ownerId, Pageable pageable) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<MyDataDto.Summary> criteria = cb.createQuery(MyDataDto.Summary.class);
+        Root<MyData> root = criteria.from(MyData.class);
+        criteria.select(summary(cb, root))
+            .where(ownedBy(cb, root, ownerId))
+            .orderBy(stableOrder(cb, root, pageable.getSort()));
+
+        TypedQuery<MyDataDto.Summary> query = entityManager.createQuery(criteria);
+        if (pageable.isPaged()) {
+            query.setFirstResult((int) pageable.getOffset()).setMaxResults(pageable.getPageSize());
+        }
+        List<MyDataDto.Summary> content = query.getResultList();
+
+        return PageableExecutionUtils.getPage(content, pageable, () -> {
+            CriteriaQuery<Long> count = cb.createQuery(Long.class);
+            Root<MyData> countRoot = count.from(MyData.class);
+            count.select(cb.count(countRoot)).where(ownedBy(cb, countRoot, ownerId));
+            return entityManager.createQuery(count).getSingleResult();
+        });
+    }
+
+    @Override
+    public List<MyDataDto.Summary> findOwnerSummariesAfter(String ownerId, MyDataDto.Cursor after, int limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<MyDataDto.Summary> criteria = cb.createQuery(MyDataDto.Summary.class);
+        Root<MyData> root = criteria.from(MyData.class);
+        Path<OffsetDateTime> createdAt = root.get(SORT_PROPERTY);
+        Path<Long> id = root.get("id");
+
+        Predicate where = ownedBy(cb, root, ownerId);
+        if (after != null) {
+            // The redundant created_at bound is an index condition; the OR only filters rows at the boundary
+            where = cb.and(where,
+                cb.lessThanOrEqualTo(createdAt, after.createdAt()),
+                cb.or(cb.lessThan(createdAt, after.createdAt()),
+                    cb.and(cb.equal(createdAt, after.createdAt()), cb.lessThan(id, after.id()))));
+        }
+        criteria.select(summary(cb, root))
+            .where(where)
+            .orderBy(cb.desc(createdAt), cb.desc(id));
+
+        return entityManager.createQuery(criteria).setMaxResults(limit).getResultList();
+    }
+
+    private static CompoundSelection<MyDataDto.Summary> summary(
+            CriteriaBuilder cb, Root<MyData> root) {
+        return cb.construct(MyDataDto.Summary.class,
+            root.get("id"), root.get("name"), root.get("date"), root.get("sensitivityLevel"),
+            root.get("organizationLevel"), root.get("ownerDepartment"), root.get("ownerTeam"),
+            root.get(SORT_PROPERTY));
+    }
+
+    private static Predicate ownedBy(CriteriaBuilder cb, Root<MyData> root, String ownerId) {
+        return cb.and(cb.equal(root.get("ownerId"), ownerId), cb.isFalse(root.get("deleted")));
+    }
+
+    /**
+     * The requested order (creation time when unsorted), then id in the last direction
+     */
+    private static List<Order> stableOrder(CriteriaBuilder cb, Root<MyData> root, Sort sort) {
+        if (sort.isUnsorted()) {
+            sort = Sort.by(SORT_PROPERTY);
+        }
+        List<Order> orders = new ArrayList<>();
+        Sort.Direction last = Sort.Direction.ASC;
+        for (Sort.Order order : sort) {
+            Path<Object> property = root.get(order.getProperty());
+            orders.add(order.isAscending() ? cb.asc(property) : cb.desc(property));
+            last = order.getDirection();
+        }
+        if (sort.getOrderFor("id") == null) {
+            orders.add(last.isAscending() ? cb.asc(root.get("id")) : cb.desc(root.get("id")));
+        }
+        return orders;
+    }
+
+    @Override
+    public Optional<MyDataDto.SecurityAttributes> findSecurityAttributes(Long id) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<MyDataDto.SecurityAttributes> criteria = cb.createQuery(MyDataDto.SecurityAttributes.class);
+        Root<MyData> root = criteria.from(MyData.class);
+        criteria.select(cb.construct(MyDataDto.SecurityAttributes.class,
+                root.get("id"), root.get("organizationLevel"), root.get("ownerId"), root.get("ownerDepartment"),
+                root.get("ownerTeam"), root.get("sensitivityLevel"), root.get("version")))
+            .where(cb.equal(root.get("id"), id), cb.isFalse(root.get("deleted")));
+
+        return entityManager.createQuery(criteria).getResultStream().findFirst();
+    }
+
+    @Override
+    public Optional<UpdateResult> updateReturning(Long id, Long expectedVersion, Map<String, Object> changes) {
+        if (changes.isEmpty()) {
+            throw new IllegalArgumentException("No properties to update");
+        }
+
+        List<String> properties = new ArrayList<>(changes.keySet());
+        List<UpdatableColumn> columns = new ArrayList<>();
+        for (String property : properties) {
+            UpdatableColumn column = UPDATABLE_COLUMNS.get(property);
+            if (column == null) {
+                throw new IllegalArgumentException("Property cannot be updated: " + property);
+            }
+            columns.add(column);
+        }
+
+        // The locking read re-checks the version after waiting on a concurrent writer
+        String changed = columns.stream().map(column -> "d." + column.name())
+            .collect(Collectors.joining(", ", "ROW(", ")"))
+            + " IS DISTINCT FROM "
+            + columns.stream().map(column -> "v." + column.name())
+            .collect(Collectors.joining(", ", "ROW(", ")"));
+        String sql = "WITH old AS (SELECT id, "
+            + columns.stream().map(UpdatableColumn::name).collect(Collectors.joining(", "))
+            + " FROM my_data WHERE id = ? AND version = ? AND deleted = false FOR UPDATE),"
+            + " v AS (SELECT "
+            + columns.stream().map(column -> "CAST(? AS " + column.type() + ") AS " + column.name())
+            .collect(Collectors.joining(", "))
+            + ") UPDATE my_data d SET "
+            + columns.stream().map(column -> column.name() + " = v." + column.name())
+            .collect(Collectors.joining(", "))
+            + ", version = CASE WHEN " + changed + " THEN d.version + 1 ELSE d.version END"
+            + ", updated_at = CASE WHEN " + changed + " THEN now() ELSE d.updated_at END"
+            + " FROM old, v WHERE d.id = old.id RETURNING d.*, "
+            + columns.stream().map(column -> "old." + column.name() + " AS previous_" + column.name())
+            .collect(Collectors.joining(", "));
+
+        return entityManager.unwrap(Session.class).doReturningWork(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(sql)) {
+                int index = 1;
+                statement.setLong(index++, id);
+                statement.setObject(index++, expectedVersion, Types.BIGINT);
+                for (String property : properties) {
+                    Object value = changes.get(property);
+                    statement.setObject(index++, value instanceof Enum<?> constant ? constant.name() : value);
+                }
+
+                try (ResultSet rs = statement.executeQuery()) {
+                    if (!rs.next()) {
+                        return Optional.empty();
+                    }
+                    Map<String, Object> previous = new LinkedHashMap<>();
+                    Map<String, Object> current = new LinkedHashMap<>();
+                    for (int i = 0; i < properties.size(); i++) {
+                        UpdatableColumn column = columns.get(i);
+                        previous.put(properties.get(i), column.reader().read(rs, "previous_" + column.name()));
+                        current.put(properties.get(i), column.reader().read(rs, column.name()));
+                    }
+                    return Optional.of(new UpdateResult(readMyData(rs), previous, current));
+                }
+            }
+        });
+    }
+
+    private static MyData readMyData(ResultSet rs) throws SQLException {
+        return MyData.builder()
+            .id(rs.getLong("id"))
+            .name(rs.getString("name"))
+            .date(rs.getObject("date", LocalDate.class))
+            .data(rs.getString("data"))
+            .sensitivityLevel(MyData.SensitivityLevel.valueOf(rs.getString("sensitivity_level")))
+            .organizationLevel(MyData.OrganizationLevel.valueOf(rs.getString("organization_level")))
+            .ownerId(rs.getString("owner_id"))
+            .ownerDepartment(rs.getString("owner_department"))
+            .ownerTeam(rs.getString("owner_team"))
+            .confidentialNotes(rs.getString("confidential_notes"))
+            .financialData(rs.getString("financial_data"))
+            .metadata(rs.getString("metadata"))
+            .createdAt(rs.getObject("created_at", OffsetDateTime.class))
+            .createdBy(rs.getString("created_by"))
+            .updatedAt(rs.getObject("updated_at", OffsetDateTime.class))
+            .updatedBy(rs.getString("updated_by"))
+            .deleted(rs.getBoolean("deleted"))
+            .deletedAt(rs.getObject("deleted_at", OffsetDateTime.class))
+            .deletedBy(rs.getString("deleted_by"))
+            .version(rs.getObject("version", Long.class))
+            .build();
+    }
+
+    @Override
+    public Stream<MyData> streamAccessibleByDateRange(CompiledAccessPolicy policy, LocalDate from, LocalDate to,
+                                                      int fetchSize) {
+        if (policy.matchesNothing()) {
+            return Stream.empty();
+        }
+
+        // No persistence context, so memory stays constant however many rows are read
+        StatelessSession session = entityManagerFactory.unwrap(SessionFactory.class).openStatelessSession();
+        try {
+            // pgjdbc only reads in fetch-size batches (through a cursor) outside autocommit
+            session.beginTransaction();
+
+            CriteriaBuilder cb = session.getCriteriaBuilder();
+            CriteriaQuery<MyData> criteria = cb.createQuery(MyData.class);
+            Root<MyData> root = criteria.from(MyData.class);
+            criteria.where(MyDataSpecifications.accessibleUnder(policy)
+                    .and(MyDataSpecifications.dateBetween(from, to))
+                    .toPredicate(root, criteria, cb))
+                .orderBy(cb.asc(root.get("date")), cb.asc(root.get("id")));
+
+            return session.createQuery(criteria)
+                .setFetchSize(fetchSize)
+                .getResultStream()
+                .onClose(() -> {
+                    try {
+                        // Read only, nothing to commit
+                        session.getTransaction().rollback();
+                    } finally {
+                        session.close();
+                    }
+                });
+        } catch (RuntimeException e) {
+            session.close();
+            throw e;
+        }
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    @SuppressWarnings("unchecked")
+    public List<FinancialAggregateDto.Group> aggregateFinancialData(CompiledAccessPolicy policy,
+                                                                    FinancialAggregateDto.Query aggregate) {
+        if (policy.matchesNothing()) {
+            return List.of();
+        }
+
+        Map<String, Object> params = new HashMap<>();
+        params.put("field", aggregate.field());
+        // Non-numeric and missing values are skipped rather than failing the cast
+        StringBuilder filter = new StringBuilder(" AND jsonb_typeof(financial_data -> :field) = 'number'");
+        if (aggregate.from() != null) {
+            params.put("from", aggregate.from());
+            filter.append(" AND date >= :from");
+        }
+        if (aggregate.to() != null) {
+            params.put("to", aggregate.to());
+            filter.append(" AND date <= :to");
+        }
+
+        String groupKey = groupKey(aggregate.groupBy());
+        String records = buildBranches(policy, params).stream()
+            .map(branch -> "(SELECT " + groupKey + " AS group_key, CAST(financial_data ->> :field AS numeric) AS amount"
+                + " FROM my_data WHERE " + branch + filter + ")")
+            .collect(Collectors.joining(" UNION ALL "));
+
+        StringBuilder sql = new StringBuilder()
+            .append("SELECT group_key, count(*), sum(amount), avg(amount), min(amount), max(amount)");
+        for (Double percentile : aggregate.percentiles()) {
+            // Validated to (0, 1) by the query, so safe to render
+            sql.append(", percentile_cont(").append(BigDecimal.valueOf(percentile).toPlainString())
+                .append(") WITHIN GROUP (ORDER BY amount)");
+        }
+        sql.append(" FROM (").append(records).append(") records")
+            .append(" GROUP BY group_key ORDER BY group_key NULLS LAST");
+
+        Query query = entityManager.createNativeQuery(sql.toString());
+        params.forEach(query::setParameter);
+
+        List<FinancialAggregateDto.Group> groups = new ArrayList<>();
+        for (Object[] row : (List<Object[]>) query.getResultList()) {
+            Map<String, BigDecimal> percentiles = new LinkedHashMap<>();
+            for (int i = 0; i < aggregate.percentiles().size(); i++) {
+                percentiles.put(percentileName(aggregate.percentiles().get(i)), decimal(row[6 + i]));
+            }
+            groups.add(FinancialAggregateDto.Group.builder()
+                .key(row[0] != null ? row[0].toString() : null)
+                .count(((Number) row[1]).longValue())
+                .sum(decimal(row[2]))
+                .avg(decimal(row[3]))
+                .min(decimal(row[4]))
+                .max(decimal(row[5]))
+                .percentiles(percentiles)
+                .build());
+        }
+        return groups;
+    }
+
+    private String groupKey(FinancialAggregateDto.GroupBy groupBy) {
+        return switch (groupBy) {
+            case DEPARTMENT -> "owner_department";
+            case TEAM -> "owner_team";
+            case ORGANIZATION_LEVEL -> "organization_level";
+            // Bucket start date, e.g. 2024-04-01 for Q2
+            default -> "CAST(CAST(date_trunc('" + groupBy.name().toLowerCase()
+                + "', CAST(date AS timestamp)) AS date) AS text)";
+        };
+    }
+
+    private static String percentileName(double percentile) {
+        return "p" + BigDecimal.valueOf(percentile).movePointRight(2).stripTrailingZeros().toPlainString();
+    }
+
+    private static BigDecimal decimal(Object value) {
+        if (value == null || value instanceof BigDecimal) {
+            return (BigDecimal) value;
+        }
+        return new BigDecimal(value.toString());
+    }
+
+    /**
+     * Records where one of the caller's principals grants READ and none
+     * denies it. Each principal group is an index range on
+     * idx_my_data_acl_principal.
+     */
+    private String buildAclFilter(CompiledAccessPolicy policy, Map<String, Object> params) {
+        StringBuilder principals = new StringBuilder();
+        int group = 0;
+        for (Map.Entry<String, Set<String>> entry : policy.getAclPrincipals().entrySet()) {
+            if (!principals.isEmpty()) {
+                principals.append(" OR ");
+            }
+            String type = "aclType" + group;
+            String values = "aclValues" + group;
+            params.put(type, entry.getKey());
+            params.put(values, entry.getValue());
+            principals.append("(a.principal_type = :").append(type)
+                .append(" AND a.principal_value IN (:").append(values).append("))");
+            group++;
+        }
+
+        params.put("sensitivities", policy.getAllowedSensitivities().stream()
+            .map(Enum::name)
+            .toList());
+
+        StringBuilder filter = new StringBuilder()
+            .append("SELECT a.data_id FROM my_data_acl a WHERE (")
+            .append(principals)
+            .append(") AND a.sensitivity_level IN (:sensitivities)");
+        if (!policy.getDeniedDataIds().isEmpty()) {
+            params.put("deniedIds", policy.getDeniedDataIds());
+            filter.append(" AND a.data_id NOT IN (:deniedIds)");
+        }
+        return filter
+            .append(" GROUP BY a.data_id")
+            .append(" HAVING bit_or(a.grant_bits) & ").append(ACL_READ)
+            .append(" <> 0 AND bit_or(a.deny_bits) & ").append(ACL_READ).append(" = 0")
+            .toString();
+    }
+
+    private long count(List<String> branches, Map<String, Object> params) {
+        return count("SELECT COUNT(*) FROM (" + branches.stream()
+            .map(branch -> "(SELECT id FROM my_data WHERE " + branch + ")")
+            .collect(Collectors.joining(" UNION ALL ")) + ") candidates", params);
+    }
+
+    /**
+     * Page total from my_data_counter: the counters and pending deltas of the
+     * level, department and team scopes, less the denied records in them,
+     * plus an exact count of the owned and managed branches, which are not
+     * keyed by the counters.
+     */
+    private long countFromCounters(CompiledAccessPolicy policy, List<Scope> scopes, String common,
+                                   Map<String, Object> params) {
+        String keyed = scopes.stream()
+            .filter(scope -> !scope.byOwner())
+            .map(scope -> "(" + scope.condition() + ")")
+            .collect(Collectors.joining(" OR "));
+        List<String> owned = scopes.stream()
+            .filter(Scope::byOwner)
+            .map(scope -> scope.condition() + common)
+            .toList();
+
+        long total = owned.isEmpty() ? 0 : count(owned, params);
+        if (keyed.isEmpty()) {
+            return total;
+        }
+
+        String sensitivity = params.containsKey("sensitivities") ? " AND sensitivity_level IN (:sensitivities)" : "";
+        total += count("SELECT coalesce(sum(record_count), 0) FROM ("
+            + "SELECT organization_level, owner_department, owner_team, sensitivity_level, deleted, record_count"
+            + " FROM my_data_counter UNION ALL"
+            + " SELECT organization_level, owner_department, owner_team, sensitivity_level, deleted, delta"
+            + " FROM my_data_counter_delta) counts"
+            + " WHERE deleted = false" + sensitivity + " AND (" + keyed + ")", params);
+        if (!policy.getDeniedDataIds().isEmpty()) {
+            total -= count("SELECT COUNT(*) FROM my_data WHERE id IN (:deniedIds) AND deleted = false"
+                + sensitivity + " AND (" + keyed + ")", params);
+        }
+        return total;
+    }
+
+    /**
+     * Run a count, binding only the parameters the statement uses
+     */
+    private long count(String sql, Map<String, Object> params) {
+        Query query = entityManager.createNativeQuery(sql);
+        params.forEach((name, value) -> {
+            if (sql.contains(":" + name)) {
+                query.setParameter(name, value);
+            }
+        });
+        return ((Number) query.getSingleResult()).longValue();
+    }
+
+    /**
+     * One WHERE clause per disjoint branch. The literal "deleted = false" lets
+     * the planner match the partial indexes.
+     */
+    private List<String> buildBranches(CompiledAccessPolicy policy, Map<String, Object> params) {
+        String common = buildCommonFilter(policy, params);
+        return buildScopes(policy, params).stream()
+            .map(scope -> scope.condition() + common)
+            .toList();
+    }
+
+    /**
+     * The organization scope of each branch, without the common filter.
+     * Scopes not based on the owner only use columns my_data_counter shares
+     * with my_data, so they apply to either table.
+     */
+    private List<Scope> buildScopes(CompiledAccessPolicy policy, Map<String, Object> params) {
+        List<Scope> scopes = new ArrayList<>();
+
+        if (policy.getExecutiveScope() == CompiledAccessPolicy.LevelScope.ALL) {
+            scopes.add(new Scope(atLevel(MyData.OrganizationLevel.EXECUTIVE), false));
+        }
+
+        switch (policy.getDepartmentScope()) {
+            case ALL -> scopes.add(new Scope(atLevel(MyData.OrganizationLevel.DEPARTMENT), false));
+            case MATCH -> {
+                params.put("department", policy.getDepartment());
+                scopes.add(new Scope("owner_department = :department AND "
+                    + atLevel(MyData.OrganizationLevel.DEPARTMENT), false));
+            }
+            default -> { }
+        }
+
+        switch (policy.getTeamScope()) {
+            case ALL -> scopes.add(new Scope(atLevel(MyData.OrganizationLevel.TEAM), false));
+            case MATCH -> {
+                params.put("team", policy.getTeam());
+                scopes.add(new Scope("owner_team = :team AND "
+                    + atLevel(MyData.OrganizationLevel.TEAM), false));
+            }
+            default -> { }
+        }
+
+        switch (policy.getIndividualScope()) {
+            case ALL -> scopes.add(new Scope(atLevel(MyData.OrganizationLevel.INDIVIDUAL), false));
+            case MATCH -> {
+                params.put("userId", policy.getUserId());
+                scopes.add(new Scope("owner_id = :userId AND "
+                    + atLevel(MyData.OrganizationLevel.INDIVIDUAL), true));
+                scopes.add(new Scope("owner_id IN (SELECT ua.user_id FROM user_attribute ua WHERE ua.manager_id = :userId) "
+                    + "AND owner_id <> :userId AND "
+                    + atLevel(MyData.OrganizationLevel.INDIVIDUAL), true));
+            }
+            default -> { }
+        }
+
+        return scopes;
+    }
+
+    private String buildCommonFilter(CompiledAccessPolicy policy, Map<String, Object> params) {
+        StringBuilder filter = new StringBuilder(" AND deleted = false");
+
+        if (policy.isOwnerOnly()) {
+            params.put("userId", policy.getUserId());
+            filter.append(" AND owner_id = :userId");
+        }
+
+        if (policy.getAllowedSensitivities().size() < MyData.SensitivityLevel.values().length) {
+            params.put("sensitivities", policy.getAllowedSensitivities().stream()
+                .map(Enum::name)
+                .toList());
+            filter.append(" AND sensitivity_level IN (:sensitivities)");
+        }
+
+        if (!policy.getDeniedDataIds().isEmpty()) {
+            params.put("deniedIds", policy.getDeniedDataIds());
+            filter.append(" AND id NOT IN (:deniedIds)");
+        }
+
+        return filter.toString();
+    }
+
+    private String atLevel(MyData.OrganizationLevel level) {
+        return "organization_level = '" + level.name() + "'";
+    }
+
+    private String resolveDirection(Sort sort) {
+        Sort.Order order = sort.getOrderFor(SORT_PROPERTY);
+        return order != null && order.isAscending() ? "ASC" : "DESC";
+    }
+
+    @FunctionalInterface
+    private interface ColumnReader {
+        Object read(ResultSet rs, String column) throws SQLException;
+    }
+
+    private record UpdatableColumn(String name, String type, ColumnReader reader) {
+    }
+
+    /**
+     * Organization scope of one branch; byOwner when it depends on the record owner
+     */
+    private record Scope(String condition, boolean byOwner) {
+    }
+}
@@ -0,0 +1,20 @@
+package com.enterprise.datasharing.repository;
+
+import com.enterprise.datasharing.dto.AuditLogDto;
+import com.enterprise.datasharing.entity.AuditLog;
+
+import java.util.List;
+
+/**
+ * Repository fragment for the composite audit log query.
+ * Keyset-paginated on (timestamp, id) descending, served by the composite
+ * and partial indexes of changeset 011.
+ */
+public interface AuditLogQueryRepository {
+
+    /**
+     * Find up to limit audit logs matching the filter, newest first,
+     * strictly after the cursor when one is given
+     */
+    List<AuditLog> search(AuditLogDto.Filter filter, AuditLogDto.Cursor after, int limit);
+}
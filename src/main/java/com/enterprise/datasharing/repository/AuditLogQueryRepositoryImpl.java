@@ -0,0 +1,103 @@
+package com.enterprise.datasharing.repository;
+
+import com.enterprise.datasharing.dto.AuditLogDto;
+import com.enterprise.datasharing.entity.AuditLog;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Query;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Dynamic SQL for the composite audit log query.
+ *
+ * Every query is "ORDER BY timestamp DESC, id DESC LIMIT n" with the cursor
+ * as a row comparison, so Postgres walks one index backwards from the cursor
+ * and stops after n matches; no OFFSET and no COUNT. Which index depends on
+ * the most selective equality filter: user_id, (entity_type, entity_id),
+ * action, or the partial indexes for failures and non-granted decisions.
+ *
+ * Enum and boolean filters are rendered as literals (enum names only) so the
+ * planner can prove the partial index predicates for any plan.
+ */
+public class AuditLogQueryRepositoryImpl implements AuditLogQueryRepository {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    @Transactional(readOnly = true)
+    @SuppressWarnings("unchecked")
+    public List<AuditLog> search(AuditLogDto.Filter filter, AuditLogDto.Cursor after, int limit) {
+        Map<String, Object> params = new HashMap<>();
+        List<String> conditions = buildConditions(filter, params);
+
+        if (after != null) {
+            params.put("cursorTimestamp", after.timestamp());
+            params.put("cursorId", after.id());
+            conditions.add("(timestamp, id) < (:cursorTimestamp, :cursorId)");
+        }
+
+        StringBuilder sql = new StringBuilder("SELECT * FROM audit_log");
+        if (!conditions.isEmpty()) {
+            sql.append(" WHERE ").append(String.join(" AND ", conditions));
+        }
+        sql.append(" ORDER BY timestamp DESC, id DESC LIMIT :limit");
+        params.put("limit", limit);
+
+        Query query = entityManager.createNativeQuery(sql.toString(), AuditLog.class);
+        params.forEach(query::setParameter);
+        return query.getResultList();
+    }
+
+    private List<String> buildConditions(AuditLogDto.Filter filter, Map<String, Object> params) {
+        List<String> conditions = new ArrayList<>();
+        if (filter == null) {
+            return conditions;
+        }
+
+        if (filter.getUserId() != null) {
+            params.put("userId", filter.getUserId());
+            conditions.add("user_id = :userId");
+        }
+        if (filter.getEntityType() != null) {
+            params.put("entityType", filter.getEntityType());
+            conditions.add("entity_type = :entityType");
+        }
+        if (filter.getEntityId() != null) {
+            params.put("entityId", filter.getEntityId());
+            conditions.add("entity_id = :entityId");
+        }
+        if (filter.getActions() != null && !filter.getActions().isEmpty()) {
+            conditions.add("action IN (" + literals(filter.getActions()) + ")");
+        }
+        if (filter.getDecisions() != null && !filter.getDecisions().isEmpty()) {
+            conditions.add("access_decision IN (" + literals(filter.getDecisions()) + ")");
+        }
+        if (filter.getSuccess() != null) {
+            conditions.add("success = " + filter.getSuccess());
+        }
+        if (filter.getFrom() != null) {
+            params.put("from", filter.getFrom());
+            conditions.add("timestamp >= :from");
+        }
+        if (filter.getTo() != null) {
+            params.put("to", filter.getTo());
+            conditions.add("timestamp <= :to");
+        }
+        return conditions;
+    }
+
+    private static String literals(Set<? extends Enum<?>> values) {
+        return values.stream()
+            .map(value -> "'" + value.name() + "'")
+            .sorted()
+            .collect(Collectors.joining(", "));
+    }
+}
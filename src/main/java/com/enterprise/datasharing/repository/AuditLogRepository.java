@@ -16,7 +16,7 @@ import java.util.List;
  * for security monitoring and compliance.
  */
 @Repository
-public interface AuditLogRepository extends JpaRepository<AuditLog, Long> {
+public interface AuditLogRepository extends JpaRepository<AuditLog, Long>, AuditLogQueryRepository {
 
     /**
      * Find audit logs by user
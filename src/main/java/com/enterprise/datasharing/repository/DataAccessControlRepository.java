@@ -1,10 +1,15 @@
 package com.enterprise.datasharing.repository;
 
 import com.enterprise.datasharing.entity.DataAccessControl;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.OffsetDateTime;
 import java.util.List;
@@ -12,10 +17,27 @@ import java.util.List;
 /**
  * Repository for DataAccessControl entity.
  * Provides queries for evaluating access control rules.
+ * Rule lookups are served from the Hibernate query cache; entries are
+ * invalidated automatically whenever data_access_control is written.
  */
 @Repository
 public interface DataAccessControlRepository extends JpaRepository<DataAccessControl, Long> {
 
+    /**
+     * Query cache region for rule lookups
+     */
+    String RULE_QUERY_REGION = "access-rule-queries";
+
+    /**
+     * Find all rules (admin listing)
+     */
+    @Override
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+        @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = RULE_QUERY_REGION)
+    })
+    List<DataAccessControl> findAll();
+
     /**
      * Find all active rules for a data record
      */
@@ -33,10 +55,31 @@ public interface DataAccessControlRepository extends JpaRepository<DataAccessCon
     );
 
     /**
-     * Find active rules for data (using current time)
+     * Find all active rules for a data record, ignoring validity windows.
+     * Has no time parameter so its results can be served from the query cache.
+     */
+    @Query("""
+        SELECT d FROM DataAccessControl d 
+        WHERE (d.dataId = :dataId OR d.dataId IS NULL)
+        AND d.active = true
+        ORDER BY d.priority DESC
+        """)
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+        @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = RULE_QUERY_REGION)
+    })
+    List<DataAccessControl> findActiveCandidateRulesForData(@Param("dataId") Long dataId);
+
+    /**
+     * Find active rules for data (using current time).
+     * Validity windows are applied to the cached candidate rules.
      */
     default List<DataAccessControl> findActiveRulesForData(Long dataId) {
-        return findActiveRulesForData(dataId, OffsetDateTime.now());
+        OffsetDateTime now = OffsetDateTime.now();
+        return findActiveCandidateRulesForData(dataId).stream()
+            .filter(rule -> rule.getValidFrom() == null || !rule.getValidFrom().isAfter(now))
+            .filter(rule -> rule.getValidUntil() == null || !rule.getValidUntil().isBefore(now))
+            .toList();
     }
 
     /**
@@ -52,6 +95,10 @@ public interface DataAccessControlRepository extends JpaRepository<DataAccessCon
         )
         ORDER BY d.priority DESC
         """)
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+        @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = RULE_QUERY_REGION)
+    })
     List<DataAccessControl> findRowLevelRules(
         @Param("dataId") Long dataId,
         @Param("userId") String userId
@@ -70,6 +117,10 @@ public interface DataAccessControlRepository extends JpaRepository<DataAccessCon
         )
         ORDER BY d.priority DESC
         """)
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+        @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = RULE_QUERY_REGION)
+    })
     List<DataAccessControl> findColumnLevelRules(
         @Param("userId") String userId
     );
@@ -77,6 +128,10 @@ public interface DataAccessControlRepository extends JpaRepository<DataAccessCon
     /**
      * Find rules by principal type and value
      */
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+        @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = RULE_QUERY_REGION)
+    })
     List<DataAccessControl> findByPrincipalTypeAndPrincipalValueAndActiveTrue(
         DataAccessControl.PrincipalType principalType,
         String principalValue
@@ -122,11 +177,42 @@ public interface DataAccessControlRepository extends JpaRepository<DataAccessCon
     /**
      * Find all active rules
      */
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+        @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = RULE_QUERY_REGION)
+    })
     List<DataAccessControl> findByActiveTrueOrderByPriorityDesc();
 
     /**
-     * Find expired rules
+     * Find active rules with a validity boundary still to act on: becoming
+     * valid after :from and by :until, or expiring by :until (including
+     * rules already expired but not yet deactivated)
+     */
+    @Query("""
+        SELECT d FROM DataAccessControl d
+        WHERE d.active = true
+        AND ((d.validFrom > :from AND d.validFrom <= :until) OR d.validUntil <= :until)
+        """)
+    List<DataAccessControl> findRulesWithValidityBoundary(
+        @Param("from") OffsetDateTime from,
+        @Param("until") OffsetDateTime until
+    );
+
+    /**
+     * Deactivate up to :limit expired rules. Rows locked by another node's
+     * batch are skipped; returns the number deactivated.
      */
-    @Query("SELECT d FROM DataAccessControl d WHERE d.validUntil < :now AND d.active = true")
-    List<DataAccessControl> findExpiredRules(@Param("now") OffsetDateTime now);
+    @Modifying
+    @Transactional
+    @Query(value = """
+        UPDATE data_access_control SET active = false
+        WHERE id IN (
+            SELECT id FROM data_access_control
+            WHERE active = true AND valid_until < :now
+            ORDER BY id
+            LIMIT :limit
+            FOR UPDATE SKIP LOCKED)
+        """, nativeQuery = true)
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "data_access_control"))
+    int deactivateExpiredRules(@Param("now") OffsetDateTime now, @Param("limit") int limit);
 }
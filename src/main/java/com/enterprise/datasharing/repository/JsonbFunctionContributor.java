@@ -0,0 +1,68 @@
+package com.enterprise.datasharing.repository;
+
+import org.hibernate.boot.model.FunctionContributions;
+import org.hibernate.boot.model.FunctionContributor;
+import org.hibernate.query.ReturnableType;
+import org.hibernate.query.sqm.function.AbstractSqmSelfRenderingFunctionDescriptor;
+import org.hibernate.query.sqm.produce.function.StandardArgumentsValidators;
+import org.hibernate.query.sqm.produce.function.StandardFunctionReturnTypeResolvers;
+import org.hibernate.sql.ast.SqlAstTranslator;
+import org.hibernate.sql.ast.spi.SqlAppender;
+import org.hibernate.sql.ast.tree.SqlAstNode;
+import org.hibernate.type.BasicType;
+import org.hibernate.type.StandardBasicTypes;
+
+import java.util.List;
+
+/**
+ * Registers the PostgreSQL jsonb operators as HQL/Criteria functions.
+ * They render as operators, not as the equivalent SQL functions, so that
+ * the GIN jsonb_path_ops index on my_data.metadata can serve them.
+ * Registered through META-INF/services.
+ */
+public class JsonbFunctionContributor implements FunctionContributor {
+
+    /**
+     * jsonb_contains_op(column, json) renders column @> json
+     */
+    public static final String CONTAINS = "jsonb_contains_op";
+
+    /**
+     * jsonb_path_exists_op(column, path) renders column @? path
+     */
+    public static final String PATH_EXISTS = "jsonb_path_exists_op";
+
+    @Override
+    public void contributeFunctions(FunctionContributions functionContributions) {
+        BasicType<Boolean> booleanType = functionContributions.getTypeConfiguration()
+            .getBasicTypeRegistry()
+            .resolve(StandardBasicTypes.BOOLEAN);
+
+        functionContributions.getFunctionRegistry()
+            .registerPattern(CONTAINS, "(?1 @> cast(?2 as jsonb))", booleanType);
+        // A pattern cannot contain a literal ?, and JDBC needs it doubled
+        functionContributions.getFunctionRegistry()
+            .register(PATH_EXISTS, new PathExistsOperator(booleanType));
+    }
+
+    /**
+     * Renders (column @?? cast(path as jsonpath)); pgjdbc sends @?? as @?
+     */
+    private static final class PathExistsOperator extends AbstractSqmSelfRenderingFunctionDescriptor {
+
+        PathExistsOperator(BasicType<Boolean> booleanType) {
+            super(PATH_EXISTS, StandardArgumentsValidators.exactly(2),
+                StandardFunctionReturnTypeResolvers.invariant(booleanType), null);
+        }
+
+        @Override
+        public void render(SqlAppender sqlAppender, List<? extends SqlAstNode> arguments,
+                           ReturnableType<?> returnType, SqlAstTranslator<?> walker) {
+            sqlAppender.appendSql('(');
+            arguments.get(0).accept(walker);
+            sqlAppender.appendSql(" @?? cast(");
+            arguments.get(1).accept(walker);
+            sqlAppender.appendSql(" as jsonpath))");
+        }
+    }
+}
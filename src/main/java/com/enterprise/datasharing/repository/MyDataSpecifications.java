@@ -0,0 +1,157 @@
+package com.enterprise.datasharing.repository;
+
+import com.enterprise.datasharing.entity.MyData;
+import com.enterprise.datasharing.entity.UserAttribute;
+import com.enterprise.datasharing.security.CompiledAccessPolicy;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Subquery;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * JPA Specifications for MyData queries.
+ * Used with MyDataRepository (JpaSpecificationExecutor) so that access
+ * filtering, extra filters and pagination run in a single SQL statement.
+ */
+public final class MyDataSpecifications {
+
+    private MyDataSpecifications() {
+    }
+
+    /**
+     * Exclude soft-deleted records
+     */
+    public static Specification<MyData> notDeleted() {
+        return (root, query, cb) -> cb.isFalse(root.get("deleted"));
+    }
+
+    /**
+     * Case-insensitive name search
+     */
+    public static Specification<MyData> nameContains(String name) {
+        return (root, query, cb) -> cb.like(
+            cb.lower(root.get("name")), "%" + name.toLowerCase() + "%");
+    }
+
+    /**
+     * Record date within the inclusive range; either bound may be null
+     */
+    public static Specification<MyData> dateBetween(LocalDate from, LocalDate to) {
+        return (root, query, cb) -> {
+            List<Predicate> predicates = new ArrayList<>();
+            if (from != null) {
+                predicates.add(cb.greaterThanOrEqualTo(root.get("date"), from));
+            }
+            if (to != null) {
+                predicates.add(cb.lessThanOrEqualTo(root.get("date"), to));
+            }
+            return cb.and(predicates.toArray(new Predicate[0]));
+        };
+    }
+
+    /**
+     * Metadata contains the JSON document (jsonb @>), served by the GIN index
+     */
+    public static Specification<MyData> metadataContains(String json) {
+        return (root, query, cb) -> cb.isTrue(cb.function(
+            JsonbFunctionContributor.CONTAINS, Boolean.class, root.get("metadata"), cb.literal(json)));
+    }
+
+    /**
+     * Metadata has a value at the JSON path (jsonb @?)
+     */
+    public static Specification<MyData> metadataHasPath(String jsonPath) {
+        return (root, query, cb) -> cb.isTrue(cb.function(
+            JsonbFunctionContributor.PATH_EXISTS, Boolean.class, root.get("metadata"), cb.literal(jsonPath)));
+    }
+
+    /**
+     * Records the compiled policy allows, excluding soft-deleted records
+     */
+    public static Specification<MyData> accessibleUnder(CompiledAccessPolicy policy) {
+        return notDeleted().and((root, query, cb) -> {
+            if (policy.matchesNothing()) {
+                return cb.disjunction();
+            }
+
+            List<Predicate> predicates = new ArrayList<>();
+
+            // RBAC - organization hierarchy
+            predicates.add(organizationHierarchy(policy, root, query, cb));
+
+            if (policy.isOwnerOnly()) {
+                predicates.add(cb.equal(root.get("ownerId"), policy.getUserId()));
+            }
+
+            // ABAC - clearance vs sensitivity
+            if (policy.getAllowedSensitivities().size() < MyData.SensitivityLevel.values().length) {
+                predicates.add(root.get("sensitivityLevel").in(policy.getAllowedSensitivities()));
+            }
+
+            // ABAC + row-level rules
+            if (!policy.getDeniedDataIds().isEmpty()) {
+                predicates.add(cb.not(root.get("id").in(policy.getDeniedDataIds())));
+            }
+
+            return cb.and(predicates.toArray(new Predicate[0]));
+        });
+    }
+
+    private static Predicate organizationHierarchy(
+            CompiledAccessPolicy policy,
+            Root<MyData> root,
+            CriteriaQuery<?> query,
+            CriteriaBuilder cb) {
+
+        List<Predicate> levels = new ArrayList<>();
+
+        if (policy.getExecutiveScope() == CompiledAccessPolicy.LevelScope.ALL) {
+            levels.add(atLevel(root, cb, MyData.OrganizationLevel.EXECUTIVE));
+        }
+
+        switch (policy.getDepartmentScope()) {
+            case ALL -> levels.add(atLevel(root, cb, MyData.OrganizationLevel.DEPARTMENT));
+            case MATCH -> levels.add(cb.and(
+                atLevel(root, cb, MyData.OrganizationLevel.DEPARTMENT),
+                cb.equal(root.get("ownerDepartment"), policy.getDepartment())));
+            default -> { }
+        }
+
+        switch (policy.getTeamScope()) {
+            case ALL -> levels.add(atLevel(root, cb, MyData.OrganizationLevel.TEAM));
+            case MATCH -> levels.add(cb.and(
+                atLevel(root, cb, MyData.OrganizationLevel.TEAM),
+                cb.equal(root.get("ownerTeam"), policy.getTeam())));
+            default -> { }
+        }
+
+        switch (policy.getIndividualScope()) {
+            case ALL -> levels.add(atLevel(root, cb, MyData.OrganizationLevel.INDIVIDUAL));
+            case MATCH -> {
+                // Owner or the owner's direct manager
+                Subquery<Long> managed = query.subquery(Long.class);
+                Root<UserAttribute> owner = managed.from(UserAttribute.class);
+                managed.select(owner.get("id")).where(
+                    cb.equal(owner.get("userId"), root.get("ownerId")),
+                    cb.equal(owner.get("managerId"), policy.getUserId()));
+
+                levels.add(cb.and(
+                    atLevel(root, cb, MyData.OrganizationLevel.INDIVIDUAL),
+                    cb.or(cb.equal(root.get("ownerId"), policy.getUserId()), cb.exists(managed))));
+            }
+            default -> { }
+        }
+
+        return cb.or(levels.toArray(new Predicate[0]));
+    }
+
+    private static Predicate atLevel(Root<MyData> root, CriteriaBuilder cb, MyData.OrganizationLevel level) {
+        return cb.equal(root.get("organizationLevel"), level);
+    }
+}
@@ -1,8 +1,11 @@
 package com.enterprise.datasharing.repository;
 
 import com.enterprise.datasharing.entity.UserAttribute;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
@@ -12,13 +15,34 @@ import java.util.Optional;
 /**
  * Repository for UserAttribute entity.
  * Provides queries for ABAC attribute lookups.
+ * Attribute lookups are served from the Hibernate query cache; entries are
+ * invalidated automatically whenever user_attribute is written.
  */
 @Repository
 public interface UserAttributeRepository extends JpaRepository<UserAttribute, Long> {
 
+    /**
+     * Query cache region for attribute lookups
+     */
+    String ATTRIBUTE_QUERY_REGION = "user-attribute-queries";
+
+    /**
+     * Find all users (admin listing)
+     */
+    @Override
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+        @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = ATTRIBUTE_QUERY_REGION)
+    })
+    List<UserAttribute> findAll();
+
     /**
      * Find by user ID
      */
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+        @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = ATTRIBUTE_QUERY_REGION)
+    })
     Optional<UserAttribute> findByUserId(String userId);
 
     /**
@@ -29,16 +53,28 @@ public interface UserAttributeRepository extends JpaRepository<UserAttribute, Lo
     /**
      * Find all users in a department
      */
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+        @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = ATTRIBUTE_QUERY_REGION)
+    })
     List<UserAttribute> findByDepartmentAndActiveTrue(String department);
 
     /**
      * Find all users in a team
      */
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+        @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = ATTRIBUTE_QUERY_REGION)
+    })
     List<UserAttribute> findByTeamAndActiveTrue(String team);
 
     /**
      * Find all executives
      */
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+        @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = ATTRIBUTE_QUERY_REGION)
+    })
     List<UserAttribute> findByIsExecutiveTrueAndActiveTrue();
 
     /**
@@ -59,6 +95,10 @@ public interface UserAttributeRepository extends JpaRepository<UserAttribute, Lo
     /**
      * Find users by clearance level
      */
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+        @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = ATTRIBUTE_QUERY_REGION)
+    })
     List<UserAttribute> findByClearanceLevelAndActiveTrue(UserAttribute.ClearanceLevel level);
 
     /**
@@ -70,6 +110,10 @@ public interface UserAttributeRepository extends JpaRepository<UserAttribute, Lo
     /**
      * Find direct reports of a manager
      */
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+        @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = ATTRIBUTE_QUERY_REGION)
+    })
     List<UserAttribute> findByManagerIdAndActiveTrue(String managerId);
 
     /**
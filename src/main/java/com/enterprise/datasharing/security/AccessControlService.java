@@ -262,7 +262,7 @@ public class AccessControlService {
     /**
      * CBAC Check - Evaluates context-based access rules
      */
-    private AccessDecision.CbacResult checkCbac(SecurityContext context, HttpServletRequest request) {
+    AccessDecision.CbacResult checkCbac(SecurityContext context, HttpServletRequest request) {
         AccessDecision.CbacResult result = new AccessDecision.CbacResult();
         Map<String, String> evaluatedContext = new HashMap<>();
 
@@ -307,12 +307,7 @@ public class AccessControlService {
             .findRowLevelRules(data.getId(), context.getUserId());
 
         for (DataAccessControl rule : rowRules) {
-            boolean hasPermission = switch (operation) {
-                case READ -> rule.getCanRead();
-                case CREATE -> rule.getCanCreate();
-                case UPDATE -> rule.getCanUpdate();
-                case DELETE -> rule.getCanDelete();
-            };
+            boolean hasPermission = isOperationPermitted(rule, operation);
 
             if (rule.getActive() && !hasPermission) {
                 result.setAllowed(false);
@@ -329,6 +324,13 @@ public class AccessControlService {
      * Get visible columns based on column-level security
      */
     public Set<String> getVisibleColumns(SecurityContext context, MyData data) {
+        return getVisibleColumns(context, accessControlRepository.findColumnLevelRules(context.getUserId()));
+    }
+
+    /**
+     * Get visible columns given the column-level rules that apply to the user
+     */
+    Set<String> getVisibleColumns(SecurityContext context, List<DataAccessControl> columnRules) {
         Set<String> visibleColumns = new HashSet<>(getAllColumns());
 
         // Remove columns based on sensitivity and clearance
@@ -341,9 +343,6 @@ public class AccessControlService {
         }
 
         // Check column-level access control rules
-        List<DataAccessControl> columnRules = accessControlRepository
-            .findColumnLevelRules(context.getUserId());
-
         for (DataAccessControl rule : columnRules) {
             if (rule.getVisibleColumns() != null) {
                 try {
@@ -362,7 +361,7 @@ public class AccessControlService {
     /**
      * Check if access rule matches the context
      */
-    private boolean evaluateAccessRule(DataAccessControl rule, SecurityContext context, AccessOperation operation) {
+    boolean evaluateAccessRule(DataAccessControl rule, SecurityContext context, AccessOperation operation) {
         // Check if rule applies to this principal
         boolean ruleApplies = switch (rule.getPrincipalType()) {
             case USER -> rule.getPrincipalValue().equals(context.getUserId());
@@ -395,6 +394,13 @@ public class AccessControlService {
         }
 
         // Check if operation is allowed
+        return isOperationPermitted(rule, operation);
+    }
+
+    /**
+     * Check whether a rule grants the given operation
+     */
+    boolean isOperationPermitted(DataAccessControl rule, AccessOperation operation) {
         return switch (operation) {
             case READ -> rule.getCanRead();
             case CREATE -> rule.getCanCreate();
@@ -403,6 +409,20 @@ public class AccessControlService {
         };
     }
 
+    /**
+     * Check whether row-level rules are enforced
+     */
+    boolean isRowLevelSecurityEnabled() {
+        return rowLevelSecurityEnabled;
+    }
+
+    /**
+     * Check whether column-level rules are enforced
+     */
+    boolean isColumnLevelSecurityEnabled() {
+        return columnLevelSecurityEnabled;
+    }
+
     private boolean evaluateAttributeCondition(String attribute, String requiredValue, SecurityContext context) {
         return switch (attribute.toLowerCase()) {
             case "department" -> context.belongsToDepartment(requiredValue);
@@ -415,7 +435,7 @@ public class AccessControlService {
         };
     }
 
-    private UserAttribute.ClearanceLevel mapSensitivityToClearance(MyData.SensitivityLevel sensitivity) {
+    UserAttribute.ClearanceLevel mapSensitivityToClearance(MyData.SensitivityLevel sensitivity) {
         return switch (sensitivity) {
             case PUBLIC -> UserAttribute.ClearanceLevel.PUBLIC;
             case INTERNAL -> UserAttribute.ClearanceLevel.INTERNAL;
@@ -0,0 +1,230 @@
+package com.enterprise.datasharing.security;
+
+import com.enterprise.datasharing.entity.DataAccessControl;
+import com.enterprise.datasharing.entity.MyData;
+import com.enterprise.datasharing.entity.UserAttribute;
+import com.enterprise.datasharing.repository.DataAccessControlRepository;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.time.OffsetDateTime;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Compiles the caller's SecurityContext plus the active rule set into a
+ * CompiledAccessPolicy that list queries can push down into SQL.
+ *
+ * Mirrors AccessControlService.checkAccess step by step so that filtering
+ * a list in the database gives the same result as checking each record:
+ * - RBAC organization hierarchy becomes one scope per organization level
+ * - ABAC clearance becomes the set of permitted sensitivity levels
+ * - ABAC and row-level rules are evaluated once against the caller and
+ *   reduced to a set of denied record IDs (or a global deny)
+ * - CBAC does not depend on the record and is evaluated once up front
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class AccessPolicyCompiler {
+
+    private final AccessControlService accessControlService;
+    private final DataAccessControlRepository accessControlRepository;
+
+    /**
+     * Compile the policy for an operation performed by the caller
+     */
+    public CompiledAccessPolicy compile(
+            SecurityContext context,
+            AccessControlService.AccessOperation operation,
+            HttpServletRequest request) {
+
+        CompiledAccessPolicy.CompiledAccessPolicyBuilder policy = CompiledAccessPolicy.builder()
+            .userId(context.getUserId())
+            .operation(operation)
+            .department(context.getDepartment())
+            .team(context.getTeam())
+            .admin(context.hasRole("ADMIN"))
+            .aclPrincipals(compileAclPrincipals(context));
+
+        compileRbac(context, operation, policy);
+        policy.allowedSensitivities(compileClearance(context));
+
+        // CBAC - context checks are independent of the record
+        if (!accessControlService.checkCbac(context, request).isAllowed()) {
+            return policy.denyAll(true).deniedDataIds(Set.of()).build();
+        }
+
+        Set<Long> deniedDataIds = new HashSet<>();
+        boolean denyAll = compileRules(context, operation, deniedDataIds);
+
+        CompiledAccessPolicy compiled = policy
+            .denyAll(denyAll)
+            .deniedDataIds(deniedDataIds)
+            .build();
+
+        log.debug("Compiled {} policy for user {}: denyAll={}, deniedIds={}, sensitivities={}",
+            operation, context.getUserId(), denyAll, deniedDataIds.size(),
+            compiled.getAllowedSensitivities());
+
+        return compiled;
+    }
+
+    /**
+     * RBAC - organization hierarchy and operation-specific role requirements
+     */
+    private void compileRbac(
+            SecurityContext context,
+            AccessControlService.AccessOperation operation,
+            CompiledAccessPolicy.CompiledAccessPolicyBuilder policy) {
+
+        // Admin can do everything
+        if (context.hasRole("ADMIN")) {
+            policy.executiveScope(CompiledAccessPolicy.LevelScope.ALL)
+                .departmentScope(CompiledAccessPolicy.LevelScope.ALL)
+                .teamScope(CompiledAccessPolicy.LevelScope.ALL)
+                .individualScope(CompiledAccessPolicy.LevelScope.ALL)
+                .ownerOnly(false);
+            return;
+        }
+
+        boolean seniorManagement = context.isExecutive() || context.isDepartmentHead();
+
+        policy.executiveScope(context.isExecutive() || context.hasRole("EXECUTIVE")
+            ? CompiledAccessPolicy.LevelScope.ALL
+            : CompiledAccessPolicy.LevelScope.NONE);
+
+        if (seniorManagement || context.hasAnyRole("EXECUTIVE", "DEPARTMENT_MANAGER")) {
+            policy.departmentScope(CompiledAccessPolicy.LevelScope.ALL);
+        } else {
+            policy.departmentScope(context.getDepartment() != null
+                ? CompiledAccessPolicy.LevelScope.MATCH
+                : CompiledAccessPolicy.LevelScope.NONE);
+        }
+
+        if (seniorManagement) {
+            policy.teamScope(CompiledAccessPolicy.LevelScope.ALL);
+        } else {
+            policy.teamScope(context.getTeam() != null
+                ? CompiledAccessPolicy.LevelScope.MATCH
+                : CompiledAccessPolicy.LevelScope.NONE);
+        }
+
+        policy.individualScope(seniorManagement
+            ? CompiledAccessPolicy.LevelScope.ALL
+            : CompiledAccessPolicy.LevelScope.MATCH);
+
+        boolean ownerOnly = switch (operation) {
+            case DELETE -> !context.hasAnyRole("ADMIN", "DATA_MANAGER");
+            case UPDATE -> !context.hasAnyRole("ADMIN", "DATA_MANAGER", "EDITOR");
+            default -> false;
+        };
+        policy.ownerOnly(ownerOnly);
+    }
+
+    /**
+     * ABAC - sensitivity levels covered by the caller's clearance
+     */
+    private Set<MyData.SensitivityLevel> compileClearance(SecurityContext context) {
+        Set<MyData.SensitivityLevel> allowed = EnumSet.noneOf(MyData.SensitivityLevel.class);
+        for (MyData.SensitivityLevel level : MyData.SensitivityLevel.values()) {
+            if (context.hasClearance(accessControlService.mapSensitivityToClearance(level))) {
+                allowed.add(level);
+            }
+        }
+        return allowed;
+    }
+
+    /**
+     * ABAC and row-level rules. Returns true if a global rule denies the operation.
+     */
+    private boolean compileRules(
+            SecurityContext context,
+            AccessControlService.AccessOperation operation,
+            Set<Long> deniedDataIds) {
+
+        OffsetDateTime now = OffsetDateTime.now();
+        List<DataAccessControl> rules = accessControlRepository.findByActiveTrueOrderByPriorityDesc();
+        boolean denyAll = false;
+
+        for (DataAccessControl rule : rules) {
+            // Same validity window as findActiveRulesForData
+            boolean inValidityWindow = (rule.getValidFrom() == null || !rule.getValidFrom().isAfter(now))
+                && (rule.getValidUntil() == null || !rule.getValidUntil().isBefore(now));
+
+            if (inValidityWindow && !accessControlService.evaluateAccessRule(rule, context, operation)) {
+                if (rule.getDataId() == null) {
+                    denyAll = true;
+                } else {
+                    deniedDataIds.add(rule.getDataId());
+                }
+                continue;
+            }
+
+            // Same selection as findRowLevelRules (no validity window)
+            if (accessControlService.isRowLevelSecurityEnabled()
+                    && rule.getDataId() != null
+                    && appliesAtRowLevel(rule, context)
+                    && !accessControlService.isOperationPermitted(rule, operation)) {
+                deniedDataIds.add(rule.getDataId());
+            }
+        }
+
+        return denyAll;
+    }
+
+    /**
+     * Principals the caller holds in my_data_acl terms (see changeset 010)
+     */
+    private Map<String, Set<String>> compileAclPrincipals(SecurityContext context) {
+        Map<String, Set<String>> principals = new LinkedHashMap<>();
+        principals.put("USER", Set.of(context.getUserId()));
+        if (context.getRoles() != null && !context.getRoles().isEmpty()) {
+            principals.put("ROLE", Set.copyOf(context.getRoles()));
+        }
+        if (context.getDepartment() != null) {
+            principals.put("DEPARTMENT", Set.of(context.getDepartment()));
+        }
+        if (context.getTeam() != null) {
+            principals.put("TEAM", Set.of(context.getTeam()));
+        }
+
+        Set<String> flags = new HashSet<>();
+        if (context.isExecutive()) {
+            flags.add("is_executive");
+        }
+        if (context.isDepartmentHead()) {
+            flags.add("is_department_head");
+        }
+        if (!flags.isEmpty()) {
+            principals.put("ATTRIBUTE", flags);
+        }
+
+        Set<String> clearances = new HashSet<>();
+        for (UserAttribute.ClearanceLevel level : UserAttribute.ClearanceLevel.values()) {
+            if (context.hasClearance(level)) {
+                clearances.add(level.name());
+            }
+        }
+        if (!clearances.isEmpty()) {
+            principals.put("CLEARANCE", clearances);
+        }
+
+        principals.put("ALL", Set.of("*"));
+        return principals;
+    }
+
+    private boolean appliesAtRowLevel(DataAccessControl rule, SecurityContext context) {
+        return switch (rule.getPrincipalType()) {
+            case USER -> rule.getPrincipalValue().equals(context.getUserId());
+            case ALL -> true;
+            default -> false;
+        };
+    }
+}
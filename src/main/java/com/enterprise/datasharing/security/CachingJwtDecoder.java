@@ -0,0 +1,76 @@
+package com.enterprise.datasharing.security;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtException;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+
+/**
+ * JwtDecoder that remembers verified tokens.
+ *
+ * Clients send the same bearer token on every request until it expires, so
+ * the signature check and claim validation only need to run once per token.
+ * Verified tokens are keyed by the SHA-256 of the raw token and served until
+ * their exp (bounded by a maximum TTL and cache size). Rejected tokens are
+ * never cached.
+ */
+public class CachingJwtDecoder implements JwtDecoder {
+
+    private final JwtDecoder delegate;
+    private final Cache<String, Jwt> verified;
+
+    public CachingJwtDecoder(JwtDecoder delegate, long maximumSize, Duration maximumTtl) {
+        this.delegate = delegate;
+        this.verified = CacheBuilder.newBuilder()
+            .maximumSize(maximumSize)
+            .expireAfterWrite(maximumTtl)
+            .build();
+    }
+
+    @Override
+    public Jwt decode(String token) throws JwtException {
+        String key = sha256(token);
+        Jwt cached = verified.getIfPresent(key);
+        if (cached != null) {
+            if (isUnexpired(cached)) {
+                return cached;
+            }
+            verified.invalidate(key);
+        }
+
+        Jwt jwt = delegate.decode(token);
+        if (isUnexpired(jwt)) {
+            verified.put(key, jwt);
+        }
+        return jwt;
+    }
+
+    /**
+     * Number of tokens currently cached
+     */
+    public long size() {
+        return verified.size();
+    }
+
+    private boolean isUnexpired(Jwt jwt) {
+        Instant expiresAt = jwt.getExpiresAt();
+        return expiresAt != null && Instant.now().isBefore(expiresAt);
+    }
+
+    private static String sha256(String token) {
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(md.digest(token.getBytes(StandardCharsets.US_ASCII)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.enterprise.datasharing.security;
+
+import com.enterprise.datasharing.entity.MyData;
+import lombok.Builder;
+import lombok.Value;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Result of compiling the caller's SecurityContext and the active rule set
+ * into a record-independent form that can be pushed down into SQL.
+ * Applying it to a MyData row yields the same allow/deny as checkAccess.
+ */
+@Value
+@Builder
+public class CompiledAccessPolicy {
+
+    String userId;
+    AccessControlService.AccessOperation operation;
+
+    // Short-circuit: CBAC denial or a global rule that blocks the operation
+    boolean denyAll;
+
+    // ADMIN bypasses the organization hierarchy
+    boolean admin;
+
+    // RBAC - organization hierarchy, one scope per organization level
+    LevelScope executiveScope;
+    LevelScope departmentScope;
+    String department;
+    LevelScope teamScope;
+    String team;
+    LevelScope individualScope;
+
+    // RBAC - UPDATE/DELETE without an elevated role is limited to owned records
+    boolean ownerOnly;
+
+    // ABAC - sensitivity levels the caller's clearance covers
+    Set<MyData.SensitivityLevel> allowedSensitivities;
+
+    // ABAC + row-level rules that deny the operation on specific records
+    Set<Long> deniedDataIds;
+
+    // my_data_acl principals held by the caller: principal type -> values
+    Map<String, Set<String>> aclPrincipals;
+
+    /**
+     * True when no record can possibly match
+     */
+    public boolean matchesNothing() {
+        return denyAll
+            || allowedSensitivities.isEmpty()
+            || (executiveScope == LevelScope.NONE && departmentScope == LevelScope.NONE
+                && teamScope == LevelScope.NONE && individualScope == LevelScope.NONE);
+    }
+
+    /**
+     * Whether a new record owned by the caller (in the caller's department
+     * and team) would be allowed, as checkAccess decides for CREATE
+     */
+    public boolean permitsOwnNewRecord(MyData.OrganizationLevel level, MyData.SensitivityLevel sensitivity) {
+        if (denyAll || !allowedSensitivities.contains(sensitivity)) {
+            return false;
+        }
+        if (admin) {
+            return true;
+        }
+        LevelScope scope = switch (level) {
+            case EXECUTIVE -> executiveScope;
+            case DEPARTMENT -> departmentScope;
+            case TEAM -> teamScope;
+            case INDIVIDUAL -> individualScope;
+        };
+        return scope != LevelScope.NONE;
+    }
+
+    /**
+     * Scope granted within one organization level
+     */
+    public enum LevelScope {
+        ALL,    // Every record at this level
+        MATCH,  // Records matching the caller's department/team, or owned/managed for INDIVIDUAL
+        NONE    // No records at this level
+    }
+}
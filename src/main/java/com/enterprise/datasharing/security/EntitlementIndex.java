@@ -0,0 +1,297 @@
+package com.enterprise.datasharing.security;
+
+import com.enterprise.datasharing.entity.DataAccessControl;
+import com.enterprise.datasharing.entity.MyData;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Immutable in-memory snapshot of users, record security attributes and
+ * active rules, indexed the way the organization hierarchy grants access.
+ *
+ * Lets entitlement questions be answered from candidate sets (a record's
+ * department members, a user's team records, ...) instead of evaluating
+ * every (user, record) pair against the database.
+ */
+public class EntitlementIndex {
+
+    /**
+     * Security-relevant attributes of a live record
+     */
+    public record RecordAttributes(
+            long id,
+            MyData.OrganizationLevel organizationLevel,
+            MyData.SensitivityLevel sensitivityLevel,
+            String ownerId,
+            String ownerDepartment,
+            String ownerTeam) {
+    }
+
+    private static final List<RecordAttributes> NO_RECORDS = List.of();
+
+    private final long policyVersion;
+    private final OffsetDateTime builtAt;
+
+    private final List<SecurityContext> users;
+    private final Map<String, SecurityContext> usersById = new HashMap<>();
+    private final List<SecurityContext> seniorUsers = new ArrayList<>();
+    private final Map<String, List<SecurityContext>> usersByDepartment = new HashMap<>();
+    private final Map<String, List<SecurityContext>> usersByTeam = new HashMap<>();
+    private final Map<String, String> managerByUser;
+    private final Map<String, List<String>> reportsByManager = new HashMap<>();
+
+    private final List<RecordAttributes> records;
+    private final Map<Long, RecordAttributes> recordsById;
+    private final Map<MyData.OrganizationLevel, List<RecordAttributes>> recordsByLevel =
+        new EnumMap<>(MyData.OrganizationLevel.class);
+    private final Map<String, List<RecordAttributes>> departmentRecords = new HashMap<>();
+    private final Map<String, List<RecordAttributes>> teamRecords = new HashMap<>();
+    private final Map<String, List<RecordAttributes>> individualRecordsByOwner = new HashMap<>();
+
+    private final List<DataAccessControl> activeRules;
+    private final Map<Long, List<DataAccessControl>> rulesByDataId = new HashMap<>();
+    private final List<DataAccessControl> globalRules = new ArrayList<>();
+    private final List<DataAccessControl> columnRules = new ArrayList<>();
+
+    public EntitlementIndex(
+            long policyVersion,
+            List<SecurityContext> users,
+            Map<String, String> managerByUser,
+            List<RecordAttributes> records,
+            List<DataAccessControl> activeRules) {
+        this.policyVersion = policyVersion;
+        this.builtAt = OffsetDateTime.now();
+        this.users = users;
+        this.activeRules = activeRules;
+
+        for (SecurityContext user : users) {
+            usersById.put(user.getUserId(), user);
+            if (user.isExecutive() || user.isDepartmentHead()
+                    || user.hasAnyRole("ADMIN", "EXECUTIVE", "DEPARTMENT_MANAGER")) {
+                seniorUsers.add(user);
+            }
+            if (user.getDepartment() != null) {
+                usersByDepartment.computeIfAbsent(user.getDepartment(), k -> new ArrayList<>()).add(user);
+            }
+            if (user.getTeam() != null) {
+                usersByTeam.computeIfAbsent(user.getTeam(), k -> new ArrayList<>()).add(user);
+            }
+        }
+
+        // Includes inactive owners, whose managers keep access to their records
+        this.managerByUser = managerByUser;
+        managerByUser.forEach((userId, managerId) ->
+            reportsByManager.computeIfAbsent(managerId, k -> new ArrayList<>()).add(userId));
+
+        this.records = records;
+        this.recordsById = new HashMap<>(records.size() * 2);
+        for (RecordAttributes record : records) {
+            recordsById.put(record.id(), record);
+            recordsByLevel.computeIfAbsent(record.organizationLevel(), k -> new ArrayList<>()).add(record);
+            switch (record.organizationLevel()) {
+                case DEPARTMENT -> {
+                    if (record.ownerDepartment() != null) {
+                        departmentRecords.computeIfAbsent(record.ownerDepartment(), k -> new ArrayList<>()).add(record);
+                    }
+                }
+                case TEAM -> {
+                    if (record.ownerTeam() != null) {
+                        teamRecords.computeIfAbsent(record.ownerTeam(), k -> new ArrayList<>()).add(record);
+                    }
+                }
+                case INDIVIDUAL -> individualRecordsByOwner
+                    .computeIfAbsent(record.ownerId(), k -> new ArrayList<>()).add(record);
+                default -> { }
+            }
+        }
+
+        // Rules arrive ordered by priority, which the lists below preserve
+        for (DataAccessControl rule : activeRules) {
+            if (rule.getDataId() == null) {
+                globalRules.add(rule);
+            } else {
+                rulesByDataId.computeIfAbsent(rule.getDataId(), k -> new ArrayList<>()).add(rule);
+            }
+            if (rule.getVisibleColumns() != null) {
+                columnRules.add(rule);
+            }
+        }
+    }
+
+    /**
+     * Same users and records under a different set of active rules
+     */
+    public EntitlementIndex withRules(List<DataAccessControl> rules) {
+        return new EntitlementIndex(policyVersion, users, managerByUser, records, rules);
+    }
+
+    public long getPolicyVersion() {
+        return policyVersion;
+    }
+
+    public OffsetDateTime getBuiltAt() {
+        return builtAt;
+    }
+
+    /**
+     * Digest of everything the evaluation depends on apart from the records:
+     * users, managers and active rules. Unlike the policy version it survives
+     * a restart, so work done against an earlier snapshot can be matched.
+     */
+    public String policyFingerprint() {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            users.stream()
+                .sorted(Comparator.comparing(SecurityContext::getUserId))
+                .forEach(user -> update(digest, String.join("|", user.getUserId(),
+                    String.valueOf(user.getRoles() != null ? new TreeSet<>(user.getRoles()) : null),
+                    user.getDepartment(), user.getTeam(), String.valueOf(user.getOrganizationLevel()),
+                    String.valueOf(user.getClearanceLevel()), user.getManagerId(),
+                    user.isManager() + "," + user.isDepartmentHead() + "," + user.isExecutive())));
+            new TreeMap<>(managerByUser).forEach((userId, managerId) -> update(digest, userId + ">" + managerId));
+            activeRules.stream()
+                .sorted(Comparator.comparing(DataAccessControl::getId))
+                .forEach(rule -> update(digest, rule.toString()));
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private static void update(MessageDigest digest, String value) {
+        digest.update(value.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) '\n');
+    }
+
+    public List<SecurityContext> getUsers() {
+        return users;
+    }
+
+    public List<DataAccessControl> getActiveRules() {
+        return activeRules;
+    }
+
+    public SecurityContext getUser(String userId) {
+        return usersById.get(userId);
+    }
+
+    public RecordAttributes getRecord(long id) {
+        return recordsById.get(id);
+    }
+
+    public int getUserCount() {
+        return usersById.size();
+    }
+
+    public int getRecordCount() {
+        return records.size();
+    }
+
+    /**
+     * Manager of a user according to user_attribute
+     */
+    public String managerOf(String userId) {
+        return managerByUser.get(userId);
+    }
+
+    /**
+     * Users the organization hierarchy could grant access to a record
+     */
+    public Collection<SecurityContext> candidateUsers(RecordAttributes record) {
+        Map<String, SecurityContext> candidates = new LinkedHashMap<>();
+        seniorUsers.forEach(user -> candidates.put(user.getUserId(), user));
+
+        switch (record.organizationLevel()) {
+            case DEPARTMENT -> usersByDepartment.getOrDefault(record.ownerDepartment(), List.of())
+                .forEach(user -> candidates.put(user.getUserId(), user));
+            case TEAM -> usersByTeam.getOrDefault(record.ownerTeam(), List.of())
+                .forEach(user -> candidates.put(user.getUserId(), user));
+            case INDIVIDUAL -> {
+                addUser(candidates, record.ownerId());
+                addUser(candidates, managerOf(record.ownerId()));
+            }
+            default -> { }
+        }
+
+        // Owners can update and delete their records at any level
+        addUser(candidates, record.ownerId());
+        return candidates.values();
+    }
+
+    /**
+     * Records the organization hierarchy could grant a user access to
+     */
+    public List<RecordAttributes> candidateRecords(SecurityContext user) {
+        if (user.hasRole("ADMIN") || user.isExecutive() || user.isDepartmentHead()) {
+            return records;
+        }
+
+        List<RecordAttributes> candidates = new ArrayList<>();
+        if (user.hasRole("EXECUTIVE")) {
+            candidates.addAll(recordsByLevel.getOrDefault(MyData.OrganizationLevel.EXECUTIVE, NO_RECORDS));
+        }
+        if (user.hasAnyRole("EXECUTIVE", "DEPARTMENT_MANAGER")) {
+            candidates.addAll(recordsByLevel.getOrDefault(MyData.OrganizationLevel.DEPARTMENT, NO_RECORDS));
+        } else if (user.getDepartment() != null) {
+            candidates.addAll(departmentRecords.getOrDefault(user.getDepartment(), NO_RECORDS));
+        }
+        if (user.getTeam() != null) {
+            candidates.addAll(teamRecords.getOrDefault(user.getTeam(), NO_RECORDS));
+        }
+        candidates.addAll(individualRecordsByOwner.getOrDefault(user.getUserId(), NO_RECORDS));
+        for (String report : reportsByManager.getOrDefault(user.getUserId(), List.of())) {
+            if (!report.equals(user.getUserId())) {
+                candidates.addAll(individualRecordsByOwner.getOrDefault(report, NO_RECORDS));
+            }
+        }
+        return candidates;
+    }
+
+    /**
+     * Active rules bound to a specific record, by descending priority
+     */
+    public List<DataAccessControl> rulesFor(long dataId) {
+        return rulesByDataId.getOrDefault(dataId, List.of());
+    }
+
+    /**
+     * Active rules without a record, by descending priority
+     */
+    public List<DataAccessControl> getGlobalRules() {
+        return globalRules;
+    }
+
+    /**
+     * Active column-level rules that apply to a user, as findColumnLevelRules selects them
+     */
+    public List<DataAccessControl> columnRulesFor(SecurityContext user) {
+        return columnRules.stream()
+            .filter(rule -> rule.getPrincipalType() == DataAccessControl.PrincipalType.ALL
+                || (rule.getPrincipalType() == DataAccessControl.PrincipalType.USER
+                    && rule.getPrincipalValue().equals(user.getUserId())))
+            .toList();
+    }
+
+    private void addUser(Map<String, SecurityContext> candidates, String userId) {
+        if (userId != null) {
+            SecurityContext user = usersById.get(userId);
+            if (user != null) {
+                candidates.putIfAbsent(userId, user);
+            }
+        }
+    }
+}
@@ -0,0 +1,531 @@
+package com.enterprise.datasharing.security;
+
+import com.enterprise.datasharing.dto.EntitlementDto;
+import com.enterprise.datasharing.exception.ResourceNotFoundException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedWriter;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes every user's effective access to MyData to a gzip-compressed
+ * NDJSON or CSV file on local disk, for periodic access reviews.
+ *
+ * Entitlements are evaluated from one EntitlementIndex snapshot. Users are
+ * sorted by id and split into parts of app.entitlements.report.users-per-part,
+ * which are evaluated in parallel; each part streams straight to its own gzip
+ * file, so memory stays bounded by the index. A finished part is recorded in
+ * checkpoint.json, and an interrupted report resumes with the parts that are
+ * not recorded there. Once all parts exist they are concatenated (gzip
+ * members concatenate into a valid gzip file) into the final report.
+ */
+@Service
+@Slf4j
+public class EntitlementReportService {
+
+    private static final DateTimeFormatter REPORT_ID_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmssSSS");
+    // Ids of earlier releases have second resolution and no suffix
+    private static final Pattern REPORT_ID_PATTERN = Pattern.compile("[0-9]{8}-[0-9]{6}([0-9]{3}-[0-9a-f]{6})?");
+    private static final String MANIFEST = "manifest.json";
+    private static final String CHECKPOINT = "checkpoint.json";
+    private static final String CSV_HEADER = "user_id,data_id,operations,visible_columns\n";
+    private static final int WRITE_BUFFER = 1 << 16;
+
+    private final EntitlementService entitlementService;
+    private final ObjectMapper objectMapper;
+    private final ObjectWriter entryWriter;
+    private final Path directory;
+    private final int usersPerPart;
+    private final int parallelism;
+    private final Format defaultFormat;
+    private final ExecutorService coordinator = Executors.newSingleThreadExecutor();
+    private final AtomicReference<RunningReport> running = new AtomicReference<>();
+    private volatile RunningReport lastFinished;
+
+    public EntitlementReportService(
+            EntitlementService entitlementService,
+            ObjectMapper objectMapper,
+            @Value("${app.entitlements.report.directory:${java.io.tmpdir}/entitlement-reports}") Path directory,
+            @Value("${app.entitlements.report.users-per-part:200}") int usersPerPart,
+            @Value("${app.entitlements.report.parallelism:4}") int parallelism,
+            @Value("${app.entitlements.report.format:NDJSON}") Format defaultFormat) {
+        this.entitlementService = entitlementService;
+        this.objectMapper = objectMapper;
+        this.entryWriter = objectMapper.writerFor(EntitlementDto.ReportEntry.class);
+        this.directory = directory;
+        this.usersPerPart = usersPerPart;
+        this.parallelism = parallelism;
+        this.defaultFormat = defaultFormat;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        coordinator.shutdownNow();
+    }
+
+    @Scheduled(cron = "${app.entitlements.report.cron:-}")
+    public void scheduledReport() {
+        start(defaultFormat).ifPresentOrElse(
+            status -> log.info("Started scheduled entitlement report {}", status.reportId()),
+            () -> log.warn("Skipping scheduled entitlement report, another report is running"));
+    }
+
+    /**
+     * Start a new report; empty if a report is already running
+     */
+    public Optional<ReportStatus> start(Format format) {
+        EntitlementIndex snapshot = entitlementService.currentIndex();
+        // The random suffix keeps reports started in the same millisecond, on any node, apart
+        String reportId = OffsetDateTime.now(ZoneOffset.UTC).format(REPORT_ID_FORMAT)
+            + "-" + HexFormat.of().toHexDigits(ThreadLocalRandom.current().nextInt(1 << 24)).substring(2);
+        Manifest manifest = new Manifest(reportId, format, snapshot.getPolicyVersion(), snapshot.policyFingerprint(),
+            OffsetDateTime.now(), partStarts(snapshot), null, 0);
+        return launch(manifest, snapshot);
+    }
+
+    /**
+     * Continue an interrupted report; empty if a report is already running.
+     * If the policy changed since the report started, it is restarted from
+     * scratch under the current policy, so no report mixes two policies.
+     */
+    public Optional<ReportStatus> resume(String reportId) {
+        Manifest manifest = readManifest(reportId);
+        if (manifest.completedAt() != null) {
+            return Optional.of(status(reportId));
+        }
+        return launch(manifest, null);
+    }
+
+    /**
+     * Progress of the running report, or the state of a report on disk
+     */
+    public ReportStatus status(String reportId) {
+        RunningReport report = running.get();
+        if (report != null && report.manifest.reportId().equals(reportId)) {
+            return report.status();
+        }
+        report = lastFinished;
+        if (report != null && report.manifest.reportId().equals(reportId) && report.state == State.FAILED) {
+            return report.status();
+        }
+
+        Manifest manifest = readManifest(reportId);
+        Map<Integer, Long> checkpoint = readCheckpoint(reportDirectory(reportId));
+        boolean completed = manifest.completedAt() != null;
+        return new ReportStatus(reportId, completed ? State.COMPLETED : State.INCOMPLETE, manifest.format(),
+            manifest.partStarts().size(), completed ? manifest.partStarts().size() : checkpoint.size(),
+            completed ? manifest.entitlements() : checkpoint.values().stream().mapToLong(Long::longValue).sum(),
+            0, completed ? reportFile(manifest).toString() : null, null);
+    }
+
+    /**
+     * Run a new report on the snapshot it was planned from, or resume one
+     * (snapshot null) on the current snapshot
+     */
+    private Optional<ReportStatus> launch(Manifest manifest, EntitlementIndex snapshot) {
+        RunningReport report = new RunningReport(manifest);
+        if (!running.compareAndSet(null, report)) {
+            return Optional.empty();
+        }
+        try {
+            Path reportDirectory = reportDirectory(manifest.reportId());
+            if (snapshot != null) {
+                if (Files.exists(reportDirectory)) {
+                    throw new IllegalStateException("report " + manifest.reportId() + " already exists");
+                }
+                Files.createDirectories(reportDirectory);
+                writeAtomically(reportDirectory.resolve(MANIFEST), objectMapper.writeValueAsBytes(manifest));
+            }
+            coordinator.submit(() -> run(report, snapshot));
+            return Optional.of(report.status());
+        } catch (IOException | RuntimeException e) {
+            running.set(null);
+            throw new IllegalStateException("Could not start entitlement report: " + e.getMessage(), e);
+        }
+    }
+
+    private void run(RunningReport report, EntitlementIndex plannedSnapshot) {
+        Manifest manifest = report.manifest;
+        Path reportDirectory = reportDirectory(manifest.reportId());
+        try {
+            EntitlementIndex snapshot = plannedSnapshot;
+            if (snapshot == null) {
+                snapshot = entitlementService.currentIndex();
+                if (!snapshot.policyFingerprint().equals(manifest.policyFingerprint())) {
+                    log.warn("Entitlement report {} started at policy version {} and the policy has changed; "
+                        + "restarting it at version {}", manifest.reportId(), manifest.policyVersion(),
+                        snapshot.getPolicyVersion());
+                    manifest = restart(manifest, snapshot);
+                    report.manifest = manifest;
+                }
+            }
+            List<List<SecurityContext>> parts = partition(snapshot, manifest.partStarts());
+
+            Map<Integer, Long> checkpoint = new TreeMap<>(readCheckpoint(reportDirectory));
+            report.partsDone.set(checkpoint.size());
+            checkpoint.values().forEach(report.entitlements::add);
+            log.info("Entitlement report {}: {} of {} parts to evaluate at policy version {}",
+                manifest.reportId(), parts.size() - checkpoint.size(), parts.size(), snapshot.getPolicyVersion());
+
+            EntitlementIndex evaluated = snapshot;
+            Manifest current = manifest;
+            try (ExecutorService executor = Executors.newFixedThreadPool(parallelism)) {
+                List<Future<?>> futures = new ArrayList<>();
+                for (int i = 0; i < parts.size(); i++) {
+                    if (checkpoint.containsKey(i)) {
+                        continue;
+                    }
+                    int part = i;
+                    futures.add(executor.submit(() -> {
+                        long count = writePart(evaluated, current.format(), parts.get(part), partFile(current, part));
+                        synchronized (checkpoint) {
+                            checkpoint.put(part, count);
+                            writeAtomically(reportDirectory.resolve(CHECKPOINT), objectMapper.writeValueAsBytes(checkpoint));
+                        }
+                        report.entitlements.add(count);
+                        int done = report.partsDone.incrementAndGet();
+                        if (done % 50 == 0) {
+                            log.info("Entitlement report {}: {}", current.reportId(), report.status());
+                        }
+                        return null;
+                    }));
+                }
+                for (Future<?> future : futures) {
+                    future.get();
+                }
+            }
+
+            long entitlements = concatenate(manifest, parts.size());
+            Manifest completed = new Manifest(manifest.reportId(), manifest.format(), manifest.policyVersion(),
+                manifest.policyFingerprint(), manifest.createdAt(), manifest.partStarts(), OffsetDateTime.now(),
+                entitlements);
+            writeAtomically(reportDirectory.resolve(MANIFEST), objectMapper.writeValueAsBytes(completed));
+            Files.deleteIfExists(reportDirectory.resolve(CHECKPOINT));
+
+            report.state = State.COMPLETED;
+            log.info("Entitlement report {} completed: {}", manifest.reportId(), report.status());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            report.fail("interrupted");
+        } catch (ExecutionException e) {
+            report.fail(e.getCause().getMessage());
+            log.error("Entitlement report {} failed", manifest.reportId(), e.getCause());
+        } catch (Exception e) {
+            report.fail(e.getMessage());
+            log.error("Entitlement report {} failed", manifest.reportId(), e);
+        } finally {
+            lastFinished = report;
+            running.set(null);
+        }
+    }
+
+    /**
+     * Discard the parts evaluated under an earlier policy and plan the report
+     * again on the given snapshot
+     */
+    private Manifest restart(Manifest manifest, EntitlementIndex snapshot) throws IOException {
+        Path reportDirectory = reportDirectory(manifest.reportId());
+        Files.deleteIfExists(reportDirectory.resolve(CHECKPOINT));
+        for (int i = 0; i < manifest.partStarts().size(); i++) {
+            Files.deleteIfExists(partFile(manifest, i));
+        }
+        Manifest restarted = new Manifest(manifest.reportId(), manifest.format(), snapshot.getPolicyVersion(),
+            snapshot.policyFingerprint(), manifest.createdAt(), partStarts(snapshot), null, 0);
+        writeAtomically(reportDirectory.resolve(MANIFEST), objectMapper.writeValueAsBytes(restarted));
+        return restarted;
+    }
+
+    /**
+     * First user id of each part
+     */
+    private List<String> partStarts(EntitlementIndex snapshot) {
+        List<String> userIds = sortedUserIds(snapshot);
+        List<String> partStarts = new ArrayList<>();
+        for (int i = 0; i < userIds.size(); i += usersPerPart) {
+            partStarts.add(userIds.get(i));
+        }
+        if (partStarts.isEmpty()) {
+            partStarts.add("");
+        }
+        return partStarts;
+    }
+
+    /**
+     * Assign users to parts by the first user id of each part
+     */
+    private List<List<SecurityContext>> partition(EntitlementIndex snapshot, List<String> partStarts) {
+        List<List<SecurityContext>> parts = new ArrayList<>();
+        partStarts.forEach(start -> parts.add(new ArrayList<>()));
+        for (String userId : sortedUserIds(snapshot)) {
+            int index = Collections.binarySearch(partStarts, userId);
+            int part = index >= 0 ? index : Math.max(0, -index - 2);
+            parts.get(part).add(snapshot.getUser(userId));
+        }
+        return parts;
+    }
+
+    private long writePart(EntitlementIndex snapshot, Format format, List<SecurityContext> users, Path file)
+            throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        long count = 0;
+        try (Writer writer = gzipWriter(temp)) {
+            for (SecurityContext user : users) {
+                Iterable<EntitlementDto.RecordAccess> records = entitlementService.accessibleRecords(snapshot, user)::iterator;
+                Set<String> columns = null;
+                for (EntitlementDto.RecordAccess record : records) {
+                    if (columns == null && record.getVisibleColumns() != null) {
+                        columns = new TreeSet<>(record.getVisibleColumns());
+                    }
+                    EntitlementDto.ReportEntry entry = EntitlementDto.ReportEntry.builder()
+                        .userId(user.getUserId())
+                        .dataId(record.getDataId())
+                        .operations(record.getOperations())
+                        .visibleColumns(columns)
+                        .build();
+                    writeEntry(writer, format, entry);
+                    count++;
+                }
+            }
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return count;
+    }
+
+    private void writeEntry(Writer writer, Format format, EntitlementDto.ReportEntry entry) throws IOException {
+        if (format == Format.NDJSON) {
+            writer.write(entryWriter.writeValueAsString(entry));
+        } else {
+            writer.write(csvField(entry.getUserId()));
+            writer.write(',');
+            writer.write(String.valueOf(entry.getDataId()));
+            writer.write(',');
+            writer.write(entry.getOperations().stream().map(Enum::name).collect(Collectors.joining(";")));
+            writer.write(',');
+            writer.write(entry.getVisibleColumns() != null
+                ? csvField(String.join(";", entry.getVisibleColumns()))
+                : "");
+        }
+        writer.write('\n');
+    }
+
+    /**
+     * Join the parts into the final report and remove them
+     */
+    private long concatenate(Manifest manifest, int parts) throws IOException {
+        Path file = reportFile(manifest);
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (OutputStream out = Files.newOutputStream(temp)) {
+            if (manifest.format() == Format.CSV) {
+                try (GZIPOutputStream header = new GZIPOutputStream(new UncloseableOutputStream(out))) {
+                    header.write(CSV_HEADER.getBytes(StandardCharsets.UTF_8));
+                }
+            }
+            for (int i = 0; i < parts; i++) {
+                Files.copy(partFile(manifest, i), out);
+            }
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        for (int i = 0; i < parts; i++) {
+            Files.deleteIfExists(partFile(manifest, i));
+        }
+        return readCheckpoint(reportDirectory(manifest.reportId())).values().stream()
+            .mapToLong(Long::longValue).sum();
+    }
+
+    private Writer gzipWriter(Path file) throws IOException {
+        return new BufferedWriter(new OutputStreamWriter(
+            new GZIPOutputStream(Files.newOutputStream(file), WRITE_BUFFER), StandardCharsets.UTF_8), WRITE_BUFFER);
+    }
+
+    private Manifest readManifest(String reportId) {
+        Path file = reportDirectory(reportId).resolve(MANIFEST);
+        if (!Files.exists(file)) {
+            throw new ResourceNotFoundException("EntitlementReport", reportId);
+        }
+        try {
+            return objectMapper.readValue(file.toFile(), Manifest.class);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private Map<Integer, Long> readCheckpoint(Path reportDirectory) {
+        Path file = reportDirectory.resolve(CHECKPOINT);
+        if (!Files.exists(file)) {
+            return Map.of();
+        }
+        try {
+            return objectMapper.readValue(file.toFile(), new TypeReference<Map<Integer, Long>>() {});
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void writeAtomically(Path file, byte[] content) throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        Files.write(temp, content);
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private Path reportDirectory(String reportId) {
+        if (!REPORT_ID_PATTERN.matcher(reportId).matches()) {
+            throw new ResourceNotFoundException("EntitlementReport", reportId);
+        }
+        return directory.resolve(reportId);
+    }
+
+    private Path partFile(Manifest manifest, int part) {
+        return reportDirectory(manifest.reportId())
+            .resolve(String.format("part-%05d.%s.gz", part, manifest.format().extension));
+    }
+
+    private Path reportFile(Manifest manifest) {
+        return reportDirectory(manifest.reportId())
+            .resolve("entitlements." + manifest.format().extension + ".gz");
+    }
+
+    private static List<String> sortedUserIds(EntitlementIndex snapshot) {
+        return snapshot.getUsers().stream()
+            .map(SecurityContext::getUserId)
+            .sorted(Comparator.naturalOrder())
+            .toList();
+    }
+
+    private static String csvField(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    /**
+     * Report file formats
+     */
+    public enum Format {
+        NDJSON("ndjson"), CSV("csv");
+
+        private final String extension;
+
+        Format(String extension) {
+            this.extension = extension;
+        }
+    }
+
+    /**
+     * Report lifecycle states
+     */
+    public enum State {
+        RUNNING, COMPLETED, FAILED, INCOMPLETE
+    }
+
+    /**
+     * Progress of a report
+     */
+    public record ReportStatus(
+            String reportId,
+            State state,
+            Format format,
+            int partsTotal,
+            int partsDone,
+            long entitlements,
+            long entitlementsPerSecond,
+            String file,
+            String error) {
+    }
+
+    /**
+     * Report definition persisted next to its parts; partStarts fixes the
+     * user ranges so a resumed report evaluates the same parts, and
+     * policyFingerprint identifies the policy they were evaluated under
+     */
+    record Manifest(
+            String reportId,
+            Format format,
+            long policyVersion,
+            String policyFingerprint,
+            OffsetDateTime createdAt,
+            List<String> partStarts,
+            OffsetDateTime completedAt,
+            long entitlements) {
+    }
+
+    private class RunningReport {
+        volatile Manifest manifest;
+        final long startNanos = System.nanoTime();
+        final AtomicInteger partsDone = new AtomicInteger();
+        final LongAdder entitlements = new LongAdder();
+        volatile State state = State.RUNNING;
+        volatile String error;
+
+        RunningReport(Manifest manifest) {
+            this.manifest = manifest;
+        }
+
+        void fail(String message) {
+            state = State.FAILED;
+            error = message;
+        }
+
+        ReportStatus status() {
+            long seconds = Math.max(1, Duration.ofNanos(System.nanoTime() - startNanos).toSeconds());
+            return new ReportStatus(manifest.reportId(), state, manifest.format(), manifest.partStarts().size(),
+                partsDone.get(), entitlements.sum(), entitlements.sum() / seconds,
+                state == State.COMPLETED ? reportFile(manifest).toString() : null, error);
+        }
+    }
+
+    /**
+     * Lets a gzip member be finished without closing the file it is written to
+     */
+    private static class UncloseableOutputStream extends FilterOutputStream {
+        UncloseableOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+    }
+}
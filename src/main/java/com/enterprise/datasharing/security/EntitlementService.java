@@ -0,0 +1,366 @@
+package com.enterprise.datasharing.security;
+
+import com.enterprise.datasharing.dto.EntitlementDto;
+import com.enterprise.datasharing.entity.DataAccessControl;
+import com.enterprise.datasharing.entity.MyData;
+import com.enterprise.datasharing.entity.UserAttribute;
+import com.enterprise.datasharing.exception.ResourceNotFoundException;
+import com.enterprise.datasharing.repository.DataAccessControlRepository;
+import com.enterprise.datasharing.repository.UserAttributeRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * Reverse entitlement queries: who can access a record, and what a user can
+ * access.
+ *
+ * Answered from an EntitlementIndex snapshot rather than by running
+ * checkAccess per (user, record) pair. The hierarchy narrows each question to
+ * a candidate set, and each candidate is then evaluated with the same RBAC,
+ * clearance, ABAC and row-level logic as AccessControlService. CBAC (client
+ * IP, business hours) depends on the request and is not evaluated.
+ *
+ * The snapshot is rebuilt when the policy version changes, and in the
+ * background after app.entitlements.refresh-interval, which bounds staleness
+ * for changes to my_data.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class EntitlementService {
+
+    private static final String RECORD_QUERY = """
+        SELECT id, organization_level, sensitivity_level, owner_id, owner_department, owner_team
+        FROM my_data
+        WHERE deleted = false
+        ORDER BY id
+        """;
+
+    /**
+     * Operations that apply to an existing record
+     */
+    private static final List<AccessControlService.AccessOperation> RECORD_OPERATIONS = List.of(
+        AccessControlService.AccessOperation.READ,
+        AccessControlService.AccessOperation.UPDATE,
+        AccessControlService.AccessOperation.DELETE);
+
+    private final AccessControlService accessControlService;
+    private final DataAccessControlRepository accessControlRepository;
+    private final UserAttributeRepository userAttributeRepository;
+    private final PolicyVersionTracker policyVersionTracker;
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+
+    @Value("${app.entitlements.refresh-interval:PT5M}")
+    private Duration refreshInterval;
+
+    private final ReentrantLock buildLock = new ReentrantLock();
+    private final AtomicBoolean refreshing = new AtomicBoolean();
+    private volatile EntitlementIndex index;
+
+    /**
+     * Every user that can access a record, with the operations granted
+     */
+    public List<EntitlementDto.UserAccess> whoCanAccess(Long dataId) {
+        EntitlementIndex snapshot = currentIndex();
+        EntitlementIndex.RecordAttributes record = snapshot.getRecord(dataId);
+        if (record == null) {
+            throw new ResourceNotFoundException("MyData", dataId.toString());
+        }
+
+        OffsetDateTime now = OffsetDateTime.now();
+        List<EntitlementDto.UserAccess> result = new ArrayList<>();
+        for (SecurityContext user : snapshot.candidateUsers(record)) {
+            Set<AccessControlService.AccessOperation> operations =
+                grantedOperations(snapshot, user, record, globallyDenied(snapshot, user, now), now);
+            if (!operations.isEmpty()) {
+                result.add(EntitlementDto.UserAccess.builder()
+                    .userId(user.getUserId())
+                    .username(user.getUsername())
+                    .department(user.getDepartment())
+                    .team(user.getTeam())
+                    .clearanceLevel(user.getClearanceLevel())
+                    .operations(operations)
+                    .visibleColumns(visibleColumns(snapshot, user))
+                    .build());
+            }
+        }
+        result.sort(Comparator.comparing(EntitlementDto.UserAccess::getUserId));
+        return result;
+    }
+
+    /**
+     * Every record a user can access, lazily evaluated in id order
+     */
+    public Stream<EntitlementDto.RecordAccess> accessibleRecords(String userId) {
+        EntitlementIndex snapshot = currentIndex();
+        SecurityContext user = snapshot.getUser(userId);
+        if (user == null) {
+            throw new ResourceNotFoundException("UserAttribute", userId);
+        }
+        return accessibleRecords(snapshot, user);
+    }
+
+    /**
+     * Every record a user can access in a given snapshot, lazily evaluated in id order
+     */
+    Stream<EntitlementDto.RecordAccess> accessibleRecords(EntitlementIndex snapshot, SecurityContext user) {
+        OffsetDateTime now = OffsetDateTime.now();
+        Set<AccessControlService.AccessOperation> globallyDenied = globallyDenied(snapshot, user, now);
+        Set<String> visibleColumns = visibleColumns(snapshot, user);
+
+        return snapshot.candidateRecords(user).stream()
+            .sorted(Comparator.comparingLong(EntitlementIndex.RecordAttributes::id))
+            .distinct()
+            .map(record -> {
+                Set<AccessControlService.AccessOperation> operations =
+                    grantedOperations(snapshot, user, record, globallyDenied, now);
+                if (operations.isEmpty()) {
+                    return null;
+                }
+                return EntitlementDto.RecordAccess.builder()
+                    .dataId(record.id())
+                    .organizationLevel(record.organizationLevel())
+                    .sensitivityLevel(record.sensitivityLevel())
+                    .ownerId(record.ownerId())
+                    .operations(operations)
+                    .visibleColumns(visibleColumns)
+                    .build();
+            })
+            .filter(Objects::nonNull);
+    }
+
+    /**
+     * Snapshot for the current policy version. A snapshot past the refresh
+     * interval is still served while a background rebuild replaces it; only
+     * a missing snapshot or a policy change makes callers wait for a build.
+     */
+    EntitlementIndex currentIndex() {
+        EntitlementIndex snapshot = index;
+        if (snapshot != null && snapshot.getPolicyVersion() == policyVersionTracker.current()) {
+            if (snapshot.getBuiltAt().plus(refreshInterval).isBefore(OffsetDateTime.now())) {
+                refreshInBackground();
+            }
+            return snapshot;
+        }
+
+        // A lock rather than synchronized, so waiting virtual threads release their carriers
+        buildLock.lock();
+        try {
+            snapshot = index;
+            if (snapshot == null || snapshot.getPolicyVersion() != policyVersionTracker.current()) {
+                snapshot = buildIndex();
+                index = snapshot;
+            }
+            return snapshot;
+        } finally {
+            buildLock.unlock();
+        }
+    }
+
+    private void refreshInBackground() {
+        if (!refreshing.compareAndSet(false, true)) {
+            return;
+        }
+        Thread.ofVirtual().name("entitlement-index-refresh").start(() -> {
+            buildLock.lock();
+            try {
+                index = buildIndex();
+            } catch (RuntimeException e) {
+                log.warn("Background entitlement index refresh failed: {}", e.getMessage());
+            } finally {
+                buildLock.unlock();
+                refreshing.set(false);
+            }
+        });
+    }
+
+    private EntitlementIndex buildIndex() {
+        long start = System.nanoTime();
+        long version = policyVersionTracker.current();
+
+        List<SecurityContext> users = new ArrayList<>();
+        Map<String, String> managers = new HashMap<>();
+        for (UserAttribute attribute : userAttributeRepository.findAll()) {
+            if (attribute.getManagerId() != null) {
+                managers.put(attribute.getUserId(), attribute.getManagerId());
+            }
+            if (Boolean.TRUE.equals(attribute.getActive())) {
+                users.add(SecurityContext.fromUserAttribute(attribute, parseRoles(attribute)));
+            }
+        }
+
+        // Owner, department and team strings repeat across many rows
+        Map<String, String> strings = new HashMap<>();
+        List<EntitlementIndex.RecordAttributes> records = jdbcTemplate.query(RECORD_QUERY, (rs, rowNum) ->
+            new EntitlementIndex.RecordAttributes(
+                rs.getLong("id"),
+                MyData.OrganizationLevel.valueOf(rs.getString("organization_level")),
+                MyData.SensitivityLevel.valueOf(rs.getString("sensitivity_level")),
+                dedup(strings, rs.getString("owner_id")),
+                dedup(strings, rs.getString("owner_department")),
+                dedup(strings, rs.getString("owner_team"))));
+
+        EntitlementIndex snapshot = new EntitlementIndex(version, users, managers, records,
+            accessControlRepository.findByActiveTrueOrderByPriorityDesc());
+        log.info("Built entitlement index at policy version {}: {} users, {} records in {} ms",
+            version, snapshot.getUserCount(), snapshot.getRecordCount(),
+            Duration.ofNanos(System.nanoTime() - start).toMillis());
+        return snapshot;
+    }
+
+    /**
+     * Operations denied on every record by a global ABAC rule
+     */
+    Set<AccessControlService.AccessOperation> globallyDenied(
+            EntitlementIndex snapshot, SecurityContext user, OffsetDateTime now) {
+        Set<AccessControlService.AccessOperation> denied = EnumSet.noneOf(AccessControlService.AccessOperation.class);
+        for (DataAccessControl rule : snapshot.getGlobalRules()) {
+            if (!inValidityWindow(rule, now)) {
+                continue;
+            }
+            for (AccessControlService.AccessOperation operation : RECORD_OPERATIONS) {
+                if (!accessControlService.evaluateAccessRule(rule, user, operation)) {
+                    denied.add(operation);
+                }
+            }
+        }
+        return denied;
+    }
+
+    /**
+     * Operations checkAccess would allow, apart from CBAC
+     */
+    Set<AccessControlService.AccessOperation> grantedOperations(
+            EntitlementIndex snapshot,
+            SecurityContext user,
+            EntitlementIndex.RecordAttributes record,
+            Set<AccessControlService.AccessOperation> globallyDenied,
+            OffsetDateTime now) {
+
+        Set<AccessControlService.AccessOperation> granted = EnumSet.noneOf(AccessControlService.AccessOperation.class);
+        if (!passesHierarchy(snapshot, user, record)
+                || !user.hasClearance(accessControlService.mapSensitivityToClearance(record.sensitivityLevel()))) {
+            return granted;
+        }
+
+        boolean owner = user.getUserId().equals(record.ownerId());
+        List<DataAccessControl> rules = snapshot.rulesFor(record.id());
+        for (AccessControlService.AccessOperation operation : RECORD_OPERATIONS) {
+            if (globallyDenied.contains(operation) || !hasOperationRole(user, operation, owner)) {
+                continue;
+            }
+            if (rules.stream().noneMatch(rule -> deniesOperation(rule, user, operation, now))) {
+                granted.add(operation);
+            }
+        }
+        return granted;
+    }
+
+    /**
+     * RBAC organization hierarchy, as checkRbac
+     */
+    private boolean passesHierarchy(
+            EntitlementIndex snapshot, SecurityContext user, EntitlementIndex.RecordAttributes record) {
+        if (user.hasRole("ADMIN")) {
+            return true;
+        }
+        return switch (record.organizationLevel()) {
+            case EXECUTIVE -> user.isExecutive() || user.hasRole("EXECUTIVE");
+            case DEPARTMENT -> user.isExecutive() || user.isDepartmentHead()
+                || user.hasAnyRole("EXECUTIVE", "DEPARTMENT_MANAGER")
+                || user.belongsToDepartment(record.ownerDepartment());
+            case TEAM -> user.isExecutive() || user.isDepartmentHead()
+                || user.belongsToTeam(record.ownerTeam());
+            case INDIVIDUAL -> user.getUserId().equals(record.ownerId())
+                || user.getUserId().equals(snapshot.managerOf(record.ownerId()))
+                || user.isExecutive() || user.isDepartmentHead();
+        };
+    }
+
+    /**
+     * RBAC operation-specific role requirements, as checkRbac
+     */
+    private boolean hasOperationRole(
+            SecurityContext user, AccessControlService.AccessOperation operation, boolean owner) {
+        return switch (operation) {
+            case DELETE -> owner || user.hasAnyRole("ADMIN", "DATA_MANAGER");
+            case UPDATE -> owner || user.hasAnyRole("ADMIN", "DATA_MANAGER", "EDITOR");
+            default -> true;
+        };
+    }
+
+    /**
+     * Record-specific ABAC and row-level rules, as checkAbac and checkRowLevelAccess
+     */
+    private boolean deniesOperation(
+            DataAccessControl rule,
+            SecurityContext user,
+            AccessControlService.AccessOperation operation,
+            OffsetDateTime now) {
+        if (inValidityWindow(rule, now) && !accessControlService.evaluateAccessRule(rule, user, operation)) {
+            return true;
+        }
+        boolean rowLevelPrincipal = switch (rule.getPrincipalType()) {
+            case USER -> rule.getPrincipalValue().equals(user.getUserId());
+            case ALL -> true;
+            default -> false;
+        };
+        return accessControlService.isRowLevelSecurityEnabled()
+            && rowLevelPrincipal
+            && !accessControlService.isOperationPermitted(rule, operation);
+    }
+
+    Set<String> visibleColumns(EntitlementIndex snapshot, SecurityContext user) {
+        if (!accessControlService.isColumnLevelSecurityEnabled()) {
+            return null;
+        }
+        return accessControlService.getVisibleColumns(user, snapshot.columnRulesFor(user));
+    }
+
+    private boolean inValidityWindow(DataAccessControl rule, OffsetDateTime now) {
+        return (rule.getValidFrom() == null || !rule.getValidFrom().isAfter(now))
+            && (rule.getValidUntil() == null || !rule.getValidUntil().isBefore(now));
+    }
+
+    /**
+     * Realm roles are not stored in user_attribute; an optional "roles"
+     * array in the custom attributes JSON stands in for them
+     */
+    private Set<String> parseRoles(UserAttribute attribute) {
+        Set<String> roles = new HashSet<>();
+        if (attribute.getAttributes() != null) {
+            try {
+                JsonNode node = objectMapper.readTree(attribute.getAttributes()).path("roles");
+                node.forEach(role -> roles.add(role.asText()));
+            } catch (Exception e) {
+                log.warn("Failed to parse attributes for user {}", attribute.getUserId(), e);
+            }
+        }
+        return roles;
+    }
+
+    private static String dedup(Map<String, String> strings, String value) {
+        return value == null ? null : strings.computeIfAbsent(value, v -> v);
+    }
+}
@@ -0,0 +1,159 @@
+package com.enterprise.datasharing.security;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Supplier;
+
+/**
+ * Computes strong ETags for MyData representations and answers conditional
+ * requests.
+ *
+ * An ETag is derived from (id, version, column-mask fingerprint), so two
+ * callers with different visible columns never share a tag. Granted reads
+ * are remembered per caller together with the policy version; a later
+ * If-None-Match can then be answered from that entry plus a version lookup,
+ * without loading the entity or re-running the full access evaluation.
+ */
+@Service
+public class EntityTagService {
+
+    private final AccessControlService accessControlService;
+    private final PolicyVersionTracker policyVersionTracker;
+    private final Cache<String, GrantedTag> grantedTags;
+
+    public EntityTagService(
+            AccessControlService accessControlService,
+            PolicyVersionTracker policyVersionTracker,
+            @Value("${app.http.etag.cache-size:100000}") long cacheSize,
+            @Value("${app.http.etag.cache-ttl:PT10M}") Duration cacheTtl) {
+        this.accessControlService = accessControlService;
+        this.policyVersionTracker = policyVersionTracker;
+        this.grantedTags = CacheBuilder.newBuilder()
+            .maximumSize(cacheSize)
+            .expireAfterWrite(cacheTtl)
+            .build();
+    }
+
+    /**
+     * Compute the strong ETag for a record version as seen through a column mask
+     */
+    public String tagFor(Long id, Long version, Set<String> visibleColumns) {
+        return "\"" + id + "-" + (version != null ? version : 0) + "-" + maskFingerprint(visibleColumns) + "\"";
+    }
+
+    /**
+     * Remember a granted read so it can be revalidated cheaply
+     */
+    public void rememberGrant(SecurityContext context, Long id, Long version, String etag) {
+        grantedTags.put(cacheKey(context, id),
+            new GrantedTag(version, policyVersionTracker.current(), etag));
+    }
+
+    /**
+     * Check whether If-None-Match can be answered with 304 Not Modified and
+     * return the ETag of the matched representation.
+     * Requires an earlier grant for this caller under the current policy version
+     * and an unchanged record version; context checks are re-evaluated since
+     * they depend on the request rather than the record.
+     */
+    public Optional<String> notModifiedTag(
+            SecurityContext context,
+            Long id,
+            String ifNoneMatch,
+            Supplier<Long> currentVersion,
+            HttpServletRequest request) {
+
+        if (ifNoneMatch == null) {
+            return Optional.empty();
+        }
+
+        GrantedTag granted = grantedTags.getIfPresent(cacheKey(context, id));
+        if (granted == null
+                || granted.policyVersion() != policyVersionTracker.current()
+                || !matchesAny(ifNoneMatch, granted.etag(), true)) {
+            return Optional.empty();
+        }
+
+        if (!accessControlService.checkCbac(context, request).isAllowed()) {
+            return Optional.empty();
+        }
+
+        return Objects.equals(granted.version(), currentVersion.get())
+            ? Optional.of(granted.etag())
+            : Optional.empty();
+    }
+
+    /**
+     * Check an If-Match header against the current ETag (strong comparison)
+     */
+    public boolean matchesIfMatch(String ifMatch, String currentTag) {
+        return ifMatch == null || matchesAny(ifMatch, currentTag, false);
+    }
+
+    private boolean matchesAny(String header, String etag, boolean weakComparison) {
+        for (String candidate : header.split(",")) {
+            String tag = candidate.trim();
+            if (tag.equals("*")) {
+                return true;
+            }
+            if (tag.startsWith("W/")) {
+                if (!weakComparison) {
+                    continue;
+                }
+                tag = tag.substring(2);
+            }
+            if (tag.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private String maskFingerprint(Set<String> visibleColumns) {
+        if (visibleColumns == null) {
+            return "all";
+        }
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            byte[] hash = md.digest(String.join(",", new TreeSet<>(visibleColumns))
+                .getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(hash, 0, 8);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * Cache key covering everything in the caller's context that the
+     * access evaluation depends on
+     */
+    private String cacheKey(SecurityContext context, Long id) {
+        int contextFingerprint = Objects.hash(
+            context.getRoles() != null ? new TreeSet<>(context.getRoles()) : null,
+            context.getDepartment(),
+            context.getTeam(),
+            context.getOrganizationLevel(),
+            context.getClearanceLevel(),
+            context.getManagerId(),
+            context.isManager(),
+            context.isDepartmentHead(),
+            context.isExecutive());
+        return context.getUserId() + ":" + contextFingerprint + ":" + id;
+    }
+
+    private record GrantedTag(Long version, long policyVersion, String etag) {
+    }
+}
@@ -0,0 +1,292 @@
+package com.enterprise.datasharing.security;
+
+import com.enterprise.datasharing.dto.PolicySimulationDto;
+import com.enterprise.datasharing.entity.DataAccessControl;
+import com.enterprise.datasharing.entity.UserAttribute;
+import com.enterprise.datasharing.exception.ResourceNotFoundException;
+import com.enterprise.datasharing.repository.DataAccessControlRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Dry run of an access rule change.
+ *
+ * Evaluates every (user, record) pair the change can affect under the current
+ * and the proposed rule set, and reports the operations gained and lost and
+ * the column masks that change. Only users matched by the old or new rule's
+ * principal are evaluated, and only the rule's record when it has one.
+ * Users are partitioned across a fork-join pool; changes are emitted as soon
+ * as a user's partition finishes, so their order is not deterministic.
+ *
+ * Both rule sets share the users and records of the EntitlementIndex, so the
+ * same limitations apply (CBAC is not evaluated).
+ */
+@Service
+@Slf4j
+public class PolicySimulationService {
+
+    private final EntitlementService entitlementService;
+    private final DataAccessControlRepository accessControlRepository;
+    private final ForkJoinPool pool;
+    private final int usersPerTask;
+
+    public PolicySimulationService(
+            EntitlementService entitlementService,
+            DataAccessControlRepository accessControlRepository,
+            @Value("${app.entitlements.simulation.parallelism:0}") int parallelism,
+            @Value("${app.entitlements.simulation.users-per-task:16}") int usersPerTask) {
+        this.entitlementService = entitlementService;
+        this.accessControlRepository = accessControlRepository;
+        this.pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+        this.usersPerTask = usersPerTask;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+
+    /**
+     * Validate a proposed change and resolve what it affects
+     */
+    public Simulation prepare(PolicySimulationDto.Request request) {
+        EntitlementIndex current = entitlementService.currentIndex();
+        List<DataAccessControl> rules = new ArrayList<>(current.getActiveRules());
+        List<DataAccessControl> scope = new ArrayList<>();
+
+        if (request.getAction() != PolicySimulationDto.Action.CREATE) {
+            if (request.getRuleId() == null) {
+                throw new IllegalArgumentException("ruleId is required for " + request.getAction());
+            }
+            DataAccessControl existing = accessControlRepository.findById(request.getRuleId())
+                .orElseThrow(() -> new ResourceNotFoundException("DataAccessControl", request.getRuleId().toString()));
+            // Inactive rules are not in the snapshot and have no effect to remove
+            rules.removeIf(rule -> rule.getId().equals(existing.getId()));
+            scope.add(existing);
+        }
+
+        if (request.getAction() != PolicySimulationDto.Action.DELETE) {
+            DataAccessControl proposed = request.getRule();
+            if (proposed == null || proposed.getPrincipalType() == null || proposed.getPrincipalValue() == null) {
+                throw new IllegalArgumentException("rule with principalType and principalValue is required for "
+                    + request.getAction());
+            }
+            if (proposed.getPrincipalType() == DataAccessControl.PrincipalType.CLEARANCE) {
+                UserAttribute.ClearanceLevel.valueOf(proposed.getPrincipalValue());
+            }
+            if (proposed.getDataId() != null && current.getRecord(proposed.getDataId()) == null) {
+                throw new ResourceNotFoundException("MyData", proposed.getDataId().toString());
+            }
+            if (request.getAction() == PolicySimulationDto.Action.UPDATE) {
+                proposed.setId(request.getRuleId());
+            }
+            if (!Boolean.FALSE.equals(proposed.getActive())) {
+                rules.add(proposed);
+                rules.sort(Comparator.comparing((DataAccessControl rule) ->
+                    Objects.requireNonNullElse(rule.getPriority(), 0)).reversed());
+            }
+            scope.add(proposed);
+        }
+
+        List<SecurityContext> users = current.getUsers().stream()
+            .filter(user -> scope.stream().anyMatch(rule -> matchesPrincipal(rule, user)))
+            .toList();
+
+        return new Simulation(request.getAction(), current, current.withRules(rules), scope, users);
+    }
+
+    /**
+     * Evaluate a prepared change, passing each difference to the sink.
+     * The sink is called from pool threads, one call at a time.
+     */
+    public PolicySimulationDto.Summary run(Simulation simulation, Consumer<Object> sink) {
+        long start = System.nanoTime();
+        Totals totals = new Totals();
+        Consumer<Object> serialSink = change -> {
+            synchronized (sink) {
+                sink.accept(change);
+            }
+        };
+
+        pool.invoke(new UserPartition(simulation, simulation.users(), OffsetDateTime.now(), serialSink, totals));
+
+        PolicySimulationDto.Summary summary = PolicySimulationDto.Summary.builder()
+            .action(simulation.action())
+            .usersEvaluated(simulation.users().size())
+            .pairsEvaluated(totals.pairs.sum())
+            .recordsChanged(totals.records.sum())
+            .grantsGained(totals.gained.sum())
+            .grantsLost(totals.lost.sum())
+            .columnChanges(totals.columns.sum())
+            .durationMs(Duration.ofNanos(System.nanoTime() - start).toMillis())
+            .build();
+        log.info("Simulated {} of access rule: {}", simulation.action(), summary);
+        return summary;
+    }
+
+    /**
+     * Compare current and proposed policy for one user
+     */
+    private void simulateUser(
+            Simulation simulation, SecurityContext user, OffsetDateTime now, Consumer<Object> sink, Totals totals) {
+        EntitlementIndex current = simulation.current();
+        EntitlementIndex proposed = simulation.proposed();
+
+        if (simulation.affectsColumns()) {
+            Set<String> before = entitlementService.visibleColumns(current, user);
+            Set<String> after = entitlementService.visibleColumns(proposed, user);
+            if (!Objects.equals(before, after)) {
+                totals.columns.increment();
+                sink.accept(PolicySimulationDto.ColumnChange.builder()
+                    .userId(user.getUserId())
+                    .gained(difference(after, before))
+                    .lost(difference(before, after))
+                    .build());
+            }
+        }
+
+        Set<AccessControlService.AccessOperation> deniedBefore = entitlementService.globallyDenied(current, user, now);
+        Set<AccessControlService.AccessOperation> deniedAfter = entitlementService.globallyDenied(proposed, user, now);
+
+        for (EntitlementIndex.RecordAttributes record : recordsInScope(simulation, user)) {
+            totals.pairs.increment();
+            Set<AccessControlService.AccessOperation> before =
+                entitlementService.grantedOperations(current, user, record, deniedBefore, now);
+            Set<AccessControlService.AccessOperation> after =
+                entitlementService.grantedOperations(proposed, user, record, deniedAfter, now);
+            if (before.equals(after)) {
+                continue;
+            }
+
+            Set<AccessControlService.AccessOperation> gained = EnumSet.noneOf(AccessControlService.AccessOperation.class);
+            gained.addAll(after);
+            gained.removeAll(before);
+            Set<AccessControlService.AccessOperation> lost = EnumSet.noneOf(AccessControlService.AccessOperation.class);
+            lost.addAll(before);
+            lost.removeAll(after);
+
+            totals.records.increment();
+            totals.gained.add(gained.size());
+            totals.lost.add(lost.size());
+            sink.accept(PolicySimulationDto.AccessChange.builder()
+                .userId(user.getUserId())
+                .dataId(record.id())
+                .gained(gained)
+                .lost(lost)
+                .build());
+        }
+    }
+
+    /**
+     * The rules' records if they all target one, otherwise the user's candidates
+     */
+    private Set<EntitlementIndex.RecordAttributes> recordsInScope(Simulation simulation, SecurityContext user) {
+        Set<EntitlementIndex.RecordAttributes> records = new LinkedHashSet<>();
+        for (DataAccessControl rule : simulation.scope()) {
+            if (rule.getDataId() == null) {
+                records.addAll(simulation.current().candidateRecords(user));
+                return records;
+            }
+            EntitlementIndex.RecordAttributes record = simulation.current().getRecord(rule.getDataId());
+            if (record != null) {
+                records.add(record);
+            }
+        }
+        return records;
+    }
+
+    /**
+     * Whether a rule's principal can match the user, as evaluateAccessRule
+     */
+    private boolean matchesPrincipal(DataAccessControl rule, SecurityContext user) {
+        return switch (rule.getPrincipalType()) {
+            case USER -> rule.getPrincipalValue().equals(user.getUserId());
+            case ROLE -> user.hasRole(rule.getPrincipalValue());
+            case DEPARTMENT -> user.belongsToDepartment(rule.getPrincipalValue());
+            case TEAM -> user.belongsToTeam(rule.getPrincipalValue());
+            case CLEARANCE -> user.hasClearance(UserAttribute.ClearanceLevel.valueOf(rule.getPrincipalValue()));
+            case ORGANIZATION, ALL -> true;
+        };
+    }
+
+    private static Set<String> difference(Set<String> a, Set<String> b) {
+        Set<String> result = new HashSet<>(a != null ? a : Set.of());
+        if (b != null) {
+            result.removeAll(b);
+        }
+        return result;
+    }
+
+    /**
+     * A validated rule change with the rule sets and users to compare
+     */
+    public record Simulation(
+            PolicySimulationDto.Action action,
+            EntitlementIndex current,
+            EntitlementIndex proposed,
+            List<DataAccessControl> scope,
+            List<SecurityContext> users) {
+
+        boolean affectsColumns() {
+            return scope.stream().anyMatch(rule -> rule.getVisibleColumns() != null);
+        }
+    }
+
+    private static class Totals {
+        final LongAdder pairs = new LongAdder();
+        final LongAdder records = new LongAdder();
+        final LongAdder gained = new LongAdder();
+        final LongAdder lost = new LongAdder();
+        final LongAdder columns = new LongAdder();
+    }
+
+    /**
+     * Splits the user list until a partition is small enough to evaluate
+     */
+    private class UserPartition extends RecursiveAction {
+
+        private final Simulation simulation;
+        private final List<SecurityContext> users;
+        private final OffsetDateTime now;
+        private final Consumer<Object> sink;
+        private final Totals totals;
+
+        UserPartition(Simulation simulation, List<SecurityContext> users, OffsetDateTime now,
+                      Consumer<Object> sink, Totals totals) {
+            this.simulation = simulation;
+            this.users = users;
+            this.now = now;
+            this.sink = sink;
+            this.totals = totals;
+        }
+
+        @Override
+        protected void compute() {
+            if (users.size() <= usersPerTask) {
+                users.forEach(user -> simulateUser(simulation, user, now, sink, totals));
+                return;
+            }
+            int middle = users.size() / 2;
+            invokeAll(
+                new UserPartition(simulation, users.subList(0, middle), now, sink, totals),
+                new UserPartition(simulation, users.subList(middle, users.size()), now, sink, totals));
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.enterprise.datasharing.security;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tracks a monotonically increasing version of the access-control policy.
+ * Bumped whenever access rules or user attributes change, so that anything
+ * derived from a previous policy evaluation can be recognized as stale.
+ */
+@Component
+@Slf4j
+public class PolicyVersionTracker {
+
+    private final AtomicLong version = new AtomicLong();
+
+    /**
+     * Current policy version
+     */
+    public long current() {
+        return version.get();
+    }
+
+    /**
+     * Record a policy change and return the new version
+     */
+    public long bump(String reason) {
+        long next = version.incrementAndGet();
+        log.debug("Policy version bumped to {}: {}", next, reason);
+        return next;
+    }
+}
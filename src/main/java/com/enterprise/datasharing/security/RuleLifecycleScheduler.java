@@ -0,0 +1,163 @@
+package com.enterprise.datasharing.security;
+
+import com.enterprise.datasharing.entity.DataAccessControl;
+import com.enterprise.datasharing.repository.DataAccessControlRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+
+/**
+ * Acts on access rule validity windows as they open and close.
+ *
+ * Activation (validFrom) and expiry (validUntil) instants within the horizon
+ * are loaded into a hierarchical timer wheel, which a fixed-delay tick
+ * advances. When boundaries are reached the policy version is bumped, so
+ * ETags, cached aggregates and the entitlement index computed under the old
+ * rule set are stale from that instant on rather than from the next rule
+ * edit. Expired rules are then set inactive in batches, so the active rule
+ * lookups and the policy compiler no longer load and skip them.
+ *
+ * The wheel is reloaded when the policy version changes (a rule was edited
+ * here or on another node) and after the reload interval, which moves the
+ * horizon forward. Every node runs its own wheel, since policy versions are
+ * per node; concurrent deactivation batches skip each other's rows.
+ */
+@Component
+@ConditionalOnProperty(prefix = "app.security.rule-lifecycle", name = "enabled", havingValue = "true")
+@Slf4j
+public class RuleLifecycleScheduler {
+
+    private final DataAccessControlRepository accessControlRepository;
+    private final PolicyVersionTracker policyVersionTracker;
+    private final Duration tick;
+    private final Duration horizon;
+    private final Duration reloadInterval;
+    private final int batchSize;
+
+    // Guarded by this
+    private TimerWheel<Boundary> wheel;
+    private Instant advancedTo;
+    private Instant reloadAt;
+    private long loadedVersion;
+
+    public RuleLifecycleScheduler(
+            DataAccessControlRepository accessControlRepository,
+            PolicyVersionTracker policyVersionTracker,
+            @Value("${app.security.rule-lifecycle.tick:PT1S}") Duration tick,
+            @Value("${app.security.rule-lifecycle.horizon:P1D}") Duration horizon,
+            @Value("${app.security.rule-lifecycle.reload-interval:PT1H}") Duration reloadInterval,
+            @Value("${app.security.rule-lifecycle.batch-size:500}") int batchSize) {
+        this.accessControlRepository = accessControlRepository;
+        this.policyVersionTracker = policyVersionTracker;
+        this.tick = tick;
+        this.horizon = horizon;
+        this.reloadInterval = reloadInterval;
+        this.batchSize = batchSize;
+    }
+
+    @Scheduled(fixedDelayString = "${app.security.rule-lifecycle.tick:PT1S}")
+    public synchronized void tick() {
+        Instant now = Instant.now();
+        if (wheel == null || loadedVersion != policyVersionTracker.current() || !now.isBefore(reloadAt)) {
+            reload(now);
+        }
+
+        List<Boundary> boundaries = wheel.advance(now);
+        advancedTo = now;
+        if (boundaries.isEmpty()) {
+            return;
+        }
+
+        boolean expired = false;
+        for (Boundary boundary : boundaries) {
+            log.info("Access rule {} ({}) {} at {}", boundary.ruleId(), boundary.ruleName(),
+                boundary.expiry() ? "expired" : "became valid", boundary.at());
+            expired |= boundary.expiry();
+        }
+        policyVersionTracker.bump(boundaries.size() + " access rule validity boundaries reached");
+
+        if (expired) {
+            deactivateExpiredQuietly();
+        }
+    }
+
+    /**
+     * Set every expired rule inactive, batch by batch; returns the number deactivated
+     */
+    public int deactivateExpired() {
+        OffsetDateTime now = OffsetDateTime.now(ZoneOffset.UTC);
+        int total = 0;
+        int batch;
+        do {
+            batch = accessControlRepository.deactivateExpiredRules(now, batchSize);
+            total += batch;
+        } while (batch == batchSize);
+        if (total > 0) {
+            log.info("Deactivated {} expired access rules", total);
+        }
+        return total;
+    }
+
+    private void reload(Instant now) {
+        long version = policyVersionTracker.current();
+        // Activations between the last advance and now must still fire
+        Instant from = advancedTo != null ? advancedTo : now;
+        Instant until = now.plus(horizon);
+        List<DataAccessControl> rules = accessControlRepository.findRulesWithValidityBoundary(
+            from.atOffset(ZoneOffset.UTC), until.atOffset(ZoneOffset.UTC));
+
+        TimerWheel<Boundary> loaded = new TimerWheel<>(tick, from);
+        boolean expiredEarlier = false;
+        for (DataAccessControl rule : rules) {
+            OffsetDateTime validFrom = rule.getValidFrom();
+            if (validFrom != null && validFrom.toInstant().isAfter(from) && !validFrom.toInstant().isAfter(until)) {
+                loaded.schedule(validFrom.toInstant(), new Boundary(rule.getId(), rule.getRuleName(), false,
+                    validFrom.toInstant()));
+            }
+            OffsetDateTime validUntil = rule.getValidUntil();
+            if (validUntil == null || validUntil.toInstant().isAfter(until)) {
+                continue;
+            }
+            // validUntil is inclusive; the rule is out of effect just after it
+            Instant outOfEffect = validUntil.toInstant().plusNanos(1);
+            if (outOfEffect.isAfter(from)) {
+                loaded.schedule(outOfEffect, new Boundary(rule.getId(), rule.getRuleName(), true,
+                    validUntil.toInstant()));
+            } else {
+                expiredEarlier = true;
+            }
+        }
+
+        wheel = loaded;
+        loadedVersion = version;
+        reloadAt = now.plus(reloadInterval);
+        log.debug("Loaded {} access rule validity boundaries up to {} at policy version {}",
+            loaded.size(), until, version);
+
+        // Out of effect before this wheel started (downtime, or a failed batch): no boundary left
+        // to publish, only the cleanup
+        if (expiredEarlier) {
+            deactivateExpiredQuietly();
+        }
+    }
+
+    private void deactivateExpiredQuietly() {
+        try {
+            deactivateExpired();
+        } catch (RuntimeException e) {
+            // Still active expired rules stay out of effect by their window; the next reload retries
+            log.warn("Failed to deactivate expired access rules: {}", e.getMessage());
+        }
+    }
+
+    private record Boundary(Long ruleId, String ruleName, boolean expiry, Instant at) {
+    }
+}
@@ -69,6 +69,27 @@ public class SecurityContext {
             .build();
     }
 
+    /**
+     * Create SecurityContext from stored user attributes, for evaluating
+     * access on behalf of a user outside of their request
+     */
+    public static SecurityContext fromUserAttribute(UserAttribute attribute, Set<String> roles) {
+        return SecurityContext.builder()
+            .userId(attribute.getUserId())
+            .username(attribute.getUsername())
+            .email(attribute.getEmail())
+            .roles(roles)
+            .department(attribute.getDepartment())
+            .team(attribute.getTeam())
+            .organizationLevel(attribute.getOrganizationLevel())
+            .clearanceLevel(attribute.getClearanceLevel())
+            .managerId(attribute.getManagerId())
+            .isManager(Boolean.TRUE.equals(attribute.getIsManager()))
+            .isDepartmentHead(Boolean.TRUE.equals(attribute.getIsDepartmentHead()))
+            .isExecutive(Boolean.TRUE.equals(attribute.getIsExecutive()))
+            .build();
+    }
+
     /**
      * Check if user has a specific role
      */
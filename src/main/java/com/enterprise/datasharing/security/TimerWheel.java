@@ -0,0 +1,128 @@
+package com.enterprise.datasharing.security;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hierarchical timing wheel. Level 0 has one slot per tick; a slot of each
+ * higher level spans a full turn of the level below and is cascaded down
+ * when the wheel reaches it. Scheduling and firing are O(1) per timer, and
+ * advancing over a stretch with no timers is skipped.
+ *
+ * Deadlines are rounded up to the next tick, so a timer never fires before
+ * its deadline. Not thread-safe; callers synchronize.
+ */
+final class TimerWheel<T> {
+
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int LEVELS = 4;
+
+    private final long tickNanos;
+    private final List<List<Timer<T>>> slots = new ArrayList<>(LEVELS * SLOTS);
+    // Beyond the top level (64^4 ticks), re-placed at each turn of it
+    private final List<Timer<T>> overflow = new ArrayList<>();
+    private final List<T> due = new ArrayList<>();
+    private long currentTick;
+    private int size;
+
+    TimerWheel(Duration tick, Instant start) {
+        this.tickNanos = tick.toNanos();
+        if (tickNanos <= 0) {
+            throw new IllegalArgumentException("Timer wheel tick must be positive: " + tick);
+        }
+        for (int i = 0; i < LEVELS * SLOTS; i++) {
+            slots.add(new ArrayList<>());
+        }
+        this.currentTick = floorTick(start);
+    }
+
+    /**
+     * Schedule an item; a deadline already passed fires on the next advance
+     */
+    void schedule(Instant deadline, T item) {
+        size++;
+        place(new Timer<>(ceilTick(deadline), item));
+    }
+
+    /**
+     * Move the wheel to the given instant and return the items due by then,
+     * in deadline order
+     */
+    List<T> advance(Instant now) {
+        long target = floorTick(now);
+        while (currentTick < target && size > due.size()) {
+            currentTick++;
+            for (int level = 1; level < LEVELS && (currentTick & mask(level)) == 0; level++) {
+                cascade(slot(level, currentTick));
+            }
+            if ((currentTick & mask(LEVELS)) == 0) {
+                cascade(overflow);
+            }
+            List<Timer<T>> slot = slot(0, currentTick);
+            for (Timer<T> timer : slot) {
+                due.add(timer.item());
+            }
+            slot.clear();
+        }
+        currentTick = Math.max(currentTick, target);
+
+        List<T> fired = new ArrayList<>(due);
+        size -= due.size();
+        due.clear();
+        return fired;
+    }
+
+    /**
+     * Number of scheduled items not yet returned by advance
+     */
+    int size() {
+        return size;
+    }
+
+    private void place(Timer<T> timer) {
+        long delta = timer.tick() - currentTick;
+        if (delta <= 0) {
+            due.add(timer.item());
+            return;
+        }
+        for (int level = 0; level < LEVELS; level++) {
+            if (delta <= mask(level + 1)) {
+                slot(level, timer.tick()).add(timer);
+                return;
+            }
+        }
+        overflow.add(timer);
+    }
+
+    private void cascade(List<Timer<T>> timers) {
+        List<Timer<T>> pending = new ArrayList<>(timers);
+        timers.clear();
+        pending.forEach(this::place);
+    }
+
+    private List<Timer<T>> slot(int level, long tick) {
+        return slots.get(level * SLOTS + (int) ((tick >>> (SLOT_BITS * level)) & (SLOTS - 1)));
+    }
+
+    private static long mask(int level) {
+        return (1L << (SLOT_BITS * level)) - 1;
+    }
+
+    private long floorTick(Instant instant) {
+        return Math.floorDiv(toNanos(instant), tickNanos);
+    }
+
+    private long ceilTick(Instant instant) {
+        return -Math.floorDiv(-toNanos(instant), tickNanos);
+    }
+
+    private static long toNanos(Instant instant) {
+        return Math.addExact(Math.multiplyExact(instant.getEpochSecond(), 1_000_000_000L), instant.getNano());
+    }
+
+    private record Timer<T>(long tick, T item) {
+    }
+}
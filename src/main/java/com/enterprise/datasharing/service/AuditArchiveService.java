@@ -0,0 +1,374 @@
+package com.enterprise.datasharing.service;
+
+import com.enterprise.datasharing.dto.AuditLogDto;
+import com.enterprise.datasharing.entity.AuditLog;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Cold tier for audit logs.
+ *
+ * Rows older than the hot window are moved, oldest first, into immutable
+ * AuditSegment files and then deleted from audit_log. A segment is complete
+ * on disk before its rows are deleted; a run interrupted in between deletes
+ * the leftovers at its next start, so no row is lost or archived twice.
+ * Rows are deleted by the ids stored in the segment, never by range: a row
+ * that commits late with a timestamp inside an archived range was not read
+ * into the segment, so it must stay in audit_log.
+ *
+ * Because rows move in (timestamp, id) order, every archived row is older
+ * than every row still in audit_log, apart from such late rows. A keyset
+ * query can therefore continue from the table into the segments with the
+ * same cursor.
+ *
+ * The directory may be shared by several nodes. A run holds a Postgres
+ * advisory lock for its duration, so only one node archives at a time, and
+ * writes its pending segment under a unique temporary name.
+ */
+@Service
+@Slf4j
+public class AuditArchiveService {
+
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final String PENDING_PREFIX = "audit-pending";
+
+    // Advisory lock key held by the node that is archiving ("auditarc")
+    private static final long ARCHIVE_LOCK_KEY = 0x6175646974617263L;
+
+    private static final String SELECT_FIRST_BATCH = """
+        SELECT * FROM audit_log
+        WHERE timestamp < ?
+        ORDER BY timestamp, id
+        LIMIT ?
+        """;
+
+    private static final String SELECT_NEXT_BATCH = """
+        SELECT * FROM audit_log
+        WHERE timestamp < ? AND (timestamp, id) > (?, ?)
+        ORDER BY timestamp, id
+        LIMIT ?
+        """;
+
+    private static final String DELETE_ARCHIVED = "DELETE FROM audit_log WHERE id = ANY (?)";
+
+    private static final RowMapper<AuditLog> AUDIT_LOG_MAPPER = (rs, rowNum) -> AuditLog.builder()
+        .id(rs.getLong("id"))
+        .userId(rs.getString("user_id"))
+        .username(rs.getString("username"))
+        .userRoles(rs.getString("user_roles"))
+        .userDepartment(rs.getString("user_department"))
+        .userTeam(rs.getString("user_team"))
+        .action(AuditLog.AuditAction.valueOf(rs.getString("action")))
+        .entityType(rs.getString("entity_type"))
+        .entityId(rs.getString("entity_id"))
+        .fieldName(rs.getString("field_name"))
+        .oldValue(rs.getString("old_value"))
+        .newValue(rs.getString("new_value"))
+        .timestamp(rs.getTimestamp("timestamp").toLocalDateTime())
+        .ipAddress(rs.getString("ip_address"))
+        .userAgent(rs.getString("user_agent"))
+        .requestUri(rs.getString("request_uri"))
+        .httpMethod(rs.getString("http_method"))
+        .accessDecision(rs.getString("access_decision") != null
+            ? AuditLog.AccessDecision.valueOf(rs.getString("access_decision")) : null)
+        .accessReason(rs.getString("access_reason"))
+        .requiredRole(rs.getString("required_role"))
+        .attributeConditions(rs.getString("attribute_conditions"))
+        .contextConditions(rs.getString("context_conditions"))
+        .correlationId(rs.getString("correlation_id"))
+        .sessionId(rs.getString("session_id"))
+        .success(rs.getBoolean("success"))
+        .errorMessage(rs.getString("error_message"))
+        .dataHash(rs.getString("data_hash"))
+        .build();
+
+    private final JdbcTemplate jdbcTemplate;
+    private final DataSource dataSource;
+    private final Path directory;
+    private final Duration hotWindow;
+    private final int rowsPerGroup;
+    private final int rowsPerSegment;
+    private final int deleteBatchSize;
+    private final Map<Path, AuditSegment> openSegments = new ConcurrentHashMap<>();
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    public AuditArchiveService(
+            JdbcTemplate jdbcTemplate,
+            DataSource dataSource,
+            @Value("${app.audit-archive.directory:${java.io.tmpdir}/audit-archive}") Path directory,
+            @Value("${app.audit-archive.hot-window:P90D}") Duration hotWindow,
+            @Value("${app.audit-archive.rows-per-group:8192}") int rowsPerGroup,
+            @Value("${app.audit-archive.rows-per-segment:262144}") int rowsPerSegment,
+            @Value("${app.audit-archive.delete-batch-size:10000}") int deleteBatchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.dataSource = dataSource;
+        this.directory = directory;
+        this.hotWindow = hotWindow;
+        this.rowsPerGroup = rowsPerGroup;
+        this.rowsPerSegment = rowsPerSegment;
+        this.deleteBatchSize = deleteBatchSize;
+    }
+
+    @Scheduled(cron = "${app.audit-archive.cron:-}")
+    public void scheduledArchive() {
+        archive().ifPresentOrElse(
+            result -> log.info("Scheduled audit archive finished: {}", result),
+            () -> log.warn("Skipping scheduled audit archive, another run is in progress"));
+    }
+
+    /**
+     * Move every audit log older than the hot window into segments;
+     * empty if a run is already in progress on this or another node
+     */
+    public Optional<ArchiveResult> archive() {
+        if (!running.compareAndSet(false, true)) {
+            return Optional.empty();
+        }
+        // The session-level lock lives as long as this connection
+        try (Connection lockConnection = dataSource.getConnection()) {
+            if (!advisoryLock(lockConnection, "pg_try_advisory_lock")) {
+                return Optional.empty();
+            }
+            try {
+                return Optional.of(archiveLocked());
+            } finally {
+                advisoryLock(lockConnection, "pg_advisory_unlock");
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("Audit archive lock failed: " + e.getMessage(), e);
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private ArchiveResult archiveLocked() {
+        long start = System.nanoTime();
+        try {
+            Files.createDirectories(directory);
+            deletePendingSegments();
+            LocalDateTime cutoff = LocalDateTime.now().minus(hotWindow);
+
+            AuditSegment newest = newestSegment();
+            AuditLogDto.Cursor watermark = newest != null ? newest.last() : null;
+            if (newest != null) {
+                // Rows of a segment written by an interrupted run
+                deleteArchived(newest);
+            }
+
+            int segments = 0;
+            long rows = 0;
+            AuditLogDto.Cursor last = watermark;
+            while (true) {
+                AuditSegment segment = writeSegment(cutoff, last);
+                if (segment == null) {
+                    break;
+                }
+                last = segment.last();
+                long deleted = deleteArchived(segment);
+                openSegments.put(segment.file(), segment);
+                segments++;
+                rows += segment.rowCount();
+                log.info("Archived {} audit logs to {} ({} deleted)", segment.rowCount(),
+                    segment.file().getFileName(), deleted);
+            }
+
+            return new ArchiveResult(cutoff, segments, rows, Duration.ofNanos(System.nanoTime() - start).toMillis());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Audit archive failed: " + e.getMessage(), e);
+        }
+    }
+
+    private static boolean advisoryLock(Connection connection, String function) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("SELECT " + function + "(?)")) {
+            statement.setLong(1, ARCHIVE_LOCK_KEY);
+            try (ResultSet rs = statement.executeQuery()) {
+                return rs.next() && rs.getBoolean(1);
+            }
+        }
+    }
+
+    /**
+     * Remove pending segments left by an interrupted run; their rows are
+     * still in audit_log. Safe under the archive lock, since no other run
+     * can be writing one.
+     */
+    private void deletePendingSegments() throws IOException {
+        try (Stream<Path> listing = Files.list(directory)) {
+            for (Path file : listing.filter(file -> file.getFileName().toString().startsWith(PENDING_PREFIX)).toList()) {
+                log.info("Removing pending audit segment {} of an interrupted run", file.getFileName());
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    /**
+     * Archived audit logs matching the filter and before the cursor, newest first
+     */
+    public List<AuditLog> search(AuditLogDto.Filter filter, AuditLogDto.Cursor after, int limit) {
+        List<AuditLog> result = new ArrayList<>();
+        for (AuditSegment segment : segments()) {
+            if (result.size() >= limit) {
+                break;
+            }
+            segment.search(filter, after, limit, result);
+        }
+        return result;
+    }
+
+    /**
+     * Size of the cold tier
+     */
+    public ArchiveStatus status() {
+        List<AuditSegment> segments = segments();
+        long bytes = 0;
+        for (AuditSegment segment : segments) {
+            try {
+                bytes += Files.size(segment.file());
+            } catch (IOException e) {
+                log.warn("Could not size audit segment {}: {}", segment.file(), e.getMessage());
+            }
+        }
+        return new ArchiveStatus(segments.size(), segments.stream().mapToLong(AuditSegment::rowCount).sum(),
+            bytes, segments.isEmpty() ? null : segments.get(0).last().timestamp(), hotWindow);
+    }
+
+    /**
+     * Write the next segment of rows older than the cutoff, or return null if there are none
+     */
+    private AuditSegment writeSegment(LocalDateTime cutoff, AuditLogDto.Cursor after) throws IOException {
+        List<AuditLog> batch = nextBatch(cutoff, after);
+        if (batch.isEmpty()) {
+            return null;
+        }
+
+        Path file = Files.createTempFile(directory, PENDING_PREFIX + "-", SEGMENT_SUFFIX);
+        AuditLogDto.Cursor last;
+        try (AuditSegment.Writer writer = new AuditSegment.Writer(file)) {
+            while (true) {
+                writer.writeGroup(batch);
+                last = AuditLogDto.Cursor.after(batch.get(batch.size() - 1));
+                if (writer.rowCount() >= rowsPerSegment) {
+                    break;
+                }
+                batch = nextBatch(cutoff, last);
+                if (batch.isEmpty()) {
+                    break;
+                }
+            }
+            writer.commit();
+        }
+
+        // Name the segment after its last row so names sort by age
+        Path named = directory.resolve(String.format("audit-%019d-%019d%s",
+            AuditSegment.toMicros(last.timestamp()), last.id(), SEGMENT_SUFFIX));
+        Files.move(file, named, StandardCopyOption.ATOMIC_MOVE);
+        return AuditSegment.open(named);
+    }
+
+    private List<AuditLog> nextBatch(LocalDateTime cutoff, AuditLogDto.Cursor after) {
+        if (after == null) {
+            return jdbcTemplate.query(SELECT_FIRST_BATCH, AUDIT_LOG_MAPPER, Timestamp.valueOf(cutoff), rowsPerGroup);
+        }
+        return jdbcTemplate.query(SELECT_NEXT_BATCH, AUDIT_LOG_MAPPER, Timestamp.valueOf(cutoff),
+            Timestamp.valueOf(after.timestamp()), after.id(), rowsPerGroup);
+    }
+
+    /**
+     * Delete the rows stored in a segment, in batches
+     */
+    private long deleteArchived(AuditSegment segment) {
+        long[] ids = segment.ids();
+        long total = 0;
+        for (int from = 0; from < ids.length; from += deleteBatchSize) {
+            Long[] batch = Arrays.stream(ids, from, Math.min(from + deleteBatchSize, ids.length))
+                .boxed()
+                .toArray(Long[]::new);
+            total += jdbcTemplate.update(connection -> {
+                PreparedStatement statement = connection.prepareStatement(DELETE_ARCHIVED);
+                statement.setArray(1, connection.createArrayOf("bigint", batch));
+                return statement;
+            });
+        }
+        return total;
+    }
+
+    /**
+     * The segment holding the newest archived rows, or null if nothing is archived
+     */
+    private AuditSegment newestSegment() {
+        List<AuditSegment> segments = segments();
+        return segments.isEmpty() ? null : segments.get(0);
+    }
+
+    /**
+     * Segments on disk, newest first. The directory is listed on every call
+     * so segments written by another node sharing it are picked up.
+     */
+    private List<AuditSegment> segments() {
+        Set<Path> files;
+        try (Stream<Path> listing = Files.list(directory)) {
+            files = listing
+                .filter(file -> file.getFileName().toString().startsWith("audit-0"))
+                .filter(file -> file.getFileName().toString().endsWith(SEGMENT_SUFFIX))
+                .collect(Collectors.toSet());
+        } catch (IOException e) {
+            return List.of();
+        }
+
+        openSegments.keySet().retainAll(files);
+        for (Path file : files) {
+            openSegments.computeIfAbsent(file, path -> {
+                try {
+                    return AuditSegment.open(path);
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Could not open audit segment " + path, e);
+                }
+            });
+        }
+        return openSegments.values().stream()
+            .sorted(Comparator.comparing(AuditSegment::file).reversed())
+            .toList();
+    }
+
+    /**
+     * Outcome of an archive run
+     */
+    public record ArchiveResult(LocalDateTime cutoff, int segmentsWritten, long rowsArchived, long durationMs) {
+    }
+
+    /**
+     * Segments on disk and the newest archived timestamp
+     */
+    public record ArchiveStatus(int segments, long rows, long bytes, LocalDateTime archivedUntil,
+                                Duration hotWindow) {
+    }
+}
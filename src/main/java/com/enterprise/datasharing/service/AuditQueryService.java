@@ -0,0 +1,41 @@
+package com.enterprise.datasharing.service;
+
+import com.enterprise.datasharing.dto.AuditLogDto;
+import com.enterprise.datasharing.entity.AuditLog;
+import com.enterprise.datasharing.repository.AuditLogRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keyset audit queries across the hot table and the archive segments.
+ * audit_log is read first; when a page is not filled there the same cursor
+ * continues into the segments, which only hold older rows.
+ */
+@Service
+@RequiredArgsConstructor
+public class AuditQueryService {
+
+    private final AuditLogRepository auditLogRepository;
+    private final AuditArchiveService auditArchiveService;
+
+    /**
+     * One page of audit logs matching the filter, newest first
+     */
+    public AuditLogDto.CursorPage query(AuditLogDto.Filter filter, AuditLogDto.Cursor after, int size) {
+        // One extra row tells whether there is a next page
+        List<AuditLog> rows = new ArrayList<>(auditLogRepository.search(filter, after, size + 1));
+        if (rows.size() <= size) {
+            rows.addAll(auditArchiveService.search(filter, after, size + 1 - rows.size()));
+        }
+
+        List<AuditLog> items = rows.size() > size ? rows.subList(0, size) : rows;
+        return AuditLogDto.CursorPage.builder()
+            .items(items)
+            .size(items.size())
+            .nextCursor(rows.size() > size ? AuditLogDto.Cursor.after(items.get(size - 1)).encode() : null)
+            .build();
+    }
+}
@@ -0,0 +1,592 @@
+package com.enterprise.datasharing.service;
+
+import com.enterprise.datasharing.dto.AuditLogDto;
+import com.enterprise.datasharing.entity.AuditLog;
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnels;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Immutable, compressed, columnar file of archived audit logs.
+ *
+ * Rows are stored in (timestamp, id) order in row groups. Every column of a
+ * group is deflated on its own. A footer at the end of the file holds the
+ * segment's first and last (timestamp, id), a bloom filter of its user ids
+ * and a sparse index with each group's range and column offsets.
+ *
+ * Files are read through a read-only memory map. A query skips segments and
+ * groups by range and bloom filter, inflates only the columns it filters on,
+ * and inflates the remaining columns only for groups with matching rows.
+ */
+final class AuditSegment {
+
+    private static final long MAGIC = 0x4155444954534547L;
+    private static final int VERSION = 1;
+    private static final double BLOOM_FPP = 0.01;
+
+    private enum Type {
+        LONG, BOOLEAN, STRING
+    }
+
+    /**
+     * Stored columns; the first eight are the ones queries filter on
+     */
+    private enum Column {
+        ID(Type.LONG, AuditLog::getId, (log, value) -> log.setId((Long) value)),
+        TIMESTAMP(Type.LONG, log -> toMicros(log.getTimestamp()),
+            (log, value) -> log.setTimestamp(fromMicros((Long) value))),
+        USER_ID(Type.STRING, AuditLog::getUserId, (log, value) -> log.setUserId((String) value)),
+        ACTION(Type.STRING, log -> enumName(log.getAction()),
+            (log, value) -> log.setAction(value != null ? AuditLog.AuditAction.valueOf((String) value) : null)),
+        ENTITY_TYPE(Type.STRING, AuditLog::getEntityType, (log, value) -> log.setEntityType((String) value)),
+        ENTITY_ID(Type.STRING, AuditLog::getEntityId, (log, value) -> log.setEntityId((String) value)),
+        ACCESS_DECISION(Type.STRING, log -> enumName(log.getAccessDecision()),
+            (log, value) -> log.setAccessDecision(
+                value != null ? AuditLog.AccessDecision.valueOf((String) value) : null)),
+        SUCCESS(Type.BOOLEAN, AuditLog::getSuccess, (log, value) -> log.setSuccess((Boolean) value)),
+        USERNAME(Type.STRING, AuditLog::getUsername, (log, value) -> log.setUsername((String) value)),
+        USER_ROLES(Type.STRING, AuditLog::getUserRoles, (log, value) -> log.setUserRoles((String) value)),
+        USER_DEPARTMENT(Type.STRING, AuditLog::getUserDepartment,
+            (log, value) -> log.setUserDepartment((String) value)),
+        USER_TEAM(Type.STRING, AuditLog::getUserTeam, (log, value) -> log.setUserTeam((String) value)),
+        FIELD_NAME(Type.STRING, AuditLog::getFieldName, (log, value) -> log.setFieldName((String) value)),
+        OLD_VALUE(Type.STRING, AuditLog::getOldValue, (log, value) -> log.setOldValue((String) value)),
+        NEW_VALUE(Type.STRING, AuditLog::getNewValue, (log, value) -> log.setNewValue((String) value)),
+        IP_ADDRESS(Type.STRING, AuditLog::getIpAddress, (log, value) -> log.setIpAddress((String) value)),
+        USER_AGENT(Type.STRING, AuditLog::getUserAgent, (log, value) -> log.setUserAgent((String) value)),
+        REQUEST_URI(Type.STRING, AuditLog::getRequestUri, (log, value) -> log.setRequestUri((String) value)),
+        HTTP_METHOD(Type.STRING, AuditLog::getHttpMethod, (log, value) -> log.setHttpMethod((String) value)),
+        ACCESS_REASON(Type.STRING, AuditLog::getAccessReason,
+            (log, value) -> log.setAccessReason((String) value)),
+        REQUIRED_ROLE(Type.STRING, AuditLog::getRequiredRole,
+            (log, value) -> log.setRequiredRole((String) value)),
+        ATTRIBUTE_CONDITIONS(Type.STRING, AuditLog::getAttributeConditions,
+            (log, value) -> log.setAttributeConditions((String) value)),
+        CONTEXT_CONDITIONS(Type.STRING, AuditLog::getContextConditions,
+            (log, value) -> log.setContextConditions((String) value)),
+        CORRELATION_ID(Type.STRING, AuditLog::getCorrelationId,
+            (log, value) -> log.setCorrelationId((String) value)),
+        SESSION_ID(Type.STRING, AuditLog::getSessionId, (log, value) -> log.setSessionId((String) value)),
+        ERROR_MESSAGE(Type.STRING, AuditLog::getErrorMessage,
+            (log, value) -> log.setErrorMessage((String) value)),
+        DATA_HASH(Type.STRING, AuditLog::getDataHash, (log, value) -> log.setDataHash((String) value));
+
+        private final Type type;
+        private final Function<AuditLog, Object> getter;
+        private final BiConsumer<AuditLog, Object> setter;
+
+        Column(Type type, Function<AuditLog, Object> getter, BiConsumer<AuditLog, Object> setter) {
+            this.type = type;
+            this.getter = getter;
+            this.setter = setter;
+        }
+    }
+
+    private static final Column[] COLUMNS = Column.values();
+
+    private final Path file;
+    private final ByteBuffer data;
+    private final long rowCount;
+    private final long firstTimestamp;
+    private final long firstId;
+    private final long lastTimestamp;
+    private final long lastId;
+    private final BloomFilter<CharSequence> userIds;
+    private final Group[] groups;
+
+    private AuditSegment(Path file, ByteBuffer data, long rowCount, long firstTimestamp, long firstId,
+                         long lastTimestamp, long lastId, BloomFilter<CharSequence> userIds, Group[] groups) {
+        this.file = file;
+        this.data = data;
+        this.rowCount = rowCount;
+        this.firstTimestamp = firstTimestamp;
+        this.firstId = firstId;
+        this.lastTimestamp = lastTimestamp;
+        this.lastId = lastId;
+        this.userIds = userIds;
+        this.groups = groups;
+    }
+
+    /**
+     * Map a segment file and read its footer
+     */
+    static AuditSegment open(Path file) throws IOException {
+        ByteBuffer data;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        int size = data.capacity();
+        if (size < 12 || data.getLong(size - 8) != MAGIC) {
+            throw new IOException("Not an audit segment: " + file);
+        }
+        int footerLength = data.getInt(size - 12);
+        byte[] footer = new byte[footerLength];
+        data.get(size - 12 - footerLength, footer);
+
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(footer));
+        if (in.readInt() != VERSION) {
+            throw new IOException("Unsupported audit segment version: " + file);
+        }
+        long rowCount = in.readLong();
+        long firstTimestamp = in.readLong();
+        long firstId = in.readLong();
+        long lastTimestamp = in.readLong();
+        long lastId = in.readLong();
+        BloomFilter<CharSequence> userIds = BloomFilter.readFrom(in, Funnels.stringFunnel(StandardCharsets.UTF_8));
+        Group[] groups = new Group[in.readInt()];
+        for (int g = 0; g < groups.length; g++) {
+            groups[g] = Group.read(in);
+        }
+        return new AuditSegment(file, data, rowCount, firstTimestamp, firstId, lastTimestamp, lastId,
+            userIds, groups);
+    }
+
+    Path file() {
+        return file;
+    }
+
+    long rowCount() {
+        return rowCount;
+    }
+
+    AuditLogDto.Cursor last() {
+        return new AuditLogDto.Cursor(fromMicros(lastTimestamp), lastId);
+    }
+
+    /**
+     * Ids of every row in the segment, in (timestamp, id) order
+     */
+    long[] ids() {
+        long[] ids = new long[Math.toIntExact(rowCount)];
+        int position = 0;
+        for (Group group : groups) {
+            long[] groupIds = (long[]) decode(group, Column.ID, new EnumMap<>(Column.class));
+            System.arraycopy(groupIds, 0, ids, position, groupIds.length);
+            position += groupIds.length;
+        }
+        return ids;
+    }
+
+    /**
+     * Add rows matching the filter and before the cursor to the result,
+     * newest first, until it holds limit rows
+     */
+    void search(AuditLogDto.Filter filter, AuditLogDto.Cursor after, int limit, List<AuditLog> result) {
+        Bounds bounds = new Bounds(filter, after);
+        if (!bounds.overlaps(firstTimestamp, firstId, lastTimestamp, lastId)) {
+            return;
+        }
+        if (filter.getUserId() != null && !userIds.mightContain(filter.getUserId())) {
+            return;
+        }
+
+        for (int g = groups.length - 1; g >= 0 && result.size() < limit; g--) {
+            Group group = groups[g];
+            if (bounds.before(group.lastTimestamp)) {
+                // Every earlier group is older still
+                return;
+            }
+            if (!bounds.overlaps(group.firstTimestamp, group.firstId, group.lastTimestamp, group.lastId)) {
+                continue;
+            }
+            searchGroup(group, filter, bounds, limit, result);
+        }
+    }
+
+    private void searchGroup(Group group, AuditLogDto.Filter filter, Bounds bounds, int limit,
+                             List<AuditLog> result) {
+        Map<Column, Object> columns = new EnumMap<>(Column.class);
+        long[] timestamps = (long[]) decode(group, Column.TIMESTAMP, columns);
+        long[] ids = (long[]) decode(group, Column.ID, columns);
+
+        List<Integer> matches = new ArrayList<>();
+        for (int row = group.rows - 1; row >= 0 && result.size() + matches.size() < limit; row--) {
+            if (bounds.contains(timestamps[row], ids[row]) && matches(group, filter, row, columns)) {
+                matches.add(row);
+            }
+        }
+        if (matches.isEmpty()) {
+            return;
+        }
+
+        for (Column column : COLUMNS) {
+            decode(group, column, columns);
+        }
+        for (int row : matches) {
+            AuditLog log = new AuditLog();
+            for (Column column : COLUMNS) {
+                Object values = columns.get(column);
+                column.setter.accept(log, switch (column.type) {
+                    case LONG -> ((long[]) values)[row];
+                    case BOOLEAN -> ((boolean[]) values)[row];
+                    case STRING -> ((String[]) values)[row];
+                });
+            }
+            result.add(log);
+        }
+    }
+
+    private boolean matches(Group group, AuditLogDto.Filter filter, int row, Map<Column, Object> columns) {
+        if (filter.getUserId() != null
+                && !filter.getUserId().equals(strings(group, Column.USER_ID, columns)[row])) {
+            return false;
+        }
+        if (filter.getEntityType() != null
+                && !filter.getEntityType().equals(strings(group, Column.ENTITY_TYPE, columns)[row])) {
+            return false;
+        }
+        if (filter.getEntityId() != null
+                && !filter.getEntityId().equals(strings(group, Column.ENTITY_ID, columns)[row])) {
+            return false;
+        }
+        if (filter.getActions() != null && !filter.getActions().isEmpty()
+                && !containsName(filter.getActions(), strings(group, Column.ACTION, columns)[row])) {
+            return false;
+        }
+        if (filter.getDecisions() != null && !filter.getDecisions().isEmpty()
+                && !containsName(filter.getDecisions(), strings(group, Column.ACCESS_DECISION, columns)[row])) {
+            return false;
+        }
+        return filter.getSuccess() == null
+            || filter.getSuccess() == ((boolean[]) decode(group, Column.SUCCESS, columns))[row];
+    }
+
+    private String[] strings(Group group, Column column, Map<Column, Object> columns) {
+        return (String[]) decode(group, column, columns);
+    }
+
+    /**
+     * Inflate and decode one column of a group, once
+     */
+    private Object decode(Group group, Column column, Map<Column, Object> columns) {
+        Object cached = columns.get(column);
+        if (cached != null) {
+            return cached;
+        }
+
+        byte[] raw = new byte[group.rawLengths[column.ordinal()]];
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(data.slice((int) group.offsets[column.ordinal()], group.lengths[column.ordinal()]));
+            int read = 0;
+            while (read < raw.length && !inflater.finished()) {
+                read += inflater.inflate(raw, read, raw.length - read);
+            }
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Corrupt audit segment " + file + ": " + e.getMessage(), e);
+        } finally {
+            inflater.end();
+        }
+
+        ByteBuffer in = ByteBuffer.wrap(raw);
+        Object values = switch (column.type) {
+            case LONG -> {
+                long[] longs = new long[group.rows];
+                long previous = 0;
+                for (int i = 0; i < group.rows; i++) {
+                    previous += in.getLong();
+                    longs[i] = previous;
+                }
+                yield longs;
+            }
+            case BOOLEAN -> {
+                boolean[] booleans = new boolean[group.rows];
+                for (int i = 0; i < group.rows; i++) {
+                    booleans[i] = in.get() != 0;
+                }
+                yield booleans;
+            }
+            case STRING -> {
+                String[] strings = new String[group.rows];
+                for (int i = 0; i < group.rows; i++) {
+                    int length = in.getInt();
+                    if (length >= 0) {
+                        strings[i] = new String(raw, in.position(), length, StandardCharsets.UTF_8);
+                        in.position(in.position() + length);
+                    }
+                }
+                yield strings;
+            }
+        };
+        columns.put(column, values);
+        return values;
+    }
+
+    private static boolean containsName(Set<? extends Enum<?>> values, String name) {
+        return name != null && values.stream().anyMatch(value -> value.name().equals(name));
+    }
+
+    private static String enumName(Enum<?> value) {
+        return value != null ? value.name() : null;
+    }
+
+    static long toMicros(LocalDateTime timestamp) {
+        return timestamp.toEpochSecond(ZoneOffset.UTC) * 1_000_000 + timestamp.getNano() / 1_000;
+    }
+
+    static LocalDateTime fromMicros(long micros) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(micros, 1_000_000),
+            (int) Math.floorMod(micros, 1_000_000) * 1_000, ZoneOffset.UTC);
+    }
+
+    /**
+     * Time range and cursor of a query in segment units
+     */
+    private static final class Bounds {
+        private final long from;
+        private final long to;
+        private final long afterTimestamp;
+        private final long afterId;
+
+        Bounds(AuditLogDto.Filter filter, AuditLogDto.Cursor after) {
+            this.from = filter.getFrom() != null ? toMicros(filter.getFrom()) : Long.MIN_VALUE;
+            this.to = filter.getTo() != null ? toMicros(filter.getTo()) : Long.MAX_VALUE;
+            this.afterTimestamp = after != null ? toMicros(after.timestamp()) : Long.MAX_VALUE;
+            this.afterId = after != null ? after.id() : Long.MAX_VALUE;
+        }
+
+        boolean before(long lastTimestamp) {
+            return lastTimestamp < from;
+        }
+
+        boolean overlaps(long firstTimestamp, long firstId, long lastTimestamp, long lastId) {
+            return lastTimestamp >= from && firstTimestamp <= to && precedesCursor(firstTimestamp, firstId);
+        }
+
+        boolean contains(long timestamp, long id) {
+            return timestamp >= from && timestamp <= to && precedesCursor(timestamp, id);
+        }
+
+        private boolean precedesCursor(long timestamp, long id) {
+            return timestamp < afterTimestamp || (timestamp == afterTimestamp && id < afterId);
+        }
+    }
+
+    /**
+     * Sparse index entry: a row group's range and where its columns are
+     */
+    private static final class Group {
+        private int rows;
+        private long firstTimestamp;
+        private long firstId;
+        private long lastTimestamp;
+        private long lastId;
+        private final long[] offsets = new long[COLUMNS.length];
+        private final int[] lengths = new int[COLUMNS.length];
+        private final int[] rawLengths = new int[COLUMNS.length];
+
+        static Group read(DataInputStream in) throws IOException {
+            Group group = new Group();
+            group.rows = in.readInt();
+            group.firstTimestamp = in.readLong();
+            group.firstId = in.readLong();
+            group.lastTimestamp = in.readLong();
+            group.lastId = in.readLong();
+            for (int c = 0; c < COLUMNS.length; c++) {
+                group.offsets[c] = in.readLong();
+                group.lengths[c] = in.readInt();
+                group.rawLengths[c] = in.readInt();
+            }
+            return group;
+        }
+
+        void write(DataOutputStream out) throws IOException {
+            out.writeInt(rows);
+            out.writeLong(firstTimestamp);
+            out.writeLong(firstId);
+            out.writeLong(lastTimestamp);
+            out.writeLong(lastId);
+            for (int c = 0; c < COLUMNS.length; c++) {
+                out.writeLong(offsets[c]);
+                out.writeInt(lengths[c]);
+                out.writeInt(rawLengths[c]);
+            }
+        }
+    }
+
+    /**
+     * Writes a segment one row group at a time. Rows must arrive in
+     * (timestamp, id) order. The file appears under its final name only
+     * once it is complete and synced.
+     */
+    static final class Writer implements AutoCloseable {
+
+        private final Path file;
+        private final Path temporary;
+        private final FileChannel channel;
+        private final DataOutputStream out;
+        private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        private final List<Group> groups = new ArrayList<>();
+        private final Set<String> userIds = new HashSet<>();
+        private long offset;
+        private long rowCount;
+        private long firstTimestamp;
+        private long firstId;
+        private long lastTimestamp;
+        private long lastId;
+        private boolean committed;
+
+        Writer(Path file) throws IOException {
+            this.file = file;
+            this.temporary = file.resolveSibling(file.getFileName() + ".tmp");
+            this.channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+            this.out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16));
+        }
+
+        long rowCount() {
+            return rowCount;
+        }
+
+        /**
+         * Append one row group
+         */
+        void writeGroup(List<AuditLog> rows) throws IOException {
+            if (rows.isEmpty()) {
+                return;
+            }
+            AuditLog first = rows.get(0);
+            AuditLog last = rows.get(rows.size() - 1);
+            Group group = new Group();
+            group.rows = rows.size();
+            group.firstTimestamp = toMicros(first.getTimestamp());
+            group.firstId = first.getId();
+            group.lastTimestamp = toMicros(last.getTimestamp());
+            group.lastId = last.getId();
+
+            for (Column column : COLUMNS) {
+                byte[] raw = encode(column, rows);
+                byte[] compressed = deflate(raw);
+                group.offsets[column.ordinal()] = offset;
+                group.lengths[column.ordinal()] = compressed.length;
+                group.rawLengths[column.ordinal()] = raw.length;
+                out.write(compressed);
+                offset += compressed.length;
+            }
+
+            if (groups.isEmpty()) {
+                firstTimestamp = group.firstTimestamp;
+                firstId = group.firstId;
+            }
+            lastTimestamp = group.lastTimestamp;
+            lastId = group.lastId;
+            groups.add(group);
+            rowCount += rows.size();
+            rows.forEach(row -> userIds.add(row.getUserId()));
+        }
+
+        /**
+         * Write the footer, sync and move the file into place
+         */
+        void commit() throws IOException {
+            BloomFilter<CharSequence> bloom = BloomFilter.create(
+                Funnels.stringFunnel(StandardCharsets.UTF_8), Math.max(userIds.size(), 1), BLOOM_FPP);
+            userIds.forEach(bloom::put);
+
+            ByteArrayOutputStream footerBytes = new ByteArrayOutputStream();
+            DataOutputStream footer = new DataOutputStream(footerBytes);
+            footer.writeInt(VERSION);
+            footer.writeLong(rowCount);
+            footer.writeLong(firstTimestamp);
+            footer.writeLong(firstId);
+            footer.writeLong(lastTimestamp);
+            footer.writeLong(lastId);
+            bloom.writeTo(footer);
+            footer.writeInt(groups.size());
+            for (Group group : groups) {
+                group.write(footer);
+            }
+            footer.flush();
+
+            footerBytes.writeTo(out);
+            out.writeInt(footerBytes.size());
+            out.writeLong(MAGIC);
+            out.flush();
+            channel.force(true);
+            out.close();
+            Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE);
+            committed = true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            deflater.end();
+            if (!committed) {
+                out.close();
+                Files.deleteIfExists(temporary);
+            }
+        }
+
+        private byte[] encode(Column column, List<AuditLog> rows) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(rows.size() * 16);
+            DataOutputStream data = new DataOutputStream(bytes);
+            try {
+                long previous = 0;
+                for (AuditLog row : rows) {
+                    Object value = column.getter.apply(row);
+                    switch (column.type) {
+                        case LONG -> {
+                            // Deltas of sorted values compress well
+                            long current = (Long) value;
+                            data.writeLong(current - previous);
+                            previous = current;
+                        }
+                        case BOOLEAN -> data.writeByte(Boolean.TRUE.equals(value) ? 1 : 0);
+                        case STRING -> {
+                            if (value == null) {
+                                data.writeInt(-1);
+                            } else {
+                                byte[] utf8 = ((String) value).getBytes(StandardCharsets.UTF_8);
+                                data.writeInt(utf8.length);
+                                data.write(utf8);
+                            }
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return bytes.toByteArray();
+        }
+
+        private byte[] deflate(byte[] raw) {
+            deflater.reset();
+            deflater.setInput(raw);
+            deflater.finish();
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream(Math.max(raw.length / 4, 64));
+            byte[] buffer = new byte[1 << 16];
+            while (!deflater.finished()) {
+                compressed.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return compressed.toByteArray();
+        }
+    }
+}
@@ -205,7 +205,32 @@ public class AuditService {
             String entityId,
             String details) {
 
-        AuditLog auditLog = AuditLog.builder()
+        auditLogRepository.save(event(context, action, entityType, entityId, details));
+    }
+
+    /**
+     * Synchronous log for non-critical events, for callers already running on
+     * an async thread, which must not wait for a slot on the audit executor
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void logEvent(
+            SecurityContext context,
+            AuditLog.AuditAction action,
+            String entityType,
+            String entityId,
+            String details) {
+
+        auditLogRepository.save(event(context, action, entityType, entityId, details));
+    }
+
+    private AuditLog event(
+            SecurityContext context,
+            AuditLog.AuditAction action,
+            String entityType,
+            String entityId,
+            String details) {
+
+        return AuditLog.builder()
             .userId(context.getUserId())
             .username(context.getUsername())
             .action(action)
@@ -215,8 +240,6 @@ public class AuditService {
             .timestamp(LocalDateTime.now())
             .success(true)
             .build();
-
-        auditLogRepository.save(auditLog);
     }
 
     private String serializeValue(Object value) {
@@ -0,0 +1,96 @@
+package com.enterprise.datasharing.service;
+
+import org.postgresql.copy.CopyIn;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.Arrays;
+
+/**
+ * Accumulates rows in Postgres COPY text format (tab-separated, \N for null,
+ * backslash escapes) for streaming through the pgjdbc CopyManager.
+ */
+class CopyTextBuffer {
+
+    private final StringBuilder buffer;
+    private boolean firstField = true;
+    private int rows;
+    // Buffer offset after each row
+    private int[] rowEnds = new int[64];
+
+    CopyTextBuffer(int initialCapacity) {
+        this.buffer = new StringBuilder(initialCapacity);
+    }
+
+    /**
+     * Append the next field of the current row
+     */
+    CopyTextBuffer field(Object value) {
+        if (!firstField) {
+            buffer.append('\t');
+        }
+        firstField = false;
+        if (value == null) {
+            buffer.append("\\N");
+            return this;
+        }
+        String text = value.toString();
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '\\' -> buffer.append("\\\\");
+                case '\t' -> buffer.append("\\t");
+                case '\n' -> buffer.append("\\n");
+                case '\r' -> buffer.append("\\r");
+                default -> buffer.append(c);
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Terminate the current row
+     */
+    void end() {
+        buffer.append('\n');
+        firstField = true;
+        if (rows == rowEnds.length) {
+            rowEnds = Arrays.copyOf(rowEnds, rows * 2);
+        }
+        rowEnds[rows++] = buffer.length();
+    }
+
+    int rows() {
+        return rows;
+    }
+
+    int length() {
+        return buffer.length();
+    }
+
+    /**
+     * Send the buffered rows to an open COPY and clear the buffer
+     */
+    void writeTo(CopyIn copyIn) throws SQLException {
+        if (buffer.isEmpty()) {
+            return;
+        }
+        byte[] bytes = buffer.toString().getBytes(StandardCharsets.UTF_8);
+        copyIn.writeToCopy(bytes, 0, bytes.length);
+        buffer.setLength(0);
+        rows = 0;
+    }
+
+    /**
+     * Send rows from (inclusive) to to (exclusive) to an open COPY, keeping
+     * the buffer so a failed range can be sent again
+     */
+    void writeRowsTo(CopyIn copyIn, int from, int to) throws SQLException {
+        if (from >= to) {
+            return;
+        }
+        int start = from == 0 ? 0 : rowEnds[from - 1];
+        byte[] bytes = buffer.substring(start, rowEnds[to - 1]).getBytes(StandardCharsets.UTF_8);
+        copyIn.writeToCopy(bytes, 0, bytes.length);
+    }
+}
@@ -0,0 +1,151 @@
+package com.enterprise.datasharing.service;
+
+import com.enterprise.datasharing.config.CacheInvalidationListener;
+import com.enterprise.datasharing.dto.FinancialAggregateDto;
+import com.enterprise.datasharing.entity.AuditLog;
+import com.enterprise.datasharing.exception.AccessDeniedException;
+import com.enterprise.datasharing.repository.MyDataRepository;
+import com.enterprise.datasharing.security.AccessControlService;
+import com.enterprise.datasharing.security.AccessDecision;
+import com.enterprise.datasharing.security.AccessPolicyCompiler;
+import com.enterprise.datasharing.security.CompiledAccessPolicy;
+import com.enterprise.datasharing.security.PolicyVersionTracker;
+import com.enterprise.datasharing.security.SecurityContext;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.List;
+
+/**
+ * Aggregates over financialData computed in the database.
+ *
+ * The financialData column gate is checked once per query instead of once
+ * per record, and only records readable under the caller's compiled policy
+ * are aggregated. Results are cached by compiled policy, query, policy
+ * version and data watermark, so an unchanged report is served from memory
+ * and any rule, attribute or record change produces a new key.
+ *
+ * The data watermark is the cache invalidation listener's committed
+ * version when it is connected, and otherwise the cache_invalidation_seq
+ * value, which every my_data write draws. The sequence is drawn before
+ * commit and replicas can lag, so entries also expire after a short TTL.
+ */
+@Service
+@Slf4j
+public class FinancialAggregationService {
+
+    static final String FINANCIAL_COLUMN = "financialData";
+
+    private static final String SEQUENCE_WATERMARK_QUERY =
+        "SELECT CASE WHEN is_called THEN last_value ELSE last_value - 1 END FROM cache_invalidation_seq";
+
+    private final MyDataRepository myDataRepository;
+    private final AccessControlService accessControlService;
+    private final AccessPolicyCompiler accessPolicyCompiler;
+    private final PolicyVersionTracker policyVersionTracker;
+    private final AuditService auditService;
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectProvider<CacheInvalidationListener> cacheInvalidationListener;
+    private final Cache<ResultKey, FinancialAggregateDto.Response> results;
+
+    public FinancialAggregationService(
+            MyDataRepository myDataRepository,
+            AccessControlService accessControlService,
+            AccessPolicyCompiler accessPolicyCompiler,
+            PolicyVersionTracker policyVersionTracker,
+            AuditService auditService,
+            JdbcTemplate jdbcTemplate,
+            ObjectProvider<CacheInvalidationListener> cacheInvalidationListener,
+            @Value("${app.financial-aggregation.cache-size:10000}") long cacheSize,
+            @Value("${app.financial-aggregation.cache-ttl:PT1M}") Duration cacheTtl) {
+        this.myDataRepository = myDataRepository;
+        this.accessControlService = accessControlService;
+        this.accessPolicyCompiler = accessPolicyCompiler;
+        this.policyVersionTracker = policyVersionTracker;
+        this.auditService = auditService;
+        this.jdbcTemplate = jdbcTemplate;
+        this.cacheInvalidationListener = cacheInvalidationListener;
+        this.results = CacheBuilder.newBuilder()
+            .maximumSize(cacheSize)
+            .expireAfterWrite(cacheTtl)
+            .build();
+    }
+
+    /**
+     * Aggregate a financialData field over the caller's readable records
+     */
+    public FinancialAggregateDto.Response aggregate(
+            SecurityContext securityContext,
+            FinancialAggregateDto.Query query,
+            HttpServletRequest httpRequest) {
+
+        if (!accessControlService.getVisibleColumns(securityContext, null).contains(FINANCIAL_COLUMN)) {
+            AccessDecision decision = AccessDecision.builder()
+                .userId(securityContext.getUserId())
+                .operation(AccessControlService.AccessOperation.READ)
+                .allowed(false)
+                .denialReason(AuditLog.AccessDecision.DENIED_COLUMN_LEVEL)
+                .denialDetails("Column " + FINANCIAL_COLUMN + " is not visible to the user")
+                .build();
+            auditService.logAccessDenied(securityContext, "MyData", null, AuditLog.AuditAction.BULK_READ, decision);
+            throw new AccessDeniedException("Access denied for financial aggregation: " + decision.getDenialDetails());
+        }
+
+        // Versions are read before compiling, so a change during compilation leaves the entry under the old key
+        long policyVersion = policyVersionTracker.current();
+        long dataWatermark = dataWatermark();
+        CompiledAccessPolicy policy = accessPolicyCompiler.compile(
+            securityContext, AccessControlService.AccessOperation.READ, httpRequest);
+
+        ResultKey key = new ResultKey(policy, query, policyVersion, dataWatermark);
+        FinancialAggregateDto.Response response = results.getIfPresent(key);
+        if (response == null) {
+            long start = System.nanoTime();
+            List<FinancialAggregateDto.Group> groups = myDataRepository.aggregateFinancialData(policy, query);
+            response = FinancialAggregateDto.Response.builder()
+                .field(query.field())
+                .groupBy(query.groupBy())
+                .from(query.from())
+                .to(query.to())
+                .groups(groups)
+                .totalCount(groups.stream().mapToLong(FinancialAggregateDto.Group::getCount).sum())
+                .policyVersion(policyVersion)
+                .dataWatermark(dataWatermark)
+                .computedAt(OffsetDateTime.now())
+                .build();
+            results.put(key, response);
+            log.debug("Aggregated {} by {} for user {} in {} ms", query.field(), query.groupBy(),
+                securityContext.getUsername(), Duration.ofNanos(System.nanoTime() - start).toMillis());
+        }
+
+        auditService.logAsync(securityContext, AuditLog.AuditAction.BULK_READ, "MyData", null,
+            "Aggregated " + FINANCIAL_COLUMN + "." + query.field() + " by " + query.groupBy()
+                + " over " + response.getTotalCount() + " records");
+        return response;
+    }
+
+    private long dataWatermark() {
+        CacheInvalidationListener listener = cacheInvalidationListener.getIfAvailable();
+        if (listener != null && listener.isConnected()) {
+            return listener.getWatermark();
+        }
+        Long watermark = jdbcTemplate.queryForObject(SEQUENCE_WATERMARK_QUERY, Long.class);
+        return watermark != null ? watermark : 0;
+    }
+
+    /**
+     * The compiled policy carries everything about the caller that decides
+     * which records are readable
+     */
+    private record ResultKey(CompiledAccessPolicy policy, FinancialAggregateDto.Query query,
+                             long policyVersion, long dataWatermark) {
+    }
+}
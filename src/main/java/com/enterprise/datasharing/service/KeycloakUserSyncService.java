@@ -0,0 +1,313 @@
+package com.enterprise.datasharing.service;
+
+import com.enterprise.datasharing.config.CacheInvalidationHandler;
+import com.enterprise.datasharing.entity.UserAttribute;
+import lombok.extern.slf4j.Slf4j;
+import org.keycloak.admin.client.Keycloak;
+import org.keycloak.representations.idm.UserRepresentation;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Array;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Synchronizes user_attribute from Keycloak users.
+ *
+ * One run pages through all Keycloak users, derives the manager hierarchy
+ * for the whole set in one pass (a user is a manager if flagged or if any
+ * user names them as manager_id), and compares a content hash of every
+ * user against a hash of the same columns read from user_attribute in a
+ * single query. Only changed users are written, with batched
+ * INSERT ... ON CONFLICT upserts. With deactivate-missing, users that
+ * disappeared from Keycloak are deactivated, but only when the listing is
+ * complete: the user count before and after paging must match the distinct
+ * users fetched, since users created or deleted while paging shift the
+ * offsets. The custom attributes column is never touched.
+ */
+@Service
+@ConditionalOnProperty(prefix = "app.keycloak-sync", name = "enabled", havingValue = "true")
+@Slf4j
+public class KeycloakUserSyncService {
+
+    private static final String SELECT_EXISTING = """
+        SELECT user_id, username, email, department, team, clearance_level, organization_level,
+               manager_id, is_manager, is_department_head, is_executive, active
+        FROM user_attribute
+        """;
+
+    private static final String UPSERT = """
+        INSERT INTO user_attribute (user_id, username, email, department, team, clearance_level,
+            organization_level, manager_id, is_manager, is_department_head, is_executive, active)
+        VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+        ON CONFLICT (user_id) DO UPDATE SET
+            username = EXCLUDED.username,
+            email = EXCLUDED.email,
+            department = EXCLUDED.department,
+            team = EXCLUDED.team,
+            clearance_level = EXCLUDED.clearance_level,
+            organization_level = EXCLUDED.organization_level,
+            manager_id = EXCLUDED.manager_id,
+            is_manager = EXCLUDED.is_manager,
+            is_department_head = EXCLUDED.is_department_head,
+            is_executive = EXCLUDED.is_executive,
+            active = EXCLUDED.active
+        """;
+
+    private static final String DEACTIVATE =
+        "UPDATE user_attribute SET active = false WHERE active = true AND user_id = ANY (?)";
+
+    private final Keycloak keycloak;
+    private final JdbcTemplate jdbcTemplate;
+    private final CacheInvalidationHandler cacheInvalidationHandler;
+    private final String realm;
+    private final int pageSize;
+    private final int batchSize;
+    private final boolean deactivateMissing;
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    public KeycloakUserSyncService(
+            Keycloak keycloak,
+            JdbcTemplate jdbcTemplate,
+            CacheInvalidationHandler cacheInvalidationHandler,
+            @Value("${keycloak.realm}") String realm,
+            @Value("${app.keycloak-sync.page-size:500}") int pageSize,
+            @Value("${app.keycloak-sync.batch-size:1000}") int batchSize,
+            @Value("${app.keycloak-sync.deactivate-missing:false}") boolean deactivateMissing) {
+        this.keycloak = keycloak;
+        this.jdbcTemplate = jdbcTemplate;
+        this.cacheInvalidationHandler = cacheInvalidationHandler;
+        this.realm = realm;
+        this.pageSize = pageSize;
+        this.batchSize = batchSize;
+        this.deactivateMissing = deactivateMissing;
+    }
+
+    @Scheduled(
+        initialDelayString = "${app.keycloak-sync.initial-delay:PT1M}",
+        fixedDelayString = "${app.keycloak-sync.interval:PT15M}")
+    public void scheduledSync() {
+        try {
+            sync();
+        } catch (Exception e) {
+            log.error("Keycloak user sync failed: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Run one sync; empty if a run is already in progress
+     */
+    public Optional<SyncResult> sync() {
+        if (!running.compareAndSet(false, true)) {
+            return Optional.empty();
+        }
+        try {
+            long start = System.nanoTime();
+
+            int countBefore = keycloak.realm(realm).users().count();
+            List<UserRepresentation> representations = fetchUsers();
+            int countAfter = keycloak.realm(realm).users().count();
+            List<SyncedUser> users = resolveHierarchy(representations);
+            Map<String, String> existing = loadExistingHashes();
+
+            List<SyncedUser> changed = users.stream()
+                .filter(user -> !user.contentHash().equals(existing.get(user.userId())))
+                .toList();
+            upsert(changed);
+
+            int deactivated = 0;
+            if (deactivateMissing) {
+                Set<String> seen = new HashSet<>();
+                representations.forEach(representation -> seen.add(representation.getId()));
+                if (!seen.isEmpty() && seen.size() == countBefore && seen.size() == countAfter) {
+                    Set<String> synced = new HashSet<>();
+                    users.forEach(user -> synced.add(user.userId()));
+                    List<String> missing = existing.keySet().stream()
+                        .filter(userId -> !synced.contains(userId))
+                        .toList();
+                    deactivated = deactivate(missing);
+                } else {
+                    log.warn("Keycloak listing incomplete ({} distinct users fetched, count {} before and {} after),"
+                        + " not deactivating missing users", seen.size(), countBefore, countAfter);
+                }
+            }
+
+            if (!changed.isEmpty() || deactivated > 0) {
+                cacheInvalidationHandler.evictAll();
+            }
+
+            SyncResult result = new SyncResult(users.size(), changed.size(),
+                users.size() - changed.size(), deactivated, Duration.ofNanos(System.nanoTime() - start));
+            log.info("Keycloak user sync: {}", result);
+            return Optional.of(result);
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private List<UserRepresentation> fetchUsers() {
+        List<UserRepresentation> users = new ArrayList<>();
+        int first = 0;
+        while (true) {
+            List<UserRepresentation> page = keycloak.realm(realm).users().list(first, pageSize);
+            users.addAll(page);
+            if (page.size() < pageSize) {
+                return users;
+            }
+            first += pageSize;
+        }
+    }
+
+    /**
+     * Map Keycloak users and derive manager flags across the full set
+     */
+    private List<SyncedUser> resolveHierarchy(List<UserRepresentation> representations) {
+        Set<String> managerIds = new HashSet<>();
+        for (UserRepresentation representation : representations) {
+            String managerId = representation.firstAttribute("manager_id");
+            if (managerId != null) {
+                managerIds.add(managerId);
+            }
+        }
+
+        List<SyncedUser> users = new ArrayList<>(representations.size());
+        for (UserRepresentation representation : representations) {
+            String userId = Optional.ofNullable(representation.firstAttribute("user_id"))
+                .orElse(representation.getId());
+            users.add(new SyncedUser(
+                userId,
+                representation.getUsername(),
+                representation.getEmail(),
+                representation.firstAttribute("department"),
+                representation.firstAttribute("team"),
+                parseEnum(UserAttribute.ClearanceLevel.class,
+                    representation.firstAttribute("clearance_level"), UserAttribute.ClearanceLevel.PUBLIC),
+                parseEnum(UserAttribute.OrganizationLevel.class,
+                    representation.firstAttribute("organization_level"), UserAttribute.OrganizationLevel.INDIVIDUAL),
+                representation.firstAttribute("manager_id"),
+                isTrue(representation.firstAttribute("is_manager")) || managerIds.contains(userId),
+                isTrue(representation.firstAttribute("is_department_head")),
+                isTrue(representation.firstAttribute("is_executive")),
+                !Boolean.FALSE.equals(representation.isEnabled())));
+        }
+        return users;
+    }
+
+    private Map<String, String> loadExistingHashes() {
+        Map<String, String> hashes = new HashMap<>();
+        jdbcTemplate.query(SELECT_EXISTING, rs -> {
+            SyncedUser user = new SyncedUser(
+                rs.getString("user_id"),
+                rs.getString("username"),
+                rs.getString("email"),
+                rs.getString("department"),
+                rs.getString("team"),
+                rs.getString("clearance_level"),
+                rs.getString("organization_level"),
+                rs.getString("manager_id"),
+                rs.getBoolean("is_manager"),
+                rs.getBoolean("is_department_head"),
+                rs.getBoolean("is_executive"),
+                rs.getBoolean("active"));
+            hashes.put(user.userId(), user.contentHash());
+        });
+        return hashes;
+    }
+
+    private void upsert(List<SyncedUser> users) {
+        jdbcTemplate.batchUpdate(UPSERT, users, batchSize, (ps, user) -> {
+            ps.setString(1, user.userId());
+            ps.setString(2, user.username());
+            ps.setString(3, user.email());
+            ps.setString(4, user.department());
+            ps.setString(5, user.team());
+            ps.setString(6, user.clearanceLevel());
+            ps.setString(7, user.organizationLevel());
+            ps.setString(8, user.managerId());
+            ps.setBoolean(9, user.manager());
+            ps.setBoolean(10, user.departmentHead());
+            ps.setBoolean(11, user.executive());
+            ps.setBoolean(12, user.active());
+        });
+    }
+
+    private int deactivate(List<String> userIds) {
+        int deactivated = 0;
+        for (int from = 0; from < userIds.size(); from += batchSize) {
+            List<String> chunk = userIds.subList(from, Math.min(from + batchSize, userIds.size()));
+            deactivated += jdbcTemplate.update(DEACTIVATE, ps -> {
+                Array array = ps.getConnection().createArrayOf("varchar", chunk.toArray());
+                ps.setArray(1, array);
+            });
+        }
+        return deactivated;
+    }
+
+    private static <E extends Enum<E>> String parseEnum(Class<E> type, String value, E defaultValue) {
+        if (value == null) {
+            return defaultValue.name();
+        }
+        try {
+            return Enum.valueOf(type, value.toUpperCase()).name();
+        } catch (IllegalArgumentException e) {
+            return defaultValue.name();
+        }
+    }
+
+    private static boolean isTrue(String value) {
+        return Boolean.parseBoolean(value);
+    }
+
+    /**
+     * The synchronized columns of one user
+     */
+    private record SyncedUser(
+            String userId,
+            String username,
+            String email,
+            String department,
+            String team,
+            String clearanceLevel,
+            String organizationLevel,
+            String managerId,
+            boolean manager,
+            boolean departmentHead,
+            boolean executive,
+            boolean active) {
+
+        String contentHash() {
+            String content = String.join("\u001f",
+                username, String.valueOf(email), String.valueOf(department), String.valueOf(team),
+                clearanceLevel, organizationLevel, String.valueOf(managerId),
+                String.valueOf(manager), String.valueOf(departmentHead), String.valueOf(executive),
+                String.valueOf(active));
+            try {
+                MessageDigest md = MessageDigest.getInstance("SHA-256");
+                return HexFormat.of().formatHex(md.digest(content.getBytes(StandardCharsets.UTF_8)));
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException("SHA-256 not available", e);
+            }
+        }
+    }
+
+    /**
+     * Outcome of one sync run
+     */
+    public record SyncResult(int fetched, int upserted, int unchanged, int deactivated, Duration duration) {
+    }
+}
@@ -0,0 +1,88 @@
+package com.enterprise.datasharing.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Maintenance of the materialized my_data_acl table.
+ *
+ * Incremental upkeep happens in the database: statement-level triggers on
+ * my_data, user_attribute and data_access_control call refresh_my_data_acl
+ * for the affected records (changeset 010). A full rebuild splits the id
+ * range into batches and refreshes them in parallel, each batch in its own
+ * transaction.
+ */
+@Service
+@Slf4j
+public class MyDataAclService {
+
+    private static final String REFRESH_RANGE =
+        "SELECT refresh_my_data_acl(ARRAY(SELECT id FROM my_data WHERE id BETWEEN ? AND ?))";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int batchSize;
+    private final int parallelism;
+
+    public MyDataAclService(
+            JdbcTemplate jdbcTemplate,
+            @Value("${app.security.acl.rebuild-batch-size:5000}") int batchSize,
+            @Value("${app.security.acl.rebuild-parallelism:4}") int parallelism) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.batchSize = batchSize;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Recompute the ACL of every record
+     */
+    public RebuildResult rebuild() {
+        long start = System.nanoTime();
+        Map<String, Object> bounds = jdbcTemplate.queryForMap("SELECT min(id) AS min_id, max(id) AS max_id FROM my_data");
+        Number minId = (Number) bounds.get("min_id");
+        Number maxId = (Number) bounds.get("max_id");
+
+        int batches = 0;
+        if (minId != null) {
+            try (ExecutorService executor = Executors.newFixedThreadPool(parallelism)) {
+                List<Future<?>> futures = new ArrayList<>();
+                for (long from = minId.longValue(); from <= maxId.longValue(); from += batchSize) {
+                    long batchFrom = from;
+                    long batchTo = from + batchSize - 1;
+                    futures.add(executor.submit(() -> jdbcTemplate.query(REFRESH_RANGE, rs -> { }, batchFrom, batchTo)));
+                }
+                for (Future<?> future : futures) {
+                    future.get();
+                }
+                batches = futures.size();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("ACL rebuild interrupted", e);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("ACL rebuild failed: " + e.getCause().getMessage(), e.getCause());
+            }
+        }
+
+        Long entries = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM my_data_acl", Long.class);
+        RebuildResult result = new RebuildResult(batches, entries != null ? entries : 0,
+            Duration.ofNanos(System.nanoTime() - start));
+        log.info("Rebuilt my_data_acl: {}", result);
+        return result;
+    }
+
+    /**
+     * Outcome of a full rebuild
+     */
+    public record RebuildResult(int batches, long entries, Duration duration) {
+    }
+}
@@ -0,0 +1,142 @@
+package com.enterprise.datasharing.service;
+
+import com.enterprise.datasharing.dto.RecordCountDto;
+import com.enterprise.datasharing.entity.MyData;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Record counts per (organization level, department, team, sensitivity,
+ * deleted) from the incrementally maintained my_data_counter.
+ *
+ * Triggers on my_data append deltas in the writing transaction (changeset
+ * 016); merge folds them into the counters on a fixed delay. A read sums the
+ * counters and the pending deltas, so it reflects every committed write and
+ * touches one row per key, however large my_data is. The exact mode counts
+ * my_data itself.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class MyDataCounterService {
+
+    private static final String MERGE = """
+        WITH claimed AS (
+            SELECT id FROM my_data_counter_delta
+            FOR UPDATE SKIP LOCKED
+        ), merged AS (
+            DELETE FROM my_data_counter_delta d
+            USING claimed
+            WHERE d.id = claimed.id
+            RETURNING d.organization_level, d.owner_department, d.owner_team, d.sensitivity_level, d.deleted,
+                d.delta
+        )
+        INSERT INTO my_data_counter (organization_level, owner_department, owner_team, sensitivity_level, deleted,
+            record_count)
+        SELECT organization_level, owner_department, owner_team, sensitivity_level, deleted, sum(delta)
+        FROM merged
+        GROUP BY organization_level, owner_department, owner_team, sensitivity_level, deleted
+        ORDER BY organization_level, owner_department, owner_team, sensitivity_level, deleted
+        ON CONFLICT (organization_level, owner_department, owner_team, sensitivity_level, deleted)
+        DO UPDATE SET record_count = my_data_counter.record_count + EXCLUDED.record_count
+        """;
+
+    private static final String COUNTED = """
+        SELECT organization_level, owner_department, owner_team, sensitivity_level, deleted, sum(record_count)
+        FROM (
+            SELECT organization_level, owner_department, owner_team, sensitivity_level, deleted, record_count
+            FROM my_data_counter
+            UNION ALL
+            SELECT organization_level, owner_department, owner_team, sensitivity_level, deleted, delta
+            FROM my_data_counter_delta
+        ) counts
+        GROUP BY 1, 2, 3, 4, 5
+        HAVING sum(record_count) <> 0
+        ORDER BY 1, 2, 3, 4, 5
+        """;
+
+    private static final String EXACT = """
+        SELECT organization_level, coalesce(owner_department, ''), coalesce(owner_team, ''), sensitivity_level,
+            deleted, count(*)
+        FROM my_data
+        GROUP BY 1, 2, 3, 4, 5
+        ORDER BY 1, 2, 3, 4, 5
+        """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Record counts, summed from the counters or, when exact, counted on my_data
+     */
+    @Transactional(readOnly = true)
+    public RecordCountDto.Response counts(boolean exact) {
+        List<RecordCountDto.Entry> entries = jdbcTemplate.query(exact ? EXACT : COUNTED, (rs, rowNum) ->
+            RecordCountDto.Entry.builder()
+                .organizationLevel(MyData.OrganizationLevel.valueOf(rs.getString(1)))
+                .department(rs.getString(2))
+                .team(rs.getString(3))
+                .sensitivityLevel(MyData.SensitivityLevel.valueOf(rs.getString(4)))
+                .deleted(rs.getBoolean(5))
+                .count(rs.getLong(6))
+                .build());
+
+        Map<MyData.OrganizationLevel, Long> liveByLevel = new EnumMap<>(MyData.OrganizationLevel.class);
+        long total = 0;
+        for (RecordCountDto.Entry entry : entries) {
+            total += entry.getCount();
+            if (!entry.isDeleted()) {
+                liveByLevel.merge(entry.getOrganizationLevel(), entry.getCount(), Long::sum);
+            }
+        }
+        return RecordCountDto.Response.builder()
+            .exact(exact)
+            .entries(entries)
+            .total(total)
+            .live(liveByLevel.values().stream().mapToLong(Long::longValue).sum())
+            .liveByOrganizationLevel(liveByLevel)
+            .computedAt(OffsetDateTime.now())
+            .build();
+    }
+
+    /**
+     * Fold pending deltas into the counters. Deltas are claimed with
+     * FOR UPDATE SKIP LOCKED, so a concurrent merge on another node folds
+     * only the deltas this one did not claim instead of waiting on them.
+     * Counters are upserted in key order, so two merges never deadlock.
+     */
+    @Scheduled(fixedDelayString = "${app.counters.merge-interval:PT10S}")
+    public int merge() {
+        int keys = jdbcTemplate.update(MERGE);
+        if (keys > 0) {
+            log.debug("Merged counter deltas into {} keys", keys);
+        }
+        return keys;
+    }
+
+    /**
+     * Recount my_data into the counters, blocking writes to my_data meanwhile
+     */
+    public RebuildResult rebuild() {
+        long start = System.nanoTime();
+        Long keys = jdbcTemplate.queryForObject("SELECT rebuild_my_data_counters()", Long.class);
+        RebuildResult result = new RebuildResult(keys != null ? keys : 0, Duration.ofNanos(System.nanoTime() - start));
+        log.info("Rebuilt my_data_counter: {}", result);
+        return result;
+    }
+
+    /**
+     * Outcome of a full recount
+     */
+    public record RebuildResult(long keys, Duration duration) {
+    }
+}
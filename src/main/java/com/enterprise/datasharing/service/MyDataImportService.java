@@ -0,0 +1,688 @@
+package com.enterprise.datasharing.service;
+
+import com.enterprise.datasharing.config.ReadYourWritesTracker;
+import com.enterprise.datasharing.dto.MyDataDto;
+import com.enterprise.datasharing.entity.AuditLog;
+import com.enterprise.datasharing.entity.MyData;
+import com.enterprise.datasharing.entity.UserAttribute;
+import com.enterprise.datasharing.exception.ResourceNotFoundException;
+import com.enterprise.datasharing.security.AccessControlService;
+import com.enterprise.datasharing.security.AccessPolicyCompiler;
+import com.enterprise.datasharing.security.CompiledAccessPolicy;
+import com.enterprise.datasharing.security.SecurityContext;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import jakarta.annotation.PreDestroy;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Bulk import of MyData rows from CSV or NDJSON uploads.
+ *
+ * The upload is parsed incrementally. The CREATE policy is compiled once per
+ * upload and applied to every row together with the clearance-based field
+ * stripping of MyDataService.create. Accepted rows are written with COPY in
+ * chunks of chunk-rows; while one chunk is copied on its own connection the
+ * next one is parsed. Each chunk commits on its own. A chunk the server
+ * rejects for a data error is copied again in halves until the offending
+ * rows are isolated, so only those rows are rejected. Every chunk produces
+ * one summarized audit record.
+ *
+ * Rejected rows are written as NDJSON to a per-import error file, readable
+ * by the uploader only and deleted after the retention period.
+ */
+@Service
+@Slf4j
+public class MyDataImportService {
+
+    private static final String COPY_DATA = """
+        COPY my_data (name, date, data, sensitivity_level, organization_level, owner_id, owner_department,
+            owner_team, confidential_notes, financial_data, metadata, created_at, updated_at, created_by,
+            updated_by, deleted, version)
+        FROM STDIN
+        """;
+
+    private static final Set<String> CSV_COLUMNS = Set.of(
+        "name", "date", "data", "organizationlevel", "sensitivitylevel",
+        "confidentialnotes", "financialdata", "metadata");
+
+    public enum Format {
+        CSV,
+        NDJSON
+    }
+
+    private final DataSource dataSource;
+    private final AccessPolicyCompiler accessPolicyCompiler;
+    private final AuditService auditService;
+    private final ReadYourWritesTracker readYourWritesTracker;
+    private final ObjectMapper objectMapper;
+    private final ObjectReader createRequestReader;
+    private final Validator validator;
+    private final ExecutorService copyExecutor = Executors.newVirtualThreadPerTaskExecutor();
+    private final int chunkRows;
+    private final Path errorDirectory;
+    private final Duration errorRetention;
+
+    public MyDataImportService(
+            DataSource dataSource,
+            AccessPolicyCompiler accessPolicyCompiler,
+            AuditService auditService,
+            ReadYourWritesTracker readYourWritesTracker,
+            ObjectMapper objectMapper,
+            Validator validator,
+            @Value("${app.data-import.chunk-rows:10000}") int chunkRows,
+            @Value("${app.data-import.error-directory:${java.io.tmpdir}/data-import-errors}") Path errorDirectory,
+            @Value("${app.data-import.error-retention:P7D}") Duration errorRetention) {
+        this.dataSource = dataSource;
+        this.accessPolicyCompiler = accessPolicyCompiler;
+        this.auditService = auditService;
+        this.readYourWritesTracker = readYourWritesTracker;
+        this.objectMapper = objectMapper;
+        this.createRequestReader = objectMapper.readerFor(MyDataDto.CreateRequest.class);
+        this.validator = validator;
+        this.chunkRows = chunkRows;
+        this.errorDirectory = errorDirectory;
+        this.errorRetention = errorRetention;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        copyExecutor.shutdownNow();
+    }
+
+    /**
+     * Import an upload owned by the caller
+     */
+    public MyDataDto.ImportResult importData(
+            SecurityContext context,
+            Format format,
+            InputStream input,
+            HttpServletRequest httpRequest) throws IOException {
+
+        long start = System.nanoTime();
+        String importId = UUID.randomUUID().toString();
+        Reader reader = new InputStreamReader(input, StandardCharsets.UTF_8);
+        RowSource rows = format == Format.CSV ? new CsvRowSource(reader) : new NdjsonRowSource(reader);
+
+        Import upload = new Import(importId, context,
+            accessPolicyCompiler.compile(context, AccessControlService.AccessOperation.CREATE, httpRequest));
+        try {
+            ParsedRow row;
+            while ((row = rows.next()) != null) {
+                upload.accept(row);
+            }
+            upload.finish();
+        } finally {
+            upload.closeErrors();
+        }
+
+        if (upload.imported > 0) {
+            readYourWritesTracker.recordWrite(context.getUserId());
+        }
+
+        long durationMs = Duration.ofNanos(System.nanoTime() - start).toMillis();
+        MyDataDto.ImportResult result = MyDataDto.ImportResult.builder()
+            .importId(importId)
+            .rowsRead(upload.read)
+            .rowsImported(upload.imported)
+            .rowsRejected(upload.rejected)
+            .fieldsStripped(upload.stripped)
+            .chunks(upload.chunkNumber)
+            .durationMs(durationMs)
+            .rowsPerSecond(durationMs > 0 ? upload.read * 1000 / durationMs : upload.read)
+            .errorsUri(upload.rejected > 0 ? "/api/v1/data/import/" + importId + "/errors" : null)
+            .build();
+        log.info("Import {} by user {}: {}", importId, context.getUsername(), result);
+        return result;
+    }
+
+    /**
+     * The error file of one of the caller's imports
+     */
+    public Path errorFile(SecurityContext context, String importId) {
+        Path file = errorPath(context, UUID.fromString(importId).toString());
+        if (!Files.isRegularFile(file)) {
+            throw new ResourceNotFoundException("ImportErrors", importId);
+        }
+        return file;
+    }
+
+    /**
+     * Delete error files older than the retention period
+     */
+    @Scheduled(fixedDelayString = "${app.data-import.error-cleanup-interval:PT1H}")
+    public void deleteExpiredErrorFiles() {
+        if (!Files.isDirectory(errorDirectory)) {
+            return;
+        }
+        Instant cutoff = Instant.now().minus(errorRetention);
+        int deleted = 0;
+        try (Stream<Path> files = Files.find(errorDirectory, 2, (path, attributes) -> attributes.isRegularFile()
+                && path.getFileName().toString().endsWith(".ndjson")
+                && attributes.lastModifiedTime().toInstant().isBefore(cutoff))) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                if (Files.deleteIfExists(file)) {
+                    deleted++;
+                }
+            }
+        } catch (IOException | UncheckedIOException e) {
+            log.warn("Failed to delete expired import error files: {}", e.getMessage());
+        }
+        if (deleted > 0) {
+            log.info("Deleted {} import error files older than {}", deleted, errorRetention);
+        }
+    }
+
+    private Path errorPath(SecurityContext context, String importId) {
+        // Hash the user id so it can be used as a directory name
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256")
+                .digest(context.getUserId().getBytes(StandardCharsets.UTF_8));
+            return errorDirectory.resolve(HexFormat.of().formatHex(digest)).resolve(importId + ".ndjson");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Copy rows from (inclusive) to to (exclusive) of a chunk on their own
+     * connection and commit them
+     */
+    private void copy(CopyTextBuffer chunk, int from, int to) throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(true);
+            CopyIn copyIn = connection.unwrap(PGConnection.class).getCopyAPI().copyIn(COPY_DATA);
+            try {
+                chunk.writeRowsTo(copyIn, from, to);
+                copyIn.endCopy();
+            } finally {
+                if (copyIn.isActive()) {
+                    copyIn.cancelCopy();
+                }
+            }
+        }
+    }
+
+    /**
+     * State of one upload: the current chunk, the chunk being copied and the totals
+     */
+    private class Import {
+
+        private final String importId;
+        private final SecurityContext context;
+        private final CompiledAccessPolicy policy;
+        private final boolean confidentialClearance;
+        private final boolean secretClearance;
+
+        private CopyTextBuffer chunk = new CopyTextBuffer(1 << 16);
+        private List<Long> chunkLines = new ArrayList<>();
+        private Future<?> pending;
+        private CopyTextBuffer pendingChunk;
+        private List<Long> pendingLines;
+        private long pendingRejected;
+        private long rejectedSinceChunk;
+        private BufferedWriter errors;
+
+        private long read;
+        private long imported;
+        private long rejected;
+        private long stripped;
+        private int chunkNumber;
+
+        Import(String importId, SecurityContext context, CompiledAccessPolicy policy) {
+            this.importId = importId;
+            this.context = context;
+            this.policy = policy;
+            this.confidentialClearance = context.hasClearance(UserAttribute.ClearanceLevel.CONFIDENTIAL);
+            this.secretClearance = context.hasClearance(UserAttribute.ClearanceLevel.SECRET);
+        }
+
+        void accept(ParsedRow row) throws IOException {
+            read++;
+            if (row.error() != null) {
+                reject(row.line(), row.error());
+                return;
+            }
+
+            MyDataDto.CreateRequest request = row.request();
+            Set<ConstraintViolation<MyDataDto.CreateRequest>> violations = validator.validate(request);
+            if (!violations.isEmpty()) {
+                reject(row.line(), violations.stream()
+                    .map(ConstraintViolation::getMessage)
+                    .sorted()
+                    .collect(Collectors.joining("; ")));
+                return;
+            }
+
+            MyData.SensitivityLevel sensitivity = request.getSensitivityLevel() != null
+                ? request.getSensitivityLevel() : MyData.SensitivityLevel.INTERNAL;
+            if (!policy.permitsOwnNewRecord(request.getOrganizationLevel(), sensitivity)) {
+                reject(row.line(), "Access denied for CREATE: organization level "
+                    + request.getOrganizationLevel() + " with sensitivity " + sensitivity + " is not permitted");
+                return;
+            }
+
+            // Same clearance stripping as a single create
+            String confidentialNotes = request.getConfidentialNotes();
+            if (confidentialNotes != null && !confidentialClearance) {
+                confidentialNotes = null;
+                stripped++;
+            }
+            String financialData = request.getFinancialData();
+            if (financialData != null && !secretClearance) {
+                financialData = null;
+                stripped++;
+            }
+
+            LocalDateTime now = LocalDateTime.now();
+            chunk.field(request.getName())
+                .field(request.getDate())
+                .field(request.getData())
+                .field(sensitivity)
+                .field(request.getOrganizationLevel())
+                .field(context.getUserId())
+                .field(context.getDepartment())
+                .field(context.getTeam())
+                .field(confidentialNotes)
+                .field(financialData)
+                .field(request.getMetadata())
+                .field(now)
+                .field(now)
+                .field(context.getUserId())
+                .field(context.getUserId())
+                .field(false)
+                .field(0)
+                .end();
+            chunkLines.add(row.line());
+
+            if (chunk.rows() >= chunkRows) {
+                submitChunk();
+            }
+        }
+
+        void finish() throws IOException {
+            if (chunk.rows() > 0) {
+                submitChunk();
+            }
+            completePending();
+        }
+
+        /**
+         * Start copying the current chunk once the previous one has finished
+         */
+        private void submitChunk() throws IOException {
+            completePending();
+            CopyTextBuffer submitted = chunk;
+            pendingChunk = submitted;
+            pendingLines = chunkLines;
+            pendingRejected = rejectedSinceChunk;
+            rejectedSinceChunk = 0;
+            pending = copyExecutor.submit(() -> {
+                copy(submitted, 0, submitted.rows());
+                return null;
+            });
+            chunk = new CopyTextBuffer(1 << 16);
+            chunkLines = new ArrayList<>(pendingLines.size());
+        }
+
+        /**
+         * Wait for the chunk being copied, then count and audit it
+         */
+        private void completePending() throws IOException {
+            if (pending == null) {
+                return;
+            }
+            chunkNumber++;
+            int rows = pendingLines.size();
+            int copied = rows;
+            String error = null;
+            try {
+                pending.get();
+            } catch (ExecutionException e) {
+                error = "COPY failed: " + e.getCause().getMessage();
+                log.warn("Import {} chunk {} failed: {}", importId, chunkNumber, e.getCause().getMessage());
+                copied = isolateFailures(0, rows, e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Import " + importId + " interrupted", e);
+            }
+
+            imported += copied;
+            rejected += rows - copied;
+            pendingRejected += rows - copied;
+
+            Map<String, Object> summary = new LinkedHashMap<>();
+            summary.put("importId", importId);
+            summary.put("chunk", chunkNumber);
+            summary.put("firstLine", pendingLines.get(0));
+            summary.put("lastLine", pendingLines.get(rows - 1));
+            summary.put("rowsImported", copied);
+            summary.put("rowsRejected", pendingRejected);
+            auditService.logDataAccess(context, AuditLog.AuditAction.BULK_CREATE, "MyData",
+                importId + ":" + chunkNumber, null, summary, null, copied == rows, error);
+
+            pending = null;
+            pendingChunk = null;
+            pendingLines = null;
+        }
+
+        /**
+         * Handle a failed copy of rows from (inclusive) to to (exclusive) of the
+         * pending chunk. A data error is narrowed down by copying each half again,
+         * so only the offending rows are rejected; any other failure (connection,
+         * server) rejects the whole range. Returns the number of rows copied.
+         */
+        private int isolateFailures(int from, int to, Throwable failure) throws IOException {
+            if (to - from > 1 && isRowError(failure)) {
+                int middle = (from + to) >>> 1;
+                return copyOrIsolate(from, middle) + copyOrIsolate(middle, to);
+            }
+            String error = "COPY failed: " + failure.getMessage();
+            for (int i = from; i < to; i++) {
+                writeError(pendingLines.get(i), error);
+            }
+            return 0;
+        }
+
+        private int copyOrIsolate(int from, int to) throws IOException {
+            try {
+                copy(pendingChunk, from, to);
+                return to - from;
+            } catch (SQLException e) {
+                return isolateFailures(from, to, e);
+            }
+        }
+
+        private void reject(long line, String error) throws IOException {
+            rejected++;
+            rejectedSinceChunk++;
+            writeError(line, error);
+        }
+
+        private void writeError(long line, String error) throws IOException {
+            if (errors == null) {
+                Path file = errorPath(context, importId);
+                Files.createDirectories(file.getParent());
+                errors = Files.newBufferedWriter(file, StandardCharsets.UTF_8);
+            }
+            errors.write(objectMapper.writeValueAsString(new MyDataDto.ImportError(line, error)));
+            errors.write('\n');
+        }
+
+        void closeErrors() throws IOException {
+            if (pending != null) {
+                // Parsing failed part way; let the chunk in flight finish before returning
+                try {
+                    completePending();
+                } catch (RuntimeException e) {
+                    log.warn("Import {} could not complete chunk {}: {}", importId, chunkNumber, e.getMessage());
+                }
+            }
+            if (errors != null) {
+                errors.close();
+            }
+        }
+    }
+
+    /**
+     * Data exceptions (class 22) and integrity constraint violations (class 23)
+     * are caused by the rows sent, not by the connection or the server
+     */
+    private static boolean isRowError(Throwable failure) {
+        String state = failure instanceof SQLException e ? e.getSQLState() : null;
+        return state != null && (state.startsWith("22") || state.startsWith("23"));
+    }
+
+    // ==================== Parsing ====================
+
+    /**
+     * A parsed row, or the reason it could not be parsed
+     */
+    private record ParsedRow(long line, MyDataDto.CreateRequest request, String error) {
+    }
+
+    private interface RowSource {
+        ParsedRow next() throws IOException;
+    }
+
+    /**
+     * One JSON object per line; blank lines are skipped
+     */
+    private class NdjsonRowSource implements RowSource {
+
+        private final BufferedReader reader;
+        private long line;
+
+        NdjsonRowSource(Reader reader) {
+            this.reader = new BufferedReader(reader, 1 << 16);
+        }
+
+        @Override
+        public ParsedRow next() throws IOException {
+            String text;
+            while ((text = reader.readLine()) != null) {
+                line++;
+                if (text.isBlank()) {
+                    continue;
+                }
+                try {
+                    return new ParsedRow(line, createRequestReader.readValue(text), null);
+                } catch (JsonProcessingException e) {
+                    return new ParsedRow(line, null, "Invalid JSON: " + e.getOriginalMessage());
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * RFC 4180 CSV with a header row naming the CreateRequest fields
+     * (camelCase or snake_case). Empty fields are null.
+     */
+    private static class CsvRowSource implements RowSource {
+
+        private final CsvReader reader;
+        private final List<String> columns;
+
+        CsvRowSource(Reader reader) throws IOException {
+            this.reader = new CsvReader(reader);
+            List<String> header = this.reader.next();
+            if (header == null) {
+                throw new IllegalArgumentException("CSV header row is required");
+            }
+            this.columns = new ArrayList<>();
+            for (String name : header) {
+                String column = name == null ? "" : name.trim().replace("_", "").toLowerCase(Locale.ROOT);
+                if (!CSV_COLUMNS.contains(column)) {
+                    throw new IllegalArgumentException("Unknown CSV column: " + name);
+                }
+                columns.add(column);
+            }
+        }
+
+        @Override
+        public ParsedRow next() throws IOException {
+            List<String> fields;
+            do {
+                fields = reader.next();
+                if (fields == null) {
+                    return null;
+                }
+            } while (fields.size() == 1 && fields.get(0) == null);
+
+            long line = reader.recordLine();
+            if (fields.size() != columns.size()) {
+                return new ParsedRow(line, null,
+                    "Expected " + columns.size() + " fields but found " + fields.size());
+            }
+
+            MyDataDto.CreateRequest request = new MyDataDto.CreateRequest();
+            try {
+                for (int i = 0; i < fields.size(); i++) {
+                    String value = fields.get(i);
+                    switch (columns.get(i)) {
+                        case "name" -> request.setName(value);
+                        case "date" -> request.setDate(value != null ? LocalDate.parse(value) : null);
+                        case "data" -> request.setData(value);
+                        case "organizationlevel" -> request.setOrganizationLevel(value != null
+                            ? MyData.OrganizationLevel.valueOf(value.toUpperCase(Locale.ROOT)) : null);
+                        case "sensitivitylevel" -> request.setSensitivityLevel(value != null
+                            ? MyData.SensitivityLevel.valueOf(value.toUpperCase(Locale.ROOT)) : null);
+                        case "confidentialnotes" -> request.setConfidentialNotes(value);
+                        case "financialdata" -> request.setFinancialData(value);
+                        case "metadata" -> request.setMetadata(value);
+                        default -> throw new IllegalStateException("Unmapped column " + columns.get(i));
+                    }
+                }
+            } catch (IllegalArgumentException | DateTimeParseException e) {
+                return new ParsedRow(line, null, "Invalid value: " + e.getMessage());
+            }
+            return new ParsedRow(line, request, null);
+        }
+    }
+
+    /**
+     * Minimal RFC 4180 reader over its own buffer: quoted fields may contain
+     * commas, doubled quotes and line breaks
+     */
+    private static class CsvReader {
+
+        private final Reader reader;
+        private final char[] buffer = new char[1 << 16];
+        private int position;
+        private int limit;
+        private long line = 1;
+        private long recordLine;
+
+        CsvReader(Reader reader) {
+            this.reader = reader;
+        }
+
+        long recordLine() {
+            return recordLine;
+        }
+
+        /**
+         * The next record, or null at end of input
+         */
+        List<String> next() throws IOException {
+            recordLine = line;
+            List<String> fields = new ArrayList<>();
+            StringBuilder field = new StringBuilder();
+            boolean quoted = false;
+            boolean wasQuoted = false;
+            boolean started = false;
+
+            while (true) {
+                int c = read();
+                if (c == -1) {
+                    if (!started) {
+                        return null;
+                    }
+                    fields.add(value(field, wasQuoted));
+                    return fields;
+                }
+                started = true;
+                if (quoted) {
+                    if (c == '"') {
+                        if (peek() == '"') {
+                            position++;
+                            field.append('"');
+                        } else {
+                            quoted = false;
+                        }
+                    } else {
+                        if (c == '\n') {
+                            line++;
+                        }
+                        field.append((char) c);
+                    }
+                } else if (c == '"' && field.isEmpty()) {
+                    quoted = true;
+                    wasQuoted = true;
+                } else if (c == ',') {
+                    fields.add(value(field, wasQuoted));
+                    field.setLength(0);
+                    wasQuoted = false;
+                } else if (c == '\n') {
+                    line++;
+                    fields.add(value(field, wasQuoted));
+                    return fields;
+                } else if (c != '\r') {
+                    field.append((char) c);
+                }
+            }
+        }
+
+        private static String value(StringBuilder field, boolean wasQuoted) {
+            return field.isEmpty() && !wasQuoted ? null : field.toString();
+        }
+
+        private int read() throws IOException {
+            if (position == limit && !fill()) {
+                return -1;
+            }
+            return buffer[position++];
+        }
+
+        private int peek() throws IOException {
+            if (position == limit && !fill()) {
+                return -1;
+            }
+            return buffer[position];
+        }
+
+        private boolean fill() throws IOException {
+            int count = reader.read(buffer, 0, buffer.length);
+            if (count <= 0) {
+                return false;
+            }
+            position = 0;
+            limit = count;
+            return true;
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package com.enterprise.datasharing.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.HashSet;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Purge of soft-deleted my_data records into my_data_archive.
+ *
+ * Records soft-deleted longer than the retention period are moved oldest
+ * first, one batch per statement: a DELETE ... RETURNING feeds the archive
+ * insert, so a batch is archived and removed atomically and commits on its
+ * own. Batches are short, skip rows other transactions hold locked and
+ * pause in between, so a run can share the table with normal traffic; a
+ * run also stops after a maximum duration and resumes where it left off
+ * next time. Concurrent runs on other nodes take disjoint rows.
+ *
+ * The delete fires the my_data triggers, so the record counters and the
+ * ACL stay current; record-specific access rules cascade. An id already in
+ * the archive (a record restored from it and deleted again) is overwritten
+ * with the newer copy, so every deleted row ends up archived.
+ *
+ * my_data_archive was created LIKE my_data and does not follow later
+ * changes to my_data. The purge copies an explicit column list, and every
+ * run first checks that list against both tables, so a column added to
+ * my_data without being added to the archive and to COLUMNS stops the
+ * purge instead of being dropped.
+ */
+@Service
+@Slf4j
+public class MyDataPurgeService {
+
+    private static final String COLUMNS = """
+        id, name, date, data, sensitivity_level, organization_level, owner_id, owner_department, owner_team,
+        confidential_notes, financial_data, metadata, created_at, created_by, updated_at, updated_by,
+        deleted, deleted_at, deleted_by, version""";
+
+    private static final String PURGE_BATCH = """
+        WITH purged AS (
+            DELETE FROM my_data WHERE id IN (
+                SELECT id FROM my_data
+                WHERE deleted = true AND deleted_at < ?
+                ORDER BY deleted_at, id
+                LIMIT ?
+                FOR UPDATE SKIP LOCKED)
+            RETURNING %1$s
+        )
+        INSERT INTO my_data_archive (%1$s)
+        SELECT %1$s FROM purged
+        ON CONFLICT (id) DO UPDATE SET (%1$s, archived_at) = (%2$s, now())
+        """.formatted(COLUMNS, COLUMNS.replaceAll("(\\w+)", "EXCLUDED.$1"));
+
+    private static final Set<String> COLUMN_NAMES = Set.of(COLUMNS.strip().split("\\s*,\\s*"));
+
+    private static final String TABLE_COLUMNS = """
+        SELECT column_name FROM information_schema.columns
+        WHERE table_schema = current_schema() AND table_name = ?
+        """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Duration retention;
+    private final int batchSize;
+    private final Duration batchPause;
+    private final Duration maxDuration;
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    public MyDataPurgeService(
+            JdbcTemplate jdbcTemplate,
+            @Value("${app.data-purge.retention:P365D}") Duration retention,
+            @Value("${app.data-purge.batch-size:1000}") int batchSize,
+            @Value("${app.data-purge.batch-pause:PT0.2S}") Duration batchPause,
+            @Value("${app.data-purge.max-duration:PT15M}") Duration maxDuration) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.retention = retention;
+        this.batchSize = batchSize;
+        this.batchPause = batchPause;
+        this.maxDuration = maxDuration;
+    }
+
+    @Scheduled(cron = "${app.data-purge.cron:-}")
+    public void scheduledPurge() {
+        purge().ifPresentOrElse(
+            result -> log.info("Scheduled my_data purge finished: {}", result),
+            () -> log.warn("Skipping scheduled my_data purge, another run is in progress"));
+    }
+
+    /**
+     * Archive records soft-deleted before the retention cutoff;
+     * empty if a run is already in progress
+     */
+    public Optional<PurgeResult> purge() {
+        if (!running.compareAndSet(false, true)) {
+            return Optional.empty();
+        }
+        long start = System.nanoTime();
+        try {
+            checkColumns();
+            OffsetDateTime cutoff = OffsetDateTime.now(ZoneOffset.UTC).minus(retention);
+            Instant deadline = Instant.now().plus(maxDuration);
+
+            int batches = 0;
+            long rows = 0;
+            boolean complete = false;
+            while (Instant.now().isBefore(deadline)) {
+                int archived = jdbcTemplate.update(PURGE_BATCH, Timestamp.from(cutoff.toInstant()), batchSize);
+                if (archived == 0) {
+                    complete = true;
+                    break;
+                }
+                batches++;
+                rows += archived;
+                log.debug("Archived {} soft-deleted my_data records", archived);
+                Thread.sleep(batchPause);
+            }
+
+            long durationMs = Duration.ofNanos(System.nanoTime() - start).toMillis();
+            return Optional.of(new PurgeResult(cutoff, batches, rows, complete, durationMs,
+                rows * 1000.0 / Math.max(1, durationMs)));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("my_data purge interrupted", e);
+        } finally {
+            running.set(false);
+        }
+    }
+
+    /**
+     * Fail if my_data or my_data_archive no longer match the purged columns
+     */
+    private void checkColumns() {
+        Set<String> live = tableColumns("my_data");
+        Set<String> archive = tableColumns("my_data_archive");
+        Set<String> notPurged = new TreeSet<>(live);
+        notPurged.removeAll(COLUMN_NAMES);
+        Set<String> notArchived = new TreeSet<>(COLUMN_NAMES);
+        notArchived.removeAll(archive);
+        Set<String> notLive = new TreeSet<>(COLUMN_NAMES);
+        notLive.removeAll(live);
+        if (!notPurged.isEmpty() || !notArchived.isEmpty() || !notLive.isEmpty()) {
+            throw new IllegalStateException("my_data_archive has diverged from my_data: columns not purged "
+                + notPurged + ", missing from my_data_archive " + notArchived + ", missing from my_data "
+                + notLive);
+        }
+    }
+
+    private Set<String> tableColumns(String table) {
+        return new HashSet<>(jdbcTemplate.queryForList(TABLE_COLUMNS, String.class, table));
+    }
+
+    /**
+     * Outcome of a purge run; complete is false when it stopped at the
+     * maximum duration with records left to archive
+     */
+    public record PurgeResult(OffsetDateTime cutoff, int batches, long rowsArchived, boolean complete,
+                              long durationMs, double rowsPerSecond) {
+    }
+}
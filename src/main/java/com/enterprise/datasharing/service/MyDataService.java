@@ -1,26 +1,43 @@
 package com.enterprise.datasharing.service;
 
+import com.enterprise.datasharing.config.ReadYourWritesTracker;
 import com.enterprise.datasharing.dto.MyDataDto;
 import com.enterprise.datasharing.entity.AuditLog;
 import com.enterprise.datasharing.entity.MyData;
 import com.enterprise.datasharing.exception.AccessDeniedException;
+import com.enterprise.datasharing.exception.PreconditionFailedException;
 import com.enterprise.datasharing.exception.ResourceNotFoundException;
+import com.enterprise.datasharing.repository.AccessibleMyDataRepository;
 import com.enterprise.datasharing.repository.MyDataRepository;
+import com.enterprise.datasharing.repository.MyDataSpecifications;
 import com.enterprise.datasharing.security.AccessControlService;
 import com.enterprise.datasharing.security.AccessDecision;
+import com.enterprise.datasharing.security.AccessPolicyCompiler;
+import com.enterprise.datasharing.security.CompiledAccessPolicy;
+import com.enterprise.datasharing.security.EntityTagService;
 import com.enterprise.datasharing.security.SecurityContext;
 import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDate;
 import java.time.OffsetDateTime;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
 import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 /**
  * Service for managing MyData with comprehensive access control.
@@ -33,8 +50,17 @@ public class MyDataService {
 
     private final MyDataRepository myDataRepository;
     private final AccessControlService accessControlService;
+    private final AccessPolicyCompiler accessPolicyCompiler;
+    private final EntityTagService entityTagService;
+    private final ReadYourWritesTracker readYourWritesTracker;
     private final AuditService auditService;
 
+    @Value("${app.security.acl.list-queries:false}")
+    private boolean aclListQueriesEnabled;
+
+    @Value("${app.data-stream.fetch-size:1000}")
+    private int streamFetchSize;
+
     /**
      * Create new data entry
      */
@@ -89,6 +115,7 @@ public class MyDataService {
 
         // Save
         MyData saved = myDataRepository.save(entity);
+        readYourWritesTracker.recordWrite(securityContext.getUserId());
 
         // Audit log
         auditService.logDataAccess(securityContext, AuditLog.AuditAction.CREATE,
@@ -127,31 +154,60 @@ public class MyDataService {
         auditService.logDataAccess(securityContext, AuditLog.AuditAction.READ,
             "MyData", id.toString(), null, null, decision, true, null);
 
+        // Remember the grant so unchanged re-reads can be revalidated cheaply
+        entityTagService.rememberGrant(securityContext, id, entity.getVersion(),
+            entityTagService.tagFor(id, entity.getVersion(), decision.getVisibleColumns()));
+
         // Return with column filtering
         return MyDataDto.Response.fromEntity(entity, decision.getVisibleColumns());
     }
 
     /**
-     * Update data entry
+     * Check whether a conditional read can be answered with 304 Not Modified;
+     * returns the ETag of the matched representation if so.
+     * Only the record version is queried; the entity is not loaded.
+     */
+    @Transactional(readOnly = true)
+    public Optional<String> notModifiedTag(
+            Long id,
+            String ifNoneMatch,
+            SecurityContext securityContext,
+            HttpServletRequest httpRequest) {
+
+        Optional<String> etag = entityTagService.notModifiedTag(securityContext, id, ifNoneMatch,
+            () -> myDataRepository.findVersionById(id).orElse(null), httpRequest);
+
+        if (etag.isPresent()) {
+            auditService.logAsync(securityContext, AuditLog.AuditAction.READ,
+                "MyData", id.toString(), "Not modified (ETag revalidated)");
+        }
+
+        return etag;
+    }
+
+    /**
+     * Update data entry.
+     * When ifMatch is given, the update only proceeds if it matches the current ETag.
+     * Access is checked against the security attributes alone, and the visible
+     * requested columns are written in one UPDATE ... RETURNING that also
+     * yields the previous values for the audit diff.
      */
     @Transactional
     public MyDataDto.Response update(
             Long id,
             MyDataDto.UpdateRequest request,
+            String ifMatch,
             SecurityContext securityContext,
             HttpServletRequest httpRequest) {
 
         log.debug("Updating data entry {} for user: {}", id, securityContext.getUsername());
 
-        MyData entity = myDataRepository.findByIdAndNotDeleted(id)
+        MyDataDto.SecurityAttributes attributes = myDataRepository.findSecurityAttributes(id)
             .orElseThrow(() -> new ResourceNotFoundException("MyData", id.toString()));
 
-        // Store old values for audit
-        MyData oldEntity = cloneEntity(entity);
-
         // Check access
         AccessDecision decision = accessControlService.checkAccess(
-            securityContext, entity, AccessControlService.AccessOperation.UPDATE, httpRequest);
+            securityContext, attributes.toEntity(), AccessControlService.AccessOperation.UPDATE, httpRequest);
 
         if (!decision.isAllowed()) {
             auditService.logAccessDenied(securityContext, "MyData", id.toString(),
@@ -162,52 +218,51 @@ public class MyDataService {
         // Get visible columns for the user
         Set<String> visibleColumns = decision.getVisibleColumns();
 
-        // Apply updates only to visible columns
-        if (request.getName() != null && canUpdateColumn("name", visibleColumns)) {
-            logFieldChangeIfDifferent(securityContext, id.toString(), "name", 
-                entity.getName(), request.getName());
-            entity.setName(request.getName());
-        }
-        if (request.getDate() != null && canUpdateColumn("date", visibleColumns)) {
-            logFieldChangeIfDifferent(securityContext, id.toString(), "date",
-                entity.getDate(), request.getDate());
-            entity.setDate(request.getDate());
-        }
-        if (request.getData() != null && canUpdateColumn("data", visibleColumns)) {
-            logFieldChangeIfDifferent(securityContext, id.toString(), "data",
-                entity.getData(), request.getData());
-            entity.setData(request.getData());
-        }
-        if (request.getOrganizationLevel() != null && canUpdateColumn("organizationLevel", visibleColumns)) {
-            logFieldChangeIfDifferent(securityContext, id.toString(), "organizationLevel",
-                entity.getOrganizationLevel(), request.getOrganizationLevel());
-            entity.setOrganizationLevel(request.getOrganizationLevel());
-        }
-        if (request.getSensitivityLevel() != null && canUpdateColumn("sensitivityLevel", visibleColumns)) {
-            logFieldChangeIfDifferent(securityContext, id.toString(), "sensitivityLevel",
-                entity.getSensitivityLevel(), request.getSensitivityLevel());
-            entity.setSensitivityLevel(request.getSensitivityLevel());
-        }
-        if (request.getConfidentialNotes() != null && canUpdateColumn("confidentialNotes", visibleColumns)) {
-            entity.setConfidentialNotes(request.getConfidentialNotes());
-        }
-        if (request.getFinancialData() != null && canUpdateColumn("financialData", visibleColumns)) {
-            entity.setFinancialData(request.getFinancialData());
-        }
-        if (request.getMetadata() != null && canUpdateColumn("metadata", visibleColumns)) {
-            entity.setMetadata(request.getMetadata());
+        // Optimistic concurrency - the client must have seen the current representation
+        if (!entityTagService.matchesIfMatch(ifMatch,
+                entityTagService.tagFor(id, attributes.version(), visibleColumns))) {
+            throw new PreconditionFailedException("MyData " + id + " has been modified since it was last read");
         }
 
-        // Save
-        MyData saved = myDataRepository.save(entity);
+        // Apply updates only to visible columns
+        Map<String, Object> changes = new LinkedHashMap<>();
+        putIfUpdatable(changes, "name", request.getName(), visibleColumns);
+        putIfUpdatable(changes, "date", request.getDate(), visibleColumns);
+        putIfUpdatable(changes, "data", request.getData(), visibleColumns);
+        putIfUpdatable(changes, "organizationLevel", request.getOrganizationLevel(), visibleColumns);
+        putIfUpdatable(changes, "sensitivityLevel", request.getSensitivityLevel(), visibleColumns);
+        putIfUpdatable(changes, "confidentialNotes", request.getConfidentialNotes(), visibleColumns);
+        putIfUpdatable(changes, "financialData", request.getFinancialData(), visibleColumns);
+        putIfUpdatable(changes, "metadata", request.getMetadata(), visibleColumns);
+
+        if (changes.isEmpty()) {
+            MyData entity = myDataRepository.findByIdAndNotDeleted(id)
+                .orElseThrow(() -> new ResourceNotFoundException("MyData", id.toString()));
+            return MyDataDto.Response.fromEntity(entity, visibleColumns);
+        }
 
-        // Audit log
+        // Written at the version the access check saw; a concurrent change makes this a conflict
+        AccessibleMyDataRepository.UpdateResult result = myDataRepository
+            .updateReturning(id, attributes.version(), changes)
+            .orElseThrow(() -> new ObjectOptimisticLockingFailureException(MyData.class, id));
+        readYourWritesTracker.recordWrite(securityContext.getUserId());
+
+        // Audit log, with only the values that changed
+        Map<String, Object> oldValues = new LinkedHashMap<>();
+        Map<String, Object> newValues = new LinkedHashMap<>();
+        result.current().forEach((property, value) -> {
+            Object previous = result.previous().get(property);
+            if (!Objects.equals(previous, value)) {
+                oldValues.put(property, previous);
+                newValues.put(property, value);
+            }
+        });
         auditService.logDataAccess(securityContext, AuditLog.AuditAction.UPDATE,
-            "MyData", id.toString(), oldEntity, saved, decision, true, null);
+            "MyData", id.toString(), oldValues, newValues, decision, true, null);
 
         log.info("Data entry updated: {} by user {}", id, securityContext.getUsername());
 
-        return MyDataDto.Response.fromEntity(saved, visibleColumns);
+        return MyDataDto.Response.fromEntity(result.updated(), visibleColumns);
     }
 
     /**
@@ -240,6 +295,7 @@ public class MyDataService {
         entity.setDeletedBy(securityContext.getUserId());
 
         myDataRepository.save(entity);
+        readYourWritesTracker.recordWrite(securityContext.getUserId());
 
         // Audit log
         auditService.logDataAccess(securityContext, AuditLog.AuditAction.DELETE,
@@ -249,22 +305,41 @@ public class MyDataService {
     }
 
     /**
-     * Find all accessible data for current user
+     * Find all accessible data for current user.
+     * The compiled access policy is pushed down into the query, so filtering
+     * and pagination happen in the database with the same outcome as checkAccess.
+     * Admins may ask for an exact total instead of one from the record counters.
      */
     @Transactional(readOnly = true)
     public Page<MyDataDto.Summary> findAllAccessible(
             SecurityContext securityContext,
-            Pageable pageable) {
+            Pageable pageable,
+            MyDataDto.MetadataFilter metadataFilter,
+            boolean exactCount,
+            HttpServletRequest httpRequest) {
 
         log.debug("Finding all accessible data for user: {}", securityContext.getUsername());
 
-        Page<MyData> page = myDataRepository.findAccessibleByUser(
-            securityContext.getUserId(),
-            securityContext.getDepartment(),
-            securityContext.getTeam(),
-            securityContext.isExecutive(),
-            pageable
-        );
+        checkSummarySort(pageable);
+        CompiledAccessPolicy policy = accessPolicyCompiler.compile(
+            securityContext, AccessControlService.AccessOperation.READ, httpRequest);
+        if (exactCount && !policy.isAdmin()) {
+            throw new AccessDeniedException("Exact counts are limited to administrators");
+        }
+
+        // Creation-time ordering is served by the materialized ACL or the index-backed UNION ALL query
+        Page<MyData> page;
+        if (metadataFilter != null && !metadataFilter.isEmpty()) {
+            // Access predicate and metadata filter in one statement; the GIN index serves selective filters
+            page = myDataRepository.findAll(
+                MyDataSpecifications.accessibleUnder(policy).and(metadataMatches(metadataFilter)), pageable);
+        } else if (!AccessibleMyDataRepository.supportsSort(pageable.getSort())) {
+            page = myDataRepository.findAll(MyDataSpecifications.accessibleUnder(policy), pageable);
+        } else if (aclListQueriesEnabled && !policy.isAdmin()) {
+            page = myDataRepository.findReadableViaAcl(policy, pageable);
+        } else {
+            page = myDataRepository.findAccessibleByUser(policy, pageable, exactCount);
+        }
 
         // Log bulk read
         auditService.logAsync(securityContext, AuditLog.AuditAction.BULK_READ,
@@ -274,7 +349,54 @@ public class MyDataService {
     }
 
     /**
-     * Find data by owner
+     * Check a date-range read and compile its policy and visible columns.
+     * Runs on the request thread, so a bad range is a 400 and CBAC sees the
+     * request; nothing is opened until streamByDateRange.
+     */
+    @Transactional(readOnly = true)
+    public DateRangeStream prepareDateRangeStream(
+            SecurityContext securityContext,
+            LocalDate from,
+            LocalDate to,
+            HttpServletRequest httpRequest) {
+
+        if (from.isAfter(to)) {
+            throw new IllegalArgumentException("from must not be after to");
+        }
+
+        CompiledAccessPolicy policy = accessPolicyCompiler.compile(
+            securityContext, AccessControlService.AccessOperation.READ, httpRequest);
+        Set<String> visibleColumns = accessControlService.getVisibleColumns(securityContext, null);
+        return new DateRangeStream(securityContext, policy, visibleColumns, from, to);
+    }
+
+    /**
+     * Pass the accessible data of a prepared range to the sink, ordered by date,
+     * and return how many records were passed. The query is opened and closed
+     * here, inside a read-only transaction so it routes to a replica. The
+     * BULK_READ audit is written synchronously once the stream ends, since the
+     * caller is usually already on an async thread.
+     */
+    @Transactional(readOnly = true)
+    public long streamByDateRange(DateRangeStream prepared, Consumer<MyDataDto.Response> sink) {
+        long streamed = 0;
+        try (Stream<MyData> records = myDataRepository.streamAccessibleByDateRange(
+                prepared.policy(), prepared.from(), prepared.to(), streamFetchSize)) {
+            Iterator<MyData> iterator = records.iterator();
+            while (iterator.hasNext()) {
+                sink.accept(MyDataDto.Response.fromEntity(iterator.next(), prepared.visibleColumns()));
+                streamed++;
+            }
+        } finally {
+            // Also when the client went away: the rows written so far were read
+            auditService.logEvent(prepared.securityContext(), AuditLog.AuditAction.BULK_READ, "MyData", null,
+                "Streamed " + streamed + " records dated " + prepared.from() + " to " + prepared.to());
+        }
+        return streamed;
+    }
+
+    /**
+     * Find data by owner, one page of summaries selected and sorted in SQL
      */
     @Transactional(readOnly = true)
     public Page<MyDataDto.Summary> findByOwner(
@@ -282,78 +404,104 @@ public class MyDataService {
             SecurityContext securityContext,
             Pageable pageable) {
 
+        checkOwnerAccess(ownerId, securityContext);
+        checkSummarySort(pageable);
+        return myDataRepository.findOwnerSummaries(ownerId, pageable);
+    }
+
+    /**
+     * Find data by owner, newest first, continuing after the cursor.
+     * Each page costs the same however deep it is, and no total is counted.
+     */
+    @Transactional(readOnly = true)
+    public MyDataDto.CursorPage findByOwner(
+            String ownerId,
+            SecurityContext securityContext,
+            MyDataDto.Cursor after,
+            int size) {
+
+        checkOwnerAccess(ownerId, securityContext);
+
+        // One extra row tells whether there is a next page
+        List<MyDataDto.Summary> rows = myDataRepository.findOwnerSummariesAfter(ownerId, after, size + 1);
+        List<MyDataDto.Summary> items = rows.size() > size ? rows.subList(0, size) : rows;
+        return MyDataDto.CursorPage.builder()
+            .items(items)
+            .size(items.size())
+            .nextCursor(rows.size() > size ? MyDataDto.Cursor.after(items.get(size - 1)).encode() : null)
+            .build();
+    }
+
+    /**
+     * Reject sorts by unknown or masked properties as a bad request, before
+     * they reach the query
+     */
+    private void checkSummarySort(Pageable pageable) {
+        if (!AccessibleMyDataRepository.supportsSummarySort(pageable.getSort())) {
+            throw new IllegalArgumentException("Unsupported sort " + pageable.getSort()
+                + "; sortable properties are " + AccessibleMyDataRepository.SUMMARY_SORT_PROPERTIES);
+        }
+    }
+
+    private void checkOwnerAccess(String ownerId, SecurityContext securityContext) {
         // Only allow if user is owner or has manager access
-        if (!ownerId.equals(securityContext.getUserId()) && 
-            !securityContext.isExecutive() && 
+        if (!ownerId.equals(securityContext.getUserId()) &&
+            !securityContext.isExecutive() &&
             !securityContext.isDepartmentHead()) {
             throw new AccessDeniedException("Cannot view data owned by other users");
         }
-
-        return myDataRepository.findByOwnerId(ownerId).stream()
-            .map(MyDataDto.Summary::fromEntity)
-            .collect(Collectors.collectingAndThen(
-                Collectors.toList(),
-                list -> new PageImpl<>(list, pageable, list.size())
-            ));
     }
 
     /**
-     * Search by name
+     * Search by name within accessible data
      */
     @Transactional(readOnly = true)
     public Page<MyDataDto.Summary> searchByName(
             String name,
             SecurityContext securityContext,
-            Pageable pageable) {
+            Pageable pageable,
+            HttpServletRequest httpRequest) {
+
+        CompiledAccessPolicy policy = accessPolicyCompiler.compile(
+            securityContext, AccessControlService.AccessOperation.READ, httpRequest);
 
-        // Get accessible data and filter by name
-        Page<MyData> accessibleData = myDataRepository.findAccessibleByUser(
-            securityContext.getUserId(),
-            securityContext.getDepartment(),
-            securityContext.getTeam(),
-            securityContext.isExecutive(),
-            pageable
-        );
-
-        return accessibleData
-            .map(entity -> {
-                if (entity.getName().toLowerCase().contains(name.toLowerCase())) {
-                    return MyDataDto.Summary.fromEntity(entity);
-                }
-                return null;
-            })
-            .map(s -> s); // Filter nulls handled by Spring Data
+        return myDataRepository.findAll(
+                MyDataSpecifications.accessibleUnder(policy)
+                    .and(MyDataSpecifications.nameContains(name)),
+                pageable)
+            .map(MyDataDto.Summary::fromEntity);
+    }
+
+    private Specification<MyData> metadataMatches(MyDataDto.MetadataFilter filter) {
+        Specification<MyData> spec = Specification.where(null);
+        if (filter.getContains() != null && !filter.getContains().isEmpty()) {
+            spec = spec.and(MyDataSpecifications.metadataContains(filter.getContains().toString()));
+        }
+        for (String path : filter.getPaths()) {
+            spec = spec.and(MyDataSpecifications.metadataHasPath(path));
+        }
+        return spec;
     }
 
     private boolean canUpdateColumn(String column, Set<String> visibleColumns) {
         return visibleColumns == null || visibleColumns.contains(column);
     }
 
-    private void logFieldChangeIfDifferent(SecurityContext context, String entityId,
-            String fieldName, Object oldValue, Object newValue) {
-        if (oldValue == null && newValue == null) return;
-        if (oldValue != null && oldValue.equals(newValue)) return;
-        auditService.logFieldChange(context, "MyData", entityId, fieldName, oldValue, newValue);
+    private void putIfUpdatable(Map<String, Object> changes, String column, Object value,
+            Set<String> visibleColumns) {
+        if (value != null && canUpdateColumn(column, visibleColumns)) {
+            changes.put(column, value);
+        }
     }
 
-    private MyData cloneEntity(MyData entity) {
-        return MyData.builder()
-            .id(entity.getId())
-            .name(entity.getName())
-            .date(entity.getDate())
-            .data(entity.getData())
-            .sensitivityLevel(entity.getSensitivityLevel())
-            .organizationLevel(entity.getOrganizationLevel())
-            .ownerDepartment(entity.getOwnerDepartment())
-            .ownerTeam(entity.getOwnerTeam())
-            .ownerId(entity.getOwnerId())
-            .confidentialNotes(entity.getConfidentialNotes())
-            .financialData(entity.getFinancialData())
-            .metadata(entity.getMetadata())
-            .createdAt(entity.getCreatedAt())
-            .createdBy(entity.getCreatedBy())
-            .updatedAt(entity.getUpdatedAt())
-            .updatedBy(entity.getUpdatedBy())
-            .build();
+    /**
+     * A checked date-range read, ready to stream
+     */
+    public record DateRangeStream(
+            SecurityContext securityContext,
+            CompiledAccessPolicy policy,
+            Set<String> visibleColumns,
+            LocalDate from,
+            LocalDate to) {
     }
 }
@@ -0,0 +1,553 @@
+package com.enterprise.datasharing.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Generates a production-sized synthetic dataset for performance work.
+ *
+ * Runs once under the datagen profile and exits. Builds an organization of
+ * departments, teams and users (executives, department heads, team leads,
+ * individual contributors), then streams my_data, data_access_control and
+ * audit_log rows into Postgres with COPY. my_data and audit_log are split
+ * into chunks loaded in parallel, each on its own connection. Every chunk
+ * has its own seeded random source and writes ids reserved by its row
+ * offset, and every timestamp is relative to app.datagen.reference-time, so
+ * the same settings on the same starting tables produce the same dataset.
+ * Record ownership and audit activity follow a power-law skew so a few
+ * users and records are hot.
+ *
+ * With app.datagen.disable-triggers the loading sessions run with
+ * session_replication_role = replica (requires a superuser) to skip
+ * cache notifications, ACL and counter upkeep; my_data_acl is then
+ * rebuilt once at the end. The record counters are also recounted after a
+ * truncate, which fires no delete triggers.
+ */
+@Component
+@Profile("datagen")
+@Slf4j
+public class SyntheticDataGenerator implements ApplicationRunner {
+
+    private static final String COPY_USERS = """
+        COPY user_attribute (user_id, username, email, department, team, clearance_level, organization_level,
+            manager_id, is_manager, is_department_head, is_executive, attributes, active)
+        FROM STDIN
+        """;
+
+    private static final String COPY_DATA = """
+        COPY my_data (id, name, date, data, sensitivity_level, organization_level, owner_id, owner_department,
+            owner_team, confidential_notes, financial_data, metadata, created_at, updated_at, created_by,
+            updated_by, deleted, version)
+        FROM STDIN
+        """;
+
+    private static final String COPY_RULES = """
+        COPY data_access_control (rule_name, description, data_id, principal_type, principal_value, can_read,
+            can_create, can_update, can_delete, visible_columns, priority, active, created_by)
+        FROM STDIN
+        """;
+
+    private static final String COPY_AUDIT = """
+        COPY audit_log (id, user_id, username, user_department, user_team, action, entity_type, entity_id,
+            timestamp, ip_address, http_method, request_uri, access_decision, correlation_id, success)
+        FROM STDIN
+        """;
+
+    private static final int FLUSH_BYTES = 1 << 20;
+    private static final Weights CONTRIBUTOR_CLEARANCE = Weights.of("PUBLIC", 5, "INTERNAL", 70, "CONFIDENTIAL", 20, "SECRET", 5);
+    private static final Weights RECORD_RULE_PRINCIPALS = Weights.of("USER", 40, "DEPARTMENT", 20, "TEAM", 20, "ROLE", 10, "ALL", 10);
+    private static final Weights GLOBAL_RULE_PRINCIPALS = Weights.of("DEPARTMENT", 50, "TEAM", 40, "ROLE", 10);
+    private static final Weights AUDIT_ACTIONS = Weights.of("READ", 80, "UPDATE", 12, "CREATE", 5, "DELETE", 3);
+    private static final Weights DENIALS = Weights.of("DENIED_ROLE", 3, "DENIED_ATTRIBUTE", 2, "DENIED_ROW_LEVEL", 1);
+    private static final String[] MASKED_COLUMNS = {
+        "[\"id\",\"name\",\"dataDate\",\"data\",\"sensitivityLevel\",\"organizationLevel\"]",
+        "[\"id\",\"name\",\"dataDate\",\"data\",\"ownerDepartment\",\"ownerTeam\",\"ownerId\"]"
+    };
+
+    private final DataSource dataSource;
+    private final JdbcTemplate jdbcTemplate;
+    private final MyDataAclService myDataAclService;
+    private final MyDataCounterService myDataCounterService;
+    private final ConfigurableApplicationContext context;
+
+    @Value("${app.datagen.seed:42}")
+    private long seed;
+
+    @Value("${app.datagen.departments:20}")
+    private int departments;
+
+    @Value("${app.datagen.teams-per-department:8}")
+    private int teamsPerDepartment;
+
+    @Value("${app.datagen.users-per-team:12}")
+    private int usersPerTeam;
+
+    @Value("${app.datagen.records:1000000}")
+    private long records;
+
+    @Value("${app.datagen.audit-logs:2000000}")
+    private long auditLogs;
+
+    @Value("${app.datagen.rules-per-thousand-records:5}")
+    private int rulesPerThousandRecords;
+
+    @Value("${app.datagen.global-rules:20}")
+    private int globalRules;
+
+    @Value("#{${app.datagen.organization-levels:{EXECUTIVE:2,DEPARTMENT:18,TEAM:40,INDIVIDUAL:40}}}")
+    private Map<String, Integer> organizationLevelWeights;
+
+    @Value("#{${app.datagen.sensitivity-levels:{PUBLIC:20,INTERNAL:50,CONFIDENTIAL:22,RESTRICTED:8}}}")
+    private Map<String, Integer> sensitivityLevelWeights;
+
+    private Weights organizationLevels;
+    private Weights sensitivityLevels;
+
+    @Value("${app.datagen.skew:2.0}")
+    private double skew;
+
+    @Value("${app.datagen.history-days:730}")
+    private int historyDays;
+
+    // Empty means the start of the current UTC day
+    @Value("${app.datagen.reference-time:}")
+    private String referenceTime;
+
+    private OffsetDateTime reference;
+
+    @Value("${app.datagen.chunk-rows:250000}")
+    private int chunkRows;
+
+    @Value("${app.datagen.parallelism:4}")
+    private int parallelism;
+
+    @Value("${app.datagen.truncate:false}")
+    private boolean truncate;
+
+    @Value("${app.datagen.disable-triggers:true}")
+    private boolean disableTriggers;
+
+    @Value("${app.datagen.exit-when-done:true}")
+    private boolean exitWhenDone;
+
+    public SyntheticDataGenerator(
+            DataSource dataSource,
+            JdbcTemplate jdbcTemplate,
+            MyDataAclService myDataAclService,
+            MyDataCounterService myDataCounterService,
+            ConfigurableApplicationContext context) {
+        this.dataSource = dataSource;
+        this.jdbcTemplate = jdbcTemplate;
+        this.myDataAclService = myDataAclService;
+        this.myDataCounterService = myDataCounterService;
+        this.context = context;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws Exception {
+        long start = System.nanoTime();
+        organizationLevels = new Weights(organizationLevelWeights);
+        sensitivityLevels = new Weights(sensitivityLevelWeights);
+        reference = referenceTime.isBlank()
+            ? LocalDate.now(ZoneOffset.UTC).atStartOfDay().atOffset(ZoneOffset.UTC)
+            : OffsetDateTime.parse(referenceTime);
+        // Logged so a run can be reproduced later
+        log.info("Generating with seed {} and reference time {}", seed, reference);
+        if (truncate) {
+            log.info("Truncating generated tables");
+            jdbcTemplate.execute("TRUNCATE audit_log, data_access_control, my_data, user_attribute RESTART IDENTITY CASCADE");
+        }
+
+        List<GeneratedUser> users = buildOrganization();
+        copy(COPY_USERS, out -> users.forEach(user -> user.write(out)));
+        log.info("Loaded {} users", users.size());
+
+        // Hot owners and actors are spread across the organization, not just its leadership
+        List<GeneratedUser> actors = new ArrayList<>(users);
+        Collections.shuffle(actors, new Random(seed));
+
+        long dataStart = System.nanoTime();
+        long minId = reserveIds("my_data", records);
+        long maxId = minId + records - 1;
+        loadInChunks(COPY_DATA, records, (random, firstRow, rows, out) -> {
+            for (long i = 0; i < rows; i++) {
+                writeRecord(random, minId + firstRow + i, pick(random, actors), out);
+            }
+        });
+        log.info("Loaded {} my_data rows in {} s", records, seconds(dataStart));
+
+        long ruleCount = records * rulesPerThousandRecords / 1000;
+        copy(COPY_RULES, out -> {
+            SplittableRandom random = new SplittableRandom(seed ^ 0x52554c45L);
+            for (long i = 0; i < ruleCount; i++) {
+                writeRule(random, actors, minId + random.nextLong(maxId - minId + 1), i, out);
+            }
+            for (int i = 0; i < globalRules; i++) {
+                writeRule(random, actors, null, ruleCount + i, out);
+            }
+        });
+        log.info("Loaded {} access rules", ruleCount + globalRules);
+
+        long auditStart = System.nanoTime();
+        long firstAuditId = reserveIds("audit_log", auditLogs);
+        loadInChunks(COPY_AUDIT, auditLogs, (random, firstRow, rows, out) -> {
+            for (long i = 0; i < rows; i++) {
+                writeAuditLog(random, firstAuditId + firstRow + i, pick(random, actors), minId, maxId, out);
+            }
+        });
+        log.info("Loaded {} audit_log rows in {} s", auditLogs, seconds(auditStart));
+
+        if (disableTriggers && tableExists("my_data_acl")) {
+            log.info("Rebuilding my_data_acl: {}", myDataAclService.rebuild());
+        }
+        if ((disableTriggers || truncate) && tableExists("my_data_counter")) {
+            log.info("Rebuilding my_data_counter: {}", myDataCounterService.rebuild());
+        }
+        jdbcTemplate.execute("ANALYZE my_data, user_attribute, data_access_control, audit_log");
+        log.info("Synthetic dataset generated in {} s", seconds(start));
+
+        if (exitWhenDone) {
+            System.exit(SpringApplication.exit(context, () -> 0));
+        }
+    }
+
+    // ==================== Organization ====================
+
+    private List<GeneratedUser> buildOrganization() {
+        SplittableRandom random = new SplittableRandom(seed);
+        List<GeneratedUser> users = new ArrayList<>();
+
+        GeneratedUser ceo = new GeneratedUser("gen-exec-001", "EXECUTIVE", "LEADERSHIP", "TOP_SECRET",
+            "EXECUTIVE", null, true, true, true);
+        users.add(ceo);
+
+        for (int d = 1; d <= departments; d++) {
+            String department = String.format("DEPT-%03d", d);
+            GeneratedUser head = new GeneratedUser(String.format("gen-head-%03d", d), department, "MANAGEMENT",
+                "SECRET", "DEPARTMENT", ceo.userId, true, true, false);
+            users.add(head);
+
+            for (int t = 1; t <= teamsPerDepartment; t++) {
+                String team = String.format("%s-TEAM-%02d", department, t);
+                GeneratedUser lead = new GeneratedUser(String.format("gen-lead-%03d-%02d", d, t), department, team,
+                    "CONFIDENTIAL", "TEAM", head.userId, true, false, false);
+                users.add(lead);
+
+                for (int u = 1; u <= usersPerTeam; u++) {
+                    String clearance = CONTRIBUTOR_CLEARANCE.pick(random);
+                    users.add(new GeneratedUser(String.format("gen-user-%03d-%02d-%03d", d, t, u), department, team,
+                        clearance, "INDIVIDUAL", lead.userId, false, false, false));
+                }
+            }
+        }
+        return users;
+    }
+
+    private record GeneratedUser(
+            String userId,
+            String department,
+            String team,
+            String clearanceLevel,
+            String organizationLevel,
+            String managerId,
+            boolean manager,
+            boolean departmentHead,
+            boolean executive) {
+
+        void write(CopyWriter out) {
+            out.field(userId).field(userId).field(userId + "@generated.example").field(department).field(team)
+                .field(clearanceLevel).field(organizationLevel).field(managerId)
+                .field(manager).field(departmentHead).field(executive)
+                .field(roles()).field(true).end();
+        }
+
+        private String roles() {
+            if (executive) {
+                return "{\"roles\":[\"EXECUTIVE\",\"DATA_MANAGER\"]}";
+            }
+            if (departmentHead) {
+                return "{\"roles\":[\"DEPARTMENT_MANAGER\",\"EDITOR\"]}";
+            }
+            return manager ? "{\"roles\":[\"EDITOR\"]}" : "{\"roles\":[\"USER\"]}";
+        }
+    }
+
+    // ==================== Rows ====================
+
+    private void writeRecord(SplittableRandom random, long id, GeneratedUser owner, CopyWriter out) {
+        String sensitivity = sensitivityLevels.pick(random);
+        String level = organizationLevels.pick(random);
+        OffsetDateTime createdAt = reference.minusMinutes(random.nextLong(historyDays * 1440L));
+        boolean confidential = sensitivity.equals("CONFIDENTIAL") || sensitivity.equals("RESTRICTED");
+
+        out.field(id)
+            .field("Record " + Long.toHexString(random.nextLong()))
+            .field(reference.toLocalDate().minusDays(random.nextInt(Math.max(1, historyDays))).toString())
+            .field("Synthetic payload " + random.nextInt(1_000_000) + " for " + owner.team)
+            .field(sensitivity)
+            .field(level)
+            .field(owner.userId)
+            .field(owner.department)
+            .field(owner.team)
+            .field(confidential ? "Confidential note " + random.nextInt(10_000) : null)
+            .field(random.nextInt(4) == 0 ? "{\"amount\":" + random.nextInt(10_000_000) + ",\"currency\":\"USD\"}" : null)
+            .field("{\"source\":\"datagen\",\"priority\":" + random.nextInt(5) + "}")
+            .field(createdAt.toString())
+            .field(createdAt.toString())
+            .field(owner.userId)
+            .field(owner.userId)
+            .field(false)
+            .field(0)
+            .end();
+    }
+
+    private void writeRule(SplittableRandom random, List<GeneratedUser> users, Long dataId, long index, CopyWriter out) {
+        GeneratedUser user = pick(random, users);
+        String principalType = (dataId != null ? RECORD_RULE_PRINCIPALS : GLOBAL_RULE_PRINCIPALS).pick(random);
+        String principalValue = switch (principalType) {
+            case "USER" -> user.userId;
+            case "DEPARTMENT" -> user.department;
+            case "TEAM" -> user.team;
+            case "ROLE" -> random.nextBoolean() ? "EDITOR" : "DATA_MANAGER";
+            default -> "*";
+        };
+        boolean columnRule = random.nextInt(10) == 0;
+
+        out.field("gen-rule-" + index)
+            .field("Generated " + principalType.toLowerCase() + " rule")
+            .field(dataId)
+            .field(principalType)
+            .field(principalValue)
+            .field(random.nextInt(10) != 0)
+            .field(false)
+            .field(random.nextInt(3) == 0)
+            .field(random.nextInt(10) == 0)
+            .field(columnRule ? MASKED_COLUMNS[random.nextInt(MASKED_COLUMNS.length)] : null)
+            .field(random.nextInt(100))
+            .field(true)
+            .field("datagen")
+            .end();
+    }
+
+    private void writeAuditLog(SplittableRandom random, long id, GeneratedUser user, long minId, long maxId,
+                               CopyWriter out) {
+        String action = AUDIT_ACTIONS.pick(random);
+        boolean denied = random.nextInt(20) == 0;
+        // Hot records: the same skew as record ownership
+        long entityId = minId + (long) ((maxId - minId) * Math.pow(random.nextDouble(), skew));
+
+        out.field(id)
+            .field(user.userId)
+            .field(user.userId)
+            .field(user.department)
+            .field(user.team)
+            .field(action)
+            .field("MyData")
+            .field(String.valueOf(entityId))
+            .field(reference.minusSeconds(random.nextLong(90L * 86400)).toLocalDateTime().toString())
+            .field("10." + random.nextInt(256) + "." + random.nextInt(256) + "." + random.nextInt(256))
+            .field(switch (action) {
+                case "READ" -> "GET";
+                case "CREATE" -> "POST";
+                case "UPDATE" -> "PUT";
+                default -> "DELETE";
+            })
+            .field("/api/v1/data/" + entityId)
+            .field(denied ? DENIALS.pick(random) : "GRANTED")
+            .field(Long.toHexString(random.nextLong()))
+            .field(!denied)
+            .end();
+    }
+
+    // ==================== Loading ====================
+
+    @FunctionalInterface
+    private interface ChunkWriter {
+        void write(SplittableRandom random, long firstRow, long rows, CopyWriter out);
+    }
+
+    @FunctionalInterface
+    private interface RowWriter {
+        void write(CopyWriter out);
+    }
+
+    /**
+     * Load rows in parallel chunks, each a COPY on its own connection
+     */
+    private void loadInChunks(String copySql, long total, ChunkWriter writer) throws InterruptedException {
+        try (ExecutorService executor = Executors.newFixedThreadPool(parallelism)) {
+            List<Future<?>> futures = new ArrayList<>();
+            long chunks = (total + chunkRows - 1) / chunkRows;
+            for (long chunk = 0; chunk < chunks; chunk++) {
+                long firstRow = chunk * chunkRows;
+                long rows = Math.min(chunkRows, total - firstRow);
+                SplittableRandom random = new SplittableRandom(seed * 31 + copySql.hashCode() * 17L + chunk);
+                futures.add(executor.submit(() -> {
+                    copy(copySql, out -> writer.write(random, firstRow, rows, out));
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Synthetic data load failed: " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    /**
+     * Reserve the next count ids of a table and return the first. Chunks
+     * write their ids by row offset, since the order parallel COPYs draw from
+     * the identity sequence varies between runs.
+     */
+    private long reserveIds(String table, long count) {
+        long first = jdbcTemplate.queryForObject("SELECT COALESCE(max(id), 0) + 1 FROM " + table, Long.class);
+        if (count > 0) {
+            jdbcTemplate.queryForObject("SELECT setval(pg_get_serial_sequence(?, 'id'), ?)", Long.class,
+                table, first + count - 1);
+        }
+        return first;
+    }
+
+    private void copy(String copySql, RowWriter rows) throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            if (disableTriggers) {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("SET session_replication_role = replica");
+                }
+            }
+            CopyIn copyIn = connection.unwrap(PGConnection.class).getCopyAPI().copyIn(copySql);
+            try {
+                CopyWriter out = new CopyWriter(copyIn);
+                rows.write(out);
+                out.flush();
+                copyIn.endCopy();
+            } finally {
+                if (copyIn.isActive()) {
+                    copyIn.cancelCopy();
+                }
+                if (disableTriggers) {
+                    try (Statement statement = connection.createStatement()) {
+                        statement.execute("SET session_replication_role = DEFAULT");
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Streams COPY rows to the server in large writes
+     */
+    private static class CopyWriter {
+        private final CopyIn copyIn;
+        private final CopyTextBuffer buffer = new CopyTextBuffer(FLUSH_BYTES + 4096);
+
+        CopyWriter(CopyIn copyIn) {
+            this.copyIn = copyIn;
+        }
+
+        CopyWriter field(Object value) {
+            buffer.field(value);
+            return this;
+        }
+
+        void end() {
+            buffer.end();
+            if (buffer.length() >= FLUSH_BYTES) {
+                flush();
+            }
+        }
+
+        void flush() {
+            try {
+                buffer.writeTo(copyIn);
+            } catch (SQLException e) {
+                throw new IllegalStateException("COPY failed: " + e.getMessage(), e);
+            }
+        }
+    }
+
+    // ==================== Distributions ====================
+
+    /**
+     * Power-law pick: with skew above 1 the first users are chosen far more often
+     */
+    private <T> T pick(SplittableRandom random, List<T> items) {
+        return items.get((int) (items.size() * Math.pow(random.nextDouble(), skew)));
+    }
+
+    /**
+     * Weighted choice among values, in a fixed order so a seed is reproducible
+     */
+    private static class Weights {
+        private final String[] values;
+        private final int[] cumulative;
+
+        Weights(Map<String, Integer> weights) {
+            values = new String[weights.size()];
+            cumulative = new int[weights.size()];
+            int i = 0;
+            int total = 0;
+            for (Map.Entry<String, Integer> entry : weights.entrySet()) {
+                total += entry.getValue();
+                values[i] = entry.getKey();
+                cumulative[i++] = total;
+            }
+        }
+
+        static Weights of(Object... valueWeightPairs) {
+            Map<String, Integer> weights = new LinkedHashMap<>();
+            for (int i = 0; i < valueWeightPairs.length; i += 2) {
+                weights.put((String) valueWeightPairs[i], (Integer) valueWeightPairs[i + 1]);
+            }
+            return new Weights(weights);
+        }
+
+        String pick(SplittableRandom random) {
+            int roll = random.nextInt(cumulative[cumulative.length - 1]);
+            for (int i = 0; i < cumulative.length; i++) {
+                if (roll < cumulative[i]) {
+                    return values[i];
+                }
+            }
+            throw new IllegalStateException("Empty weight table");
+        }
+    }
+
+    private boolean tableExists(String table) {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject("SELECT to_regclass(?) IS NOT NULL", Boolean.class, table));
+    }
+
+    private static long seconds(long startNanos) {
+        return Duration.ofNanos(System.nanoTime() - startNanos).toSeconds();
+    }
+}
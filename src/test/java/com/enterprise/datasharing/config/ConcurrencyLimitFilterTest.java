@@ -0,0 +1,67 @@
+package com.enterprise.datasharing.config;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockAsyncContext;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ConcurrencyLimitFilterTest {
+
+    private final ConcurrencyLimitFilter filter = new ConcurrencyLimitFilter(1, Duration.ZERO);
+
+    @Test
+    void releasesPermitWhenSynchronousRequestReturns() throws Exception {
+        assertThat(filter(request(), (req, res) -> { })).isEqualTo(HttpServletResponse.SC_OK);
+        assertThat(filter(request(), (req, res) -> { })).isEqualTo(HttpServletResponse.SC_OK);
+    }
+
+    @Test
+    void holdsPermitUntilAsyncRequestCompletes() throws Exception {
+        MockHttpServletRequest streaming = request();
+        filter(streaming, (req, res) -> req.startAsync());
+
+        assertThat(filter(request(), (req, res) -> { })).isEqualTo(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+
+        ((MockAsyncContext) streaming.getAsyncContext()).complete();
+        assertThat(filter(request(), (req, res) -> { })).isEqualTo(HttpServletResponse.SC_OK);
+    }
+
+    @Test
+    void releasesPermitOnceWhenAsyncRequestTimesOut() throws Exception {
+        MockHttpServletRequest streaming = request();
+        filter(streaming, (req, res) -> req.startAsync());
+
+        MockAsyncContext asyncContext = (MockAsyncContext) streaming.getAsyncContext();
+        asyncContext.getListeners().forEach(listener -> {
+            try {
+                listener.onTimeout(null);
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        asyncContext.complete();
+
+        // Released once: a new stream takes the only permit again
+        MockHttpServletRequest next = request();
+        filter(next, (req, res) -> req.startAsync());
+        assertThat(filter(request(), (req, res) -> { })).isEqualTo(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+    }
+
+    private int filter(MockHttpServletRequest request, FilterChain chain) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, chain);
+        return response.getStatus();
+    }
+
+    private static MockHttpServletRequest request() {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/v1/data/date-range");
+        request.setAsyncSupported(true);
+        return request;
+    }
+}
@@ -0,0 +1,341 @@
+package com.enterprise.datasharing.repository;
+
+import com.enterprise.datasharing.config.CacheInvalidationHandler;
+import com.enterprise.datasharing.dto.EntitlementDto;
+import com.enterprise.datasharing.entity.DataAccessControl;
+import com.enterprise.datasharing.entity.MyData;
+import com.enterprise.datasharing.entity.UserAttribute;
+import com.enterprise.datasharing.security.AccessControlService;
+import com.enterprise.datasharing.security.AccessControlService.AccessOperation;
+import com.enterprise.datasharing.security.AccessPolicyCompiler;
+import com.enterprise.datasharing.security.CompiledAccessPolicy;
+import com.enterprise.datasharing.security.EntitlementService;
+import com.enterprise.datasharing.security.SecurityContext;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks the compiled access queries and the entitlement index against
+ * per-record checkAccess on generated users, records and rules. Each seed
+ * gives a different data set; a failure names the seed, user and operation
+ * to replay.
+ */
+@SpringBootTest(properties = {
+    "spring.liquibase.change-log=classpath:db/changelog/test-changelog.yaml",
+    "app.cache.invalidation.enabled=false",
+    // Expired rules must stay as generated while both sides are evaluated
+    "app.security.rule-lifecycle.enabled=false"
+})
+@Testcontainers(disabledWithoutDocker = true)
+class AccessibleMyDataDifferentialTest {
+
+    private static final List<String> DEPARTMENTS = List.of("ENGINEERING", "SALES", "FINANCE");
+    private static final List<String> ROLES = List.of("EXECUTIVE", "DEPARTMENT_MANAGER", "DATA_MANAGER", "EDITOR");
+    private static final List<AccessOperation> OPERATIONS =
+        List.of(AccessOperation.READ, AccessOperation.UPDATE, AccessOperation.DELETE);
+    private static final Sort NEWEST_FIRST = Sort.by(Sort.Direction.DESC, "createdAt");
+
+    @Container
+    static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", POSTGRES::getJdbcUrl);
+        registry.add("spring.datasource.username", POSTGRES::getUsername);
+        registry.add("spring.datasource.password", POSTGRES::getPassword);
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MyDataRepository myDataRepository;
+
+    @Autowired
+    private UserAttributeRepository userAttributeRepository;
+
+    @Autowired
+    private AccessControlService accessControlService;
+
+    @Autowired
+    private AccessPolicyCompiler accessPolicyCompiler;
+
+    @Autowired
+    private CacheInvalidationHandler cacheInvalidationHandler;
+
+    @Autowired
+    private EntitlementService entitlementService;
+
+    @ParameterizedTest
+    @ValueSource(longs = {1, 2, 3})
+    void compiledQueriesMatchCheckAccess(long seed) {
+        Random random = new Random(seed);
+        List<SecurityContext> contexts = seed(random);
+        List<MyData> records = myDataRepository.findAll().stream().filter(data -> !data.getDeleted()).toList();
+
+        for (SecurityContext context : contexts) {
+            for (AccessOperation operation : OPERATIONS) {
+                String description = "seed " + seed + ", " + context.getUserId() + " " + context.getRoles()
+                    + ", " + operation;
+                List<Long> expected = records.stream()
+                    .filter(data -> accessControlService.checkAccess(context, data, operation, null).isAllowed())
+                    .sorted(Comparator.comparing(MyData::getCreatedAt).thenComparing(MyData::getId).reversed())
+                    .map(MyData::getId)
+                    .toList();
+                CompiledAccessPolicy policy = accessPolicyCompiler.compile(context, operation, null);
+
+                assertThat(sorted(ids(myDataRepository.findAll(MyDataSpecifications.accessibleUnder(policy)))))
+                    .as("accessibleUnder, %s", description)
+                    .isEqualTo(sorted(expected));
+
+                assertThat(ids(myDataRepository.findAccessibleByUser(
+                        policy, PageRequest.of(0, records.size() + 1, NEWEST_FIRST), true).getContent()))
+                    .as("findAccessibleByUser, %s", description)
+                    .isEqualTo(expected);
+                assertThat(myDataRepository.findAccessibleByUser(policy, PageRequest.of(0, 1, NEWEST_FIRST), false)
+                        .getTotalElements())
+                    .as("findAccessibleByUser total, %s", description)
+                    .isEqualTo(expected.size());
+                assertThat(myDataRepository.findAccessibleByUser(policy, PageRequest.of(1, 1, NEWEST_FIRST), true)
+                        .getTotalElements())
+                    .as("findAccessibleByUser exact total, %s", description)
+                    .isEqualTo(expected.size());
+
+                if (operation == AccessOperation.READ) {
+                    assertThat(pages(policy, 7))
+                        .as("findAccessibleByUser pages, %s", description)
+                        .isEqualTo(expected);
+                    if (!policy.isAdmin()) {
+                        assertThat(ids(myDataRepository.findReadableViaAcl(
+                                policy, PageRequest.of(0, records.size() + 1, NEWEST_FIRST)).getContent()))
+                            .as("findReadableViaAcl, %s", description)
+                            .isEqualTo(expected);
+                        assertThat(myDataRepository.findReadableViaAcl(policy, PageRequest.of(0, 1, NEWEST_FIRST))
+                                .getTotalElements())
+                            .as("findReadableViaAcl total, %s", description)
+                            .isEqualTo(expected.size());
+                    }
+                }
+            }
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(longs = {1, 2, 3})
+    void entitlementsMatchCheckAccess(long seed) {
+        Random random = new Random(seed);
+        // The admin context is not a stored user, so the index does not know it
+        List<SecurityContext> contexts = seed(random).stream()
+            .filter(context -> !context.hasRole("ADMIN"))
+            .toList();
+        List<MyData> records = myDataRepository.findAll().stream().filter(data -> !data.getDeleted()).toList();
+
+        Map<Long, Map<String, Set<AccessOperation>>> expectedByRecord = new HashMap<>();
+        for (SecurityContext context : contexts) {
+            String description = "seed " + seed + ", " + context.getUserId() + " " + context.getRoles();
+            Map<Long, Set<AccessOperation>> expected = new HashMap<>();
+            for (MyData data : records) {
+                Set<AccessOperation> operations = EnumSet.noneOf(AccessOperation.class);
+                for (AccessOperation operation : OPERATIONS) {
+                    if (accessControlService.checkAccess(context, data, operation, null).isAllowed()) {
+                        operations.add(operation);
+                    }
+                }
+                if (!operations.isEmpty()) {
+                    expected.put(data.getId(), operations);
+                    expectedByRecord.computeIfAbsent(data.getId(), id -> new HashMap<>())
+                        .put(context.getUserId(), operations);
+                }
+            }
+
+            List<EntitlementDto.RecordAccess> accessible =
+                entitlementService.accessibleRecords(context.getUserId()).toList();
+            assertThat(accessible.stream().collect(Collectors.toMap(
+                    EntitlementDto.RecordAccess::getDataId, EntitlementDto.RecordAccess::getOperations)))
+                .as("accessibleRecords, %s", description)
+                .isEqualTo(expected);
+            assertThat(accessible).extracting(EntitlementDto.RecordAccess::getDataId)
+                .as("accessibleRecords order, %s", description)
+                .isSorted();
+            accessible.forEach(access -> assertThat(access.getVisibleColumns())
+                .as("visible columns, %s", description)
+                .isEqualTo(accessControlService.getVisibleColumns(context, null)));
+        }
+
+        for (MyData data : records) {
+            assertThat(entitlementService.whoCanAccess(data.getId()).stream().collect(Collectors.toMap(
+                    EntitlementDto.UserAccess::getUserId, EntitlementDto.UserAccess::getOperations)))
+                .as("whoCanAccess, seed %d, record %d", seed, data.getId())
+                .isEqualTo(expectedByRecord.getOrDefault(data.getId(), Map.of()));
+        }
+    }
+
+    private List<Long> pages(CompiledAccessPolicy policy, int size) {
+        List<Long> ids = new ArrayList<>();
+        Page<MyData> page;
+        int number = 0;
+        do {
+            page = myDataRepository.findAccessibleByUser(policy, PageRequest.of(number++, size, NEWEST_FIRST), false);
+            ids.addAll(ids(page.getContent()));
+        } while (page.hasNext());
+        return ids;
+    }
+
+    /**
+     * Replace the users, records and rules with a generated set; returns a
+     * context per user plus an admin
+     */
+    private List<SecurityContext> seed(Random random) {
+        // Row deletes, not TRUNCATE, so the ACL and counter triggers keep up
+        jdbcTemplate.update("DELETE FROM data_access_control");
+        jdbcTemplate.update("DELETE FROM my_data");
+        jdbcTemplate.update("DELETE FROM user_attribute");
+        cacheInvalidationHandler.evictAll();
+
+        List<String> userIds = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            String userId = "user-" + i;
+            String department = random.nextInt(10) == 0 ? null : pick(random, DEPARTMENTS);
+            String team = department == null || random.nextInt(10) == 0 ? null : department + "-" + random.nextInt(2);
+            jdbcTemplate.update("""
+                    INSERT INTO user_attribute (user_id, username, department, team, clearance_level,
+                        organization_level, manager_id, is_manager, is_department_head, is_executive, active)
+                    VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, true)
+                    """,
+                userId, userId, department, team,
+                pick(random, List.of(UserAttribute.ClearanceLevel.values())).name(),
+                pick(random, List.of(UserAttribute.OrganizationLevel.values())).name(),
+                userIds.isEmpty() || random.nextInt(10) < 3 ? null : pick(random, userIds),
+                random.nextInt(4) == 0, random.nextInt(12) == 0, random.nextInt(20) == 0);
+            userIds.add(userId);
+        }
+
+        List<String> ownerIds = new ArrayList<>(userIds);
+        // Owners that have left have no attributes, so no manager
+        ownerIds.add("former-user");
+        List<Long> dataIds = new ArrayList<>();
+        OffsetDateTime start = OffsetDateTime.of(2026, 1, 1, 0, 0, 0, 0, ZoneOffset.UTC);
+        for (int i = 0; i < 250; i++) {
+            String ownerId = pick(random, ownerIds);
+            String department = random.nextInt(5) == 0 ? pick(random, DEPARTMENTS)
+                : jdbcTemplate.query("SELECT department FROM user_attribute WHERE user_id = ?",
+                    rs -> rs.next() ? rs.getString(1) : null, ownerId);
+            String team = department == null || random.nextInt(5) == 0 ? null : department + "-" + random.nextInt(2);
+            // Some records share a creation time, so the id breaks the tie
+            OffsetDateTime createdAt = start.plusMinutes(random.nextInt(200));
+            dataIds.add(jdbcTemplate.queryForObject("""
+                    INSERT INTO my_data (name, date, sensitivity_level, organization_level, owner_id,
+                        owner_department, owner_team, created_at, created_by, deleted, version)
+                    VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, 0)
+                    RETURNING id
+                    """, Long.class,
+                "record-" + i, LocalDate.of(2026, 1, 1).plusDays(random.nextInt(365)),
+                pick(random, List.of(MyData.SensitivityLevel.values())).name(),
+                pick(random, List.of(MyData.OrganizationLevel.values())).name(),
+                ownerId, department, team, createdAt, ownerId, random.nextInt(10) == 0));
+        }
+
+        OffsetDateTime now = OffsetDateTime.now(ZoneOffset.UTC);
+        for (int i = 0; i < 25; i++) {
+            DataAccessControl.PrincipalType principalType = pick(random, List.of(DataAccessControl.PrincipalType.values()));
+            String principalValue = switch (principalType) {
+                case USER -> pick(random, userIds);
+                case ROLE -> pick(random, ROLES);
+                case DEPARTMENT -> pick(random, DEPARTMENTS);
+                case TEAM -> pick(random, DEPARTMENTS) + "-" + random.nextInt(2);
+                case CLEARANCE -> pick(random, List.of(UserAttribute.ClearanceLevel.values())).name();
+                case ORGANIZATION, ALL -> "*";
+            };
+            String attributeConditions = switch (random.nextInt(8)) {
+                case 0 -> "{\"department\": \"" + pick(random, DEPARTMENTS) + "\"}";
+                case 1 -> "{\"isExecutive\": \"false\"}";
+                default -> null;
+            };
+            OffsetDateTime validFrom = null;
+            OffsetDateTime validUntil = null;
+            switch (random.nextInt(6)) {
+                case 0 -> {
+                    validFrom = now.minusDays(10);
+                    validUntil = now.minusDays(1);
+                }
+                case 1 -> {
+                    validFrom = now.minusDays(1);
+                    validUntil = now.plusDays(1);
+                }
+                case 2 -> validFrom = now.plusDays(1);
+                default -> {
+                }
+            }
+            jdbcTemplate.update("""
+                    INSERT INTO data_access_control (rule_name, data_id, principal_type, principal_value,
+                        can_read, can_create, can_update, can_delete, attribute_conditions,
+                        valid_from, valid_until, priority, active, created_by)
+                    VALUES (?, ?, ?, ?, ?, false, ?, ?, ?, ?, ?, 0, ?, 'test')
+                    """,
+                "rule-" + i, random.nextInt(10) == 0 ? null : pick(random, dataIds),
+                principalType.name(), principalValue,
+                random.nextInt(5) < 2, random.nextBoolean(), random.nextBoolean(), attributeConditions,
+                validFrom, validUntil, random.nextInt(10) != 0);
+        }
+        cacheInvalidationHandler.evictAll();
+
+        List<SecurityContext> contexts = new ArrayList<>();
+        for (UserAttribute attribute : userAttributeRepository.findAll()) {
+            Set<String> roles = new HashSet<>(Set.of("USER"));
+            for (String role : ROLES) {
+                if (random.nextInt(8) == 0) {
+                    roles.add(role);
+                }
+            }
+            contexts.add(SecurityContext.fromUserAttribute(attribute, roles));
+            // The entitlement index reads realm roles from the custom attributes
+            jdbcTemplate.update("UPDATE user_attribute SET attributes = ? WHERE user_id = ?",
+                "{\"roles\": [\"" + String.join("\", \"", roles) + "\"]}",
+                attribute.getUserId());
+        }
+        cacheInvalidationHandler.evictAll();
+        contexts.add(SecurityContext.fromUserAttribute(
+            userAttributeRepository.findByUserId(userIds.get(0)).orElseThrow(), Set.of("USER", "ADMIN")));
+        return contexts;
+    }
+
+    private static <T> T pick(Random random, List<T> values) {
+        return values.get(random.nextInt(values.size()));
+    }
+
+    private static List<Long> ids(List<MyData> records) {
+        return records.stream().map(MyData::getId).toList();
+    }
+
+    private static List<Long> sorted(List<Long> ids) {
+        return ids.stream().sorted().toList();
+    }
+}
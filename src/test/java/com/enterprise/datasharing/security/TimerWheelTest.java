@@ -0,0 +1,104 @@
+package com.enterprise.datasharing.security;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks the timer wheel against the plain rule it implements: an item
+ * fires on the first advance that reaches its deadline rounded up to a tick.
+ */
+class TimerWheelTest {
+
+    private static final Duration TICK = Duration.ofSeconds(1);
+    private static final Instant START = Instant.parse("2026-01-01T00:00:00Z");
+
+    @ParameterizedTest
+    @ValueSource(longs = {1, 2, 3})
+    void firesEachItemOnTheFirstAdvancePastItsDeadline(long seed) {
+        Random random = new Random(seed);
+        TimerWheel<Integer> wheel = new TimerWheel<>(TICK, START);
+        Map<Integer, Instant> deadlines = new HashMap<>();
+        // Spread over every level and the overflow list (64^4 ticks)
+        long[] horizons = {50, 4_000, 250_000, 16_000_000, 20_000_000};
+        for (int item = 0; item < 500; item++) {
+            long horizon = horizons[item % horizons.length];
+            Instant deadline = START.plusMillis((long) (random.nextDouble() * horizon * 1000));
+            deadlines.put(item, deadline);
+            wheel.schedule(deadline, item);
+        }
+
+        Instant now = START;
+        while (!deadlines.isEmpty()) {
+            Instant previous = now;
+            now = now.plusSeconds(1 + random.nextInt(random.nextBoolean() ? 30 : 300_000));
+            Instant reached = now;
+            List<Integer> expected = deadlines.entrySet().stream()
+                .filter(entry -> !ceilToTick(entry.getValue()).isAfter(reached))
+                .sorted(Map.Entry.<Integer, Instant>comparingByValue().thenComparing(Map.Entry.comparingByKey()))
+                .map(Map.Entry::getKey)
+                .toList();
+
+            List<Integer> fired = wheel.advance(now);
+
+            assertThat(fired).as("seed %d, advance from %s to %s", seed, previous, now)
+                .containsExactlyInAnyOrderElementsOf(expected);
+            assertThat(fired).as("seed %d, deadline order", seed)
+                .isSortedAccordingTo(Comparator.comparing(item -> ceilToTick(deadlines.get(item))));
+            expected.forEach(deadlines::remove);
+            assertThat(wheel.size()).isEqualTo(deadlines.size());
+        }
+    }
+
+    @Test
+    void cascadesHigherLevelsDownWithoutFiringEarly() {
+        TimerWheel<String> wheel = new TimerWheel<>(TICK, START);
+        // Level 1, level 2 and level 3 placements
+        wheel.schedule(START.plusSeconds(100), "level-1");
+        wheel.schedule(START.plusSeconds(5_000), "level-2");
+        wheel.schedule(START.plusSeconds(300_000), "level-3");
+
+        assertThat(wheel.advance(START.plusSeconds(99))).isEmpty();
+        assertThat(wheel.advance(START.plusSeconds(100))).containsExactly("level-1");
+        assertThat(wheel.advance(START.plusSeconds(4_999))).isEmpty();
+        assertThat(wheel.advance(START.plusSeconds(5_000))).containsExactly("level-2");
+        assertThat(wheel.advance(START.plusSeconds(299_999))).isEmpty();
+        assertThat(wheel.advance(START.plusSeconds(300_000))).containsExactly("level-3");
+        assertThat(wheel.size()).isZero();
+    }
+
+    @Test
+    void roundsDeadlinesUpToTheNextTick() {
+        TimerWheel<String> wheel = new TimerWheel<>(TICK, START);
+        wheel.schedule(START.plusMillis(1_500), "half");
+
+        assertThat(wheel.advance(START.plusMillis(1_999))).isEmpty();
+        assertThat(wheel.advance(START.plusSeconds(2))).containsExactly("half");
+    }
+
+    @Test
+    void firesPassedDeadlinesOnTheNextAdvance() {
+        TimerWheel<String> wheel = new TimerWheel<>(TICK, START.plusSeconds(60));
+        wheel.schedule(START, "passed");
+
+        assertThat(wheel.size()).isEqualTo(1);
+        assertThat(wheel.advance(START.plusSeconds(60))).containsExactly("passed");
+        assertThat(wheel.size()).isZero();
+    }
+
+    private static Instant ceilToTick(Instant instant) {
+        Instant floor = Instant.ofEpochSecond(instant.getEpochSecond());
+        return floor.equals(instant) ? floor : floor.plusSeconds(1);
+    }
+}
@@ -0,0 +1,161 @@
+package com.enterprise.datasharing.service;
+
+import com.enterprise.datasharing.dto.AuditLogDto;
+import com.enterprise.datasharing.entity.AuditLog;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.Predicate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Writes generated audit logs to a segment and checks every search against
+ * a plain filter over the same rows.
+ */
+class AuditSegmentTest {
+
+    private static final int ROWS = 2_000;
+    private static final int ROWS_PER_GROUP = 128;
+    private static final LocalDateTime START = LocalDateTime.of(2025, 1, 1, 0, 0);
+    private static final Comparator<AuditLog> NEWEST_FIRST =
+        Comparator.comparing(AuditLog::getTimestamp).thenComparing(AuditLog::getId).reversed();
+
+    @TempDir
+    private Path directory;
+
+    private final List<AuditLog> rows = new ArrayList<>();
+    private AuditSegment segment;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        Random random = new Random(42);
+        LocalDateTime timestamp = START;
+        for (int i = 0; i < ROWS; i++) {
+            // Some rows share a timestamp, so ids decide the order
+            if (random.nextInt(4) != 0) {
+                timestamp = timestamp.plus(random.nextInt(5_000_000), ChronoUnit.MICROS);
+            }
+            rows.add(AuditLog.builder()
+                .id(1_000L + i * 3L)
+                .timestamp(timestamp)
+                .userId("user-" + random.nextInt(40))
+                .username("name-" + i)
+                .action(AuditLog.AuditAction.values()[random.nextInt(4)])
+                .entityType(random.nextBoolean() ? "MyData" : "DataAccessControl")
+                .entityId(random.nextInt(5) == 0 ? null : String.valueOf(random.nextInt(100)))
+                .accessDecision(random.nextInt(3) == 0 ? null : AuditLog.AccessDecision.values()[random.nextInt(3)])
+                .success(random.nextInt(10) != 0)
+                .oldValue(random.nextBoolean() ? null : "old ünïcödé " + i)
+                .newValue("new " + i)
+                .build());
+        }
+
+        Path file = directory.resolve("audit-test.seg");
+        try (AuditSegment.Writer writer = new AuditSegment.Writer(file)) {
+            for (int from = 0; from < ROWS; from += ROWS_PER_GROUP) {
+                writer.writeGroup(rows.subList(from, Math.min(from + ROWS_PER_GROUP, ROWS)));
+            }
+            writer.commit();
+        }
+        segment = AuditSegment.open(file);
+    }
+
+    @Test
+    void footerAndIdsRoundTrip() {
+        AuditLog last = rows.get(ROWS - 1);
+
+        assertThat(segment.rowCount()).isEqualTo(ROWS);
+        assertThat(segment.last()).isEqualTo(new AuditLogDto.Cursor(last.getTimestamp(), last.getId()));
+        assertThat(segment.ids()).containsExactly(rows.stream().mapToLong(AuditLog::getId).toArray());
+    }
+
+    @Test
+    void returnsEveryColumnNewestFirst() {
+        List<AuditLog> result = search(AuditLogDto.Filter.builder().build(), null, ROWS + 1);
+
+        assertThat(result).isEqualTo(rows.stream().sorted(NEWEST_FIRST).toList());
+    }
+
+    @Test
+    void matchesPlainFilteringForEachFilterAndCursor() {
+        LocalDateTime middle = rows.get(ROWS / 2).getTimestamp();
+        List<AuditLogDto.Filter> filters = List.of(
+            AuditLogDto.Filter.builder().userId("user-7").build(),
+            AuditLogDto.Filter.builder().entityType("MyData").entityId("12").build(),
+            AuditLogDto.Filter.builder().actions(Set.of(AuditLog.AuditAction.READ, AuditLog.AuditAction.DELETE))
+                .build(),
+            AuditLogDto.Filter.builder().decisions(Set.of(AuditLog.AccessDecision.DENIED_ROLE)).success(false)
+                .build(),
+            AuditLogDto.Filter.builder().from(middle.minusMinutes(30)).to(middle.plusMinutes(30)).build());
+        List<AuditLogDto.Cursor> cursors = List.of(
+            AuditLogDto.Cursor.after(rows.get(ROWS - 1)),
+            AuditLogDto.Cursor.after(rows.get(ROWS / 3)),
+            // A tie on the timestamp is broken by id
+            new AuditLogDto.Cursor(rows.get(ROWS / 2).getTimestamp(), rows.get(ROWS / 2).getId() + 1));
+
+        for (AuditLogDto.Filter filter : filters) {
+            for (AuditLogDto.Cursor cursor : cursors) {
+                for (int limit : new int[] {5, ROWS}) {
+                    assertThat(search(filter, cursor, limit))
+                        .as("%s after %s, limit %d", filter, cursor, limit)
+                        .isEqualTo(expected(filter, cursor, limit));
+                }
+            }
+        }
+    }
+
+    @Test
+    void findsEveryUserInTheBloomFilterAndNoneOutsideIt() {
+        rows.stream().map(AuditLog::getUserId).distinct().forEach(userId ->
+            assertThat(search(AuditLogDto.Filter.builder().userId(userId).build(), null, 1))
+                .as(userId)
+                .hasSize(1));
+
+        assertThat(search(AuditLogDto.Filter.builder().userId("user-absent").build(), null, ROWS)).isEmpty();
+    }
+
+    @Test
+    void skipsSegmentOutsideTheTimeRange() {
+        AuditLogDto.Filter before = AuditLogDto.Filter.builder().to(START.minusSeconds(1)).build();
+        AuditLogDto.Filter after = AuditLogDto.Filter.builder()
+            .from(rows.get(ROWS - 1).getTimestamp().plusSeconds(1)).build();
+
+        assertThat(search(before, null, ROWS)).isEmpty();
+        assertThat(search(after, null, ROWS)).isEmpty();
+        assertThat(search(AuditLogDto.Filter.builder().build(), AuditLogDto.Cursor.after(rows.get(0)), ROWS))
+            .isEmpty();
+    }
+
+    private List<AuditLog> search(AuditLogDto.Filter filter, AuditLogDto.Cursor after, int limit) {
+        List<AuditLog> result = new ArrayList<>();
+        segment.search(filter, after, limit, result);
+        return result;
+    }
+
+    private List<AuditLog> expected(AuditLogDto.Filter filter, AuditLogDto.Cursor after, int limit) {
+        Predicate<AuditLog> matches = row ->
+            (filter.getUserId() == null || filter.getUserId().equals(row.getUserId()))
+                && (filter.getEntityType() == null || filter.getEntityType().equals(row.getEntityType()))
+                && (filter.getEntityId() == null || filter.getEntityId().equals(row.getEntityId()))
+                && (filter.getActions() == null || filter.getActions().contains(row.getAction()))
+                && (filter.getDecisions() == null
+                    || (row.getAccessDecision() != null && filter.getDecisions().contains(row.getAccessDecision())))
+                && (filter.getSuccess() == null || filter.getSuccess().equals(row.getSuccess()))
+                && (filter.getFrom() == null || !row.getTimestamp().isBefore(filter.getFrom()))
+                && (filter.getTo() == null || !row.getTimestamp().isAfter(filter.getTo()))
+                && (after == null || row.getTimestamp().isBefore(after.timestamp())
+                    || (row.getTimestamp().equals(after.timestamp()) && row.getId() < after.id()));
+        return rows.stream().filter(matches).sorted(NEWEST_FIRST).limit(limit).toList();
+    }
+}
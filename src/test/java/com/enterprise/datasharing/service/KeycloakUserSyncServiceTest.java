@@ -0,0 +1,229 @@
+package com.enterprise.datasharing.service;
+
+import com.enterprise.datasharing.config.CacheInvalidationHandler;
+import com.enterprise.datasharing.config.KeycloakAdminConfig;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.keycloak.admin.client.Keycloak;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.MountableFile;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Runs the sync against a stub of the Keycloak admin API and a Postgres
+ * schema from db/init.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class KeycloakUserSyncServiceTest {
+
+    private static final String REALM = "test-realm";
+
+    @Container
+    static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:16-alpine")
+        .withCopyFileToContainer(MountableFile.forHostPath("db/init/01-init-schema.sql"),
+            "/docker-entrypoint-initdb.d/01-init-schema.sql");
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final List<Map<String, Object>> stubUsers = new ArrayList<>();
+    private final CacheInvalidationHandler cacheInvalidationHandler = mock(CacheInvalidationHandler.class);
+    // Overrides the user count the stub reports; null reports the listed users
+    private Integer stubCount;
+
+    private HttpServer server;
+    private Keycloak keycloak;
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/realms/" + REALM + "/protocol/openid-connect/token", exchange ->
+            respond(exchange, Map.of("access_token", "stub-token", "token_type", "Bearer", "expires_in", 300)));
+        server.createContext("/admin/realms/" + REALM + "/users", this::users);
+        server.start();
+
+        keycloak = new KeycloakAdminConfig().keycloakAdmin(
+            "http://localhost:" + server.getAddress().getPort(), REALM, "sync-client", "secret");
+        jdbcTemplate = new JdbcTemplate(new DriverManagerDataSource(
+            POSTGRES.getJdbcUrl(), POSTGRES.getUsername(), POSTGRES.getPassword()));
+        jdbcTemplate.update("DELETE FROM user_attribute");
+    }
+
+    @AfterEach
+    void tearDown() {
+        keycloak.close();
+        server.stop(0);
+    }
+
+    @Test
+    void insertsUsersAcrossPagesAndDerivesManagers() {
+        stubUser("u-1", "alice", "ENGINEERING", null);
+        stubUser("u-2", "bob", "ENGINEERING", "u-1");
+        stubUser("u-3", "carol", "SALES", "u-1");
+
+        KeycloakUserSyncService.SyncResult result = service(false).sync().orElseThrow();
+
+        assertThat(result.fetched()).isEqualTo(3);
+        assertThat(result.upserted()).isEqualTo(3);
+        assertThat(jdbcTemplate.queryForObject(
+            "SELECT is_manager FROM user_attribute WHERE user_id = 'u-1'", Boolean.class)).isTrue();
+        assertThat(jdbcTemplate.queryForObject(
+            "SELECT manager_id FROM user_attribute WHERE user_id = 'u-2'", String.class)).isEqualTo("u-1");
+        assertThat(jdbcTemplate.queryForObject(
+            "SELECT clearance_level FROM user_attribute WHERE user_id = 'u-3'", String.class)).isEqualTo("SECRET");
+        verify(cacheInvalidationHandler).evictAll();
+    }
+
+    @Test
+    void writesOnlyChangedUsers() {
+        stubUser("u-1", "alice", "ENGINEERING", null);
+        stubUser("u-2", "bob", "ENGINEERING", null);
+        KeycloakUserSyncService service = service(false);
+        service.sync();
+
+        stubUsers.get(1).put("attributes", attributes("SALES", null));
+        KeycloakUserSyncService.SyncResult result = service.sync().orElseThrow();
+
+        assertThat(result.upserted()).isEqualTo(1);
+        assertThat(result.unchanged()).isEqualTo(1);
+        assertThat(jdbcTemplate.queryForObject(
+            "SELECT department FROM user_attribute WHERE user_id = 'u-2'", String.class)).isEqualTo("SALES");
+    }
+
+    @Test
+    void keepsMissingUsersActiveByDefault() {
+        stubUser("u-1", "alice", "ENGINEERING", null);
+        stubUser("u-2", "bob", "ENGINEERING", null);
+        KeycloakUserSyncService service = service(false);
+        service.sync();
+
+        stubUsers.remove(1);
+        KeycloakUserSyncService.SyncResult result = service.sync().orElseThrow();
+
+        assertThat(result.deactivated()).isZero();
+        assertThat(active("u-2")).isTrue();
+    }
+
+    @Test
+    void deactivatesUsersMissingFromCompleteListing() {
+        stubUser("u-1", "alice", "ENGINEERING", null);
+        stubUser("u-2", "bob", "ENGINEERING", null);
+        KeycloakUserSyncService service = service(true);
+        service.sync();
+
+        stubUsers.remove(1);
+        KeycloakUserSyncService.SyncResult result = service.sync().orElseThrow();
+
+        assertThat(result.deactivated()).isEqualTo(1);
+        assertThat(active("u-1")).isTrue();
+        assertThat(active("u-2")).isFalse();
+    }
+
+    @Test
+    void keepsMissingUsersActiveWhenListingIsIncomplete() {
+        stubUser("u-1", "alice", "ENGINEERING", null);
+        stubUser("u-2", "bob", "ENGINEERING", null);
+        KeycloakUserSyncService service = service(true);
+        service.sync();
+
+        // A page went missing: Keycloak reports more users than were listed
+        stubUsers.remove(1);
+        stubCount = 2;
+        KeycloakUserSyncService.SyncResult result = service.sync().orElseThrow();
+
+        assertThat(result.deactivated()).isZero();
+        assertThat(active("u-2")).isTrue();
+    }
+
+    @Test
+    void emptyListingChangesNothing() {
+        stubUser("u-1", "alice", "ENGINEERING", null);
+        KeycloakUserSyncService service = service(true);
+        service.sync();
+
+        stubUsers.clear();
+        KeycloakUserSyncService.SyncResult result = service.sync().orElseThrow();
+
+        assertThat(result.deactivated()).isZero();
+        assertThat(active("u-1")).isTrue();
+    }
+
+    private KeycloakUserSyncService service(boolean deactivateMissing) {
+        // Page size 2 so three users take two pages
+        return new KeycloakUserSyncService(keycloak, jdbcTemplate, cacheInvalidationHandler, REALM,
+            2, 1000, deactivateMissing);
+    }
+
+    private boolean active(String userId) {
+        return jdbcTemplate.queryForObject(
+            "SELECT active FROM user_attribute WHERE user_id = ?", Boolean.class, userId);
+    }
+
+    private void stubUser(String id, String username, String department, String managerId) {
+        Map<String, Object> user = new HashMap<>();
+        user.put("id", id);
+        user.put("username", username);
+        user.put("email", username + "@enterprise.com");
+        user.put("enabled", true);
+        user.put("attributes", attributes(department, managerId));
+        stubUsers.add(user);
+    }
+
+    private static Map<String, List<String>> attributes(String department, String managerId) {
+        Map<String, List<String>> attributes = new LinkedHashMap<>();
+        attributes.put("department", List.of(department));
+        attributes.put("clearance_level", List.of("secret"));
+        if (managerId != null) {
+            attributes.put("manager_id", List.of(managerId));
+        }
+        return attributes;
+    }
+
+    private void users(HttpExchange exchange) throws IOException {
+        if (exchange.getRequestURI().getPath().endsWith("/count")) {
+            respond(exchange, stubCount != null ? stubCount : stubUsers.size());
+            return;
+        }
+        Map<String, String> query = new HashMap<>();
+        String rawQuery = exchange.getRequestURI().getRawQuery();
+        if (rawQuery != null) {
+            for (String parameter : rawQuery.split("&")) {
+                String[] pair = parameter.split("=", 2);
+                query.put(pair[0], pair.length > 1 ? URLDecoder.decode(pair[1], StandardCharsets.UTF_8) : "");
+            }
+        }
+        int first = Integer.parseInt(query.getOrDefault("first", "0"));
+        int max = Integer.parseInt(query.getOrDefault("max", String.valueOf(stubUsers.size())));
+        int from = Math.min(first, stubUsers.size());
+        respond(exchange, stubUsers.subList(from, Math.min(from + max, stubUsers.size())));
+    }
+
+    private void respond(HttpExchange exchange, Object body) throws IOException {
+        byte[] bytes = objectMapper.writeValueAsBytes(body);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, bytes.length);
+        exchange.getResponseBody().write(bytes);
+        exchange.close();
+    }
+}
@@ -0,0 +1,204 @@
+package com.enterprise.datasharing.service;
+
+import com.enterprise.datasharing.config.CacheInvalidationHandler;
+import com.enterprise.datasharing.dto.MyDataDto;
+import com.enterprise.datasharing.exception.PreconditionFailedException;
+import com.enterprise.datasharing.repository.AccessibleMyDataRepository;
+import com.enterprise.datasharing.repository.MyDataRepository;
+import com.enterprise.datasharing.repository.UserAttributeRepository;
+import com.enterprise.datasharing.security.EntityTagService;
+import com.enterprise.datasharing.security.SecurityContext;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Conditional reads (If-None-Match) and updates (If-Match) on MyData,
+ * through the service and the single-statement update.
+ */
+@SpringBootTest(properties = {
+    "spring.liquibase.change-log=classpath:db/changelog/test-changelog.yaml",
+    "app.cache.invalidation.enabled=false",
+    "app.security.rule-lifecycle.enabled=false"
+})
+@Testcontainers(disabledWithoutDocker = true)
+class MyDataConditionalRequestTest {
+
+    private static final String OWNER = "etag-owner";
+
+    @Container
+    static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", POSTGRES::getJdbcUrl);
+        registry.add("spring.datasource.username", POSTGRES::getUsername);
+        registry.add("spring.datasource.password", POSTGRES::getPassword);
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MyDataService myDataService;
+
+    @Autowired
+    private MyDataRepository myDataRepository;
+
+    @Autowired
+    private UserAttributeRepository userAttributeRepository;
+
+    @Autowired
+    private EntityTagService entityTagService;
+
+    @Autowired
+    private CacheInvalidationHandler cacheInvalidationHandler;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private SecurityContext owner;
+    private Long id;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("DELETE FROM my_data WHERE owner_id = ?", OWNER);
+        jdbcTemplate.update("DELETE FROM user_attribute WHERE user_id = ?", OWNER);
+        jdbcTemplate.update("""
+            INSERT INTO user_attribute (user_id, username, department, team, clearance_level, organization_level,
+                is_manager, is_department_head, is_executive, active)
+            VALUES (?, ?, 'ENGINEERING', 'ENGINEERING-0', 'TOP_SECRET', 'INDIVIDUAL', false, false, false, true)
+            """, OWNER, OWNER);
+        id = jdbcTemplate.queryForObject("""
+            INSERT INTO my_data (name, date, sensitivity_level, organization_level, owner_id, owner_department,
+                owner_team, created_at, created_by, deleted, version)
+            VALUES ('original', ?, 'INTERNAL', 'INDIVIDUAL', ?, 'ENGINEERING', 'ENGINEERING-0', now(), ?, false, 0)
+            RETURNING id
+            """, Long.class, LocalDate.of(2026, 1, 1), OWNER, OWNER);
+        cacheInvalidationHandler.evictAll();
+        owner = SecurityContext.fromUserAttribute(userAttributeRepository.findByUserId(OWNER).orElseThrow(),
+            Set.of("USER"));
+    }
+
+    @Test
+    void revalidatesAGrantedReadWithTheMatchedTag() {
+        String etag = tag(myDataService.findById(id, owner, null));
+
+        assertThat(myDataService.notModifiedTag(id, etag, owner, null)).contains(etag);
+        // A weak or listed validator still answers with the strong tag of the representation
+        assertThat(myDataService.notModifiedTag(id, "W/" + etag, owner, null)).contains(etag);
+        assertThat(myDataService.notModifiedTag(id, "\"other\", " + etag, owner, null)).contains(etag);
+        assertThat(myDataService.notModifiedTag(id, "\"other\"", owner, null)).isEmpty();
+    }
+
+    @Test
+    void doesNotRevalidateWithoutAGrant() {
+        String etag = entityTagService.tagFor(id, 0L, null);
+
+        assertThat(myDataService.notModifiedTag(id, etag, owner, null)).isEmpty();
+        assertThat(myDataService.notModifiedTag(id, "*", owner, null)).isEmpty();
+    }
+
+    @Test
+    void doesNotRevalidateAfterTheRecordOrPolicyChanges() {
+        String etag = tag(myDataService.findById(id, owner, null));
+        jdbcTemplate.update("UPDATE my_data SET name = 'changed', version = version + 1 WHERE id = ?", id);
+
+        assertThat(myDataService.notModifiedTag(id, etag, owner, null)).isEmpty();
+
+        etag = tag(myDataService.findById(id, owner, null));
+        cacheInvalidationHandler.evictAll();
+
+        assertThat(myDataService.notModifiedTag(id, etag, owner, null)).isEmpty();
+    }
+
+    @Test
+    void updatesWhenIfMatchIsCurrent() {
+        MyDataDto.Response read = myDataService.findById(id, owner, null);
+
+        MyDataDto.Response updated = myDataService.update(id,
+            MyDataDto.UpdateRequest.builder().name("renamed").data("payload").build(), tag(read), owner, null);
+
+        assertThat(updated.getName()).isEqualTo("renamed");
+        assertThat(updated.getData()).isEqualTo("payload");
+        assertThat(updated.getVersion()).isEqualTo(read.getVersion() + 1);
+        assertThat(tag(updated)).isNotEqualTo(tag(read));
+        assertThat(jdbcTemplate.queryForMap("SELECT name, data, version FROM my_data WHERE id = ?", id))
+            .containsEntry("name", "renamed")
+            .containsEntry("data", "payload")
+            .containsEntry("version", updated.getVersion());
+        // The audit entry holds only the values that changed
+        assertThat(jdbcTemplate.queryForObject("""
+                SELECT old_value FROM audit_log
+                WHERE entity_id = ? AND action = 'UPDATE' ORDER BY id DESC LIMIT 1
+                """, String.class, id.toString()))
+            .contains("original")
+            .doesNotContain("sensitivityLevel");
+    }
+
+    @Test
+    void rejectsAStaleIfMatch() {
+        MyDataDto.Response read = myDataService.findById(id, owner, null);
+        myDataService.update(id, MyDataDto.UpdateRequest.builder().name("first").build(), tag(read), owner, null);
+
+        assertThatThrownBy(() -> myDataService.update(id,
+                MyDataDto.UpdateRequest.builder().name("second").build(), tag(read), owner, null))
+            .isInstanceOf(PreconditionFailedException.class);
+        assertThat(jdbcTemplate.queryForObject("SELECT name FROM my_data WHERE id = ?", String.class, id))
+            .isEqualTo("first");
+    }
+
+    @Test
+    void updatesWithoutIfMatch() {
+        myDataService.update(id, MyDataDto.UpdateRequest.builder().name("unconditional").build(), null, owner, null);
+
+        assertThat(jdbcTemplate.queryForObject("SELECT name FROM my_data WHERE id = ?", String.class, id))
+            .isEqualTo("unconditional");
+    }
+
+    @Test
+    void updateReturningWritesOnlyAtTheExpectedVersion() {
+        assertThat(updateReturning(1L, Map.of("name", "too late"))).isEmpty();
+
+        AccessibleMyDataRepository.UpdateResult result = updateReturning(0L, Map.of("name", "on time")).orElseThrow();
+
+        assertThat(result.previous()).containsEntry("name", "original");
+        assertThat(result.current()).containsEntry("name", "on time");
+        assertThat(result.updated().getVersion()).isEqualTo(1L);
+        assertThat(jdbcTemplate.queryForObject("SELECT name FROM my_data WHERE id = ?", String.class, id))
+            .isEqualTo("on time");
+    }
+
+    @Test
+    void updateReturningKeepsTheVersionWhenNothingChanges() {
+        AccessibleMyDataRepository.UpdateResult result = updateReturning(0L, Map.of("name", "original")).orElseThrow();
+
+        assertThat(result.updated().getVersion()).isZero();
+        assertThat(updateReturning(0L, Map.of("name", "still at version 0"))).isPresent();
+    }
+
+    private Optional<AccessibleMyDataRepository.UpdateResult> updateReturning(Long version,
+                                                                            Map<String, Object> changes) {
+        return transactionTemplate.execute(status -> myDataRepository.updateReturning(id, version, changes));
+    }
+
+    private String tag(MyDataDto.Response response) {
+        return entityTagService.tagFor(response.getId(), response.getVersion(), response.getVisibleColumns());
+    }
+}
@@ -0,0 +1,162 @@
+package com.enterprise.datasharing.service;
+
+import com.enterprise.datasharing.dto.RecordCountDto;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks the counters against an exact count of my_data while writes
+ * append deltas and merges fold them in.
+ */
+@SpringBootTest(properties = {
+    "spring.liquibase.change-log=classpath:db/changelog/test-changelog.yaml",
+    "app.cache.invalidation.enabled=false",
+    "app.security.rule-lifecycle.enabled=false",
+    "app.counters.merge-interval=PT1H"
+})
+@Testcontainers(disabledWithoutDocker = true)
+class MyDataCounterServiceTest {
+
+    private static final String OWNER = "counter-owner";
+
+    @Container
+    static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", POSTGRES::getJdbcUrl);
+        registry.add("spring.datasource.username", POSTGRES::getUsername);
+        registry.add("spring.datasource.password", POSTGRES::getPassword);
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private MyDataCounterService counterService;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("DELETE FROM my_data WHERE owner_id = ?", OWNER);
+        counterService.rebuild();
+    }
+
+    @Test
+    void countsEveryCommittedWriteBeforeAndAfterMerging() {
+        insert(12, "ENGINEERING", "ENGINEERING-0", "INTERNAL");
+        insert(5, "FINANCE", null, "CONFIDENTIAL");
+        jdbcTemplate.update("""
+            UPDATE my_data SET sensitivity_level = 'CONFIDENTIAL'
+            WHERE owner_id = ? AND owner_department = 'ENGINEERING' AND name LIKE 'row-1%'
+            """, OWNER);
+        jdbcTemplate.update("UPDATE my_data SET deleted = true WHERE owner_id = ? AND name = 'row-2'", OWNER);
+        jdbcTemplate.update("DELETE FROM my_data WHERE owner_id = ? AND owner_team IS NULL AND name = 'row-3'", OWNER);
+
+        assertThat(pendingDeltas()).isPositive();
+        assertMatchesExactCount();
+
+        assertThat(counterService.merge()).isPositive();
+
+        assertThat(pendingDeltas()).isZero();
+        assertMatchesExactCount();
+        assertThat(counterService.merge()).isZero();
+    }
+
+    @Test
+    void rebuildRecountsWhatTheCountersMissed() {
+        insert(4, "ENGINEERING", "ENGINEERING-1", "PUBLIC");
+        counterService.merge();
+        // Drift the counters the way a lost delta would
+        jdbcTemplate.update("UPDATE my_data_counter SET record_count = record_count + 7");
+
+        assertThat(counterService.counts(false).getTotal()).isNotEqualTo(counterService.counts(true).getTotal());
+
+        counterService.rebuild();
+
+        assertMatchesExactCount();
+        assertThat(pendingDeltas()).isZero();
+    }
+
+    @Test
+    void concurrentMergesFoldEachDeltaOnce() throws Exception {
+        insert(6, "ENGINEERING", "ENGINEERING-0", "INTERNAL");
+        CountDownLatch merged = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            // The first merge keeps its transaction, and so its claimed deltas, open
+            Future<Integer> first = executor.submit(() -> transactionTemplate.execute(status -> {
+                int keys = counterService.merge();
+                merged.countDown();
+                awaitQuietly(release);
+                return keys;
+            }));
+            assertThat(merged.await(30, TimeUnit.SECONDS)).isTrue();
+
+            // This merge skips the claimed deltas rather than waiting on them. Its key differs,
+            // since upserting a counter the open merge wrote would wait on that row
+            insert(3, "FINANCE", "FINANCE-0", "INTERNAL");
+            assertThat(counterService.merge()).isEqualTo(1);
+
+            release.countDown();
+            assertThat(first.get(30, TimeUnit.SECONDS)).isEqualTo(1);
+        } finally {
+            release.countDown();
+            executor.shutdown();
+        }
+
+        assertThat(pendingDeltas()).isZero();
+        assertMatchesExactCount();
+    }
+
+    private void insert(int rows, String department, String team, String sensitivity) {
+        for (int i = 0; i < rows; i++) {
+            jdbcTemplate.update("""
+                INSERT INTO my_data (name, date, sensitivity_level, organization_level, owner_id, owner_department,
+                    owner_team, created_at, created_by, deleted, version)
+                VALUES (?, current_date, ?, 'INDIVIDUAL', ?, ?, ?, now(), ?, false, 0)
+                """, "row-" + i, sensitivity, OWNER, department, team, OWNER);
+        }
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private long pendingDeltas() {
+        return jdbcTemplate.queryForObject("SELECT count(*) FROM my_data_counter_delta", Long.class);
+    }
+
+    private void assertMatchesExactCount() {
+        RecordCountDto.Response counted = counterService.counts(false);
+        RecordCountDto.Response exact = counterService.counts(true);
+
+        assertThat(counted.getEntries()).isEqualTo(exact.getEntries());
+        assertThat(counted.getTotal()).isEqualTo(exact.getTotal());
+        assertThat(counted.getLiveByOrganizationLevel()).isEqualTo(exact.getLiveByOrganizationLevel());
+    }
+}
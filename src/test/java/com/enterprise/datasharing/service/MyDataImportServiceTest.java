@@ -0,0 +1,165 @@
+package com.enterprise.datasharing.service;
+
+import com.enterprise.datasharing.dto.MyDataDto;
+import com.enterprise.datasharing.entity.MyData;
+import com.enterprise.datasharing.entity.UserAttribute;
+import com.enterprise.datasharing.exception.ResourceNotFoundException;
+import com.enterprise.datasharing.security.SecurityContext;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Bulk imports through COPY: rows rejected while parsing, and rows the
+ * server rejects, which must not take the rest of their chunk with them.
+ */
+@SpringBootTest(properties = {
+    "spring.liquibase.change-log=classpath:db/changelog/test-changelog.yaml",
+    "app.cache.invalidation.enabled=false",
+    "app.security.rule-lifecycle.enabled=false",
+    "app.data-import.chunk-rows=8"
+})
+@Testcontainers(disabledWithoutDocker = true)
+class MyDataImportServiceTest {
+
+    private static final String IMPORTER = "import-user";
+
+    @Container
+    static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", POSTGRES::getJdbcUrl);
+        registry.add("spring.datasource.username", POSTGRES::getUsername);
+        registry.add("spring.datasource.password", POSTGRES::getPassword);
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MyDataImportService importService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final SecurityContext importer = SecurityContext.builder()
+        .userId(IMPORTER)
+        .username(IMPORTER)
+        .roles(Set.of("USER"))
+        .department("ENGINEERING")
+        .team("ENGINEERING-0")
+        .organizationLevel(UserAttribute.OrganizationLevel.INDIVIDUAL)
+        .clearanceLevel(UserAttribute.ClearanceLevel.CONFIDENTIAL)
+        .build();
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("DELETE FROM my_data WHERE owner_id = ?", IMPORTER);
+    }
+
+    @Test
+    void rejectsOnlyTheRowsTheServerRejects() throws IOException {
+        StringBuilder upload = new StringBuilder();
+        for (int line = 1; line <= 20; line++) {
+            // Postgres text cannot hold NUL, so COPY fails the chunk these rows are in
+            String name = line == 5 || line == 13 ? "bad\u0000row-" + line : "row-" + line;
+            upload.append(objectMapper.writeValueAsString(MyDataDto.CreateRequest.builder()
+                .name(name)
+                .date(LocalDate.of(2026, 1, line))
+                .organizationLevel(MyData.OrganizationLevel.INDIVIDUAL)
+                .build())).append('\n');
+        }
+
+        MyDataDto.ImportResult result = importData(MyDataImportService.Format.NDJSON, upload.toString());
+
+        assertThat(result.getRowsRead()).isEqualTo(20);
+        assertThat(result.getRowsImported()).isEqualTo(18);
+        assertThat(result.getRowsRejected()).isEqualTo(2);
+        assertThat(result.getChunks()).isEqualTo(3);
+        assertThat(jdbcTemplate.queryForList(
+                "SELECT name FROM my_data WHERE owner_id = ? ORDER BY date", String.class, IMPORTER))
+            .hasSize(18)
+            .doesNotContain("row-5", "row-13")
+            .contains("row-4", "row-6", "row-12", "row-14");
+        assertThat(errors(result)).extracting(MyDataDto.ImportError::getLine).containsExactly(5L, 13L);
+        assertThat(errors(result)).allSatisfy(error -> assertThat(error.getError()).startsWith("COPY failed"));
+        // One audit record per chunk, failed or not
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM audit_log WHERE action = 'BULK_CREATE' AND entity_id LIKE ?",
+                Long.class, result.getImportId() + ":%"))
+            .isEqualTo(3);
+    }
+
+    @Test
+    void rejectsInvalidAndForbiddenRowsBeforeCopying() throws IOException {
+        String upload = """
+            name,date,organization_level,sensitivity_level,financial_data
+            kept,2026-01-01,INDIVIDUAL,INTERNAL,
+            ,2026-01-02,INDIVIDUAL,INTERNAL,
+            executive,2026-01-03,EXECUTIVE,INTERNAL,
+            short,2026-01-04
+            stripped,2026-01-05,INDIVIDUAL,INTERNAL,"{""amount"": 1}"
+            """;
+
+        MyDataDto.ImportResult result = importData(MyDataImportService.Format.CSV, upload);
+
+        assertThat(result.getRowsRead()).isEqualTo(5);
+        assertThat(result.getRowsImported()).isEqualTo(2);
+        assertThat(result.getRowsRejected()).isEqualTo(3);
+        // financialData needs SECRET clearance, so it is dropped rather than the row
+        assertThat(result.getFieldsStripped()).isEqualTo(1);
+        assertThat(jdbcTemplate.queryForList(
+                "SELECT name FROM my_data WHERE owner_id = ? AND financial_data IS NULL ORDER BY name",
+                String.class, IMPORTER))
+            .containsExactly("kept", "stripped");
+        List<MyDataDto.ImportError> errors = errors(result);
+        assertThat(errors).extracting(MyDataDto.ImportError::getLine).containsExactly(3L, 4L, 5L);
+        assertThat(errors.get(0).getError()).contains("Name is required");
+        assertThat(errors.get(1).getError()).startsWith("Access denied for CREATE");
+        assertThat(errors.get(2).getError()).contains("Expected 5 fields");
+    }
+
+    @Test
+    void keepsErrorFilesPrivateToTheUploader() throws IOException {
+        MyDataDto.ImportResult result = importData(MyDataImportService.Format.CSV, "name,date\n,2026-01-01\n");
+        SecurityContext other = SecurityContext.builder().userId("someone-else").roles(Set.of("USER")).build();
+
+        assertThat(importService.errorFile(importer, result.getImportId())).exists();
+        assertThatThrownBy(() -> importService.errorFile(other, result.getImportId()))
+            .isInstanceOf(ResourceNotFoundException.class);
+    }
+
+    private MyDataDto.ImportResult importData(MyDataImportService.Format format, String upload) throws IOException {
+        return importService.importData(importer, format,
+            new ByteArrayInputStream(upload.getBytes(StandardCharsets.UTF_8)), null);
+    }
+
+    private List<MyDataDto.ImportError> errors(MyDataDto.ImportResult result) throws IOException {
+        List<MyDataDto.ImportError> errors = new ArrayList<>();
+        for (String line : Files.readAllLines(importService.errorFile(importer, result.getImportId()))) {
+            errors.add(objectMapper.readValue(line, MyDataDto.ImportError.class));
+        }
+        return errors;
+    }
+}